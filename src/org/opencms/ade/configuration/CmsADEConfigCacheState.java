@@ -28,14 +28,17 @@
 package org.opencms.ade.configuration;
 
 import org.opencms.ade.configuration.CmsADEConfigData.DetailInfo;
+import org.opencms.ade.configuration.formatters.CmsFormatterConfigurationCacheState;
 import org.opencms.ade.detailpage.CmsDetailPageInfo;
 import org.opencms.file.CmsObject;
 import org.opencms.file.CmsResource;
 import org.opencms.file.types.CmsResourceTypeXmlContainerPage;
 import org.opencms.main.CmsException;
 import org.opencms.main.CmsLog;
+import org.opencms.main.CmsRuntimeException;
 import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
+import org.opencms.xml.containerpage.CmsFormatterConfiguration;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -44,11 +47,16 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.commons.logging.Log;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 /**
  * An immutable object which represents the complete ADE configuration (sitemap and module configurations)
@@ -56,6 +64,32 @@ import com.google.common.collect.Maps;
  */
 public class CmsADEConfigCacheState {
 
+    /**
+     * The formatter configurations computed for a formatter configuration cache state.<p>
+     */
+    private static class FormatterIndex {
+
+        /** The formatter configurations by inheritance chain, resource type name and schema formatters. */
+        final Cache<List<Object>, CmsFormatterConfiguration> m_configurations = CacheBuilder.newBuilder().maximumSize(
+            MAX_FORMATTER_CONFIGURATIONS).concurrencyLevel(8).build();
+
+        /** The formatter configuration cache state the formatter configurations were computed with. */
+        final CmsFormatterConfigurationCacheState m_formatterState;
+
+        /**
+         * Creates a new formatter index.<p>
+         *
+         * @param formatterState the formatter configuration cache state
+         */
+        FormatterIndex(CmsFormatterConfigurationCacheState formatterState) {
+
+            m_formatterState = formatterState;
+        }
+    }
+
+    /** The maximum number of cached formatter configurations. */
+    private static final int MAX_FORMATTER_CONFIGURATIONS = 5000;
+
     /** The logger instance for this class. */
     private static final Log LOG = CmsLog.getLog(CmsADEConfigCacheState.class);
 
@@ -71,12 +105,21 @@ public class CmsADEConfigCacheState {
     /** The cached content types for folders. */
     private Map<String, String> m_folderTypes = new HashMap<String, String>();
 
+    /** The cached formatter configurations. */
+    private volatile FormatterIndex m_formatterIndex;
+
+    /** The content types for folders defined by each sitemap configuration, by base path. */
+    private Map<String, Map<String, String>> m_folderTypesByPath = new HashMap<String, Map<String, String>>();
+
     /** The merged configuration from all the modules. */
     private CmsADEConfigDataInternal m_moduleConfiguration;
 
     /** The list of module configurations. */
     private List<CmsADEConfigDataInternal> m_moduleConfigurations;
 
+    /** The content types for folders defined by the module configuration. */
+    private Map<String, String> m_moduleFolderTypes = new HashMap<String, String>();
+
     /** The map of sitemap configurations by structure id. */
     private Map<CmsUUID, CmsADEConfigDataInternal> m_siteConfigurations = new HashMap<CmsUUID, CmsADEConfigDataInternal>();
 
@@ -101,21 +144,66 @@ public class CmsADEConfigCacheState {
         m_siteConfigurations = siteConfigurations;
         m_moduleConfigurations = moduleConfigs;
         m_elementViews = elementViews;
-        for (CmsADEConfigDataInternal data : siteConfigurations.values()) {
-            if (data.getBasePath() != null) {
-                // In theory, the base path should never be null
-                m_siteConfigurationsByPath.put(data.getBasePath(), data);
-            } else {
-                LOG.info("Empty base path for sitemap configuration: " + data.getResource().getRootPath());
-            }
-        }
+        initSiteConfigurationsByPath();
         m_moduleConfiguration = mergeConfigurations(moduleConfigs);
         try {
-            m_folderTypes = computeFolderTypes();
+            m_moduleFolderTypes = wrap(m_moduleConfiguration).getFolderTypes();
         } catch (Exception e) {
-            m_folderTypes = Maps.newHashMap();
+            m_moduleFolderTypes = Maps.newHashMap();
             LOG.error(e.getLocalizedMessage(), e);
         }
+        for (CmsADEConfigDataInternal configData : m_siteConfigurationsByPath.values()) {
+            m_folderTypesByPath.put(configData.getBasePath(), computeFolderTypes(configData));
+        }
+        m_folderTypes = mergeFolderTypes();
+    }
+
+    /**
+     * Creates a new configuration cache state from an existing state, with changed sitemap configurations.<p>
+     *
+     * The module configuration of the existing state is kept. Only the folder types of the sitemap configurations
+     * whose inheritance chain contains one of the changed configurations are computed again,
+     * the folder types of all other sitemap configurations are taken from the existing state.<p>
+     *
+     * @param previous the existing state
+     * @param siteConfigurations the map of sitemap configuration beans by structure id
+     * @param elementViews the available element views
+     * @param changedIds the structure ids of the changed sitemap configurations
+     * @param changedPaths the old and new base paths of the changed sitemap configurations
+     */
+    private CmsADEConfigCacheState(
+        CmsADEConfigCacheState previous,
+        Map<CmsUUID, CmsADEConfigDataInternal> siteConfigurations,
+        Map<CmsUUID, CmsElementView> elementViews,
+        Set<CmsUUID> changedIds,
+        Set<String> changedPaths) {
+
+        m_cms = previous.m_cms;
+        m_siteConfigurations = siteConfigurations;
+        m_moduleConfigurations = previous.m_moduleConfigurations;
+        m_moduleConfiguration = previous.m_moduleConfiguration;
+        m_moduleFolderTypes = previous.m_moduleFolderTypes;
+        m_elementViews = elementViews;
+        initSiteConfigurationsByPath();
+
+        // configurations using a changed master configuration are changed as well
+        Set<String> changedSubtrees = new HashSet<String>(changedPaths);
+        for (CmsADEConfigDataInternal configData : m_siteConfigurationsByPath.values()) {
+            CmsResource masterConfig = configData.getMasterConfig();
+            if ((masterConfig != null) && changedIds.contains(masterConfig.getStructureId())) {
+                changedSubtrees.add(configData.getBasePath());
+            }
+        }
+        for (CmsADEConfigDataInternal configData : m_siteConfigurationsByPath.values()) {
+            String basePath = configData.getBasePath();
+            Map<String, String> folderTypes = previous.m_folderTypesByPath.get(basePath);
+            if ((folderTypes == null) || isInSubtree(basePath, changedSubtrees)) {
+                // the configuration itself or a configuration it inherits from has changed
+                folderTypes = computeFolderTypes(configData);
+            }
+            m_folderTypesByPath.put(basePath, folderTypes);
+        }
+        m_folderTypes = mergeFolderTypes();
     }
 
     /**
@@ -172,27 +260,34 @@ public class CmsADEConfigCacheState {
         Map<CmsUUID, CmsElementView> elementViewUpdates) {
 
         Map<CmsUUID, CmsADEConfigDataInternal> newSitemapConfigs = Maps.newHashMap(m_siteConfigurations);
+        Set<CmsUUID> changedIds = new HashSet<CmsUUID>();
+        Set<String> changedPaths = new HashSet<String>();
         if (sitemapUpdates != null) {
             for (Map.Entry<CmsUUID, CmsADEConfigDataInternal> entry : sitemapUpdates.entrySet()) {
                 CmsUUID key = entry.getKey();
                 CmsADEConfigDataInternal value = entry.getValue();
+                CmsADEConfigDataInternal oldValue;
                 if (value != null) {
-                    newSitemapConfigs.put(key, value);
+                    oldValue = newSitemapConfigs.put(key, value);
+                    addBasePath(changedPaths, value);
                 } else {
-                    newSitemapConfigs.remove(key);
+                    oldValue = newSitemapConfigs.remove(key);
+                }
+                if (oldValue != null) {
+                    addBasePath(changedPaths, oldValue);
                 }
+                changedIds.add(key);
             }
         }
-        List<CmsADEConfigDataInternal> newModuleConfigs = m_moduleConfigurations;
-        if (moduleUpdates != null) {
-            newModuleConfigs = moduleUpdates;
-        }
         Map<CmsUUID, CmsElementView> newElementViews = m_elementViews;
         if (elementViewUpdates != null) {
             newElementViews = elementViewUpdates;
         }
-
-        return new CmsADEConfigCacheState(m_cms, newSitemapConfigs, newModuleConfigs, newElementViews);
+        if (moduleUpdates != null) {
+            // the module configuration is inherited by all sitemap configurations
+            return new CmsADEConfigCacheState(m_cms, newSitemapConfigs, moduleUpdates, newElementViews);
+        }
+        return new CmsADEConfigCacheState(this, newSitemapConfigs, newElementViews, changedIds, changedPaths);
     }
 
     /**
@@ -242,6 +337,50 @@ public class CmsADEConfigCacheState {
         return Collections.unmodifiableMap(m_elementViews);
     }
 
+    /**
+     * Returns the formatter configuration for a resource type in a sitemap configuration.<p>
+     *
+     * The formatter configurations are computed once for each inheritance chain, resource type and
+     * set of schema formatters. They are computed again when the formatter configuration cache state changes,
+     * and when the sitemap or module configuration changes, since this results in a new configuration cache state.<p>
+     *
+     * @param configSequence the inheritance chain of the sitemap configuration
+     * @param typeName the resource type name
+     * @param schemaFormatters the formatters defined in the schema, may be <code>null</code>
+     * @param formatterState the current formatter configuration cache state
+     * @param loader computes the formatter configuration if it is not cached
+     *
+     * @return the formatter configuration
+     */
+    public CmsFormatterConfiguration getFormatterConfiguration(
+        CmsADEConfigurationSequence configSequence,
+        String typeName,
+        CmsFormatterConfiguration schemaFormatters,
+        CmsFormatterConfigurationCacheState formatterState,
+        Callable<CmsFormatterConfiguration> loader) {
+
+        FormatterIndex index = m_formatterIndex;
+        if ((index == null) || (index.m_formatterState != formatterState)) {
+            // the formatters have changed, all formatter configurations must be computed again
+            index = new FormatterIndex(formatterState);
+            m_formatterIndex = index;
+        }
+        List<Object> key = new ArrayList<Object>(configSequence.getConfigChain());
+        key.add(typeName);
+        key.add(schemaFormatters);
+        try {
+            return index.m_configurations.get(key, loader);
+        } catch (ExecutionException e) {
+            throw new CmsRuntimeException(
+                Messages.get().container(Messages.ERR_FORMATTER_CONFIGURATION_1, typeName),
+                e.getCause());
+        } catch (UncheckedExecutionException e) {
+            throw new CmsRuntimeException(
+                Messages.get().container(Messages.ERR_FORMATTER_CONFIGURATION_1, typeName),
+                e.getCause());
+        }
+    }
+
     /**
      * Gets the map of folder types.<p>
      *
@@ -480,6 +619,86 @@ public class CmsADEConfigCacheState {
         return result;
     }
 
+    /**
+     * Adds the base path of the given sitemap configuration to a set of paths, if it is not null.<p>
+     *
+     * @param paths the set of paths
+     * @param configData the sitemap configuration
+     */
+    private void addBasePath(Set<String> paths, CmsADEConfigDataInternal configData) {
+
+        if (configData.getBasePath() != null) {
+            paths.add(configData.getBasePath());
+        }
+    }
+
+    /**
+     * Computes the content types for folders defined by a single sitemap configuration, including the
+     * inherited configurations.<p>
+     *
+     * @param configData the sitemap configuration
+     *
+     * @return the map of content types by folder root paths
+     */
+    private Map<String, String> computeFolderTypes(CmsADEConfigDataInternal configData) {
+
+        try {
+            return wrap(configData).getFolderTypes();
+        } catch (Exception e) {
+            LOG.error(e.getLocalizedMessage(), e);
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Fills the map of sitemap configurations by base path from the map of sitemap configurations by structure id.<p>
+     */
+    private void initSiteConfigurationsByPath() {
+
+        for (CmsADEConfigDataInternal data : m_siteConfigurations.values()) {
+            if (data.getBasePath() != null) {
+                // In theory, the base path should never be null
+                m_siteConfigurationsByPath.put(data.getBasePath(), data);
+            } else {
+                LOG.info("Empty base path for sitemap configuration: " + data.getResource().getRootPath());
+            }
+        }
+    }
+
+    /**
+     * Checks if the given base path is equal to or below one of the given base paths.<p>
+     *
+     * @param basePath the base path to check
+     * @param subtrees the base paths of the subtrees
+     *
+     * @return true if the base path is in one of the subtrees
+     */
+    private boolean isInSubtree(String basePath, Set<String> subtrees) {
+
+        String path = CmsStringUtil.joinPaths("/", basePath, "/");
+        for (String subtree : subtrees) {
+            if (path.startsWith(CmsStringUtil.joinPaths("/", subtree, "/"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Merges the folder types of the module configuration and all sitemap configurations.<p>
+     *
+     * @return the map of content types by folder root paths
+     */
+    private Map<String, String> mergeFolderTypes() {
+
+        // do this first, since folder types from modules should be overwritten by folder types from sitemaps
+        Map<String, String> folderTypes = Maps.newHashMap(m_moduleFolderTypes);
+        for (Map<String, String> configFolderTypes : m_folderTypesByPath.values()) {
+            folderTypes.putAll(configFolderTypes);
+        }
+        return folderTypes;
+    }
+
     /**
      * Wraps the internal config data into a bean which manages the lookup of inherited configurations.<p>
      *
@@ -58,6 +58,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import org.apache.commons.lang.builder.ReflectionToStringBuilder;
 import org.apache.commons.logging.Log;
@@ -980,12 +981,46 @@ public class CmsADEConfigData {
      * @return the configuration of formatters for the resource type
      */
     protected CmsFormatterConfiguration getFormatters(
+        final CmsObject cms,
+        final I_CmsResourceType resType,
+        final CmsFormatterConfiguration schemaFormatters) {
+
+        final CmsFormatterConfigurationCacheState formatterCacheState = getCachedFormatters();
+        if ((m_cache == null) || (m_configSequence == null)) {
+            // not part of a configuration state, e.g. a configuration created for tests
+            return computeFormatters(cms, resType, schemaFormatters, formatterCacheState);
+        }
+        return m_cache.getFormatterConfiguration(
+            m_configSequence,
+            resType.getTypeName(),
+            schemaFormatters,
+            formatterCacheState,
+            new Callable<CmsFormatterConfiguration>() {
+
+                public CmsFormatterConfiguration call() {
+
+                    return computeFormatters(cms, resType, schemaFormatters, formatterCacheState);
+                }
+            });
+    }
+
+    /**
+     * Computes the formatter configuration for a resource type.<p>
+     *
+     * @param cms the current CMS context
+     * @param resType the resource type
+     * @param schemaFormatters the resource schema formatters
+     * @param formatterCacheState the formatter configuration cache state
+     *
+     * @return the configuration of formatters for the resource type
+     */
+    CmsFormatterConfiguration computeFormatters(
         CmsObject cms,
         I_CmsResourceType resType,
-        CmsFormatterConfiguration schemaFormatters) {
+        CmsFormatterConfiguration schemaFormatters,
+        CmsFormatterConfigurationCacheState formatterCacheState) {
 
         String typeName = resType.getTypeName();
-        CmsFormatterConfigurationCacheState formatterCacheState = getCachedFormatters();
         List<I_CmsFormatterBean> formatters = new ArrayList<I_CmsFormatterBean>();
         Set<String> types = new HashSet<String>();
         types.add(typeName);
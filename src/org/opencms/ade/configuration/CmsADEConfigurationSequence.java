@@ -79,6 +79,16 @@ public class CmsADEConfigurationSequence {
         return m_configDatas.get(m_configIndex);
     }
 
+    /**
+     * Gets the configuration data from the start of the sequence up to and including the current configuration data.<p>
+     *
+     * @return the list of configuration data inherited by the current configuration data, ending with the current one
+     */
+    public List<CmsADEConfigDataInternal> getConfigChain() {
+
+        return m_configDatas.subList(0, m_configIndex + 1);
+    }
+
     /**
      * Returns a sequence which only differs from this instance in that its index is one less.<p>
      *
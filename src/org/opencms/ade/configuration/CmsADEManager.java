@@ -320,6 +320,31 @@ public class CmsADEManager {
         return cache.getState();
     }
 
+    /**
+     * Returns the duration of the last update of the sitemap and module configuration cache.<p>
+     *
+     * @param online true for the Online project cache, false for the Offline cache
+     *
+     * @return the duration of the last configuration update in milliseconds
+     */
+    public long getConfigurationCacheUpdateDuration(boolean online) {
+
+        return getCache(online).getLastUpdateDuration();
+    }
+
+    /**
+     * Returns the staleness window of the last update of the sitemap and module configuration cache,
+     * i.e. the time between the first change handled by the update and the end of the update.<p>
+     *
+     * @param online true for the Online project cache, false for the Offline cache
+     *
+     * @return the staleness window of the last configuration update in milliseconds
+     */
+    public long getConfigurationCacheUpdateStaleness(boolean online) {
+
+        return getCache(online).getLastUpdateStaleness();
+    }
+
     /**
      * Gets the configuration file type.<p>
      *
@@ -40,6 +40,7 @@ import org.opencms.main.CmsException;
 import org.opencms.main.CmsLog;
 import org.opencms.main.CmsRuntimeException;
 import org.opencms.main.OpenCms;
+import org.opencms.util.CmsPair;
 import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 import org.opencms.util.CmsWaitHandle;
@@ -130,6 +131,12 @@ class CmsConfigurationCache implements I_CmsGlobalConfigurationCache {
     /** The element view resource type. */
     private I_CmsResourceType m_elementViewType;
 
+    /** The duration of the last configuration update in milliseconds. */
+    private volatile long m_lastUpdateDuration;
+
+    /** The time in milliseconds between the first change and the end of the last configuration update. */
+    private volatile long m_lastUpdateStaleness;
+
     /** A cache which stores resources' paths by their structure IDs. */
     private ConcurrentHashMap<CmsUUID, String> m_pathCache = new ConcurrentHashMap<CmsUUID, String>();
 
@@ -194,6 +201,27 @@ class CmsConfigurationCache implements I_CmsGlobalConfigurationCache {
         m_pathCache.clear();
     }
 
+    /**
+     * Returns the duration of the last configuration update.<p>
+     *
+     * @return the duration of the last configuration update in milliseconds
+     */
+    public long getLastUpdateDuration() {
+
+        return m_lastUpdateDuration;
+    }
+
+    /**
+     * Returns the staleness window of the last configuration update, i.e. the time between the
+     * first change handled by the update and the end of the update.<p>
+     *
+     * @return the staleness window of the last configuration update in milliseconds
+     */
+    public long getLastUpdateStaleness() {
+
+        return m_lastUpdateStaleness;
+    }
+
     /**
      * Looks up the root path for a given structure id.<p>
      *
@@ -215,6 +243,17 @@ class CmsConfigurationCache implements I_CmsGlobalConfigurationCache {
         return res.getRootPath();
     }
 
+    /**
+     * Returns the time for which the oldest pending change has not been applied to the cached configuration.<p>
+     *
+     * @return the age of the oldest pending change in milliseconds, or 0 if there are no pending changes
+     */
+    public long getPendingUpdateAge() {
+
+        long firstUpdateTime = m_updateSet.getFirstUpdateTime();
+        return firstUpdateTime == 0 ? 0 : System.currentTimeMillis() - firstUpdateTime;
+    }
+
     /**
      * Gets the currently cached configuration state.<p>
      *
@@ -497,7 +536,9 @@ class CmsConfigurationCache implements I_CmsGlobalConfigurationCache {
 
         // Wrap a try-catch around everything, because an escaping exception would cancel the task from which this is called
         try {
-            Set<CmsUUID> updateIds = m_updateSet.removeAll();
+            CmsPair<Set<CmsUUID>, Long> updates = m_updateSet.removeAllWithFirstUpdateTime();
+            Set<CmsUUID> updateIds = updates.getFirst();
+            long firstUpdateTime = updates.getSecond().longValue();
             CmsADEConfigCacheState oldState = m_state;
             if (!updateIds.isEmpty() || (oldState == null)) {
                 try {
@@ -509,7 +550,9 @@ class CmsConfigurationCache implements I_CmsGlobalConfigurationCache {
                 } catch (InterruptedException e) {
                     // ignore
                 }
-                if (updateIds.contains(ID_UPDATE_ALL) || (oldState == null)) {
+                long beginTime = System.currentTimeMillis();
+                boolean fullUpdate = updateIds.contains(ID_UPDATE_ALL) || (oldState == null);
+                if (fullUpdate) {
                     m_state = readCompleteConfiguration();
                 } else {
                     boolean updateModules = updateIds.remove(ID_UPDATE_MODULES);
@@ -531,6 +574,18 @@ class CmsConfigurationCache implements I_CmsGlobalConfigurationCache {
                     }
                     m_state = oldState.createUpdatedCopy(updateMap, moduleConfigs, elementViews);
                 }
+                long endTime = System.currentTimeMillis();
+                m_lastUpdateDuration = endTime - beginTime;
+                m_lastUpdateStaleness = firstUpdateTime > 0 ? endTime - firstUpdateTime : m_lastUpdateDuration;
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(
+                        (fullUpdate ? "Full" : "Incremental")
+                            + " configuration update took "
+                            + m_lastUpdateDuration
+                            + "ms, changes were applied after "
+                            + m_lastUpdateStaleness
+                            + "ms");
+                }
             }
         } catch (Exception e) {
             LOG.error("Could not perform configuration cache update: " + e.getMessage(), e);
@@ -27,6 +27,8 @@
 
 package org.opencms.ade.configuration;
 
+import org.opencms.util.CmsPair;
+
 import java.util.HashSet;
 import java.util.Set;
 
@@ -39,6 +41,9 @@ import java.util.Set;
  */
 public class CmsSynchronizedUpdateSet<U> {
 
+    /** The time at which the oldest of the updates to perform was added, 0 if there are no updates. */
+    private long m_firstUpdateTime;
+
     /** The set of updates to perform. */
     private Set<U> m_set = new HashSet<U>();
 
@@ -49,19 +54,45 @@ public class CmsSynchronizedUpdateSet<U> {
      */
     public synchronized void add(U update) {
 
+        if (m_set.isEmpty()) {
+            m_firstUpdateTime = System.currentTimeMillis();
+        }
         m_set.add(update);
     }
 
+    /**
+     * Returns the time at which the oldest of the updates to perform was added.<p>
+     *
+     * @return the time at which the oldest update was added, or 0 if there are no updates
+     */
+    public synchronized long getFirstUpdateTime() {
+
+        return m_firstUpdateTime;
+    }
+
     /**
      * Removes all updates from the internal set and returns a new set containing the removed updates.<p>
      *
      * @return the removed updates
      */
-    public synchronized Set<U> removeAll() {
+    public Set<U> removeAll() {
+
+        return removeAllWithFirstUpdateTime().getFirst();
+    }
+
+    /**
+     * Removes all updates from the internal set and returns a new set containing the removed updates,
+     * together with the time at which the oldest of the removed updates was added.<p>
+     *
+     * @return the removed updates, and the time at which the oldest of them was added, or 0 if there were no updates
+     */
+    public synchronized CmsPair<Set<U>, Long> removeAllWithFirstUpdateTime() {
 
         Set<U> result = new HashSet<U>(m_set);
+        long firstUpdateTime = m_firstUpdateTime;
         m_set.clear();
-        return result;
+        m_firstUpdateTime = 0;
+        return CmsPair.create(result, Long.valueOf(firstUpdateTime));
     }
 
 }
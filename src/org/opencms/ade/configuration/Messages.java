@@ -37,6 +37,9 @@ import org.opencms.i18n.I_CmsMessageBundle;
  */
 public final class Messages extends A_CmsMessageBundle {
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_FORMATTER_CONFIGURATION_1 = "ERR_FORMATTER_CONFIGURATION_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String GUI_ELEMENT_VIEW_DEFAULT_TITLE_0 = "GUI_ELEMENT_VIEW_DEFAULT_TITLE_0";
 
@@ -0,0 +1,586 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.cache;
+
+import org.opencms.main.CmsLog;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * A concurrent drop-in replacement for the {@link CmsLruCache}.<p>
+ *
+ * The cache policy is the same as the one of the {@link CmsLruCache}: Objects implementing
+ * {@link I_CmsLruCacheObject} are kept in a double linked list, and as soon as the sum of the
+ * object costs exceeds the max. cache costs, the last-recently-used objects are removed until
+ * the costs are below the avg. cache costs again.<p>
+ *
+ * The difference is how concurrent access is handled. The {@link CmsLruCache} uses one global monitor
+ * for every operation, so that every cache hit (which requires a "touch" of the hit object) blocks all other
+ * threads using the cache. This implementation does not lock on {@link #touch(I_CmsLruCacheObject)}.
+ * Instead, touched objects are recorded in one of several striped read buffers (selected by the current thread),
+ * and the buffered touches are applied to the LRU list later, either when a buffer is full enough and
+ * the policy lock is free, or on the next structural modification ({@link #add(I_CmsLruCacheObject)},
+ * {@link #remove(I_CmsLruCacheObject)}, {@link #clear()}).<p>
+ *
+ * Recording a touch does not allocate any objects. Touches that can not be buffered because a buffer is full
+ * or because of a race with another thread are dropped. This only makes the LRU order
+ * a little less exact under very high load, it never affects the cost accounting.<p>
+ *
+ * @see org.opencms.cache.CmsLruCache
+ * @see org.opencms.cache.I_CmsLruCacheObject
+ *
+ * @since 10.5.0
+ */
+public class CmsConcurrentLruCache extends CmsLruCache {
+
+    /**
+     * A lossy ring buffer stripe that records touched cache objects.<p>
+     *
+     * Any thread may record touches, but only the thread holding the policy lock reads them.<p>
+     */
+    private static class CmsReadBuffer {
+
+        /** The slots of the ring buffer. */
+        final AtomicReferenceArray<I_CmsLruCacheObject> m_slots = new AtomicReferenceArray<I_CmsLruCacheObject>(
+            BUFFER_SIZE);
+
+        /** The number of touches read from this buffer, only written while the policy lock is held. */
+        volatile long m_readCount;
+
+        /** The number of touches written to this buffer. */
+        final AtomicLong m_writeCount = new AtomicLong();
+
+        /**
+         * Default constructor.<p>
+         */
+        CmsReadBuffer() {
+
+            // nothing to do
+        }
+
+        /**
+         * Records a touched object.<p>
+         *
+         * @param theCacheObject the touched object
+         *
+         * @return the number of pending touches in this buffer, or -1 if the touch was dropped
+         */
+        int offer(I_CmsLruCacheObject theCacheObject) {
+
+            long head = m_readCount;
+            long tail = m_writeCount.get();
+            long size = tail - head;
+            if (size >= BUFFER_SIZE) {
+                // buffer is full
+                return -1;
+            }
+            if (m_writeCount.compareAndSet(tail, tail + 1)) {
+                m_slots.lazySet((int)(tail & BUFFER_MASK), theCacheObject);
+                return (int)size + 1;
+            }
+            // lost the race with another thread, dropping the touch is fine
+            return -1;
+        }
+    }
+
+    /** Number of pending touches in a read buffer that triggers an attempt to apply them to the LRU list. */
+    public static final int DRAIN_THRESHOLD = 32;
+
+    /** Size of a read buffer, i.e. the max. number of pending touches per stripe, must be a power of two. */
+    static final int BUFFER_SIZE = 128;
+
+    /** Bit mask to map touch counts to read buffer slots. */
+    static final int BUFFER_MASK = BUFFER_SIZE - 1;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsConcurrentLruCache.class);
+
+    /** The read buffer stripes. */
+    private final CmsReadBuffer[] m_buffers;
+
+    /** The bit mask used to select a read buffer stripe. */
+    private final int m_bufferMask;
+
+    /** The head of the list of double linked LRU cache objects. */
+    private volatile I_CmsLruCacheObject m_listHead;
+
+    /** The tail of the list of double linked LRU cache objects. */
+    private I_CmsLruCacheObject m_listTail;
+
+    /** The lock guarding the LRU list. */
+    private final ReentrantLock m_lock;
+
+    /** The costs of all cached objects. */
+    private volatile int m_objectCosts;
+
+    /** The sum of all cached objects. */
+    private volatile int m_objectCount;
+
+    /**
+     * The constructor with all options.<p>
+     *
+     * @param theMaxCacheCosts the maximum cache costs of all cached objects
+     * @param theAvgCacheCosts the average cache costs of all cached objects
+     * @param theMaxObjectCosts the maximum allowed cache costs per object. Set theMaxObjectCosts to -1 if you don't want to limit the max. allowed cache costs per object
+     */
+    public CmsConcurrentLruCache(long theMaxCacheCosts, long theAvgCacheCosts, int theMaxObjectCosts) {
+
+        super(theMaxCacheCosts, theAvgCacheCosts, theMaxObjectCosts);
+        m_lock = new ReentrantLock();
+        // use the next power of two >= the number of processors as number of stripes
+        int stripes = 1;
+        while (stripes < Runtime.getRuntime().availableProcessors()) {
+            stripes <<= 1;
+        }
+        m_buffers = new CmsReadBuffer[stripes];
+        for (int i = 0; i < stripes; i++) {
+            m_buffers[i] = new CmsReadBuffer();
+        }
+        m_bufferMask = stripes - 1;
+    }
+
+    /**
+     * @see org.opencms.cache.CmsLruCache#add(org.opencms.cache.I_CmsLruCacheObject)
+     */
+    @Override
+    public boolean add(I_CmsLruCacheObject theCacheObject) {
+
+        if (theCacheObject == null) {
+            // null can't be added or touched in the cache
+            return false;
+        }
+
+        // only objects with cache costs < the max. allowed object cache costs can be cached!
+        if (isTooExpensive(theCacheObject)) {
+            return false;
+        }
+
+        m_lock.lock();
+        try {
+            drainBuffers();
+            if (!isCached(theCacheObject)) {
+                // add the object to the list of all cached objects in the cache
+                addHead(theCacheObject);
+            } else {
+                moveToHead(theCacheObject);
+            }
+
+            // check if the cache has to trash the last-recently-used objects before adding a new object
+            if (m_objectCosts > getMaxCacheCosts()) {
+                gc();
+            }
+        } finally {
+            m_lock.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * @see org.opencms.cache.CmsLruCache#clear()
+     */
+    @Override
+    public void clear() {
+
+        m_lock.lock();
+        try {
+            // pending touches are obsolete
+            for (CmsReadBuffer buffer : m_buffers) {
+                discardBuffer(buffer);
+            }
+            // remove all objects from the linked list from the tail to the head:
+            while (m_listTail != null) {
+                removeTail();
+            }
+
+            // reset the data structure
+            m_objectCosts = 0;
+            m_objectCount = 0;
+            m_listHead = null;
+            m_listTail = null;
+        } finally {
+            m_lock.unlock();
+        }
+    }
+
+    /**
+     * @see org.opencms.cache.CmsLruCache#getObjectCosts()
+     */
+    @Override
+    public int getObjectCosts() {
+
+        return m_objectCosts;
+    }
+
+    /**
+     * @see org.opencms.cache.CmsLruCache#remove(org.opencms.cache.I_CmsLruCacheObject)
+     */
+    @Override
+    public I_CmsLruCacheObject remove(I_CmsLruCacheObject theCacheObject) {
+
+        if (theCacheObject == null) {
+            return null;
+        }
+        m_lock.lock();
+        try {
+            if (!isCached(theCacheObject)) {
+                // theCacheObject is not inside the cache
+                return null;
+            }
+            unlink(theCacheObject);
+            // update cache stats. and notify the cached object
+            decreaseCache(theCacheObject);
+            return theCacheObject;
+        } finally {
+            m_lock.unlock();
+        }
+    }
+
+    /**
+     * @see org.opencms.cache.CmsLruCache#size()
+     */
+    @Override
+    public int size() {
+
+        return m_objectCount;
+    }
+
+    /**
+     * @see org.opencms.cache.CmsLruCache#toString()
+     */
+    @Override
+    public String toString() {
+
+        StringBuffer buf = new StringBuffer();
+        buf.append("max. costs: " + getMaxCacheCosts()).append(", ");
+        buf.append("avg. costs: " + getAvgCacheCosts()).append(", ");
+        buf.append("max. costs/object: " + getMaxObjectCosts()).append(", ");
+        buf.append("costs: " + m_objectCosts).append(", ");
+        buf.append("count: " + m_objectCount).append(", ");
+        buf.append("read buffers: " + m_buffers.length);
+        return buf.toString();
+    }
+
+    /**
+     * Touch an existing object in this cache, in the sense that it's "last-recently-used" state
+     * is updated.<p>
+     *
+     * The touch is only recorded and applied to the LRU list later, so this method does not block.
+     * The returned value therefore is only a snapshot of the state of the cache.<p>
+     *
+     * @param theCacheObject the object being touched
+     * @return true if an object was found and touched
+     *
+     * @see org.opencms.cache.CmsLruCache#touch(org.opencms.cache.I_CmsLruCacheObject)
+     */
+    @Override
+    public boolean touch(I_CmsLruCacheObject theCacheObject) {
+
+        if (!isProbablyCached(theCacheObject)) {
+            return false;
+        }
+
+        // only objects with cache costs < the max. allowed object cache costs can be cached!
+        if (isTooExpensive(theCacheObject)) {
+            remove(theCacheObject);
+            return false;
+        }
+
+        CmsReadBuffer buffer = m_buffers[(int)Thread.currentThread().getId() & m_bufferMask];
+        int pending = buffer.offer(theCacheObject);
+        if (((pending == -1) || (pending >= DRAIN_THRESHOLD)) && m_lock.tryLock()) {
+            try {
+                drainBuffers();
+            } finally {
+                m_lock.unlock();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a cache object as the new head to the list of all cached objects in this cache.<p>
+     *
+     * The policy lock must be held by the calling thread.<p>
+     *
+     * @param theCacheObject the object being added as the new head to the list of all cached objects
+     */
+    private void addHead(I_CmsLruCacheObject theCacheObject) {
+
+        linkHead(theCacheObject);
+        // update cache stats. and notify the cached object
+        increaseCache(theCacheObject);
+    }
+
+    /**
+     * Decrease this caches statistics
+     * and notify the cached object that it was removed from this cache.<p>
+     *
+     * The policy lock must be held by the calling thread.<p>
+     *
+     * @param theCacheObject the object being notified that it was removed from the cache
+     */
+    private void decreaseCache(I_CmsLruCacheObject theCacheObject) {
+
+        // notify the object that it was now removed from the cache
+        theCacheObject.removeFromLruCache();
+
+        // set the list pointers to null
+        theCacheObject.setNextLruObject(null);
+        theCacheObject.setPreviousLruObject(null);
+
+        // update the cache stats.
+        m_objectCosts -= theCacheObject.getLruCacheCosts();
+        m_objectCount--;
+    }
+
+    /**
+     * Discards all pending touches of the given read buffer.<p>
+     *
+     * The policy lock must be held by the calling thread.<p>
+     *
+     * @param buffer the read buffer
+     */
+    private void discardBuffer(CmsReadBuffer buffer) {
+
+        long head = buffer.m_readCount;
+        long tail = buffer.m_writeCount.get();
+        for (; head < tail; head++) {
+            buffer.m_slots.lazySet((int)(head & BUFFER_MASK), null);
+        }
+        buffer.m_readCount = head;
+    }
+
+    /**
+     * Applies all buffered touches to the LRU list.<p>
+     *
+     * The policy lock must be held by the calling thread.<p>
+     */
+    private void drainBuffers() {
+
+        for (CmsReadBuffer buffer : m_buffers) {
+            long head = buffer.m_readCount;
+            long tail = buffer.m_writeCount.get();
+            for (; head < tail; head++) {
+                int index = (int)(head & BUFFER_MASK);
+                I_CmsLruCacheObject touched = buffer.m_slots.get(index);
+                if (touched == null) {
+                    // the writing thread has not yet published the slot, continue on the next drain
+                    break;
+                }
+                buffer.m_slots.lazySet(index, null);
+                // the object may have been removed since it was touched
+                if (isCached(touched)) {
+                    moveToHead(touched);
+                }
+            }
+            buffer.m_readCount = head;
+        }
+    }
+
+    /**
+     * Removes the last recently used objects from the list of all cached objects as long
+     * as the costs of all cached objects are higher than the allowed avg. costs of the cache.<p>
+     *
+     * The policy lock must be held by the calling thread.<p>
+     */
+    private void gc() {
+
+        while ((m_listTail != null) && (m_objectCosts >= getAvgCacheCosts())) {
+            removeTail();
+        }
+    }
+
+    /**
+     * Increase this caches statistics
+     * and notify the cached object that it was added to this cache.<p>
+     *
+     * The policy lock must be held by the calling thread.<p>
+     *
+     * @param theCacheObject the object being notified that it was added to the cache
+     */
+    private void increaseCache(I_CmsLruCacheObject theCacheObject) {
+
+        // notify the object that it was now added to the cache
+        theCacheObject.addToLruCache();
+
+        // update the cache stats.
+        m_objectCosts += theCacheObject.getLruCacheCosts();
+        m_objectCount++;
+    }
+
+    /**
+     * Test if a given object resides inside the cache.<p>
+     *
+     * The policy lock must be held by the calling thread.<p>
+     *
+     * @param theCacheObject the object to test
+     * @return true if the object is inside the cache, false otherwise
+     */
+    private boolean isCached(I_CmsLruCacheObject theCacheObject) {
+
+        if ((theCacheObject == null) || (m_objectCount == 0)) {
+            // the cache is empty or the object is null (which is never cached)
+            return false;
+        }
+
+        if ((theCacheObject.getNextLruObject() != null) || (theCacheObject.getPreviousLruObject() != null)) {
+            // the object has either a predecessor or successor in the linked
+            // list of all cached objects, so it is inside the cache
+            return true;
+        }
+
+        // both pointers are null, so the object is only cached if it is the one and only object in the cache
+        return (m_objectCount == 1) && (m_listHead == theCacheObject) && (m_listTail == theCacheObject);
+    }
+
+    /**
+     * Tests without locking if a given object resides inside the cache.<p>
+     *
+     * The result is only a hint, since the LRU list may be modified concurrently.<p>
+     *
+     * @param theCacheObject the object to test
+     * @return true if the object is probably inside the cache
+     */
+    private boolean isProbablyCached(I_CmsLruCacheObject theCacheObject) {
+
+        if ((theCacheObject == null) || (m_objectCount == 0)) {
+            return false;
+        }
+        return (theCacheObject.getNextLruObject() != null)
+            || (theCacheObject.getPreviousLruObject() != null)
+            || (m_listHead == theCacheObject);
+    }
+
+    /**
+     * Checks if the costs of the given object exceed the max. allowed costs per object.<p>
+     *
+     * @param theCacheObject the object to check
+     * @return true if the object is too expensive to be cached
+     */
+    private boolean isTooExpensive(I_CmsLruCacheObject theCacheObject) {
+
+        int maxObjectCosts = getMaxObjectCosts();
+        if ((maxObjectCosts != -1) && (theCacheObject.getLruCacheCosts() > maxObjectCosts)) {
+            if (LOG.isInfoEnabled()) {
+                LOG.info(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_CACHE_COSTS_TOO_HIGH_2,
+                        new Integer(theCacheObject.getLruCacheCosts()),
+                        new Integer(maxObjectCosts)));
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Links a cache object as the new head of the list of all cached objects in this cache.<p>
+     *
+     * The policy lock must be held by the calling thread.<p>
+     *
+     * @param theCacheObject the object being linked as the new head
+     */
+    private void linkHead(I_CmsLruCacheObject theCacheObject) {
+
+        I_CmsLruCacheObject oldHead = m_listHead;
+        if (oldHead != null) {
+            // there is at least 1 object already in the list
+            oldHead.setNextLruObject(theCacheObject);
+            theCacheObject.setPreviousLruObject(oldHead);
+        } else {
+            // it is the first object to be added to the list
+            m_listTail = theCacheObject;
+            theCacheObject.setPreviousLruObject(null);
+        }
+        theCacheObject.setNextLruObject(null);
+        m_listHead = theCacheObject;
+    }
+
+    /**
+     * Moves a cached object to the head of the list of all cached objects in this cache.<p>
+     *
+     * The policy lock must be held by the calling thread.<p>
+     *
+     * @param theCacheObject the object to move
+     */
+    private void moveToHead(I_CmsLruCacheObject theCacheObject) {
+
+        if (theCacheObject.getNextLruObject() == null) {
+            // the object is already at the head pos.
+            return;
+        }
+        unlink(theCacheObject);
+        linkHead(theCacheObject);
+    }
+
+    /**
+     * Removes the tailing object from the list of all cached objects.<p>
+     *
+     * The policy lock must be held by the calling thread.<p>
+     */
+    private void removeTail() {
+
+        I_CmsLruCacheObject oldTail = m_listTail;
+        if (oldTail != null) {
+            unlink(oldTail);
+            // update cache stats. and notify the cached object
+            decreaseCache(oldTail);
+        }
+    }
+
+    /**
+     * Unlinks a cached object from the list of all cached objects, no matter what position it has inside the list.<p>
+     *
+     * The policy lock must be held by the calling thread.<p>
+     *
+     * @param theCacheObject the object to unlink
+     */
+    private void unlink(I_CmsLruCacheObject theCacheObject) {
+
+        I_CmsLruCacheObject nextObj = theCacheObject.getNextLruObject();
+        I_CmsLruCacheObject prevObj = theCacheObject.getPreviousLruObject();
+        if (nextObj == null) {
+            // the object is the head
+            m_listHead = prevObj;
+        } else {
+            nextObj.setPreviousLruObject(prevObj);
+        }
+        if (prevObj == null) {
+            // the object is the tail
+            m_listTail = nextObj;
+        } else {
+            prevObj.setNextLruObject(nextObj);
+        }
+        theCacheObject.setNextLruObject(null);
+        theCacheObject.setPreviousLruObject(null);
+    }
+}
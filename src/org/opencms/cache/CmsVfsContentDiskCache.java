@@ -0,0 +1,478 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.cache;
+
+import org.opencms.db.CmsPublishedResource;
+import org.opencms.file.CmsObject;
+import org.opencms.main.CmsEvent;
+import org.opencms.main.CmsException;
+import org.opencms.main.CmsLog;
+import org.opencms.main.I_CmsEventListener;
+import org.opencms.main.OpenCms;
+import org.opencms.util.CmsFileUtil;
+import org.opencms.util.CmsUUID;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Implements a RFS file based disk cache for the contents of online VFS files.<p>
+ *
+ * The cache entries are addressed by the resource id and the content date of a resource,
+ * so an entry never has to be checked against the VFS. A changed content gets a new content date and
+ * thus a new entry, the entries of published resources are removed on the publish event.<p>
+ *
+ * All entries are kept in an in-memory index, ordered by their last access, which is built once
+ * from the cache folder. If the configured maximum size is exceeded, the least recently used entries are removed.<p>
+ *
+ * The files of removed entries are deleted from the RFS after a delay only, because requests may still
+ * be sending them, e.g. with sendfile after the request has been processed.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsVfsContentDiskCache implements I_CmsEventListener {
+
+    /** The default time in milliseconds the files of removed entries are kept in the RFS. */
+    public static final long DEFAULT_DELETE_DELAY = 60000;
+
+    /** The maximum part of the cache a single entry may use. */
+    private static final int MAX_ENTRY_FRACTION = 10;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsVfsContentDiskCache.class);
+
+    /** The suffix of partially written cache files. */
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    /** The time in milliseconds the files of removed entries are kept in the RFS. */
+    private long m_deleteDelay = DEFAULT_DELETE_DELAY;
+
+    /** The names of the files of removed entries that are not yet deleted, with the time of removal. */
+    private LinkedHashMap<String, Long> m_deletes = new LinkedHashMap<String, Long>();
+
+    /** The in-memory index of the cache entries, keyed by file name, with the file size, in order of last access. */
+    private LinkedHashMap<String, Long> m_index;
+
+    /** The maximum size of all cache entries in bytes, 0 for no limit. */
+    private long m_maxSize;
+
+    /** The name of the cache base repository folder in the RFS. */
+    private String m_rfsRepository;
+
+    /** The size of all cache entries in bytes. */
+    private long m_size;
+
+    /**
+     * Creates a new content disk cache.<p>
+     *
+     * @param basepath the base path for the cache in the RFS
+     * @param foldername the folder name for this cache, to be used a subfolder for the base folder
+     * @param maxSize the maximum size of all cache entries in bytes, 0 for no limit
+     */
+    public CmsVfsContentDiskCache(String basepath, String foldername, long maxSize) {
+
+        // normalize the given folder name
+        m_rfsRepository = CmsFileUtil.normalizePath(basepath + foldername + File.separatorChar);
+        m_maxSize = maxSize;
+    }
+
+    /**
+     * Returns the name of the cache file for the given resource id and content date.<p>
+     *
+     * @param resourceId the resource id
+     * @param dateContent the content date
+     *
+     * @return the name of the cache file
+     */
+    private static String getCacheName(CmsUUID resourceId, long dateContent) {
+
+        return resourceId.toString() + "_" + dateContent;
+    }
+
+    /**
+     * @see org.opencms.main.I_CmsEventListener#cmsEvent(org.opencms.main.CmsEvent)
+     */
+    public void cmsEvent(CmsEvent event) {
+
+        if ((event.getType() != I_CmsEventListener.EVENT_PUBLISH_PROJECT) || (event.getData() == null)) {
+            return;
+        }
+        Object publishHistoryId = event.getData().get(I_CmsEventListener.KEY_PUBLISHID);
+        if (publishHistoryId == null) {
+            return;
+        }
+        try {
+            CmsObject cms = OpenCms.initCmsObject(OpenCms.getDefaultUsers().getUserExport());
+            Set<CmsUUID> resourceIds = new HashSet<CmsUUID>();
+            for (CmsPublishedResource pubRes : cms.readPublishedResources(
+                new CmsUUID(publishHistoryId.toString()))) {
+                if (pubRes.isFile()) {
+                    resourceIds.add(pubRes.getResourceId());
+                }
+            }
+            removeResources(resourceIds);
+        } catch (CmsException e) {
+            LOG.error(
+                Messages.get().getBundle().key(Messages.LOG_CONTENT_CACHE_PUBLISH_FAILED_1, publishHistoryId),
+                e);
+        }
+    }
+
+    /**
+     * Returns the cache file for the given resource id and content date, or <code>null</code>
+     * if the content is not cached.<p>
+     *
+     * @param resourceId the resource id
+     * @param dateContent the content date
+     *
+     * @return the cache file, or <code>null</code> if the content is not cached
+     */
+    public File getCacheFile(CmsUUID resourceId, long dateContent) {
+
+        String name = getCacheName(resourceId, dateContent);
+        synchronized (this) {
+            if (getIndex().get(name) == null) {
+                return null;
+            }
+        }
+        File f = getFile(name);
+        if (!f.isFile()) {
+            // the file has been removed from the RFS
+            synchronized (this) {
+                Long size = m_index.remove(name);
+                if (size != null) {
+                    m_size -= size.longValue();
+                }
+            }
+            return null;
+        }
+        return f;
+    }
+
+    /**
+     * Returns the time in milliseconds the files of removed entries are kept in the RFS.<p>
+     *
+     * @return the time in milliseconds the files of removed entries are kept in the RFS
+     */
+    public long getDeleteDelay() {
+
+        return m_deleteDelay;
+    }
+
+    /**
+     * Returns the maximum size of all cache entries in bytes.<p>
+     *
+     * @return the maximum size of all cache entries in bytes, 0 for no limit
+     */
+    public long getMaxSize() {
+
+        return m_maxSize;
+    }
+
+    /**
+     * Returns the absolute path of the cache repository in the RFS.<p>
+     *
+     * @return the absolute path of the cache repository in the RFS
+     */
+    public String getRepositoryPath() {
+
+        return m_rfsRepository;
+    }
+
+    /**
+     * Returns the size of all cache entries in bytes.<p>
+     *
+     * @return the size of all cache entries in bytes
+     */
+    public synchronized long getSize() {
+
+        getIndex();
+        return m_size;
+    }
+
+    /**
+     * Checks if a content of the given length can be stored in this cache.<p>
+     *
+     * A single entry may use at most a tenth of the maximum cache size.<p>
+     *
+     * @param length the length of the content
+     *
+     * @return <code>true</code> if a content of the given length can be stored in this cache
+     */
+    public boolean isCacheable(long length) {
+
+        return (m_maxSize <= 0) || (length <= (m_maxSize / MAX_ENTRY_FRACTION));
+    }
+
+    /**
+     * Adds this instance as an event listener for publish events to the CMS event manager.<p>
+     */
+    public void registerEventListener() {
+
+        OpenCms.addCmsEventListener(this, new int[] {I_CmsEventListener.EVENT_PUBLISH_PROJECT});
+    }
+
+    /**
+     * Removes all cached contents of the given resources.<p>
+     *
+     * @param resourceIds the ids of the resources to remove
+     */
+    public void removeResources(Set<CmsUUID> resourceIds) {
+
+        if (resourceIds.isEmpty()) {
+            return;
+        }
+        Set<String> ids = new HashSet<String>(resourceIds.size());
+        for (CmsUUID resourceId : resourceIds) {
+            ids.add(resourceId.toString());
+        }
+        List<String> removed = new ArrayList<String>();
+        synchronized (this) {
+            Iterator<Map.Entry<String, Long>> it = getIndex().entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Long> entry = it.next();
+                String name = entry.getKey();
+                int pos = name.indexOf('_');
+                if ((pos > 0) && ids.contains(name.substring(0, pos))) {
+                    removed.add(name);
+                    m_size -= entry.getValue().longValue();
+                    it.remove();
+                }
+            }
+        }
+        deleteFiles(removed);
+    }
+
+    /**
+     * Saves the given content in the disk cache.<p>
+     *
+     * The content is written to a temporary file first, so the cache file is always complete.
+     * If the maximum size of the cache is exceeded, the least recently used entries are removed.<p>
+     *
+     * @param resourceId the resource id
+     * @param dateContent the content date
+     * @param content the content to save, the stream is not closed
+     *
+     * @return the cache file
+     *
+     * @throws IOException in case of disk access errors
+     */
+    public File saveCacheFile(CmsUUID resourceId, long dateContent, InputStream content) throws IOException {
+
+        String name = getCacheName(resourceId, dateContent);
+        File f = getFile(name);
+        File p = f.getParentFile();
+        if (!p.exists()) {
+            // create parent folders
+            p.mkdirs();
+        }
+        File temp = File.createTempFile(name, TEMP_FILE_SUFFIX, p);
+        long size;
+        try {
+            OutputStream out = new FileOutputStream(temp);
+            try {
+                size = CmsFileUtil.copyRange(content, out, 0, -1);
+            } finally {
+                out.close();
+            }
+            if (!temp.renameTo(f) && !f.isFile()) {
+                throw new IOException(
+                    Messages.get().getBundle().key(Messages.LOG_CONTENT_CACHE_WRITE_ERROR_1, f.getAbsolutePath()));
+            }
+        } finally {
+            if (temp.exists()) {
+                // the content could not be written, or the file has been written concurrently by another request
+                temp.delete();
+            }
+        }
+        List<String> evicted = new ArrayList<String>();
+        synchronized (this) {
+            // only complete files are added to the index
+            Long previous = getIndex().put(name, Long.valueOf(size));
+            // the file has been written again, so it must not be deleted
+            m_deletes.remove(name);
+            if (previous != null) {
+                m_size -= previous.longValue();
+            }
+            m_size += size;
+            if (m_maxSize > 0) {
+                Iterator<Map.Entry<String, Long>> it = m_index.entrySet().iterator();
+                while ((m_size > m_maxSize) && it.hasNext()) {
+                    Map.Entry<String, Long> eldest = it.next();
+                    if (eldest.getKey().equals(name)) {
+                        // never remove the entry just written
+                        continue;
+                    }
+                    evicted.add(eldest.getKey());
+                    m_size -= eldest.getValue().longValue();
+                    it.remove();
+                }
+            }
+        }
+        deleteFiles(evicted);
+        return f;
+    }
+
+    /**
+     * Sets the time in milliseconds the files of removed entries are kept in the RFS.<p>
+     *
+     * @param deleteDelay the time in milliseconds the files of removed entries are kept in the RFS
+     */
+    public void setDeleteDelay(long deleteDelay) {
+
+        m_deleteDelay = deleteDelay;
+    }
+
+    /**
+     * Sets the maximum size of all cache entries in bytes.<p>
+     *
+     * @param maxSize the maximum size of all cache entries in bytes, 0 for no limit
+     */
+    public void setMaxSize(long maxSize) {
+
+        m_maxSize = maxSize;
+    }
+
+    /**
+     * Schedules the given removed cache files for deletion and deletes all files that have been removed
+     * for longer than the delete delay.<p>
+     *
+     * Files that have been added to the cache again in the meantime are not deleted.<p>
+     *
+     * @param names the names of the removed cache files
+     */
+    private void deleteFiles(List<String> names) {
+
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            for (String name : names) {
+                // keep the map ordered by the time of removal
+                m_deletes.remove(name);
+                m_deletes.put(name, Long.valueOf(now));
+            }
+            Iterator<Map.Entry<String, Long>> it = m_deletes.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Long> entry = it.next();
+                if ((now - entry.getValue().longValue()) < m_deleteDelay) {
+                    break;
+                }
+                it.remove();
+                if (getIndex().containsKey(entry.getKey())) {
+                    continue;
+                }
+                File f = getFile(entry.getKey());
+                if (f.exists() && !f.delete()) {
+                    LOG.warn(
+                        Messages.get().getBundle().key(Messages.LOG_CONTENT_CACHE_DELETE_ERROR_1, f.getAbsolutePath()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the RFS file for the given cache file name.<p>
+     *
+     * The files are distributed to sub folders named by the first two characters of the resource id.<p>
+     *
+     * @param name the cache file name
+     *
+     * @return the RFS file
+     */
+    private File getFile(String name) {
+
+        return new File(new File(m_rfsRepository, name.substring(0, 2)), name);
+    }
+
+    /**
+     * Returns the in-memory index of the cache entries, which is built from the cache folder on first access.<p>
+     *
+     * Incomplete cache files left over from an earlier run are removed while the index is built.
+     * Must be called while holding the lock on this cache.<p>
+     *
+     * @return the in-memory index of the cache entries
+     */
+    private LinkedHashMap<String, Long> getIndex() {
+
+        if (m_index == null) {
+            m_index = new LinkedHashMap<String, Long>(256, 0.75f, true);
+            m_size = 0;
+            List<File> files = new ArrayList<File>();
+            File[] folders = new File(m_rfsRepository).listFiles();
+            if (folders != null) {
+                for (File folder : folders) {
+                    File[] content = folder.listFiles();
+                    if (content != null) {
+                        files.addAll(Arrays.asList(content));
+                    }
+                }
+            }
+            // files are touched on creation only, so the least recently created entries are evicted first
+            File[] sorted = files.toArray(new File[files.size()]);
+            Arrays.sort(sorted, new Comparator<File>() {
+
+                public int compare(File f1, File f2) {
+
+                    long l1 = f1.lastModified();
+                    long l2 = f2.lastModified();
+                    return l1 < l2 ? -1 : (l1 > l2 ? 1 : 0);
+                }
+            });
+            for (File f : sorted) {
+                if (!f.isFile()) {
+                    continue;
+                }
+                if (f.getName().endsWith(TEMP_FILE_SUFFIX)) {
+                    if (!f.delete()) {
+                        LOG.warn(
+                            Messages.get().getBundle().key(
+                                Messages.LOG_CONTENT_CACHE_DELETE_ERROR_1,
+                                f.getAbsolutePath()));
+                    }
+                } else {
+                    m_index.put(f.getName(), Long.valueOf(f.length()));
+                    m_size += f.length();
+                }
+            }
+        }
+        return m_index;
+    }
+}
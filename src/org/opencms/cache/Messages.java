@@ -40,6 +40,15 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_CACHE_COSTS_TOO_HIGH_2 = "LOG_CACHE_COSTS_TOO_HIGH_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_CONTENT_CACHE_DELETE_ERROR_1 = "LOG_CONTENT_CACHE_DELETE_ERROR_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_CONTENT_CACHE_PUBLISH_FAILED_1 = "LOG_CONTENT_CACHE_PUBLISH_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_CONTENT_CACHE_WRITE_ERROR_1 = "LOG_CONTENT_CACHE_WRITE_ERROR_1";
+
     /** Name of the used resource bundle. */
     private static final String BUNDLE_NAME = "org.opencms.cache.messages";
 
@@ -33,8 +33,11 @@ import org.opencms.main.CmsException;
 import org.opencms.security.CmsAccessControlEntry;
 import org.opencms.security.CmsPrincipal;
 import org.opencms.security.CmsRole;
+import org.opencms.util.CmsFileUtil;
 import org.opencms.util.CmsUUID;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -51,6 +54,7 @@ import org.apache.chemistry.opencmis.commons.enums.AclPropagation;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisNotSupportedException;
 import org.apache.chemistry.opencmis.commons.spi.Holder;
+import org.apache.commons.io.input.BoundedInputStream;
 
 /**
  * Abstract repository superclass.<p>
@@ -301,6 +305,23 @@ public abstract class A_CmsCmisRepository implements I_CmsCmisRepository {
         return Arrays.copyOfRange(content, (int)offsetLong, (int)(offsetLong + lengthLong));
     }
 
+    /**
+     * Restricts a content stream to a range of bytes.<p>
+     *
+     * @param content the content stream
+     * @param offset the start offset in the stream
+     * @param length the length of the range
+     *
+     * @return the stream for the given range of the content
+     *
+     * @throws IOException if skipping to the start offset fails
+     */
+    protected InputStream extractRange(InputStream content, long offset, long length) throws IOException {
+
+        CmsFileUtil.skipFully(content, offset);
+        return new BoundedInputStream(content, length);
+    }
+
     /**
      * Gets a user-readable name for a principal id read from an ACE.<p>
      *
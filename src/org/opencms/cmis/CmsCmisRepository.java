@@ -678,24 +678,40 @@ public class CmsCmisRepository extends A_CmsCmisRepository {
         try {
             CmsObject cms = getCmsObject(context);
             CmsResource resource = cms.readResource(new CmsUUID(objectId));
-            byte[] contents = null;
+            InputStream stream = null;
+            long contentLength;
             if (streamId != null) {
                 I_CmsCmisRenditionProvider renditionProvider = m_renditionProviders.get(streamId);
                 if (renditionProvider == null) {
                     throw new CmisRuntimeException("Invalid stream id " + streamId);
                 }
-                contents = renditionProvider.getContent(cms, resource);
+                byte[] contents = extractRange(renditionProvider.getContent(cms, resource), offset, length);
+                stream = new ByteArrayInputStream(contents);
+                contentLength = contents.length;
             } else if (resource.isFolder()) {
                 throw new CmisStreamNotSupportedException("Not a file!");
             } else {
-                CmsFile file = cms.readFile(resource);
-                contents = file.getContents();
+                // stream the file content, so large files are not read into memory at once
+                long start = offset != null ? Math.min(offset.longValue(), resource.getLength()) : 0;
+                contentLength = resource.getLength() - start;
+                if (length != null) {
+                    contentLength = Math.min(contentLength, length.longValue());
+                }
+                stream = cms.readFileStream(resource);
+                try {
+                    stream = extractRange(stream, start, contentLength);
+                } catch (IOException e) {
+                    try {
+                        stream.close();
+                    } catch (IOException e1) {
+                        LOG.debug(e1.getLocalizedMessage(), e1);
+                    }
+                    throw new CmisRuntimeException(e.getLocalizedMessage(), e);
+                }
             }
-            contents = extractRange(contents, offset, length);
-            InputStream stream = new ByteArrayInputStream(contents);
             ContentStreamImpl result = new ContentStreamImpl();
             result.setFileName(resource.getName());
-            result.setLength(BigInteger.valueOf(contents.length));
+            result.setLength(BigInteger.valueOf(contentLength));
             result.setMimeType(OpenCms.getResourceManager().getMimeType(resource.getRootPath(), null, "text/plain"));
             result.setStream(stream);
 
@@ -101,6 +101,9 @@ public class CmsSearchConfiguration extends A_CmsXmlConfiguration {
     /** Node name constant. */
     public static final String N_COMMIT_MS = "commitWithinMs";
 
+    /** Node name constant. */
+    public static final String N_COMMIT_INTERVAL = "commitInterval";
+
     /** Node name constant. */
     public static final String N_CONFIG_FILE = "configfile";
 
@@ -128,6 +131,9 @@ public class CmsSearchConfiguration extends A_CmsXmlConfiguration {
     /** Node name constant. */
     public static final String N_EXTRACTION_CACHE_MAX_AGE = "extractionCacheMaxAge";
 
+    /** Node name constant. */
+    public static final String N_EXTRACTION_CACHE_MAX_SIZE = "extractionCacheMaxSize";
+
     /** Node name constant. */
     public static final String N_FIELD = "field";
 
@@ -158,6 +164,9 @@ public class CmsSearchConfiguration extends A_CmsXmlConfiguration {
     /** Node name constant. */
     public static final String N_INDEXES = "indexes";
 
+    /** Node name constant. */
+    public static final String N_INDEXING_THREADS = "indexingThreads";
+
     /** Node name constant. */
     public static final String N_INDEXSOURCE = "indexsource";
 
@@ -263,12 +272,21 @@ public class CmsSearchConfiguration extends A_CmsXmlConfiguration {
         // rule for the max. age of entries in the extraction cache
         digester.addCallMethod(XPATH_SEARCH + "/" + N_EXTRACTION_CACHE_MAX_AGE, "setExtractionCacheMaxAge", 0);
 
+        // rule for the max. size of the extraction cache
+        digester.addCallMethod(XPATH_SEARCH + "/" + N_EXTRACTION_CACHE_MAX_SIZE, "setExtractionCacheMaxSize", 0);
+
         // rule for max. number of modifications before commit
         digester.addCallMethod(
             XPATH_SEARCH + "/" + N_MAX_MODIFICATIONS_BEFORE_COMMIT,
             "setMaxModificationsBeforeCommit",
             0);
 
+        // rule for the number of indexing threads extracting documents in parallel
+        digester.addCallMethod(XPATH_SEARCH + "/" + N_INDEXING_THREADS, "setIndexingThreads", 0);
+
+        // rule for the max. time between two commits
+        digester.addCallMethod(XPATH_SEARCH + "/" + N_COMMIT_INTERVAL, "setCommitInterval", 0);
+
         // rule for the highlighter to highlight the search terms in the excerpt of the search result
         digester.addCallMethod(XPATH_SEARCH + "/" + N_HIGHLIGHTER, "setHighlighter", 0);
 
@@ -420,9 +438,16 @@ public class CmsSearchConfiguration extends A_CmsXmlConfiguration {
         // add <extractionCacheMaxAge> element
         searchElement.addElement(N_EXTRACTION_CACHE_MAX_AGE).addText(
             String.valueOf(m_searchManager.getExtractionCacheMaxAge()));
+        // add <extractionCacheMaxSize> element
+        searchElement.addElement(N_EXTRACTION_CACHE_MAX_SIZE).addText(
+            String.valueOf(m_searchManager.getExtractionCacheMaxSize()));
         // add <maxModificationsBeforeCommit> element
         searchElement.addElement(N_MAX_MODIFICATIONS_BEFORE_COMMIT).addText(
             String.valueOf(m_searchManager.getMaxModificationsBeforeCommit()));
+        // add <indexingThreads> element
+        searchElement.addElement(N_INDEXING_THREADS).addText(String.valueOf(m_searchManager.getIndexingThreads()));
+        // add <commitInterval> element
+        searchElement.addElement(N_COMMIT_INTERVAL).addText(String.valueOf(m_searchManager.getCommitInterval()));
         // add <highlighter> element
         searchElement.addElement(N_HIGHLIGHTER).addText(m_searchManager.getHighlighter().getClass().getName());
 
@@ -182,6 +182,9 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
     /** The node name for the cache-offline node. */
     public static final String N_CACHE_OFFLINE = "cache-offline";
 
+    /** The node name for the cache-provider node. */
+    public static final String N_CACHE_PROVIDER = "cache-provider";
+
     /** The node name for a job class. */
     public static final String N_CLASS = "class";
 
@@ -368,6 +371,9 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
     /** The node name for the "publishhistory" section. */
     public static final String N_PUBLISHMANAGER = "publishmanager";
 
+    /** The node name for the number of publish threads. */
+    public static final String N_PUBLISHTHREADS = "publish-threads";
+
     /** The node name for the "publishhistory" section. */
     public static final String N_QUEUEPERSISTANCE = "queue-persistance";
 
@@ -596,6 +602,9 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
     /** The configured OpenCms event manager. */
     private CmsEventManager m_eventManager;
 
+    /** The parameters for the event manager, collected until the event manager is created. */
+    private List<String[]> m_eventManagerParameters;
+
     /** Indicates if the version history is enabled. */
     private boolean m_historyEnabled;
 
@@ -707,6 +716,12 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
 
         try {
             m_eventManager = (CmsEventManager)Class.forName(clazz).newInstance();
+            // the parameters are digested before the event manager, since call method rules fire at the end tag
+            if (m_eventManager instanceof I_CmsConfigurationParameterHandler) {
+                for (String[] param : m_eventManagerParameters) {
+                    ((I_CmsConfigurationParameterHandler)m_eventManager).addConfigurationParameter(param[0], param[1]);
+                }
+            }
             if (CmsLog.INIT.isInfoEnabled()) {
                 CmsLog.INIT.info(
                     Messages.get().getBundle().key(Messages.INIT_EVENTMANAGER_CLASS_SUCCESS_1, m_eventManager));
@@ -714,9 +729,25 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
         } catch (Throwable t) {
             LOG.error(Messages.get().getBundle().key(Messages.INIT_EVENTMANAGER_CLASS_INVALID_1, clazz), t);
             return;
+        } finally {
+            m_eventManagerParameters.clear();
         }
     }
 
+    /**
+     * Adds a parameter for the event manager that is configured next.<p>
+     *
+     * The parameters are passed to the event manager when it is created in {@link #addEventManager(String)},
+     * they are ignored if the event manager does not implement {@link I_CmsConfigurationParameterHandler}.<p>
+     *
+     * @param name the parameter name
+     * @param value the parameter value
+     */
+    public void addEventManagerParameter(String name, String value) {
+
+        m_eventManagerParameters.add(new String[] {name, value});
+    }
+
     /**
      * Adds a new job description for the scheduler.<p>
      *
@@ -902,6 +933,12 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
         // add event classes
         digester.addCallMethod("*/" + N_SYSTEM + "/" + N_EVENTS + "/" + N_EVENTMANAGER, "addEventManager", 1);
         digester.addCallParam("*/" + N_SYSTEM + "/" + N_EVENTS + "/" + N_EVENTMANAGER, 0, A_CLASS);
+        digester.addCallMethod(
+            "*/" + N_SYSTEM + "/" + N_EVENTS + "/" + N_EVENTMANAGER + "/" + N_PARAM,
+            "addEventManagerParameter",
+            2);
+        digester.addCallParam("*/" + N_SYSTEM + "/" + N_EVENTS + "/" + N_EVENTMANAGER + "/" + N_PARAM, 0, A_NAME);
+        digester.addCallParam("*/" + N_SYSTEM + "/" + N_EVENTS + "/" + N_EVENTMANAGER + "/" + N_PARAM, 1);
 
         // add resource init classes
         digester.addCallMethod(
@@ -1032,6 +1069,10 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
             "*/" + N_SYSTEM + "/" + N_MEMORYMONITOR + "/" + N_EMAIL_RECEIVER + "/" + N_RECEIVER,
             "addEmailReceiver",
             0);
+        digester.addCallMethod(
+            "*/" + N_SYSTEM + "/" + N_MEMORYMONITOR + "/" + N_CACHE_PROVIDER,
+            "setCacheProvider",
+            0);
 
         // set the MemoryMonitorConfiguration initialized once before
         digester.addSetNext("*/" + N_SYSTEM + "/" + N_MEMORYMONITOR, "setCmsMemoryMonitorConfiguration");
@@ -1146,6 +1187,10 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
             "*/" + N_SYSTEM + "/" + N_PUBLISHMANAGER + "/" + N_QUEUESHUTDOWNTIME,
             "setPublishQueueShutdowntime",
             0);
+        digester.addCallMethod(
+            "*/" + N_SYSTEM + "/" + N_PUBLISHMANAGER + "/" + N_PUBLISHTHREADS,
+            "setPublishThreads",
+            0);
         digester.addSetNext("*/" + N_SYSTEM + "/" + N_PUBLISHMANAGER, "setPublishManager");
 
         // add rule for session storage provider
@@ -1322,6 +1367,12 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
         Element eventsElement = systemElement.addElement(N_EVENTS);
         Element eventManagerElement = eventsElement.addElement(N_EVENTMANAGER);
         eventManagerElement.addAttribute(A_CLASS, m_eventManager.getClass().getName());
+        if (m_eventManager instanceof I_CmsConfigurationParameterHandler) {
+            CmsParameterConfiguration params = ((I_CmsConfigurationParameterHandler)m_eventManager).getConfiguration();
+            if (params != null) {
+                params.appendToXml(eventManagerElement);
+            }
+        }
 
         // version history
         Element historyElement = systemElement.addElement(N_VERSIONHISTORY);
@@ -1529,6 +1580,10 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
                     emailreceiverElement.addElement(N_RECEIVER).addText(iter.next());
                 }
             }
+            if (m_cmsMemoryMonitorConfiguration.getCacheProvider() != null) {
+                memorymonitorElement.addElement(N_CACHE_PROVIDER).addText(
+                    m_cmsMemoryMonitorConfiguration.getCacheProvider());
+            }
         }
 
         // create <flexcache> node
@@ -1616,6 +1671,8 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
                 String.valueOf(m_publishManager.isPublishQueuePersistanceEnabled()));
             pubHistElement.addElement(N_QUEUESHUTDOWNTIME).setText(
                 String.valueOf(m_publishManager.getPublishQueueShutdowntime()));
+            pubHistElement.addElement(N_PUBLISHTHREADS).setText(
+                String.valueOf(m_publishManager.getPublishThreads()));
         }
 
         // session storage provider
@@ -2778,6 +2835,7 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
         m_configuredJobs = new ArrayList<CmsScheduledJobInfo>();
         m_runtimeProperties = new HashMap<String, String>();
         m_eventManager = new CmsEventManager();
+        m_eventManagerParameters = new ArrayList<String[]>();
         if (CmsLog.INIT.isInfoEnabled()) {
             CmsLog.INIT.info(Messages.get().getBundle().key(Messages.INIT_SYSTEM_CONFIG_INIT_0));
         }
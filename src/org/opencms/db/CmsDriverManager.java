@@ -115,6 +115,8 @@ import org.opencms.util.CmsUUID;
 import org.opencms.util.PrintfFormat;
 import org.opencms.workplace.threads.A_CmsProgressThread;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -123,6 +125,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Locale;
@@ -329,6 +332,9 @@ public final class CmsDriverManager implements I_CmsEventListener {
     /** The list of initialized JDBC pools. */
     private List<PoolingDriver> m_connectionPools;
 
+    /** The factory for the database contexts. */
+    private I_CmsDbContextFactory m_dbContextFactory;
+
     /** The history driver. */
     private I_CmsHistoryDriver m_historyDriver;
 
@@ -451,6 +457,9 @@ public final class CmsDriverManager implements I_CmsEventListener {
         // set the publish engine
         driverManager.m_publishEngine = publishEngine;
 
+        // set the database context factory
+        driverManager.m_dbContextFactory = runtimeInfoFactory;
+
         if (CmsLog.INIT.isInfoEnabled()) {
             CmsLog.INIT.info(Messages.get().getBundle().key(Messages.INIT_DRIVER_MANAGER_START_PHASE2_0));
         }
@@ -3845,6 +3854,16 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return m_subscriptionDriver.getDateLastVisitedBy(dbc, poolName, user, resource);
     }
 
+    /**
+     * Returns the factory for the database contexts.<p>
+     *
+     * @return the factory for the database contexts
+     */
+    public I_CmsDbContextFactory getDbContextFactory() {
+
+        return m_dbContextFactory;
+    }
+
     /**
      * Returns all groups of the given organizational unit.<p>
      *
@@ -5464,7 +5483,9 @@ public final class CmsDriverManager implements I_CmsEventListener {
         // prevent several entries for the same operation
         dbc.setAttribute(CmsLogEntry.ATTR_LOG_ENTRY, Boolean.TRUE);
         // keep it for later
-        m_log.add(logEntry);
+        synchronized (m_log) {
+            m_log.add(logEntry);
+        }
     }
 
     /**
@@ -6847,6 +6868,37 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return file;
     }
 
+    /**
+     * Reads the binary content of a file resource as a stream.<p>
+     *
+     * The database resources are released before the stream is returned, but the stream
+     * may be backed by a temporary file, so it must always be closed by the caller.<p>
+     *
+     * @param dbc the current database context
+     * @param resource the base file resource (without content)
+     *
+     * @return the stream with the content of the file
+     *
+     * @throws CmsException if operation was not successful
+     */
+    public InputStream readFileStream(CmsDbContext dbc, CmsResource resource) throws CmsException {
+
+        if (resource.isFolder()) {
+            throw new CmsVfsResourceNotFoundException(
+                Messages.get().container(
+                    Messages.ERR_ACCESS_FOLDER_AS_FILE_1,
+                    dbc.removeSiteRoot(resource.getRootPath())));
+        }
+        if (resource instanceof I_CmsHistoryResource) {
+            return new ByteArrayInputStream(
+                getHistoryDriver(dbc).readContent(
+                    dbc,
+                    resource.getResourceId(),
+                    ((I_CmsHistoryResource)resource).getPublishTag()));
+        }
+        return getVfsDriver(dbc).readContentStream(dbc, dbc.currentProject().getUuid(), resource.getResourceId());
+    }
+
     /**
      * Reads a folder from the VFS,
      * using the specified resource filter.<p>
@@ -7520,6 +7572,117 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return new ArrayList<CmsProperty>(properties);
     }
 
+    /**
+     * Reads all property objects of a list of resources.<p>
+     *
+     * The result is the same as calling {@link #readPropertyObjects(CmsDbContext, CmsResource, boolean)}
+     * for every resource, but the properties of all resources not found in the cache are read with
+     * as few queries as possible. If <code>search</code> is <code>true</code>, the properties of every
+     * distinct parent folder are only read once, no matter how many of the resources share it.<p>
+     *
+     * @param dbc the current database context
+     * @param resources the resources to read the properties for
+     * @param search true, if the properties should be searched on all parent folders if not found on the resource
+     *
+     * @return the property lists of the resources, in the order of the given list
+     *
+     * @throws CmsException if something goes wrong
+     *
+     * @see CmsObject#readPropertyObjects(List, boolean)
+     */
+    public Map<CmsResource, List<CmsProperty>> readPropertyObjects(
+        CmsDbContext dbc,
+        List<CmsResource> resources,
+        boolean search) throws CmsException {
+
+        CmsUUID projectId = getProjectIdForContext(dbc);
+        boolean useCache = dbc.getProjectId().isNullUUID();
+
+        Map<CmsResource, List<CmsProperty>> result = new LinkedHashMap<CmsResource, List<CmsProperty>>();
+        List<CmsResource> missing = new ArrayList<CmsResource>();
+        for (CmsResource resource : resources) {
+            if (result.containsKey(resource)) {
+                continue;
+            }
+            List<CmsProperty> properties = null;
+            if (useCache) {
+                properties = m_monitor.getCachedPropertyList(
+                    getCacheKey(CACHE_ALL_PROPERTIES, search, projectId, resource.getRootPath()));
+            }
+            if (properties == null) {
+                missing.add(resource);
+            }
+            result.put(resource, properties);
+        }
+        if (missing.isEmpty()) {
+            return copyPropertyLists(result);
+        }
+
+        // collect the properties directly attached to the resources and, if searching, to their parent folders
+        Map<String, List<CmsProperty>> directProperties = new HashMap<String, List<CmsProperty>>();
+        List<CmsResource> uncached = new ArrayList<CmsResource>();
+        for (CmsResource resource : missing) {
+            collectDirectPropertyObjects(dbc, projectId, resource.getRootPath(), resource, directProperties, uncached);
+        }
+        if (search) {
+            for (CmsResource resource : missing) {
+                String parentPath = CmsResource.getParentFolder(resource.getRootPath());
+                while ((parentPath != null) && !directProperties.containsKey(parentPath)) {
+                    collectDirectPropertyObjects(dbc, projectId, parentPath, null, directProperties, uncached);
+                    parentPath = CmsResource.getParentFolder(parentPath);
+                }
+            }
+        }
+        if (!uncached.isEmpty()) {
+            Map<CmsUUID, List<CmsProperty>> read;
+            try {
+                read = getVfsDriver(dbc).readPropertyObjects(dbc, dbc.currentProject(), uncached);
+            } catch (CmsSecurityException se) {
+                // a security exception (probably no read permission), the single resource version
+                // returns the result collected up to the failing folder, so read every resource separately
+                for (CmsResource resource : missing) {
+                    result.put(resource, readPropertyObjects(dbc, resource, search));
+                }
+                return copyPropertyLists(result);
+            }
+            for (CmsResource resource : uncached) {
+                List<CmsProperty> properties = CmsProperty.setFrozen(read.get(resource.getStructureId()));
+                if (useCache) {
+                    m_monitor.cachePropertyList(
+                        getCacheKey(CACHE_ALL_PROPERTIES, false, projectId, resource.getRootPath()),
+                        properties);
+                }
+                directProperties.put(resource.getRootPath(), properties);
+            }
+        }
+
+        for (CmsResource resource : missing) {
+            List<CmsProperty> properties;
+            if (search) {
+                // make sure properties from lower folders "overwrite" properties from upper folders
+                properties = new ArrayList<CmsProperty>();
+                String path = resource.getRootPath();
+                while (path != null) {
+                    List<CmsProperty> parentProperties = new ArrayList<CmsProperty>(directProperties.get(path));
+                    parentProperties.removeAll(properties);
+                    parentProperties.addAll(properties);
+                    properties = parentProperties;
+                    path = (path.length() > 1) ? CmsResource.getParentFolder(path) : null;
+                }
+                CmsProperty.setFrozen(properties);
+                if (useCache) {
+                    m_monitor.cachePropertyList(
+                        getCacheKey(CACHE_ALL_PROPERTIES, true, projectId, resource.getRootPath()),
+                        properties);
+                }
+            } else {
+                properties = directProperties.get(resource.getRootPath());
+            }
+            result.put(resource, properties);
+        }
+        return copyPropertyLists(result);
+    }
+
     /**
      * Reads the resources that were published in a publish task for a given publish history ID.<p>
      *
@@ -9432,12 +9595,14 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
         synchronized (m_publishListUpdateLock) {
 
-            if (m_log.isEmpty()) {
-                return;
+            List<CmsLogEntry> log;
+            synchronized (m_log) {
+                if (m_log.isEmpty()) {
+                    return;
+                }
+                log = new ArrayList<CmsLogEntry>(m_log);
+                m_log.clear();
             }
-
-            List<CmsLogEntry> log = new ArrayList<CmsLogEntry>(m_log);
-            m_log.clear();
             String logTableEnabledStr = (String)OpenCms.getRuntimeProperty(PARAM_LOG_TABLE_ENABLED);
             if (Boolean.parseBoolean(logTableEnabledStr)) { // defaults to 'false' if value not set
                 m_projectDriver.log(dbc, log);
@@ -10823,6 +10988,62 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return false;
     }
 
+    /**
+     * Collects the properties directly attached to a resource for a bulk property read.<p>
+     *
+     * If the property list is cached, it is put into the given map. Otherwise the resource is added to the
+     * list of resources whose properties have to be read from the database.<p>
+     *
+     * @param dbc the current database context
+     * @param projectId the project id used for the cache keys
+     * @param rootPath the root path of the resource
+     * @param resource the resource, or <code>null</code> if it has to be read
+     * @param directProperties the map of root paths to directly attached properties
+     * @param uncached the list of resources whose properties are not cached
+     *
+     * @throws CmsException if something goes wrong
+     */
+    private void collectDirectPropertyObjects(
+        CmsDbContext dbc,
+        CmsUUID projectId,
+        String rootPath,
+        CmsResource resource,
+        Map<String, List<CmsProperty>> directProperties,
+        List<CmsResource> uncached) throws CmsException {
+
+        if (directProperties.containsKey(rootPath)) {
+            return;
+        }
+        List<CmsProperty> properties = null;
+        if (dbc.getProjectId().isNullUUID()) {
+            properties = m_monitor.getCachedPropertyList(getCacheKey(CACHE_ALL_PROPERTIES, false, projectId, rootPath));
+        }
+        if (properties == null) {
+            if (resource == null) {
+                // no permission check on parent folder is required since we must have "read"
+                // permissions to read the child resource anyway
+                resource = readResource(dbc, rootPath, CmsResourceFilter.ALL);
+            }
+            uncached.add(resource);
+        }
+        directProperties.put(rootPath, properties);
+    }
+
+    /**
+     * Replaces the property lists in the given map with modifiable copies.<p>
+     *
+     * @param propertyLists the map of property lists
+     *
+     * @return the same map
+     */
+    private Map<CmsResource, List<CmsProperty>> copyPropertyLists(Map<CmsResource, List<CmsProperty>> propertyLists) {
+
+        for (Map.Entry<CmsResource, List<CmsProperty>> entry : propertyLists.entrySet()) {
+            entry.setValue(new ArrayList<CmsProperty>(entry.getValue()));
+        }
+        return propertyLists;
+    }
+
     /**
      * Copies all relations from the source resource to the target resource.<p>
      *
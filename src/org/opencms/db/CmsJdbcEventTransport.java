@@ -0,0 +1,326 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import org.opencms.configuration.CmsParameterConfiguration;
+import org.opencms.db.generic.CmsSqlManager;
+import org.opencms.main.CmsClusterEvent;
+import org.opencms.main.CmsLog;
+import org.opencms.main.I_CmsEventTransport;
+import org.opencms.main.OpenCms;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Event transport that exchanges the cluster events through the <code>CMS_CLUSTER_EVENTS</code> database table.<p>
+ *
+ * Each node inserts its events with a node specific, increasing sequence number and polls the table
+ * for the events of the other nodes. Events older than the configured maximum age are removed.
+ * By default the table is created in the OpenCms database if it does not exist.<p>
+ *
+ * The SQL statements are read from the <code>query.properties</code> of the SQL manager, so the table
+ * is created with the column types of the database dialect. By default the SQL manager and the pool of the
+ * project driver are used, they are available once the OpenCms drivers are initialized.<p>
+ *
+ * Supported parameters:
+ * <ul>
+ * <li><code>sqlmanager</code>: the class name of the SQL manager to use instead of the one of the project driver</li>
+ * <li><code>pool</code>: the pool URL used with the configured SQL manager, the default is <code>opencms:default</code></li>
+ * <li><code>create</code>: if the table should be created if it does not exist, the default is <code>true</code></li>
+ * <li><code>maxage</code>: the time in milliseconds events are kept in the table, the default is one hour</li>
+ * <li><code>window</code>: the time in milliseconds for which already read events are read again,
+ * to compensate clock differences between the nodes, the default is one minute</li>
+ * </ul>
+ *
+ * @since 10.5.0
+ */
+public class CmsJdbcEventTransport implements I_CmsEventTransport {
+
+    /** Parameter for the table creation flag. */
+    public static final String PARAM_CREATE = "create";
+
+    /** Parameter for the maximum age of the events in the table. */
+    public static final String PARAM_MAX_AGE = "maxage";
+
+    /** Parameter for the pool URL used with the configured SQL manager. */
+    public static final String PARAM_POOL = "pool";
+
+    /** Parameter for the class name of the SQL manager. */
+    public static final String PARAM_SQLMANAGER = "sqlmanager";
+
+    /** Parameter for the time window. */
+    public static final String PARAM_WINDOW = "window";
+
+    /** The default maximum age of the events in milliseconds. */
+    private static final int DEFAULT_MAX_AGE = 60 * 60 * 1000;
+
+    /** The default time window in milliseconds. */
+    private static final int DEFAULT_WINDOW = 60 * 1000;
+
+    /** The static log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsJdbcEventTransport.class);
+
+    /** Indicates if the table should be created if it does not exist. */
+    private boolean m_createTable;
+
+    /** The time of the last removal of old events. */
+    private long m_lastCleanup;
+
+    /** The time of the last poll. */
+    private long m_lastReceive;
+
+    /** The last sequence number read for each node. */
+    private Map<String, Long> m_lastSequences;
+
+    /** The maximum age of the events in milliseconds. */
+    private long m_maxAge;
+
+    /** The id of this node. */
+    private String m_nodeId;
+
+    /** The next sequence number for the events of this node. */
+    private long m_sequence;
+
+    /** The SQL manager, initialized with the first access to the database. */
+    private CmsSqlManager m_sqlManager;
+
+    /** The start time of this transport. */
+    private long m_startTime;
+
+    /** The time window in milliseconds. */
+    private long m_window;
+
+    /**
+     * @see org.opencms.main.I_CmsEventTransport#initialize(java.lang.String, org.opencms.configuration.CmsParameterConfiguration)
+     */
+    public void initialize(String nodeId, CmsParameterConfiguration parameters) {
+
+        m_nodeId = nodeId;
+        String sqlManagerClass = parameters.getString(PARAM_SQLMANAGER, null);
+        if (sqlManagerClass != null) {
+            CmsSqlManager sqlManager = CmsSqlManager.getInstance(sqlManagerClass);
+            sqlManager.init(
+                I_CmsProjectDriver.DRIVER_TYPE_ID,
+                parameters.getString(PARAM_POOL, CmsDbPool.OPENCMS_DEFAULT_POOL_URL));
+            m_sqlManager = sqlManager;
+        }
+        m_createTable = parameters.getBoolean(PARAM_CREATE, true);
+        m_maxAge = parameters.getInteger(PARAM_MAX_AGE, DEFAULT_MAX_AGE);
+        m_window = parameters.getInteger(PARAM_WINDOW, DEFAULT_WINDOW);
+        m_lastSequences = new HashMap<String, Long>();
+        m_startTime = System.currentTimeMillis();
+        m_lastCleanup = m_startTime;
+        // sequence numbers must increase across restarts in case the node id is configured
+        m_sequence = m_startTime * 1000;
+    }
+
+    /**
+     * Returns <code>true</code> if a SQL manager is configured or the OpenCms drivers are initialized.<p>
+     *
+     * @see org.opencms.main.I_CmsEventTransport#isAvailable()
+     */
+    public boolean isAvailable() {
+
+        return (m_sqlManager != null) || (OpenCms.getRunLevel() >= OpenCms.RUNLEVEL_3_SHELL_ACCESS);
+    }
+
+    /**
+     * @see org.opencms.main.I_CmsEventTransport#receive()
+     */
+    public synchronized List<CmsClusterEvent> receive() throws Exception {
+
+        CmsSqlManager sqlManager = getSqlManager();
+        long now = System.currentTimeMillis();
+        long since = Math.max(m_startTime, m_lastReceive - m_window);
+        List<CmsClusterEvent> result = new ArrayList<CmsClusterEvent>();
+        CmsDbContext dbc = new CmsDbContext();
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet res = null;
+        try {
+            conn = sqlManager.getConnection(dbc);
+            stmt = sqlManager.getPreparedStatement(conn, "C_CLUSTER_EVENTS_READ_2");
+            stmt.setLong(1, since);
+            stmt.setString(2, m_nodeId);
+            res = stmt.executeQuery();
+            while (res.next()) {
+                String nodeId = res.getString("NODE_ID");
+                long sequence = res.getLong("EVENT_SEQ");
+                Long last = m_lastSequences.get(nodeId);
+                if ((last != null) && (sequence <= last.longValue())) {
+                    // already received
+                    continue;
+                }
+                m_lastSequences.put(nodeId, Long.valueOf(sequence));
+                result.add(
+                    new CmsClusterEvent(res.getInt("EVENT_TYPE"), sqlManager.getBytes(res, "EVENT_DATA"), nodeId));
+            }
+            m_lastReceive = now;
+            if ((now - m_lastCleanup) > (m_maxAge / 10)) {
+                sqlManager.closeAll(dbc, null, stmt, res);
+                res = null;
+                stmt = sqlManager.getPreparedStatement(conn, "C_CLUSTER_EVENTS_DELETE_1");
+                stmt.setLong(1, now - m_maxAge);
+                stmt.executeUpdate();
+                m_lastCleanup = now;
+            }
+        } finally {
+            sqlManager.closeAll(dbc, conn, stmt, res);
+        }
+        return result;
+    }
+
+    /**
+     * @see org.opencms.main.I_CmsEventTransport#send(java.util.List)
+     */
+    public synchronized void send(List<CmsClusterEvent> events) throws Exception {
+
+        CmsSqlManager sqlManager = getSqlManager();
+        CmsDbContext dbc = new CmsDbContext();
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        boolean autoCommit = true;
+        try {
+            conn = sqlManager.getConnection(dbc);
+            autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            stmt = sqlManager.getPreparedStatement(conn, "C_CLUSTER_EVENTS_WRITE_5");
+            long time = System.currentTimeMillis();
+            for (CmsClusterEvent event : events) {
+                stmt.setString(1, m_nodeId);
+                stmt.setLong(2, ++m_sequence);
+                stmt.setLong(3, time);
+                stmt.setInt(4, event.getType());
+                sqlManager.setBytes(stmt, 5, event.getData());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            conn.commit();
+        } catch (SQLException e) {
+            if (conn != null) {
+                conn.rollback();
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                conn.setAutoCommit(autoCommit);
+            }
+            sqlManager.closeAll(dbc, conn, stmt, null);
+        }
+    }
+
+    /**
+     * @see org.opencms.main.I_CmsEventTransport#shutdown()
+     */
+    public void shutdown() {
+
+        // connections are not kept open, nothing to do
+    }
+
+    /**
+     * Creates the event table if it does not exist yet.<p>
+     *
+     * @param sqlManager the SQL manager to use
+     *
+     * @throws SQLException if the table can not be created
+     */
+    private void createTable(CmsSqlManager sqlManager) throws SQLException {
+
+        CmsDbContext dbc = new CmsDbContext();
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        try {
+            conn = sqlManager.getConnection(dbc);
+            try {
+                stmt = sqlManager.getPreparedStatement(conn, "C_CLUSTER_EVENTS_CHECK_TABLE");
+                stmt.executeQuery().close();
+                return;
+            } catch (SQLException e) {
+                // the table does not exist
+                sqlManager.closeAll(dbc, null, stmt, null);
+                stmt = null;
+            }
+            if (!conn.getAutoCommit()) {
+                // some databases do not allow DDL after a failed statement in the same transaction
+                conn.rollback();
+            }
+            stmt = sqlManager.getPreparedStatement(conn, "C_CLUSTER_EVENTS_CREATE_TABLE");
+            stmt.executeUpdate();
+            sqlManager.closeAll(dbc, null, stmt, null);
+            stmt = sqlManager.getPreparedStatement(conn, "C_CLUSTER_EVENTS_CREATE_INDEX");
+            stmt.executeUpdate();
+            if (CmsLog.INIT.isInfoEnabled()) {
+                CmsLog.INIT.info(
+                    Messages.get().getBundle().key(Messages.INIT_CLUSTER_EVENT_TABLE_CREATED_1, "CMS_CLUSTER_EVENTS"));
+            }
+        } finally {
+            sqlManager.closeAll(dbc, conn, stmt, null);
+        }
+    }
+
+    /**
+     * Returns the SQL manager, which is the one of the project driver unless a SQL manager is configured.<p>
+     *
+     * With the first call, the event table is created if required.<p>
+     *
+     * @return the SQL manager
+     *
+     * @throws SQLException if the event table can not be created
+     * @throws CmsDbException if the project driver does not use a JDBC SQL manager
+     */
+    private CmsSqlManager getSqlManager() throws SQLException, CmsDbException {
+
+        if ((m_sqlManager != null) && !m_createTable) {
+            return m_sqlManager;
+        }
+        CmsSqlManager sqlManager = m_sqlManager;
+        if (sqlManager == null) {
+            CmsDriverManager driverManager = OpenCms.getSqlManager().getDriverManager();
+            org.opencms.db.CmsSqlManager projectSqlManager = driverManager.getProjectDriver().getSqlManager();
+            if (!(projectSqlManager instanceof CmsSqlManager)) {
+                throw new CmsDbException(Messages.get().container(Messages.ERR_CLUSTER_EVENT_NO_SQL_MANAGER_0));
+            }
+            sqlManager = (CmsSqlManager)projectSqlManager;
+        }
+        if (m_createTable) {
+            createTable(sqlManager);
+            m_createTable = false;
+        }
+        m_sqlManager = sqlManager;
+        return sqlManager;
+    }
+}
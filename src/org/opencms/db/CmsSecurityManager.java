@@ -92,6 +92,7 @@ import org.opencms.util.CmsFileUtil;
 import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -4265,6 +4266,32 @@ public final class CmsSecurityManager {
         return result;
     }
 
+    /**
+     * Reads the binary content of a file resource as a stream.<p>
+     *
+     * The stream may be backed by a temporary file, so it must always be closed by the caller.<p>
+     *
+     * @param context the current request context
+     * @param resource the resource to read the content for
+     *
+     * @return the stream with the content of the file
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public InputStream readFileStream(CmsRequestContext context, CmsResource resource) throws CmsException {
+
+        InputStream result = null;
+        CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
+        try {
+            result = m_driverManager.readFileStream(dbc, resource);
+        } catch (Exception e) {
+            dbc.report(null, Messages.get().container(Messages.ERR_READ_FILE_1, context.getSitePath(resource)), e);
+        } finally {
+            dbc.clear();
+        }
+        return result;
+    }
+
     /**
      * Reads a folder resource from the VFS,
      * using the specified resource filter.<p>
@@ -4901,6 +4928,42 @@ public final class CmsSecurityManager {
         return result;
     }
 
+    /**
+     * Reads all property objects of a list of resources.<p>
+     *
+     * The properties of all resources are read with as few database queries as possible, and if
+     * <code>search</code> is <code>true</code> the properties of shared parent folders are only read once.
+     * Apart from that the result is the same as calling
+     * {@link #readPropertyObjects(CmsRequestContext, CmsResource, boolean)} for every resource.<p>
+     *
+     * @param context the context of the current request
+     * @param resources the resources to read the properties for
+     * @param search <code>true</code>, if the properties should be searched on all parent folders  if not found on the resource
+     *
+     * @return the lists of <code>{@link CmsProperty}</code> objects, keyed by resource in the order of the given list
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public Map<CmsResource, List<CmsProperty>> readPropertyObjects(
+        CmsRequestContext context,
+        List<CmsResource> resources,
+        boolean search) throws CmsException {
+
+        Map<CmsResource, List<CmsProperty>> result = null;
+        CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
+        try {
+            result = m_driverManager.readPropertyObjects(dbc, resources, search);
+        } catch (Exception e) {
+            dbc.report(
+                null,
+                Messages.get().container(Messages.ERR_READ_PROPS_FOR_RESOURCES_1, new Integer(resources.size())),
+                e);
+        } finally {
+            dbc.clear();
+        }
+        return result;
+    }
+
     /**
      * Reads the resources that were published in a publish task for a given publish history ID.<p>
      *
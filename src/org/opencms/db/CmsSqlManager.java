@@ -127,4 +127,14 @@ public class CmsSqlManager {
 
         return m_driverManager.getIdleConnections(dbPoolUrl);
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the low level database driver manager.<p>
+     *
+     * @return the driver manager
+     */
+    CmsDriverManager getDriverManager() {
+
+        return m_driverManager;
+    }
+}
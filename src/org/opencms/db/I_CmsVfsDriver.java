@@ -41,6 +41,7 @@ import org.opencms.relations.CmsRelationFilter;
 import org.opencms.security.CmsOrganizationalUnit;
 import org.opencms.util.CmsUUID;
 
+import java.io.InputStream;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Collection;
@@ -464,6 +465,23 @@ public interface I_CmsVfsDriver {
      */
     byte[] readContent(CmsDbContext dbc, CmsUUID projectId, CmsUUID resourceId) throws CmsDataAccessException;
 
+    /**
+     * Reads the content of a file specified by it's resource ID as a stream.<p>
+     *
+     * The database resources are released before the stream is returned. Larger contents are
+     * spooled to a temporary file, so the stream must always be closed by the caller to delete that file.<p>
+     *
+     * @param dbc the current database context
+     * @param projectId the ID of the current project
+     * @param resourceId the id of the resource
+     *
+     * @return the file content stream
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    InputStream readContentStream(CmsDbContext dbc, CmsUUID projectId, CmsUUID resourceId)
+    throws CmsDataAccessException;
+
     /**
      * Reads a folder specified by it's structure ID.<p>
      *
@@ -570,6 +588,26 @@ public interface I_CmsVfsDriver {
     List<CmsProperty> readPropertyObjects(CmsDbContext dbc, CmsProject project, CmsResource resource)
     throws CmsDataAccessException;
 
+    /**
+     * Reads all property objects mapped to the given resources from the database with as few queries as possible.<p>
+     *
+     * The result contains an entry for every resource, keyed by its structure id. The lists contain
+     * the same properties as {@link #readPropertyObjects(CmsDbContext, CmsProject, CmsResource)} would return
+     * for the single resource, and are empty if no properties are found.<p>
+     *
+     * @param dbc the current database context
+     * @param project the current project
+     * @param resources the resources to read the properties for
+     *
+     * @return the property lists of the resources, keyed by structure id
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    Map<CmsUUID, List<CmsProperty>> readPropertyObjects(
+        CmsDbContext dbc,
+        CmsProject project,
+        List<CmsResource> resources) throws CmsDataAccessException;
+
     /**
      * Reads all relations with the given filter for the given resource.<p>
      *
@@ -126,6 +126,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_CLOSE_VFS_DRIVER_0 = "ERR_CLOSE_VFS_DRIVER_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_CLUSTER_EVENT_NO_SQL_MANAGER_0 = "ERR_CLUSTER_EVENT_NO_SQL_MANAGER_0";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_CONFIG_SUBSCRIPTIONMANAGER_FROZEN_0 = "ERR_CONFIG_SUBSCRIPTIONMANAGER_FROZEN_0";
 
@@ -510,6 +513,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_READ_PROJECT_VIEW_1 = "ERR_READ_PROJECT_VIEW_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_READ_PROPS_FOR_RESOURCES_1 = "ERR_READ_PROPS_FOR_RESOURCES_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_READ_PROP_FOR_RESOURCE_2 = "ERR_READ_PROP_FOR_RESOURCE_2";
 
@@ -798,6 +804,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String INIT_CLOSE_CONN_POOL_1 = "INIT_CLOSE_CONN_POOL_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_CLUSTER_EVENT_TABLE_CREATED_1 = "INIT_CLUSTER_EVENT_TABLE_CREATED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String INIT_DRIVER_FAILED_1 = "INIT_DRIVER_FAILED_1";
 
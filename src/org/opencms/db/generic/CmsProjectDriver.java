@@ -74,6 +74,7 @@ import org.opencms.main.I_CmsEventListener;
 import org.opencms.main.OpenCms;
 import org.opencms.publish.CmsPublishJobInfoBean;
 import org.opencms.relations.CmsRelationFilter;
+import org.opencms.report.CmsBufferedReport;
 import org.opencms.report.I_CmsReport;
 import org.opencms.security.CmsOrganizationalUnit;
 import org.opencms.security.I_CmsPrincipal;
@@ -97,9 +98,20 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 
@@ -1654,8 +1666,9 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         int publishedFolderCount = 0;
         int deletedFolderCount = 0;
         int publishedFileCount = 0;
-        Set<CmsUUID> publishedContentIds = new HashSet<CmsUUID>();
-        Set<CmsUUID> publishedIds = new HashSet<CmsUUID>();
+        // the files may be published by several threads
+        Set<CmsUUID> publishedContentIds = Collections.newSetFromMap(new ConcurrentHashMap<CmsUUID, Boolean>());
+        Set<CmsUUID> publishedIds = Collections.newSetFromMap(new ConcurrentHashMap<CmsUUID, Boolean>());
 
         try {
 
@@ -1804,12 +1817,22 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
             Set<CmsUUID> changedAndDeletedResourceIds = Sets.intersection(deletedResourceIds, changedResourceIds);
             dbc.setAttribute(CmsDriverManager.KEY_CHANGED_AND_DELETED, changedAndDeletedResourceIds);
 
-            Iterator<CmsResource> itFiles = publishList.getFileList().iterator();
-            while (itFiles.hasNext()) {
-                CmsResource currentResource = itFiles.next();
-                try {
-                    // bounce the current publish task through all project drivers
-                    projectDriver.publishFile(
+            int publishThreads = (OpenCms.getPublishManager() != null)
+            ? OpenCms.getPublishManager().getPublishThreads()
+            : 1;
+            if ((publishThreads > 1) && (filesSize > 1) && dbc.isDefaultDbContext()) {
+                publishedFileCount = internalPublishFiles(
+                    dbc,
+                    report,
+                    onlineProject,
+                    publishList,
+                    publishedContentIds,
+                    publishedIds,
+                    publishTag,
+                    publishThreads);
+            } else {
+                for (CmsResource currentResource : publishList.getFileList()) {
+                    internalPublishFile(
                         dbc,
                         report,
                         ++publishedFileCount,
@@ -1817,39 +1840,9 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
                         onlineProject,
                         currentResource,
                         publishedContentIds,
+                        publishedIds,
                         publishList.getPublishHistoryId(),
                         publishTag);
-
-                    CmsResourceState state = currentResource.getState();
-                    if (!state.isDeleted()) {
-                        // reset the resource state to UNCHANGED and the last-modified-in-project-ID to 0
-                        internalResetResourceState(dbc, currentResource);
-                    }
-
-                    // unlock it
-                    m_driverManager.unlockResource(dbc, currentResource, true, true);
-                    // log it
-                    CmsLogEntryType type = state.isNew()
-                    ? CmsLogEntryType.RESOURCE_PUBLISHED_NEW
-                    : (state.isDeleted()
-                    ? CmsLogEntryType.RESOURCE_PUBLISHED_DELETED
-                    : CmsLogEntryType.RESOURCE_PUBLISHED_MODIFIED);
-                    m_driverManager.log(
-                        dbc,
-                        new CmsLogEntry(
-                            dbc,
-                            currentResource.getStructureId(),
-                            type,
-                            new String[] {currentResource.getRootPath()}),
-                        true);
-
-                    publishedIds.add(currentResource.getStructureId());
-                    dbc.pop();
-                } catch (Throwable t) {
-                    dbc.report(
-                        report,
-                        Messages.get().container(Messages.ERR_ERROR_PUBLISHING_FILE_1, currentResource.getRootPath()),
-                        t);
                 }
             }
 
@@ -3171,6 +3164,213 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         return new CmsLogEntry(userId, date, structureId, type, data);
     }
 
+    /**
+     * Publishes a single file and resets its state.<p>
+     *
+     * Errors are written to the report.<p>
+     *
+     * @param dbc the current database context
+     * @param report the report to write to
+     * @param m the number of the file
+     * @param n the total number of files
+     * @param onlineProject the online project
+     * @param currentResource the file to publish
+     * @param publishedContentIds the ids of the already published contents
+     * @param publishedIds the structure ids of the published resources
+     * @param publishHistoryId the publish history id
+     * @param publishTag the publish tag
+     *
+     * @throws CmsException if publishing the file fails
+     */
+    protected void internalPublishFile(
+        CmsDbContext dbc,
+        I_CmsReport report,
+        int m,
+        int n,
+        CmsProject onlineProject,
+        CmsResource currentResource,
+        Set<CmsUUID> publishedContentIds,
+        Set<CmsUUID> publishedIds,
+        CmsUUID publishHistoryId,
+        int publishTag)
+    throws CmsException {
+
+        I_CmsProjectDriver projectDriver = m_driverManager.getProjectDriver(dbc);
+        try {
+            // bounce the current publish task through all project drivers
+            projectDriver.publishFile(
+                dbc,
+                report,
+                m,
+                n,
+                onlineProject,
+                currentResource,
+                publishedContentIds,
+                publishHistoryId,
+                publishTag);
+
+            CmsResourceState state = currentResource.getState();
+            if (!state.isDeleted()) {
+                // reset the resource state to UNCHANGED and the last-modified-in-project-ID to 0
+                internalResetResourceState(dbc, currentResource);
+            }
+
+            // unlock it
+            m_driverManager.unlockResource(dbc, currentResource, true, true);
+            // log it
+            CmsLogEntryType type = state.isNew()
+            ? CmsLogEntryType.RESOURCE_PUBLISHED_NEW
+            : (state.isDeleted()
+            ? CmsLogEntryType.RESOURCE_PUBLISHED_DELETED
+            : CmsLogEntryType.RESOURCE_PUBLISHED_MODIFIED);
+            m_driverManager.log(
+                dbc,
+                new CmsLogEntry(
+                    dbc,
+                    currentResource.getStructureId(),
+                    type,
+                    new String[] {currentResource.getRootPath()}),
+                true);
+
+            publishedIds.add(currentResource.getStructureId());
+            dbc.pop();
+        } catch (Throwable t) {
+            dbc.report(
+                report,
+                Messages.get().container(Messages.ERR_ERROR_PUBLISHING_FILE_1, currentResource.getRootPath()),
+                t);
+        }
+    }
+
+    /**
+     * Publishes the files of a publish list with several threads.<p>
+     *
+     * The files are grouped by their resource id, so that all siblings of a resource
+     * are published by the same thread in the order of the publish list.<p>
+     *
+     * If publishing a file fails, the remaining files are skipped, and this method only returns
+     * after all threads have finished, so that no thread writes to the online project any more.<p>
+     *
+     * @param dbc the current database context
+     * @param report the report to write to
+     * @param onlineProject the online project
+     * @param publishList the publish list
+     * @param publishedContentIds the ids of the already published contents
+     * @param publishedIds the structure ids of the published resources
+     * @param publishTag the publish tag
+     * @param threads the number of threads to use
+     *
+     * @return the number of processed files
+     *
+     * @throws CmsException if publishing a file fails or the publish thread is interrupted
+     */
+    protected int internalPublishFiles(
+        final CmsDbContext dbc,
+        final I_CmsReport report,
+        final CmsProject onlineProject,
+        final CmsPublishList publishList,
+        final Set<CmsUUID> publishedContentIds,
+        final Set<CmsUUID> publishedIds,
+        final int publishTag,
+        int threads)
+    throws CmsException {
+
+        final int filesSize = publishList.getFileList().size();
+        final Object changedAndDeleted = dbc.getAttribute(CmsDriverManager.KEY_CHANGED_AND_DELETED);
+        final AtomicInteger publishedFileCount = new AtomicInteger();
+        final AtomicBoolean aborted = new AtomicBoolean();
+        Map<CmsUUID, List<CmsResource>> partitions = new LinkedHashMap<CmsUUID, List<CmsResource>>();
+        for (CmsResource resource : publishList.getFileList()) {
+            List<CmsResource> partition = partitions.get(resource.getResourceId());
+            if (partition == null) {
+                partition = new ArrayList<CmsResource>(2);
+                partitions.put(resource.getResourceId(), partition);
+            }
+            partition.add(resource);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(
+            Math.min(threads, partitions.size()),
+            new ThreadFactory() {
+
+                public Thread newThread(Runnable r) {
+
+                    Thread thread = new Thread(r, "OpenCms: Publish worker");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        List<Future<Void>> futures = new ArrayList<Future<Void>>(partitions.size());
+        try {
+            for (final List<CmsResource> partition : partitions.values()) {
+                futures.add(executor.submit(new Callable<Void>() {
+
+                    public Void call() throws CmsException {
+
+                        // database contexts are not thread safe
+                        CmsDbContext workerDbc = m_driverManager.getDbContextFactory().getDbContext(
+                            dbc.getRequestContext());
+                        try {
+                            workerDbc.setProjectId(dbc.getProjectId());
+                            workerDbc.setAttribute(CmsDriverManager.KEY_CHANGED_AND_DELETED, changedAndDeleted);
+                            CmsBufferedReport workerReport = new CmsBufferedReport(report);
+                            for (CmsResource resource : partition) {
+                                if (aborted.get()) {
+                                    // another thread failed, skip the remaining files
+                                    break;
+                                }
+                                try {
+                                    internalPublishFile(
+                                        workerDbc,
+                                        workerReport,
+                                        publishedFileCount.incrementAndGet(),
+                                        filesSize,
+                                        onlineProject,
+                                        resource,
+                                        publishedContentIds,
+                                        publishedIds,
+                                        publishList.getPublishHistoryId(),
+                                        publishTag);
+                                } catch (CmsException e) {
+                                    aborted.set(true);
+                                    throw e;
+                                } finally {
+                                    workerReport.flush();
+                                }
+                            }
+                        } finally {
+                            workerDbc.clear();
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    // stop at the first error, like the single threaded publishing does
+                    if (e.getCause() instanceof CmsException) {
+                        throw (CmsException)e.getCause();
+                    }
+                    dbc.report(report, Messages.get().container(Messages.ERR_PUBLISH_FILES_THREAD_0), e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CmsDbIoException(Messages.get().container(Messages.ERR_PUBLISH_FILES_INTERRUPTED_0), e);
+        } finally {
+            aborted.set(true);
+            for (Future<Void> future : futures) {
+                // files that have not been started yet are not published any more
+                future.cancel(false);
+            }
+            executor.shutdown();
+            // JDBC calls are not interruptible, so wait until the running files are done
+            awaitTermination(executor);
+        }
+        return publishedFileCount.get();
+    }
+
     /**
      * Resets the state to UNCHANGED for a specified resource.<p>
      *
@@ -3850,4 +4050,26 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         m_driverManager.getVfsDriver(dbc).updateRelations(dbc, onlineProject, offlineResource);
     }
 
-}
\ No newline at end of file
+    /**
+     * Waits until all tasks of the given executor have finished.<p>
+     *
+     * The executor must have been shut down before. An interruption of the current thread
+     * does not stop the waiting, but the interrupted state is restored afterwards.<p>
+     *
+     * @param executor the executor to wait for
+     */
+    private void awaitTermination(ExecutorService executor) {
+
+        boolean interrupted = false;
+        while (!executor.isTerminated()) {
+            try {
+                executor.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
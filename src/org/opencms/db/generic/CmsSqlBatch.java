@@ -0,0 +1,215 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db.generic;
+
+import org.opencms.db.CmsDbContext;
+import org.opencms.util.CmsUUID;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects the executions of prepared statements and sends them to the database in JDBC batches.<p>
+ *
+ * A batch is created with {@link CmsSqlManager#createBatch(CmsDbContext, Connection)} and is only valid
+ * for a single driver operation. The statements are created once per SQL query, and the parameters of each
+ * execution are queued with {@link #addBatch(PreparedStatement)}. The queued executions are sent when
+ * {@link #executeBatch()} is called, or when the number of queued executions reaches the batch size.<p>
+ *
+ * The statements are executed in the order they were first requested from this batch. So the executions
+ * of different statements must not depend on each other, and the data written by queued executions is
+ * not visible to reads before the batch has been executed.<p>
+ *
+ * If the JDBC driver does not support batch updates, every execution is sent immediately.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsSqlBatch {
+
+    /** The default maximum number of queued executions. */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    /** The maximum number of queued executions. */
+    private int m_batchSize;
+
+    /** The JDBC connection. */
+    private Connection m_connection;
+
+    /** The statement that was used last, i.e. the failing statement in case of an error. */
+    private PreparedStatement m_currentStatement;
+
+    /** The current database context. */
+    private CmsDbContext m_dbc;
+
+    /** The number of queued executions. */
+    private int m_pending;
+
+    /** The SQL manager. */
+    private CmsSqlManager m_sqlManager;
+
+    /** The prepared statements, by SQL query. */
+    private Map<String, PreparedStatement> m_statements;
+
+    /** Flag indicating if the JDBC driver supports batch updates. */
+    private boolean m_supportsBatch;
+
+    /**
+     * Creates a new batch.<p>
+     *
+     * @param sqlManager the SQL manager
+     * @param dbc the current database context
+     * @param connection the JDBC connection
+     * @param batchSize the maximum number of queued executions
+     *
+     * @throws SQLException if the database meta data can not be read
+     */
+    public CmsSqlBatch(CmsSqlManager sqlManager, CmsDbContext dbc, Connection connection, int batchSize)
+    throws SQLException {
+
+        m_sqlManager = sqlManager;
+        m_dbc = dbc;
+        m_connection = connection;
+        m_batchSize = Math.max(1, batchSize);
+        m_statements = new LinkedHashMap<String, PreparedStatement>();
+        m_supportsBatch = connection.getMetaData().supportsBatchUpdates();
+    }
+
+    /**
+     * Queues an execution of the given statement with its current parameters.<p>
+     *
+     * @param stmt the statement, must have been created by this batch
+     *
+     * @throws SQLException if a database access error occurs
+     */
+    public void addBatch(PreparedStatement stmt) throws SQLException {
+
+        m_currentStatement = stmt;
+        if (!m_supportsBatch) {
+            stmt.executeUpdate();
+            return;
+        }
+        stmt.addBatch();
+        m_pending++;
+        if (m_pending >= m_batchSize) {
+            executeBatch();
+        }
+    }
+
+    /**
+     * Closes all statements of this batch.<p>
+     *
+     * Executions that have not been sent to the database are discarded.
+     * The connection is not closed.<p>
+     */
+    public void close() {
+
+        for (PreparedStatement stmt : m_statements.values()) {
+            m_sqlManager.closeAll(m_dbc, null, stmt, null);
+        }
+        m_statements.clear();
+        m_currentStatement = null;
+        m_pending = 0;
+    }
+
+    /**
+     * Sends all queued executions to the database.<p>
+     *
+     * @throws SQLException if a database access error occurs
+     */
+    public void executeBatch() throws SQLException {
+
+        if (m_pending == 0) {
+            return;
+        }
+        m_pending = 0;
+        for (PreparedStatement stmt : m_statements.values()) {
+            m_currentStatement = stmt;
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Returns the statement that was used last.<p>
+     *
+     * In case of an error, this is the statement that failed, which can be used
+     * with {@link org.opencms.db.CmsDbSqlException#getErrorQuery(java.sql.Statement)}.<p>
+     *
+     * @return the statement that was used last, or <code>null</code>
+     */
+    public PreparedStatement getCurrentStatement() {
+
+        return m_currentStatement;
+    }
+
+    /**
+     * Returns the number of queued executions.<p>
+     *
+     * @return the number of queued executions
+     */
+    public int getPendingCount() {
+
+        return m_pending;
+    }
+
+    /**
+     * Returns the statement for the SQL query with the given key and project.<p>
+     *
+     * @param projectId the project id
+     * @param queryKey the key of the SQL query
+     *
+     * @return the prepared statement
+     *
+     * @throws SQLException if a database access error occurs
+     */
+    public PreparedStatement getPreparedStatement(CmsUUID projectId, String queryKey) throws SQLException {
+
+        return getPreparedStatementForSql(m_sqlManager.readQuery(projectId, queryKey));
+    }
+
+    /**
+     * Returns the statement for the given SQL query.<p>
+     *
+     * @param query the SQL query
+     *
+     * @return the prepared statement
+     *
+     * @throws SQLException if a database access error occurs
+     */
+    public PreparedStatement getPreparedStatementForSql(String query) throws SQLException {
+
+        PreparedStatement stmt = m_statements.get(query);
+        if (stmt == null) {
+            stmt = m_sqlManager.getPreparedStatementForSql(m_connection, query);
+            m_statements.put(query, stmt);
+        }
+        return stmt;
+    }
+}
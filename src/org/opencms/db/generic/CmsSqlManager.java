@@ -37,6 +37,7 @@ import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -186,6 +187,21 @@ public class CmsSqlManager extends org.opencms.db.CmsSqlManager {
 
     }
 
+    /**
+     * Creates a new batch to send several statement executions to the database at once.<p>
+     *
+     * @param dbc the current database context
+     * @param con the JDBC connection
+     *
+     * @return a new batch
+     *
+     * @throws SQLException if a database access error occurs
+     */
+    public CmsSqlBatch createBatch(CmsDbContext dbc, Connection con) throws SQLException {
+
+        return new CmsSqlBatch(this, dbc, con, CmsSqlBatch.DEFAULT_BATCH_SIZE);
+    }
+
     /**
      * Retrieves the value of the designated column in the current row of this ResultSet object as
      * a byte array in the Java programming language.<p>
@@ -205,6 +221,25 @@ public class CmsSqlManager extends org.opencms.db.CmsSqlManager {
         return res.getBytes(attributeName);
     }
 
+    /**
+     * Retrieves the value of the designated column in the current row of this ResultSet object as
+     * a stream of bytes.<p>
+     *
+     * The stream must be read before the result set is closed. Overwrite this method if another
+     * database server requires a different handling of byte attributes in tables.<p>
+     *
+     * @param res the result set
+     * @param attributeName the name of the table attribute
+     *
+     * @return the column value as stream; if the value is SQL NULL, the value returned is null
+     *
+     * @throws SQLException if a database access error occurs
+     */
+    public InputStream getBinaryStream(ResultSet res, String attributeName) throws SQLException {
+
+        return res.getBinaryStream(attributeName);
+    }
+
     /**
      * Returns a JDBC connection from the connection pool.<p>
      *
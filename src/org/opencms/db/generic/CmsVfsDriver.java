@@ -34,6 +34,7 @@ import org.opencms.db.CmsAliasFilter;
 import org.opencms.db.CmsDbConsistencyException;
 import org.opencms.db.CmsDbContext;
 import org.opencms.db.CmsDbEntryNotFoundException;
+import org.opencms.db.CmsDbIoException;
 import org.opencms.db.CmsDbSqlException;
 import org.opencms.db.CmsDbUtil;
 import org.opencms.db.CmsDriverManager;
@@ -80,6 +81,8 @@ import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -103,12 +106,18 @@ import org.apache.commons.logging.Log;
  */
 public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
 
+    /** The maximum size of file content kept in memory by a content stream read, larger content is spooled to a temporary file. */
+    protected static final int CONTENT_STREAM_MEMORY_LIMIT = 1024 * 1024;
+
     /** Contains the macro replacement value for the offline project. */
     protected static final String OFFLINE = "OFFLINE";
 
     /** Contains the macro replacement value for the online project. */
     protected static final String ONLINE = "ONLINE";
 
+    /** The maximum number of ids in the IN-list of a bulk property read. */
+    protected static final int PROPERTY_READ_LIST_SIZE = 500;
+
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(org.opencms.db.generic.CmsVfsDriver.class);
 
@@ -118,9 +127,11 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
     /**
      * This field is temporarily used to compute the versions during publishing.<p>
      *
+     * The list is synchronized since the files of a publish job may be published by several threads.<p>
+     *
      * @see #publishVersions(CmsDbContext, CmsResource, boolean)
      */
-    protected List<CmsUUID> m_resOp = new ArrayList<CmsUUID>();
+    protected List<CmsUUID> m_resOp = Collections.synchronizedList(new ArrayList<CmsUUID>());
 
     /** The sql manager. */
     protected CmsSqlManager m_sqlManager;
@@ -1893,6 +1904,68 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         return byteRes;
     }
 
+    /**
+     * @see org.opencms.db.I_CmsVfsDriver#readContentStream(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID, org.opencms.util.CmsUUID)
+     */
+    public InputStream readContentStream(CmsDbContext dbc, CmsUUID projectId, CmsUUID resourceId)
+    throws CmsDataAccessException {
+
+        PreparedStatement stmt = null;
+        ResultSet res = null;
+        Connection conn = null;
+        InputStream result = null;
+
+        try {
+            conn = m_sqlManager.getConnection(dbc);
+            if (projectId.equals(CmsProject.ONLINE_PROJECT_ID)) {
+                stmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_ONLINE_FILES_CONTENT");
+            } else {
+                stmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_OFFLINE_FILES_CONTENT");
+            }
+            stmt.setString(1, resourceId.toString());
+            res = stmt.executeQuery();
+
+            if (res.next()) {
+                InputStream in = m_sqlManager.getBinaryStream(
+                    res,
+                    m_sqlManager.readQuery("C_RESOURCES_FILE_CONTENT"));
+                if (in == null) {
+                    result = new ByteArrayInputStream(new byte[0]);
+                } else {
+                    // spool the content, so that the connection is not held while the caller consumes the stream
+                    try {
+                        result = CmsFileUtil.spool(in, CONTENT_STREAM_MEMORY_LIMIT);
+                    } finally {
+                        in.close();
+                    }
+                }
+                while (res.next()) {
+                    // do nothing only move through all rows because of mssql odbc driver
+                }
+            } else {
+                throw new CmsVfsResourceNotFoundException(
+                    Messages.get().container(
+                        Messages.ERR_READ_CONTENT_WITH_RESOURCE_ID_2,
+                        resourceId,
+                        Boolean.valueOf(projectId.equals(CmsProject.ONLINE_PROJECT_ID))));
+            }
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(
+                Messages.get().container(Messages.ERR_GENERIC_SQL_1, CmsDbSqlException.getErrorQuery(stmt)),
+                e);
+        } catch (IOException e) {
+            throw new CmsDbIoException(
+                Messages.get().container(
+                    Messages.ERR_READ_CONTENT_WITH_RESOURCE_ID_2,
+                    resourceId,
+                    Boolean.valueOf(projectId.equals(CmsProject.ONLINE_PROJECT_ID))),
+                e);
+        } finally {
+            m_sqlManager.closeAll(dbc, conn, stmt, res);
+        }
+        return result;
+    }
+
     /**
      * @see org.opencms.db.I_CmsVfsDriver#readFolder(org.opencms.db.CmsDbContext, CmsUUID, org.opencms.util.CmsUUID)
      */
@@ -2218,6 +2291,119 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         return new ArrayList<CmsProperty>(propertyMap.values());
     }
 
+    /**
+     * @see org.opencms.db.I_CmsVfsDriver#readPropertyObjects(org.opencms.db.CmsDbContext, org.opencms.file.CmsProject, java.util.List)
+     */
+    public Map<CmsUUID, List<CmsProperty>> readPropertyObjects(
+        CmsDbContext dbc,
+        CmsProject project,
+        List<CmsResource> resources) throws CmsDataAccessException {
+
+        CmsUUID projectId = ((dbc.getProjectId() == null) || dbc.getProjectId().isNullUUID())
+        ? project.getUuid()
+        : dbc.getProjectId();
+
+        // the resources a structure or resource record is mapped to, siblings share the resource id
+        Map<String, List<CmsResource>> resourcesById = new HashMap<String, List<CmsResource>>();
+        Map<CmsUUID, Map<String, CmsProperty>> propertyMaps = new HashMap<CmsUUID, Map<String, CmsProperty>>();
+        for (CmsResource resource : resources) {
+            if (propertyMaps.containsKey(resource.getStructureId())) {
+                continue;
+            }
+            propertyMaps.put(resource.getStructureId(), new HashMap<String, CmsProperty>());
+            for (String id : new String[] {resource.getStructureId().toString(), resource.getResourceId().toString()}) {
+                List<CmsResource> mapped = resourcesById.get(id);
+                if (mapped == null) {
+                    mapped = new ArrayList<CmsResource>(1);
+                    resourcesById.put(id, mapped);
+                }
+                mapped.add(resource);
+            }
+        }
+
+        if (!resourcesById.isEmpty()) {
+            List<String> ids = new ArrayList<String>(resourcesById.keySet());
+            String query = m_sqlManager.readQuery(projectId, "C_PROPERTIES_READALL_LIST");
+            ResultSet res = null;
+            PreparedStatement stmt = null;
+            Connection conn = null;
+            try {
+                conn = m_sqlManager.getConnection(dbc);
+                for (int start = 0; start < ids.size(); start += PROPERTY_READ_LIST_SIZE) {
+                    List<String> chunk = ids.subList(start, Math.min(start + PROPERTY_READ_LIST_SIZE, ids.size()));
+                    StringBuffer placeholders = new StringBuffer(chunk.size() * 2);
+                    for (int i = 0; i < chunk.size(); i++) {
+                        placeholders.append(i == 0 ? "?" : ",?");
+                    }
+                    stmt = m_sqlManager.getPreparedStatementForSql(
+                        conn,
+                        CmsStringUtil.substitute(query, "%(IDS)", placeholders.toString()));
+                    for (int i = 0; i < chunk.size(); i++) {
+                        stmt.setString(i + 1, chunk.get(i));
+                    }
+                    res = stmt.executeQuery();
+                    while (res.next()) {
+                        String propertyKey = res.getString(1);
+                        String propertyValue = res.getString(2);
+                        int mappingType = res.getInt(3);
+                        String mappingId = res.getString(4);
+
+                        List<CmsResource> mapped = resourcesById.get(mappingId);
+                        if (mapped == null) {
+                            continue;
+                        }
+                        for (CmsResource resource : mapped) {
+                            boolean structureRecord = (mappingType == CmsProperty.STRUCTURE_RECORD_MAPPING);
+                            if (!structureRecord && (mappingType != CmsProperty.RESOURCE_RECORD_MAPPING)) {
+                                throw new CmsDbConsistencyException(
+                                    Messages.get().container(
+                                        Messages.ERR_UNKNOWN_PROPERTY_VALUE_MAPPING_3,
+                                        resource.getRootPath(),
+                                        new Integer(mappingType),
+                                        propertyKey));
+                            }
+                            String expectedId = structureRecord
+                            ? resource.getStructureId().toString()
+                            : resource.getResourceId().toString();
+                            if (!expectedId.equals(mappingId)) {
+                                // the id matches the other record type of this resource
+                                continue;
+                            }
+                            Map<String, CmsProperty> propertyMap = propertyMaps.get(resource.getStructureId());
+                            CmsProperty property = propertyMap.get(propertyKey);
+                            if (property == null) {
+                                property = new CmsProperty();
+                                property.setName(propertyKey);
+                                propertyMap.put(propertyKey, property);
+                            }
+                            if (structureRecord) {
+                                property.setStructureValue(propertyValue);
+                            } else {
+                                property.setResourceValue(propertyValue);
+                            }
+                            property.setOrigin(resource.getRootPath());
+                        }
+                    }
+                    m_sqlManager.closeAll(dbc, null, stmt, res);
+                    stmt = null;
+                    res = null;
+                }
+            } catch (SQLException e) {
+                throw new CmsDbSqlException(
+                    Messages.get().container(Messages.ERR_GENERIC_SQL_1, CmsDbSqlException.getErrorQuery(stmt)),
+                    e);
+            } finally {
+                m_sqlManager.closeAll(dbc, conn, stmt, res);
+            }
+        }
+
+        Map<CmsUUID, List<CmsProperty>> result = new HashMap<CmsUUID, List<CmsProperty>>();
+        for (Map.Entry<CmsUUID, Map<String, CmsProperty>> entry : propertyMaps.entrySet()) {
+            result.put(entry.getKey(), new ArrayList<CmsProperty>(entry.getValue().values()));
+        }
+        return result;
+    }
+
     /**
      * @see org.opencms.db.I_CmsVfsDriver#readRelations(org.opencms.db.CmsDbContext, CmsUUID, CmsResource, org.opencms.relations.CmsRelationFilter)
      */
@@ -3086,8 +3272,49 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
             offlineResource,
             CmsRelationFilter.TARGETS).iterator();
         dbc.setProjectId(dbcProjectId);
-        while (itRelations.hasNext()) {
-            vfsDriver.createRelation(dbc, onlineProject.getUuid(), itRelations.next());
+        Connection conn = null;
+        CmsSqlBatch batch = null;
+        try {
+            while (itRelations.hasNext()) {
+                CmsRelation relation = itRelations.next();
+                if (relation.getType().getId() == CmsRelationType.LOCALE_VARIANT.getId()) {
+                    // locale variant relations have to be normalized after creating them
+                    vfsDriver.createRelation(dbc, onlineProject.getUuid(), relation);
+                    continue;
+                }
+                if (batch == null) {
+                    conn = m_sqlManager.getConnection(dbc);
+                    batch = m_sqlManager.createBatch(dbc, conn);
+                }
+                PreparedStatement stmt = batch.getPreparedStatement(onlineProject.getUuid(), "C_CREATE_RELATION");
+                stmt.setString(1, relation.getSourceId().toString());
+                stmt.setString(2, relation.getSourcePath());
+                stmt.setString(3, relation.getTargetId().toString());
+                stmt.setString(4, relation.getTargetPath());
+                stmt.setInt(5, relation.getType().getId());
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(
+                        Messages.get().getBundle().key(
+                            Messages.LOG_CREATE_RELATION_2,
+                            String.valueOf(onlineProject.getUuid()),
+                            relation));
+                }
+                batch.addBatch(stmt);
+            }
+            if (batch != null) {
+                batch.executeBatch();
+            }
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(
+                Messages.get().container(
+                    Messages.ERR_GENERIC_SQL_1,
+                    CmsDbSqlException.getErrorQuery((batch != null) ? batch.getCurrentStatement() : null)),
+                e);
+        } finally {
+            if (batch != null) {
+                batch.close();
+            }
+            m_sqlManager.closeAll(dbc, conn, null, null);
         }
     }
 
@@ -3219,167 +3446,85 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
     public void writePropertyObject(CmsDbContext dbc, CmsProject project, CmsResource resource, CmsProperty property)
     throws CmsDataAccessException {
 
+        writePropertyObjects(dbc, project, resource, Collections.singletonList(property));
+    }
+
+    /**
+     * Writes the property objects of a resource.<p>
+     *
+     * The existing properties are read with a single query, and all changed
+     * property values are written in one JDBC batch.<p>
+     *
+     * @see org.opencms.db.I_CmsVfsDriver#writePropertyObjects(org.opencms.db.CmsDbContext, org.opencms.file.CmsProject, org.opencms.file.CmsResource, java.util.List)
+     */
+    public void writePropertyObjects(
+        CmsDbContext dbc,
+        CmsProject project,
+        CmsResource resource,
+        List<CmsProperty> properties) throws CmsDataAccessException {
+
+        if (properties.isEmpty()) {
+            return;
+        }
         CmsUUID projectId = ((dbc.getProjectId() == null) || dbc.getProjectId().isNullUUID())
         ? project.getUuid()
         : dbc.getProjectId();
 
-        // TODO: check if we need autocreation for link property definition types too
-        CmsPropertyDefinition propertyDefinition = null;
-        try {
-            // read the property definition
-            propertyDefinition = readPropertyDefinition(dbc, property.getName(), projectId);
-        } catch (CmsDbEntryNotFoundException e) {
-            if (property.autoCreatePropertyDefinition()) {
-                propertyDefinition = createPropertyDefinition(
-                    dbc,
-                    projectId,
-                    property.getName(),
-                    CmsPropertyDefinition.TYPE_NORMAL);
-                try {
-                    readPropertyDefinition(dbc, property.getName(), CmsProject.ONLINE_PROJECT_ID);
-                } catch (CmsDataAccessException e1) {
-                    createPropertyDefinition(
-                        dbc,
-                        CmsProject.ONLINE_PROJECT_ID,
-                        property.getName(),
-                        CmsPropertyDefinition.TYPE_NORMAL);
-                }
-                try {
-                    m_driverManager.getHistoryDriver(dbc).readPropertyDefinition(dbc, property.getName());
-                } catch (CmsDataAccessException e1) {
-                    m_driverManager.getHistoryDriver(dbc).createPropertyDefinition(
-                        dbc,
-                        property.getName(),
-                        CmsPropertyDefinition.TYPE_NORMAL);
-                }
-                OpenCms.fireCmsEvent(
-                    new CmsEvent(
-                        I_CmsEventListener.EVENT_PROPERTY_DEFINITION_CREATED,
-                        Collections.<String, Object> singletonMap("propertyDefinition", propertyDefinition)));
+        // read the property definitions first, they may have to be created
+        List<CmsPropertyDefinition> propertyDefinitions = new ArrayList<CmsPropertyDefinition>(properties.size());
+        for (CmsProperty property : properties) {
+            propertyDefinitions.add(internalReadOrCreatePropertyDefinition(dbc, projectId, property));
+        }
 
-            } else {
-                throw new CmsDbEntryNotFoundException(
-                    Messages.get().container(Messages.ERR_NO_PROPERTYDEF_WITH_NAME_1, property.getName()));
-            }
+        // read the existing properties to test if we need the
+        // insert or update query to write a property value
+        Map<String, CmsProperty> existingProperties = new HashMap<String, CmsProperty>();
+        for (CmsProperty existingProperty : readPropertyObjects(dbc, project, resource)) {
+            existingProperties.put(existingProperty.getName(), existingProperty);
         }
 
-        PreparedStatement stmt = null;
         Connection conn = null;
-
+        CmsSqlBatch batch = null;
+        Set<String> writtenNames = new HashSet<String>();
         try {
-            // read the existing property to test if we need the
-            // insert or update query to write a property value
-            CmsProperty existingProperty = readPropertyObject(dbc, propertyDefinition.getName(), project, resource);
-
-            if (existingProperty.isIdentical(property)) {
-                // property already has the identical values set, no write required
-                return;
-            }
-
-            conn = m_sqlManager.getConnection(dbc);
-
-            for (int i = 0; i < 2; i++) {
-                int mappingType = -1;
-                String value = null;
-                CmsUUID id = null;
-                boolean existsPropertyValue = false;
-                boolean deletePropertyValue = false;
-
-                // 1) take any required decisions to choose and fill the correct SQL query
-
-                if (i == 0) {
-                    // write/delete the *structure value* on the first cycle
-                    if ((existingProperty.getStructureValue() != null) && property.isDeleteStructureValue()) {
-                        // this property value is marked to be deleted
-                        deletePropertyValue = true;
-                    } else {
-                        value = property.getStructureValue();
-                        if (CmsStringUtil.isEmptyOrWhitespaceOnly(value)) {
-                            // no structure value set or the structure value is an empty string,
-                            // continue with the resource value
-                            continue;
-                        }
-                    }
-
-                    // set the vars to be written to the database
-                    mappingType = CmsProperty.STRUCTURE_RECORD_MAPPING;
-                    id = resource.getStructureId();
-                    existsPropertyValue = existingProperty.getStructureValue() != null;
-                } else {
-                    // write/delete the *resource value* on the second cycle
-                    if ((existingProperty.getResourceValue() != null) && property.isDeleteResourceValue()) {
-                        // this property value is marked to be deleted
-                        deletePropertyValue = true;
-                    } else {
-                        value = property.getResourceValue();
-                        if (CmsStringUtil.isEmptyOrWhitespaceOnly(value)) {
-                            // no resource value set or the resource value is an empty string,
-                            // break out of the loop
-                            break;
-                        }
-                    }
-
-                    // set the vars to be written to the database
-                    mappingType = CmsProperty.RESOURCE_RECORD_MAPPING;
-                    id = resource.getResourceId();
-                    existsPropertyValue = existingProperty.getResourceValue() != null;
+            for (int i = 0; i < properties.size(); i++) {
+                CmsProperty property = properties.get(i);
+                CmsPropertyDefinition propertyDefinition = propertyDefinitions.get(i);
+                CmsProperty existingProperty = existingProperties.get(propertyDefinition.getName());
+                if (existingProperty == null) {
+                    existingProperty = CmsProperty.getNullProperty();
                 }
-
-                // 2) execute the SQL query
-                try {
-                    if (!deletePropertyValue) {
-                        // insert/update the property value
-                        if (existsPropertyValue) {
-                            // {structure|resource} property value already exists- use update statement
-                            stmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_PROPERTIES_UPDATE");
-                            stmt.setString(1, m_sqlManager.validateEmpty(value));
-                            stmt.setString(2, id.toString());
-                            stmt.setInt(3, mappingType);
-                            stmt.setString(4, propertyDefinition.getId().toString());
-                        } else {
-                            // {structure|resource} property value doesn't exist- use create statement
-                            stmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_PROPERTIES_CREATE");
-                            stmt.setString(1, new CmsUUID().toString());
-                            stmt.setString(2, propertyDefinition.getId().toString());
-                            stmt.setString(3, id.toString());
-                            stmt.setInt(4, mappingType);
-                            stmt.setString(5, m_sqlManager.validateEmpty(value));
-                        }
-                    } else {
-                        // {structure|resource} property value marked as deleted- use delete statement
-                        stmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_PROPERTIES_DELETE");
-                        stmt.setString(1, propertyDefinition.getId().toString());
-                        stmt.setString(2, id.toString());
-                        stmt.setInt(3, mappingType);
-                    }
-                    stmt.executeUpdate();
-                } finally {
-                    m_sqlManager.closeAll(dbc, null, stmt, null);
+                if (existingProperty.isIdentical(property)) {
+                    // property already has the identical values set, no write required
+                    continue;
+                }
+                if (batch == null) {
+                    conn = m_sqlManager.getConnection(dbc);
+                    batch = m_sqlManager.createBatch(dbc, conn);
+                } else if (writtenNames.contains(propertyDefinition.getName())) {
+                    // the same property is written twice, the first write must be executed before
+                    batch.executeBatch();
+                    writtenNames.clear();
                 }
+                writtenNames.add(propertyDefinition.getName());
+                existingProperties.put(
+                    propertyDefinition.getName(),
+                    internalWriteProperty(batch, projectId, resource, property, propertyDefinition, existingProperty));
+            }
+            if (batch != null) {
+                batch.executeBatch();
             }
         } catch (SQLException e) {
             throw new CmsDbSqlException(
-                Messages.get().container(Messages.ERR_GENERIC_SQL_1, CmsDbSqlException.getErrorQuery(stmt)),
+                Messages.get().container(
+                    Messages.ERR_GENERIC_SQL_1,
+                    CmsDbSqlException.getErrorQuery((batch != null) ? batch.getCurrentStatement() : null)),
                 e);
         } finally {
-            m_sqlManager.closeAll(dbc, conn, stmt, null);
-        }
-    }
-
-    /**
-     * @see org.opencms.db.I_CmsVfsDriver#writePropertyObjects(org.opencms.db.CmsDbContext, org.opencms.file.CmsProject, org.opencms.file.CmsResource, java.util.List)
-     */
-    public void writePropertyObjects(
-        CmsDbContext dbc,
-        CmsProject project,
-        CmsResource resource,
-        List<CmsProperty> properties) throws CmsDataAccessException {
-
-        CmsProperty property = null;
-
-        for (int i = 0; i < properties.size(); i++) {
-            property = properties.get(i);
-            writePropertyObject(dbc, project, resource, property);
+            if (batch != null) {
+                batch.close();
+            }
+            m_sqlManager.closeAll(dbc, conn, null, null);
         }
     }
 
@@ -3815,6 +3960,65 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         }
     }
 
+    /**
+     * Reads the definition of a property, and creates it if required and allowed by the property.<p>
+     *
+     * @param dbc the current database context
+     * @param projectId the project id
+     * @param property the property
+     *
+     * @return the property definition
+     *
+     * @throws CmsDataAccessException if the definition does not exist and can not be created
+     */
+    protected CmsPropertyDefinition internalReadOrCreatePropertyDefinition(
+        CmsDbContext dbc,
+        CmsUUID projectId,
+        CmsProperty property)
+    throws CmsDataAccessException {
+
+        // TODO: check if we need autocreation for link property definition types too
+        CmsPropertyDefinition propertyDefinition = null;
+        try {
+            // read the property definition
+            propertyDefinition = readPropertyDefinition(dbc, property.getName(), projectId);
+        } catch (CmsDbEntryNotFoundException e) {
+            if (property.autoCreatePropertyDefinition()) {
+                propertyDefinition = createPropertyDefinition(
+                    dbc,
+                    projectId,
+                    property.getName(),
+                    CmsPropertyDefinition.TYPE_NORMAL);
+                try {
+                    readPropertyDefinition(dbc, property.getName(), CmsProject.ONLINE_PROJECT_ID);
+                } catch (CmsDataAccessException e1) {
+                    createPropertyDefinition(
+                        dbc,
+                        CmsProject.ONLINE_PROJECT_ID,
+                        property.getName(),
+                        CmsPropertyDefinition.TYPE_NORMAL);
+                }
+                try {
+                    m_driverManager.getHistoryDriver(dbc).readPropertyDefinition(dbc, property.getName());
+                } catch (CmsDataAccessException e1) {
+                    m_driverManager.getHistoryDriver(dbc).createPropertyDefinition(
+                        dbc,
+                        property.getName(),
+                        CmsPropertyDefinition.TYPE_NORMAL);
+                }
+                OpenCms.fireCmsEvent(
+                    new CmsEvent(
+                        I_CmsEventListener.EVENT_PROPERTY_DEFINITION_CREATED,
+                        Collections.<String, Object> singletonMap("propertyDefinition", propertyDefinition)));
+
+            } else {
+                throw new CmsDbEntryNotFoundException(
+                    Messages.get().container(Messages.ERR_NO_PROPERTYDEF_WITH_NAME_1, property.getName()));
+            }
+        }
+        return propertyDefinition;
+    }
+
     /**
      * Returns the parent id of the given resource.<p>
      *
@@ -4091,6 +4295,114 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
                 resource.getRootPath()));
     }
 
+    /**
+     * Queues the SQL statements to write the values of a property in the given batch.<p>
+     *
+     * @param batch the batch to queue the statements in
+     * @param projectId the project id
+     * @param resource the resource of the property
+     * @param property the property to write
+     * @param propertyDefinition the definition of the property
+     * @param existingProperty the current values of the property
+     *
+     * @return the values of the property after the queued statements have been executed
+     *
+     * @throws SQLException if a database access error occurs
+     */
+    protected CmsProperty internalWriteProperty(
+        CmsSqlBatch batch,
+        CmsUUID projectId,
+        CmsResource resource,
+        CmsProperty property,
+        CmsPropertyDefinition propertyDefinition,
+        CmsProperty existingProperty)
+    throws SQLException {
+
+        CmsProperty result = new CmsProperty(
+            propertyDefinition.getName(),
+            existingProperty.getStructureValue(),
+            existingProperty.getResourceValue());
+        for (int i = 0; i < 2; i++) {
+            int mappingType = -1;
+            String value = null;
+            CmsUUID id = null;
+            boolean existsPropertyValue = false;
+            boolean deletePropertyValue = false;
+
+            // 1) take any required decisions to choose and fill the correct SQL query
+
+            if (i == 0) {
+                // write/delete the *structure value* on the first cycle
+                if ((existingProperty.getStructureValue() != null) && property.isDeleteStructureValue()) {
+                    // this property value is marked to be deleted
+                    deletePropertyValue = true;
+                } else {
+                    value = property.getStructureValue();
+                    if (CmsStringUtil.isEmptyOrWhitespaceOnly(value)) {
+                        // no structure value set or the structure value is an empty string,
+                        // continue with the resource value
+                        continue;
+                    }
+                }
+
+                // set the vars to be written to the database
+                result.setStructureValue(deletePropertyValue ? null : value);
+                mappingType = CmsProperty.STRUCTURE_RECORD_MAPPING;
+                id = resource.getStructureId();
+                existsPropertyValue = existingProperty.getStructureValue() != null;
+            } else {
+                // write/delete the *resource value* on the second cycle
+                if ((existingProperty.getResourceValue() != null) && property.isDeleteResourceValue()) {
+                    // this property value is marked to be deleted
+                    deletePropertyValue = true;
+                } else {
+                    value = property.getResourceValue();
+                    if (CmsStringUtil.isEmptyOrWhitespaceOnly(value)) {
+                        // no resource value set or the resource value is an empty string,
+                        // break out of the loop
+                        break;
+                    }
+                }
+
+                // set the vars to be written to the database
+                result.setResourceValue(deletePropertyValue ? null : value);
+                mappingType = CmsProperty.RESOURCE_RECORD_MAPPING;
+                id = resource.getResourceId();
+                existsPropertyValue = existingProperty.getResourceValue() != null;
+            }
+
+            // 2) queue the SQL query
+            PreparedStatement stmt;
+            if (!deletePropertyValue) {
+                // insert/update the property value
+                if (existsPropertyValue) {
+                    // {structure|resource} property value already exists- use update statement
+                    stmt = batch.getPreparedStatement(projectId, "C_PROPERTIES_UPDATE");
+                    stmt.setString(1, m_sqlManager.validateEmpty(value));
+                    stmt.setString(2, id.toString());
+                    stmt.setInt(3, mappingType);
+                    stmt.setString(4, propertyDefinition.getId().toString());
+                } else {
+                    // {structure|resource} property value doesn't exist- use create statement
+                    stmt = batch.getPreparedStatement(projectId, "C_PROPERTIES_CREATE");
+                    stmt.setString(1, new CmsUUID().toString());
+                    stmt.setString(2, propertyDefinition.getId().toString());
+                    stmt.setString(3, id.toString());
+                    stmt.setInt(4, mappingType);
+                    stmt.setString(5, m_sqlManager.validateEmpty(value));
+                }
+            } else {
+                // {structure|resource} property value marked as deleted- use delete statement
+                stmt = batch.getPreparedStatement(projectId, "C_PROPERTIES_DELETE");
+                stmt.setString(1, propertyDefinition.getId().toString());
+                stmt.setString(2, id.toString());
+                stmt.setInt(3, mappingType);
+            }
+            batch.addBatch(stmt);
+        }
+        return result;
+    }
+
     /**
      * Moves all relations of a resource to the new path.<p>
      *
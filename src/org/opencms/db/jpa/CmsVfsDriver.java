@@ -103,6 +103,8 @@ import org.opencms.util.CmsPair;
 import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.sql.ResultSet;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -1996,6 +1998,16 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         return byteRes == null ? EMPTY_BLOB : byteRes;
     }
 
+    /**
+     * @see org.opencms.db.I_CmsVfsDriver#readContentStream(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID, org.opencms.util.CmsUUID)
+     */
+    public InputStream readContentStream(CmsDbContext dbc, CmsUUID projectId, CmsUUID resourceId)
+    throws CmsDataAccessException {
+
+        // the JPA entities always hold the complete content
+        return new ByteArrayInputStream(readContent(dbc, projectId, resourceId));
+    }
+
     /**
      * @see org.opencms.db.I_CmsVfsDriver#readFolder(org.opencms.db.CmsDbContext, CmsUUID, org.opencms.util.CmsUUID)
      */
@@ -2257,6 +2269,23 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         return new ArrayList<CmsProperty>(propertyMap.values());
     }
 
+    /**
+     * @see org.opencms.db.I_CmsVfsDriver#readPropertyObjects(org.opencms.db.CmsDbContext, org.opencms.file.CmsProject, java.util.List)
+     */
+    public Map<CmsUUID, List<CmsProperty>> readPropertyObjects(
+        CmsDbContext dbc,
+        CmsProject project,
+        List<CmsResource> resources) throws CmsDataAccessException {
+
+        Map<CmsUUID, List<CmsProperty>> result = new HashMap<CmsUUID, List<CmsProperty>>();
+        for (CmsResource resource : resources) {
+            if (!result.containsKey(resource.getStructureId())) {
+                result.put(resource.getStructureId(), readPropertyObjects(dbc, project, resource));
+            }
+        }
+        return result;
+    }
+
     /**
      * @see org.opencms.db.I_CmsVfsDriver#readRelations(org.opencms.db.CmsDbContext, CmsUUID, CmsResource, org.opencms.relations.CmsRelationFilter)
      */
@@ -67,6 +67,8 @@ import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 import org.opencms.xml.content.CmsNumberSuffixNameSequence;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -2568,6 +2570,37 @@ public final class CmsObject {
         return readFile(resource);
     }
 
+    /**
+     * Reads the content of a file resource as a stream.<p>
+     *
+     * Use this instead of {@link #readFile(CmsResource)} to send large binary files,
+     * since large content is not kept in memory. The returned stream must always be closed,
+     * since it may be backed by a temporary file.<p>
+     *
+     * In case the input {@link CmsResource} object already is a {@link CmsFile} with contents
+     * available, a stream for these contents is returned.<p>
+     *
+     * No resource filter is applied, since we already have a full resource instance
+     * and assume we just want the content for that instance.<p>
+     *
+     * @param resource the resource to read
+     *
+     * @return the stream with the content of the file
+     *
+     * @throws CmsException if the file resource could not be read for any reason
+     */
+    public InputStream readFileStream(CmsResource resource) throws CmsException {
+
+        if (resource instanceof CmsFile) {
+            CmsFile file = (CmsFile)resource;
+            if ((file.getContents() != null) && (file.getContents().length > 0)) {
+                // file has the contents already available
+                return new ByteArrayInputStream(file.getContents());
+            }
+        }
+        return m_securityManager.readFileStream(m_context, resource);
+    }
+
     /**
      * Reads a folder resource from the VFS,
      * using the <code>{@link CmsResourceFilter#DEFAULT}</code> filter.<p>
@@ -3015,6 +3048,31 @@ public final class CmsObject {
         return m_securityManager.readPropertyObjects(m_context, resource, search);
     }
 
+    /**
+     * Reads all property objects of a list of resources.<p>
+     *
+     * This method is more efficient then calling <code>{@link CmsObject#readPropertyObjects(CmsResource, boolean)}</code>
+     * for every resource, e.g. for navigation entries or the results of a collector, since the properties
+     * of all resources are read with as few database queries as possible. If the <code>search</code>
+     * parameter is <code>true</code>, the properties of a parent folder shared by several resources are only
+     * read once.<p>
+     *
+     * All properties in the result lists will be in frozen (read only) state, so you can't change the values.<p>
+     *
+     * @param resources the resources to read the properties for
+     * @param search if <code>true</code>, the properties of all parent folders of each resource
+     *      are merged with the resource properties.
+     *
+     * @return the lists of <code>{@link CmsProperty}</code> objects, keyed by resource in the order of the given list
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public Map<CmsResource, List<CmsProperty>> readPropertyObjects(List<CmsResource> resources, boolean search)
+    throws CmsException {
+
+        return m_securityManager.readPropertyObjects(m_context, resources, search);
+    }
+
     /**
      * Reads the resources that were published in a publish task for a given publish history ID.<p>
      *
@@ -52,6 +52,8 @@ import org.opencms.main.CmsLog;
 import org.opencms.main.OpenCms;
 import org.opencms.util.CmsUUID;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -580,6 +582,31 @@ public class CmsObjectWrapper {
         return res;
     }
 
+    /**
+     * Reads the content of a file resource as a stream.<p>
+     *
+     * If the file is not changed by any of the configured wrappers, the content is streamed
+     * as with {@link CmsObject#readFileStream(CmsResource)}. Otherwise the content is read with
+     * {@link #readFile(String, CmsResourceFilter)}. The returned stream must always be closed.<p>
+     *
+     * @param resourcename the name of the resource to read (full path)
+     * @param filter the resource filter to use while reading
+     *
+     * @return the stream with the content of the file
+     *
+     * @throws CmsException if the file resource could not be read for any reason
+     */
+    public InputStream readFileStream(String resourcename, CmsResourceFilter filter) throws CmsException {
+
+        if (m_cms.existsResource(resourcename, filter)) {
+            CmsResource res = m_cms.readResource(resourcename, filter);
+            if (res.isFile() && !needUtf8Marker(res) && !isWrapped(res)) {
+                return m_cms.readFileStream(res);
+            }
+        }
+        return new ByteArrayInputStream(readFile(resourcename, filter).getContents());
+    }
+
     /**
      * Delegate method for {@link CmsObject#readPropertyObject(CmsResource, String, boolean)}.<p>
      *
@@ -884,6 +911,23 @@ public class CmsObjectWrapper {
         return null;
     }
 
+    /**
+     * Checks if the given resource is handled by any of the configured wrappers.<p>
+     *
+     * @param res the resource to check
+     *
+     * @return <code>true</code> if the resource is handled by a wrapper
+     */
+    private boolean isWrapped(CmsResource res) {
+
+        for (I_CmsResourceWrapper wrapper : getWrappers()) {
+            if (wrapper.isWrappedResource(m_cms, res)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Checks if the resource type needs an UTF-8 marker.<p>
      *
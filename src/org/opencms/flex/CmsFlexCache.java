@@ -27,6 +27,7 @@
 
 package org.opencms.flex;
 
+import org.opencms.cache.CmsConcurrentLruCache;
 import org.opencms.cache.CmsLruCache;
 import org.opencms.cache.I_CmsLruCacheObject;
 import org.opencms.file.CmsObject;
@@ -35,18 +36,16 @@ import org.opencms.main.CmsLog;
 import org.opencms.main.I_CmsEventListener;
 import org.opencms.main.OpenCms;
 import org.opencms.security.CmsRole;
-import org.opencms.util.CmsCollectionsGenericWrapper;
 import org.opencms.util.CmsStringUtil;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
-import org.apache.commons.collections.map.LRUMap;
 import org.apache.commons.logging.Log;
 
 /**
@@ -85,15 +84,22 @@ import org.apache.commons.logging.Log;
  * For every entry a key is saved which contains the resource name and the variation.
  * </ul>
  *
+ * Both hash-levels are concurrent maps, so cache lookups never block, not even while
+ * the cache is cleared. If the number of resource keys exceeds the configured maximum,
+ * the least recently accessed keys are removed together with their variations.<p>
+ *
  * Cache clearing is handled using events.
  * The cache is fully flushed if an event {@link I_CmsEventListener#EVENT_PUBLISH_PROJECT}
- * or {@link I_CmsEventListener#EVENT_CLEAR_CACHES} is caught.<p>
+ * or {@link I_CmsEventListener#EVENT_CLEAR_CACHES} is caught.
+ * The keys and entries of single resources can be removed with an event
+ * {@link I_CmsEventListener#EVENT_FLEX_CACHE_CLEAR} with the action {@link #CLEAR_RESOURCES}.<p>
  *
  * @since 6.0.0
  *
  * @see org.opencms.flex.CmsFlexCacheKey
  * @see org.opencms.flex.CmsFlexCacheEntry
  * @see org.opencms.cache.CmsLruCache
+ * @see org.opencms.cache.CmsConcurrentLruCache
  * @see org.opencms.cache.I_CmsLruCacheObject
  */
 public class CmsFlexCache extends Object implements I_CmsEventListener {
@@ -109,6 +115,9 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         /** Maps variations to CmsFlexCacheEntries. */
         public Map<String, I_CmsLruCacheObject> m_map;
 
+        /** The time of the last access to this variation list, used to evict the least recently used keys. */
+        volatile long m_lastAccess;
+
         /**
          * Generates a new instance of CmsFlexCacheVariation.<p>
          *
@@ -117,59 +126,20 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         public CmsFlexCacheVariation(CmsFlexCacheKey theKey) {
 
             m_key = theKey;
-            m_map = new Hashtable<String, I_CmsLruCacheObject>(INITIAL_CAPACITY_VARIATIONS);
-        }
-    }
-
-    /**
-     * Extended LRUMap that handles the variations in case a key is removed.<p>
-     */
-    class CmsFlexKeyMap extends LRUMap {
-
-        /** Serial version UID required for safe serialization. */
-        private static final long serialVersionUID = 6931995916013396902L;
-
-        /**
-         * Initialize the map with the given size.<p>
-         *
-         * @param maxSize the maximum number of key to cache
-         */
-        public CmsFlexKeyMap(int maxSize) {
-
-            super(maxSize);
+            m_map = new ConcurrentHashMap<String, I_CmsLruCacheObject>(INITIAL_CAPACITY_VARIATIONS);
+            m_lastAccess = System.currentTimeMillis();
         }
 
         /**
-         * Ensures that all variations that referenced by this key are released
-         * if the key is released.<p>
-         *
-         * @param entry the entry to remove
-         *
-         * @return <code>true</code> to actually delete the entry
-         *
-         * @see LRUMap#removeLRU(LinkEntry)
+         * Updates the time of the last access to this variation list.<p>
          */
-        @Override
-        protected boolean removeLRU(LinkEntry entry) {
+        void touch() {
 
-            CmsFlexCacheVariation v = (CmsFlexCacheVariation)entry.getValue();
-            if (v == null) {
-                return true;
-            }
-            Map<String, I_CmsLruCacheObject> m = v.m_map;
-            if ((m == null) || (m.size() == 0)) {
-                return true;
-            }
-            Collection<I_CmsLruCacheObject> entries = m.values();
-            synchronized (m_variationCache) {
-                for (I_CmsLruCacheObject e : entries) {
-                    m_variationCache.remove(e);
-                }
-                v.m_map.clear();
-                v.m_map = null;
-                v.m_key = null;
+            long now = System.currentTimeMillis();
+            if (m_lastAccess != now) {
+                // avoid needless writes to the shared field
+                m_lastAccess = now;
             }
-            return true;
         }
     }
 
@@ -197,12 +167,21 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
     /** Trigger for clearcache event: Clear only online entries. */
     public static final int CLEAR_ONLINE_ENTRIES = 3;
 
+    /** Trigger for clearcache event: Clear the keys and entries of the resources given in the event data. */
+    public static final int CLEAR_RESOURCES = 6;
+
+    /** Event data key for the collection of resource root paths to clear with {@link #CLEAR_RESOURCES}. */
+    public static final String EVENT_DATA_RESOURCES = "resources";
+
     /** Initial cache size, this should be a power of 2 because of the Java collections implementation. */
     public static final int INITIAL_CAPACITY_CACHE = 512;
 
     /** Initial size for variation lists, should be a power of 2. */
     public static final int INITIAL_CAPACITY_VARIATIONS = 8;
 
+    /** Percentage of the max. number of keys that is kept when the least recently used keys are evicted. */
+    public static final int KEY_EVICTION_PERCENTAGE = 90;
+
     /** Offline repository constant. */
     public static final String REPOSITORY_OFFLINE = "offline";
 
@@ -221,11 +200,14 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
     /** Indicates if the cache is enabled or not. */
     private boolean m_enabled;
 
+    /** Lock that ensures that only one thread evicts keys at a time. */
+    private ReentrantLock m_keyEvictionLock;
+
     /** Map to store the entries for fast lookup. */
-    private Map<String, CmsFlexCacheVariation> m_keyCache;
+    private ConcurrentHashMap<String, CmsFlexCacheVariation> m_keyCache;
 
-    /** Counter for the size. */
-    private int m_size;
+    /** The maximum number of resource keys. */
+    private int m_maxKeys;
 
     /**
      * Constructor for class CmsFlexCache.<p>
@@ -248,14 +230,14 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         int maxEntryBytes = configuration.getMaxEntryBytes();
         int maxKeys = configuration.getMaxKeys();
 
-        m_variationCache = new CmsLruCache(maxCacheBytes, avgCacheBytes, maxEntryBytes);
+        m_variationCache = new CmsConcurrentLruCache(maxCacheBytes, avgCacheBytes, maxEntryBytes);
         OpenCms.getMemoryMonitor().register(getClass().getName() + ".m_entryLruCache", m_variationCache);
 
         if (m_enabled) {
-            CmsFlexKeyMap flexKeyMap = new CmsFlexKeyMap(maxKeys);
-            m_keyCache = Collections.synchronizedMap(
-                CmsCollectionsGenericWrapper.<String, CmsFlexCacheVariation> map(flexKeyMap));
-            OpenCms.getMemoryMonitor().register(getClass().getName() + ".m_resourceMap", flexKeyMap);
+            m_maxKeys = maxKeys;
+            m_keyEvictionLock = new ReentrantLock();
+            m_keyCache = new ConcurrentHashMap<String, CmsFlexCacheVariation>(INITIAL_CAPACITY_CACHE);
+            OpenCms.getMemoryMonitor().register(getClass().getName() + ".m_resourceMap", m_keyCache);
 
             OpenCms.addCmsEventListener(
                 this,
@@ -349,6 +331,12 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
                     case CLEAR_OFFLINE_ENTRIES:
                         clearOfflineEntries();
                         break;
+                    case CLEAR_RESOURCES:
+                        Object resources = m.get(EVENT_DATA_RESOURCES);
+                        if (resources instanceof Collection) {
+                            clearResources((Collection<?>)resources);
+                        }
+                        break;
                     default:
                         // no operation
                 }
@@ -494,6 +482,7 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         if (o != null) {
             // found a matching key in the cache
             CmsFlexCacheVariation v = (CmsFlexCacheVariation)o;
+            v.touch();
             String variation = v.m_key.matchRequestKey(key);
 
             if (CmsStringUtil.isEmpty(variation)) {
@@ -510,6 +499,8 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
                 m_variationCache.remove(entry);
                 return null;
             }
+            // update the LRU state of the entry, this does not block concurrent lookups
+            m_variationCache.touch(entry);
             // return the found cache entry
             return entry;
         } else {
@@ -533,6 +524,7 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
             if (LOG.isDebugEnabled()) {
                 LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHEKEY_FOUND_1, resource));
             }
+            ((CmsFlexCacheVariation)o).touch();
             return ((CmsFlexCacheVariation)o).m_key;
         } else {
             if (LOG.isDebugEnabled()) {
@@ -613,8 +605,7 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         Object o = m_keyCache.get(key.getResource());
         if (o == null) {
             // No variation map for this resource yet, so create one
-            CmsFlexCacheVariation variationMap = new CmsFlexCacheVariation(key);
-            m_keyCache.put(key.getResource(), variationMap);
+            putVariation(key.getResource(), new CmsFlexCacheVariation(key));
             if (LOG.isDebugEnabled()) {
                 LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHE_ADD_KEY_1, key.getResource()));
             }
@@ -644,13 +635,13 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
     /**
      * Empties the cache completely.<p>
      */
-    private synchronized void clear() {
+    private void clear() {
 
         if (!isEnabled()) {
             return;
         }
+        // lookups are not blocked, and entries added concurrently are removed from their variation map by the LRU cache
         m_keyCache.clear();
-        m_size = 0;
 
         m_variationCache.clear();
 
@@ -671,37 +662,20 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
      * @param entriesOnly if <code>true</code>, only entries will be cleared, otherwise
      *         the entries and the keys will be cleared
      */
-    private synchronized void clearAccordingToSuffix(String suffix, boolean entriesOnly) {
+    private void clearAccordingToSuffix(String suffix, boolean entriesOnly) {
 
-        Set<String> keys = new HashSet<String>(m_keyCache.keySet());
-        Iterator<String> i = keys.iterator();
-        while (i.hasNext()) {
-            String s = i.next();
+        // the key map is concurrent, so resources are cleared one by one without blocking lookups
+        for (String s : m_keyCache.keySet()) {
             if (s.endsWith(suffix)) {
-                CmsFlexCacheVariation v = m_keyCache.get(s);
                 if (entriesOnly) {
                     // Clear only entry
-                    m_size -= v.m_map.size();
-                    Iterator<I_CmsLruCacheObject> allEntries = v.m_map.values().iterator();
-                    while (allEntries.hasNext()) {
-                        I_CmsLruCacheObject nextObject = allEntries.next();
-                        allEntries.remove();
-                        m_variationCache.remove(nextObject);
+                    CmsFlexCacheVariation v = m_keyCache.get(s);
+                    if (v != null) {
+                        clearEntries(v);
                     }
-                    v.m_map = new Hashtable<String, I_CmsLruCacheObject>(INITIAL_CAPACITY_VARIATIONS);
                 } else {
                     // Clear key and entry
-                    m_size -= v.m_map.size();
-                    Iterator<I_CmsLruCacheObject> allEntries = v.m_map.values().iterator();
-                    while (allEntries.hasNext()) {
-                        I_CmsLruCacheObject nextObject = allEntries.next();
-                        allEntries.remove();
-                        m_variationCache.remove(nextObject);
-                    }
-
-                    v.m_map = null;
-                    v.m_key = null;
-                    m_keyCache.remove(s);
+                    removeKey(s);
                 }
             }
         }
@@ -722,7 +696,7 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
      * Only users with administrator permissions are allowed
      * to perform this operation.<p>
      */
-    private synchronized void clearEntries() {
+    private void clearEntries() {
 
         if (!isEnabled()) {
             return;
@@ -730,20 +704,26 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         if (LOG.isInfoEnabled()) {
             LOG.info(Messages.get().getBundle().key(Messages.LOG_FLEXCACHE_CLEAR_ALL_0));
         }
-        // create new set to avoid ConcurrentModificationExceptions
-        Set<String> cacheKeys = new HashSet<String>(m_keyCache.keySet());
-        Iterator<String> i = cacheKeys.iterator();
-        while (i.hasNext()) {
-            CmsFlexCacheVariation v = m_keyCache.get(i.next());
-            Iterator<I_CmsLruCacheObject> allEntries = v.m_map.values().iterator();
-            while (allEntries.hasNext()) {
-                I_CmsLruCacheObject nextObject = allEntries.next();
-                allEntries.remove();
-                m_variationCache.remove(nextObject);
-            }
-            v.m_map = new Hashtable<String, I_CmsLruCacheObject>(INITIAL_CAPACITY_VARIATIONS);
+        for (CmsFlexCacheVariation v : m_keyCache.values()) {
+            clearEntries(v);
+        }
+    }
+
+    /**
+     * Removes all entries of the given variation list from the cache.<p>
+     *
+     * The variation list itself stays valid, so concurrent lookups are not affected.<p>
+     *
+     * @param v the variation list to clear
+     */
+    private void clearEntries(CmsFlexCacheVariation v) {
+
+        Iterator<I_CmsLruCacheObject> allEntries = v.m_map.values().iterator();
+        while (allEntries.hasNext()) {
+            I_CmsLruCacheObject nextObject = allEntries.next();
+            allEntries.remove();
+            m_variationCache.remove(nextObject);
         }
-        m_size = 0;
     }
 
     /**
@@ -824,6 +804,71 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         clearAccordingToSuffix(CACHE_ONLINESUFFIX, true);
     }
 
+    /**
+     * Clears the keys and entries of the given resources, both online and offline.<p>
+     *
+     * Cached resources not in the given collection are not touched.<p>
+     *
+     * @param resources the root paths of the resources to clear
+     */
+    private void clearResources(Collection<?> resources) {
+
+        if (!isEnabled()) {
+            return;
+        }
+        for (Object resource : resources) {
+            removeKey(CmsFlexCacheKey.getKeyName(String.valueOf(resource), true));
+            removeKey(CmsFlexCacheKey.getKeyName(String.valueOf(resource), false));
+        }
+        if (LOG.isInfoEnabled()) {
+            LOG.info(Messages.get().getBundle().key(Messages.LOG_FLEXCACHE_CLEAR_RESOURCES_1, resources));
+        }
+    }
+
+    /**
+     * Removes the least recently used resource keys if the number of keys exceeds the configured maximum.<p>
+     *
+     * Only one thread evicts keys at a time, other threads just continue.<p>
+     */
+    private void evictKeys() {
+
+        if ((m_keyCache.size() <= m_maxKeys) || !m_keyEvictionLock.tryLock()) {
+            return;
+        }
+        try {
+            int size = m_keyCache.size();
+            int toRemove = size - ((m_maxKeys * KEY_EVICTION_PERCENTAGE) / 100);
+            if (toRemove <= 0) {
+                return;
+            }
+            // use a snapshot of the access times, since these are updated concurrently
+            long[] accessTimes = new long[size];
+            int i = 0;
+            for (CmsFlexCacheVariation v : m_keyCache.values()) {
+                if (i == accessTimes.length) {
+                    break;
+                }
+                accessTimes[i++] = v.m_lastAccess;
+            }
+            if (i == 0) {
+                // the cache has been cleared in the meantime
+                return;
+            }
+            Arrays.sort(accessTimes, 0, i);
+            long threshold = accessTimes[Math.min(toRemove, i) - 1];
+            Iterator<Map.Entry<String, CmsFlexCacheVariation>> it = m_keyCache.entrySet().iterator();
+            while (it.hasNext() && (toRemove > 0)) {
+                Map.Entry<String, CmsFlexCacheVariation> entry = it.next();
+                if (entry.getValue().m_lastAccess <= threshold) {
+                    removeKey(entry.getKey());
+                    toRemove--;
+                }
+            }
+        } finally {
+            m_keyEvictionLock.unlock();
+        }
+    }
+
     /**
      * This method purges the JSP repository dirs,
      * i.e. it deletes all JSP files that OpenCms has written to the
@@ -834,7 +879,7 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
      * a complete purge of all JSP pages on a machine after
      * a major update of JSP templates was made.<p>
      */
-    private synchronized void purgeJspRepository() {
+    private void purgeJspRepository() {
 
         CmsJspLoader cmsJspLoader = (CmsJspLoader)OpenCms.getResourceManager().getLoader(
             CmsJspLoader.RESOURCE_LOADER_ID);
@@ -861,41 +906,66 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         if (key.getTimeout() > 0) {
             theCacheEntry.setDateExpiresToNextTimeout(key.getTimeout());
         }
-        if (o != null) {
-            // We already have a variation map for this resource
-            Map<String, I_CmsLruCacheObject> m = o.m_map;
-            boolean wasAdded = true;
-            if (!m.containsKey(key.getVariation())) {
-                wasAdded = m_variationCache.add(theCacheEntry);
-            } else {
-                wasAdded = m_variationCache.touch(theCacheEntry);
-            }
-
-            if (wasAdded) {
-                theCacheEntry.setVariationData(key.getVariation(), m);
-                m.put(key.getVariation(), theCacheEntry);
-            }
-        } else {
+        if (o == null) {
             // No variation map for this resource yet, so create one
-            CmsFlexCacheVariation list = new CmsFlexCacheVariation(key);
-
-            boolean wasAdded = m_variationCache.add(theCacheEntry);
-
-            if (wasAdded) {
-                theCacheEntry.setVariationData(key.getVariation(), list.m_map);
-                list.m_map.put(key.getVariation(), theCacheEntry);
-                m_keyCache.put(key.getResource(), list);
-            }
+            o = putVariation(key.getResource(), new CmsFlexCacheVariation(key));
+        }
+        Map<String, I_CmsLruCacheObject> m = o.m_map;
+        if (m.containsKey(key.getVariation())) {
+            // Note that duplicates are NOT checked, it it assumed that this is done beforehand,
+            // so here an entry has been added by another thread in the meantime
+            return;
+        }
+        // the entry must be in the variation map before it is added to the LRU cache,
+        // because it removes itself from the map when it is evicted
+        theCacheEntry.setVariationData(key.getVariation(), m);
+        m.put(key.getVariation(), theCacheEntry);
+        if (!m_variationCache.add(theCacheEntry)) {
+            m.remove(key.getVariation());
+            return;
         }
 
         if (LOG.isDebugEnabled()) {
             LOG.debug(
                 Messages.get().getBundle().key(
                     Messages.LOG_FLEXCACHE_ADDED_ENTRY_FOR_RESOURCE_WITH_VARIATION_3,
-                    new Integer(m_size),
+                    new Integer(m_variationCache.size()),
                     key.getResource(),
                     key.getVariation()));
             LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHE_ADDED_ENTRY_1, theCacheEntry.toString()));
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Adds a variation list for a resource key, unless there is already a variation list for the key.<p>
+     *
+     * @param resource the resource key
+     * @param variation the variation list to add
+     *
+     * @return the variation list for the resource key
+     */
+    private CmsFlexCacheVariation putVariation(String resource, CmsFlexCacheVariation variation) {
+
+        CmsFlexCacheVariation existing = m_keyCache.putIfAbsent(resource, variation);
+        if (existing != null) {
+            return existing;
+        }
+        evictKeys();
+        return variation;
+    }
+
+    /**
+     * Removes a resource key and all its entries from the cache.<p>
+     *
+     * The removed variation list is not modified otherwise, so concurrent lookups are not affected.<p>
+     *
+     * @param resource the resource key to remove
+     */
+    private void removeKey(String resource) {
+
+        CmsFlexCacheVariation v = m_keyCache.remove(resource);
+        if (v != null) {
+            clearEntries(v);
+        }
+    }
+}
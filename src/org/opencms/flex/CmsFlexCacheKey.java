@@ -151,9 +151,75 @@ public class CmsFlexCacheKey {
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsFlexCacheKey.class);
 
+    /** Match step: request attributes. */
+    private static final int MATCH_ATTRS = 10;
+
+    /** Match step: container element. */
+    private static final int MATCH_CONTAINER_ELEMENT = 4;
+
+    /** Match step: device. */
+    private static final int MATCH_DEVICE = 3;
+
+    /** Match step: element. */
+    private static final int MATCH_ELEMENT = 2;
+
+    /** Match step: encoding. */
+    private static final int MATCH_ENCODING = 6;
+
+    /** Match step: ip address. */
+    private static final int MATCH_IP = 7;
+
+    /** Match step: locale. */
+    private static final int MATCH_LOCALE = 5;
+
+    /** Match step: request parameters. */
+    private static final int MATCH_PARAMS = 9;
+
+    /** Match step: ports. */
+    private static final int MATCH_PORTS = 13;
+
+    /** The variation prefixes of the match steps, indexed by the step constant. */
+    private static final String[] MATCH_PREFIXES = {
+        CACHE_02_URI + "=(",
+        CACHE_17_SITE + "=(",
+        CACHE_14_ELEMENT + "=(",
+        CACHE_20_DEVICE + "=(",
+        CACHE_21_CONTAINER_ELEMENT + "=(",
+        CACHE_15_LOCALE + "=(",
+        CACHE_16_ENCODING + "=(",
+        CACHE_13_IP + "=(",
+        CACHE_03_USER + "=(",
+        CACHE_04_PARAMS + "=(",
+        CACHE_18_ATTRS + "=(",
+        CACHE_07_SESSION + "=(",
+        CACHE_08_SCHEMES + "=(",
+        CACHE_09_PORTS + "=(",
+        CACHE_06_TIMEOUT + "=("};
+
+    /** Match step: schemes. */
+    private static final int MATCH_SCHEMES = 12;
+
+    /** Match step: session attributes. */
+    private static final int MATCH_SESSION = 11;
+
+    /** Match step: site root. */
+    private static final int MATCH_SITE = 1;
+
+    /** Match step: timeout. */
+    private static final int MATCH_TIMEOUT = 14;
+
+    /** Match step: uri. */
+    private static final int MATCH_URI = 0;
+
+    /** Match step: user. */
+    private static final int MATCH_USER = 8;
+
     /** Cache key variable: Determines if this resource can be cached alwys, never or under certain conditions. -1 = never, 0=check, 1=always. */
     private int m_always;
 
+    /** Compiled attribute names of the "attrs" directive. */
+    private String[] m_attrNames;
+
     /** Cache key variable: List of attributes. */
     private Set<String> m_attrs;
 
@@ -175,12 +241,18 @@ public class CmsFlexCacheKey {
     /** Cache key variable: The requested locale. */
     private String m_locale;
 
+    /** The match steps compiled from the cache directives, in the order they are applied. */
+    private int[] m_matchSteps;
+
     /** Cache key variable: List of "blocking" attributes. */
     private Set<String> m_noattrs;
 
     /** Cache key variable: List of "blocking" parameters. */
     private Set<String> m_noparams;
 
+    /** Compiled parameter names of the "params" directive. */
+    private String[] m_paramNames;
+
     /** Cache key variable: List of parameters. */
     private Set<String> m_params;
 
@@ -199,12 +271,18 @@ public class CmsFlexCacheKey {
     /** Cache key variable: List of session variables. */
     private Set<String> m_session;
 
+    /** Compiled session attribute names of the "session" directive. */
+    private String[] m_sessionNames;
+
     /** Cache key variable: The current site root. */
     private String m_site;
 
     /** Cache key variable: Timeout of the resource. */
     private long m_timeout;
 
+    /** The precomputed variation part for the timeout. */
+    private String m_timeoutVariation;
+
     /** Cache key variable: The uri of the original request. */
     private String m_uri;
 
@@ -214,6 +292,9 @@ public class CmsFlexCacheKey {
     /** The cache behaviour description for the resource. */
     private String m_variation;
 
+    /** The size of the largest variation built so far, used as initial buffer size. */
+    private volatile int m_variationLength = 64;
+
     /**
      * This constructor is used when building a cache key from set of cache directives.<p>
      *
@@ -239,6 +320,7 @@ public class CmsFlexCacheKey {
         if (cacheDirectives != null) {
             parseFlexKey(cacheDirectives);
         }
+        compileMatchSteps();
         if (LOG.isDebugEnabled()) {
             LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHEKEY_GENERATED_1, toString()));
         }
@@ -258,6 +340,26 @@ public class CmsFlexCacheKey {
         return resourcename.concat(online ? CmsFlexCache.CACHE_ONLINESUFFIX : CmsFlexCache.CACHE_OFFLINESUFFIX);
     }
 
+    /**
+     * Appends all entries of the given request map to the variation.<p>
+     *
+     * @param str the variation buffer to append to
+     * @param values the request parameter or attribute map
+     * @param firstValue if <code>true</code>, the values are parameter arrays of which only the first value is used
+     */
+    private static void appendAll(StringBuilder str, Map<String, ?> values, boolean firstValue) {
+
+        boolean first = true;
+        for (Map.Entry<String, ?> entry : values.entrySet()) {
+            if (!first) {
+                str.append(',');
+            }
+            first = false;
+            str.append(entry.getKey()).append('=');
+            appendValue(str, entry.getValue(), firstValue);
+        }
+    }
+
     /**
      * Appends a flex cache key value to the given buffer.<p>
      *
@@ -277,6 +379,84 @@ public class CmsFlexCacheKey {
         }
     }
 
+    /**
+     * Appends the entries of the given request map which are listed in the cache directives to the variation.<p>
+     *
+     * @param str the variation buffer to append to
+     * @param names the names listed in the cache directives
+     * @param values the request parameter or attribute map
+     * @param firstValue if <code>true</code>, the values are parameter arrays of which only the first value is used
+     */
+    private static void appendListed(StringBuilder str, String[] names, Map<String, ?> values, boolean firstValue) {
+
+        boolean first = true;
+        for (String name : names) {
+            if (values.containsKey(name)) {
+                if (!first) {
+                    str.append(',');
+                }
+                first = false;
+                str.append(name).append('=');
+                appendValue(str, values.get(name), firstValue);
+            }
+        }
+    }
+
+    /**
+     * Appends a single request based value for the given match step to the variation.<p>
+     *
+     * @param str the variation buffer to append to
+     * @param step the match step
+     * @param value the value from the request
+     */
+    private static void appendMatch(StringBuilder str, int step, String value) {
+
+        str.append(MATCH_PREFIXES[step]).append(value).append(");");
+    }
+
+    /**
+     * Appends a request parameter or attribute value to the variation.<p>
+     *
+     * @param str the variation buffer to append to
+     * @param value the value
+     * @param firstValue if <code>true</code>, the value is a parameter array of which only the first value is used
+     */
+    private static void appendValue(StringBuilder str, Object value, boolean firstValue) {
+
+        if (firstValue) {
+            // TODO: handle multiple occurrences of the same parameter value
+            str.append(((String[])value)[0]);
+        } else {
+            str.append(value);
+        }
+    }
+
+    /**
+     * Checks if the given request map contains one of the "blocking" names.<p>
+     *
+     * An empty set of names blocks all requests that have any value in the map.<p>
+     *
+     * @param names the "blocking" names
+     * @param values the request parameter or attribute map, may be <code>null</code>
+     *
+     * @return <code>true</code> if the request map contains a "blocking" name
+     */
+    private static boolean containsAny(Set<String> names, Map<String, ?> values) {
+
+        if (values == null) {
+            return false;
+        }
+        if (names.size() == 0) {
+            return values.size() > 0;
+        }
+        for (String name : values.keySet()) {
+            if (names.contains(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * This flag is used to indicate that a parse error had
      * occurred, which can happen if the cache directives String
@@ -303,12 +483,14 @@ public class CmsFlexCacheKey {
      * If the cache key is "cache=user" and the request is done from a guest user
      * the constructed variation will be "user=(guest)".<p>
      *
+     * The cache directives are compiled to a list of match steps when this key is constructed,
+     * so this method only has to walk over the steps that are actually used by the directives.<p>
+     *
      * @param key the key to match this key with
      * @return null if not cachable, or the Variation String if cachable
      */
     public String matchRequestKey(CmsFlexRequestKey key) {
 
-        StringBuffer str = new StringBuffer(100);
         if (m_always < 0) {
             if (LOG.isDebugEnabled()) {
                 LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHEKEY_KEYMATCH_CACHE_NEVER_0));
@@ -316,33 +498,21 @@ public class CmsFlexCacheKey {
             return null;
         }
 
-        if (LOG.isDebugEnabled()) {
-            LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHEKEY_KEYMATCH_CHECK_NO_PARAMS_0));
-        }
-        if ((m_noparams != null) && (key.getParams() != null)) {
-            if ((m_noparams.size() == 0) && (key.getParams().size() > 0)) {
-                return null;
+        if (m_noparams != null) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHEKEY_KEYMATCH_CHECK_NO_PARAMS_0));
             }
-            Iterator<String> i = key.getParams().keySet().iterator();
-            while (i.hasNext()) {
-                if (m_noparams.contains(i.next())) {
-                    return null;
-                }
+            if (containsAny(m_noparams, key.getParams())) {
+                return null;
             }
         }
 
-        if (LOG.isDebugEnabled()) {
-            LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHEKEY_KEYMATCH_CHECK_NO_ATTRS_0));
-        }
-        if ((m_noattrs != null) && (key.getAttributes() != null)) {
-            if ((m_noattrs.size() == 0) && (key.getAttributes().size() > 0)) {
-                return null;
+        if (m_noattrs != null) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHEKEY_KEYMATCH_CHECK_NO_ATTRS_0));
             }
-            Iterator<String> i = key.getAttributes().keySet().iterator();
-            while (i.hasNext()) {
-                if (m_noattrs.contains(i.next())) {
-                    return null;
-                }
+            if (containsAny(m_noattrs, key.getAttributes())) {
+                return null;
             }
         }
 
@@ -350,184 +520,121 @@ public class CmsFlexCacheKey {
             if (LOG.isDebugEnabled()) {
                 LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHEKEY_KEYMATCH_CACHE_ALWAYS_0));
             }
-            str.append(CACHE_00_ALWAYS);
-            return str.toString();
-        }
-
-        if (m_uri != null) {
-            appendKeyValue(str, CACHE_02_URI, key.getUri());
-        }
-
-        if (m_site != null) {
-            appendKeyValue(str, CACHE_17_SITE, key.getSite());
-        }
-
-        if (m_element != null) {
-            appendKeyValue(str, CACHE_14_ELEMENT, key.getElement());
-        }
-
-        if (m_device != null) {
-            appendKeyValue(str, CACHE_20_DEVICE, key.getDevice());
-        }
-
-        if (m_containerElement != null) {
-            appendKeyValue(str, CACHE_21_CONTAINER_ELEMENT, key.getContainerElement());
+            return CACHE_00_ALWAYS;
         }
 
-        if (m_locale != null) {
-            appendKeyValue(str, CACHE_15_LOCALE, key.getLocale());
-        }
-
-        if (m_encoding != null) {
-            appendKeyValue(str, CACHE_16_ENCODING, key.getEncoding());
-        }
-
-        if (m_ip != null) {
-            appendKeyValue(str, CACHE_13_IP, key.getIp());
-        }
-
-        if (m_user != null) {
-            appendKeyValue(str, CACHE_03_USER, key.getUser());
-        }
-
-        if (m_params != null) {
-            str.append(CACHE_04_PARAMS);
-            str.append("=(");
-            Map<String, String[]> keyParams = key.getParams();
-            if (keyParams != null) {
-                if (m_params.size() > 0) {
-                    // match only params listed in cache directives
-                    Iterator<String> i = m_params.iterator();
-                    while (i.hasNext()) {
-                        Object o = i.next();
-                        if (keyParams.containsKey(o)) {
-                            str.append(o);
-                            str.append("=");
-                            // TODO: handle multiple occurrences of the same parameter value
-                            String[] values = keyParams.get(o);
-                            str.append(values[0]);
-                            if (i.hasNext()) {
-                                str.append(",");
-                            }
+        StringBuilder str = new StringBuilder(m_variationLength);
+        for (int step : m_matchSteps) {
+            switch (step) {
+                case MATCH_URI:
+                    appendMatch(str, step, key.getUri());
+                    break;
+                case MATCH_SITE:
+                    appendMatch(str, step, key.getSite());
+                    break;
+                case MATCH_ELEMENT:
+                    appendMatch(str, step, key.getElement());
+                    break;
+                case MATCH_DEVICE:
+                    appendMatch(str, step, key.getDevice());
+                    break;
+                case MATCH_CONTAINER_ELEMENT:
+                    appendMatch(str, step, key.getContainerElement());
+                    break;
+                case MATCH_LOCALE:
+                    appendMatch(str, step, key.getLocale());
+                    break;
+                case MATCH_ENCODING:
+                    appendMatch(str, step, key.getEncoding());
+                    break;
+                case MATCH_IP:
+                    appendMatch(str, step, key.getIp());
+                    break;
+                case MATCH_USER:
+                    appendMatch(str, step, key.getUser());
+                    break;
+                case MATCH_PARAMS:
+                    str.append(MATCH_PREFIXES[step]);
+                    Map<String, String[]> keyParams = key.getParams();
+                    if (keyParams != null) {
+                        if (m_paramNames.length > 0) {
+                            // match only params listed in cache directives
+                            appendListed(str, m_paramNames, keyParams, true);
+                        } else {
+                            // match all request params
+                            appendAll(str, keyParams, true);
                         }
                     }
-                } else {
-                    // match all request params
-                    Iterator<Map.Entry<String, String[]>> i = keyParams.entrySet().iterator();
-                    while (i.hasNext()) {
-                        Map.Entry<String, String[]> entry = i.next();
-                        str.append(entry.getKey());
-                        str.append("=");
-                        // TODO: handle multiple occurrences of the same parameter value
-                        String[] values = entry.getValue();
-                        str.append(values[0]);
-                        if (i.hasNext()) {
-                            str.append(",");
+                    str.append(");");
+                    break;
+                case MATCH_ATTRS:
+                    str.append(MATCH_PREFIXES[step]);
+                    Map<String, Object> keyAttrs = key.getAttributes();
+                    if (keyAttrs != null) {
+                        if (m_attrNames.length > 0) {
+                            // match only attributes listed in cache directives
+                            appendListed(str, m_attrNames, keyAttrs, false);
+                        } else {
+                            // match all request attributes
+                            appendAll(str, keyAttrs, false);
                         }
                     }
-                }
-            }
-            str.append(");");
-        }
-
-        if (m_attrs != null) {
-            str.append(CACHE_18_ATTRS);
-            str.append("=(");
-            Map<String, Object> keyAttrs = key.getAttributes();
-            if (keyAttrs != null) {
-                if (m_attrs.size() > 0) {
-                    // match only attributes listed in cache directives
-                    Iterator<String> i = m_attrs.iterator();
-                    while (i.hasNext()) {
-                        String s = i.next();
-                        if (keyAttrs.containsKey(s)) {
-                            str.append(s);
-                            str.append("=");
-                            Object value = keyAttrs.get(s);
-                            str.append(value);
-                            if (i.hasNext()) {
-                                str.append(",");
+                    str.append(");");
+                    break;
+                case MATCH_SESSION:
+                    HttpSession keySession = key.getSession();
+                    if (keySession != null) {
+                        // match only session attributes listed in cache directives
+                        int start = str.length();
+                        str.append(MATCH_PREFIXES[step]);
+                        int valuesStart = str.length();
+                        for (String name : m_sessionNames) {
+                            Object val = keySession.getAttribute(name);
+                            if (val != null) {
+                                if (str.length() > valuesStart) {
+                                    str.append(',');
+                                }
+                                str.append(name).append('=').append(val);
                             }
                         }
-                    }
-                } else {
-                    // match all request attributes
-                    Iterator<Map.Entry<String, Object>> i = keyAttrs.entrySet().iterator();
-                    while (i.hasNext()) {
-                        Map.Entry<String, Object> entry = i.next();
-                        str.append(entry.getKey());
-                        str.append("=");
-                        Object value = entry.getValue();
-                        str.append(value);
-                        if (i.hasNext()) {
-                            str.append(",");
+                        if (str.length() > valuesStart) {
+                            str.append(");");
+                        } else {
+                            str.setLength(start);
                         }
                     }
-                }
-            }
-            str.append(");");
-        }
-
-        if (m_session != null) {
-            StringBuffer buf = new StringBuffer(32);
-            boolean found = false;
-            buf.append(CACHE_07_SESSION);
-            buf.append("=(");
-            HttpSession keySession = key.getSession();
-            if (keySession != null) {
-                // match only session attributes listed in cache directives
-                Iterator<String> i = m_session.iterator();
-                while (i.hasNext()) {
-                    String name = i.next();
-                    Object val = keySession.getAttribute(name);
-                    if (val != null) {
-                        found = true;
-                        buf.append(name);
-                        buf.append("=");
-                        buf.append(val);
-                        if (i.hasNext()) {
-                            buf.append(",");
-                        }
+                    break;
+                case MATCH_SCHEMES:
+                    String scheme = key.getScheme();
+                    if ((m_schemes.size() > 0) && (!m_schemes.contains(scheme))) {
+                        return null;
                     }
-                }
-            }
-            if (found) {
-                buf.append(");");
-                str.append(buf);
-            }
-        }
-
-        if (m_schemes != null) {
-            String s = key.getScheme();
-            if ((m_schemes.size() > 0) && (!m_schemes.contains(s))) {
-                return null;
+                    appendMatch(str, step, scheme);
+                    break;
+                case MATCH_PORTS:
+                    Integer port = key.getPort();
+                    if ((m_ports.size() > 0) && (!m_ports.contains(port))) {
+                        return null;
+                    }
+                    str.append(MATCH_PREFIXES[step]).append(port).append(");");
+                    break;
+                case MATCH_TIMEOUT:
+                    str.append(m_timeoutVariation);
+                    break;
+                default:
+                    // no other steps are generated by compileMatchSteps()
             }
-            appendKeyValue(str, CACHE_08_SCHEMES, s);
         }
 
-        if (m_ports != null) {
-            Integer i = key.getPort();
-            if ((m_ports.size() > 0) && (!m_ports.contains(i))) {
-                return null;
-            }
-            str.append(CACHE_09_PORTS);
-            str.append("=(");
-            str.append(i);
-            str.append(");");
-        }
-
-        if (m_timeout > 0) {
-            str.append(CACHE_06_TIMEOUT);
-            str.append("=(");
-            str.append(m_timeout);
-            str.append(");");
-        }
-
-        if (str.length() > 0) {
-            return str.toString();
-        } else {
+        int length = str.length();
+        if (length == 0) {
             return null;
         }
+        if (length > m_variationLength) {
+            // remember the size so that the next match does not have to grow the buffer
+            m_variationLength = length;
+        }
+        return str.toString();
     }
 
     /**
@@ -767,6 +874,68 @@ public class CmsFlexCacheKey {
         m_variation = variation;
     }
 
+    /**
+     * Compiles the parsed cache directives into the list of match steps used by
+     * {@link #matchRequestKey(CmsFlexRequestKey)}.<p>
+     *
+     * The steps are in the same order as the parts of the generated variation.<p>
+     */
+    private void compileMatchSteps() {
+
+        int[] steps = new int[MATCH_PREFIXES.length];
+        int count = 0;
+        if (m_uri != null) {
+            steps[count++] = MATCH_URI;
+        }
+        if (m_site != null) {
+            steps[count++] = MATCH_SITE;
+        }
+        if (m_element != null) {
+            steps[count++] = MATCH_ELEMENT;
+        }
+        if (m_device != null) {
+            steps[count++] = MATCH_DEVICE;
+        }
+        if (m_containerElement != null) {
+            steps[count++] = MATCH_CONTAINER_ELEMENT;
+        }
+        if (m_locale != null) {
+            steps[count++] = MATCH_LOCALE;
+        }
+        if (m_encoding != null) {
+            steps[count++] = MATCH_ENCODING;
+        }
+        if (m_ip != null) {
+            steps[count++] = MATCH_IP;
+        }
+        if (m_user != null) {
+            steps[count++] = MATCH_USER;
+        }
+        if (m_params != null) {
+            steps[count++] = MATCH_PARAMS;
+            m_paramNames = m_params.toArray(new String[m_params.size()]);
+        }
+        if (m_attrs != null) {
+            steps[count++] = MATCH_ATTRS;
+            m_attrNames = m_attrs.toArray(new String[m_attrs.size()]);
+        }
+        if (m_session != null) {
+            steps[count++] = MATCH_SESSION;
+            m_sessionNames = m_session.toArray(new String[m_session.size()]);
+        }
+        if (m_schemes != null) {
+            steps[count++] = MATCH_SCHEMES;
+        }
+        if (m_ports != null) {
+            steps[count++] = MATCH_PORTS;
+        }
+        if (m_timeout > 0) {
+            steps[count++] = MATCH_TIMEOUT;
+            m_timeoutVariation = MATCH_PREFIXES[MATCH_TIMEOUT] + m_timeout + ");";
+        }
+        m_matchSteps = Arrays.copyOf(steps, count);
+    }
+
     /**
      * Parse a String in the Flex cache language and construct
      * the key data structure from this.<p>
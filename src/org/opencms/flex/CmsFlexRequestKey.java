@@ -74,6 +74,17 @@ public class CmsFlexRequestKey {
     /** The OpenCms resource that this key is used for. */
     private String m_resource;
 
+    /**
+     * Creates a request key without a request, to be used by subclasses
+     * that provide the request values themselves.<p>
+     *
+     * @param resource the OpenCms resource that this key is used for
+     */
+    protected CmsFlexRequestKey(String resource) {
+
+        m_resource = resource;
+    }
+
     /**
      * This constructor is used when building a cache key from a request.<p>
      *
@@ -112,6 +112,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_FLEXCACHE_CLEAR_ONLINE_KEYS_AND_ENTRIES_0 = "LOG_FLEXCACHE_CLEAR_ONLINE_KEYS_AND_ENTRIES_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_FLEXCACHE_CLEAR_RESOURCES_1 = "LOG_FLEXCACHE_CLEAR_RESOURCES_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_FLEXCACHE_PURGED_JSP_REPOSITORY_0 = "LOG_FLEXCACHE_PURGED_JSP_REPOSITORY_0";
 
@@ -34,6 +34,7 @@ import org.opencms.file.CmsResource;
 import org.opencms.file.CmsResourceFilter;
 import org.opencms.file.types.CmsResourceTypeFolder;
 import org.opencms.file.types.I_CmsResourceType;
+import org.opencms.jsp.CmsJspNavigationCache.NavigationEntry;
 import org.opencms.main.CmsException;
 import org.opencms.main.CmsLog;
 import org.opencms.main.OpenCms;
@@ -467,21 +468,30 @@ public class CmsJspNavBuilder {
         folder = CmsFileUtil.removeTrailingSeparator(folder);
         List<CmsJspNavElement> result = new ArrayList<CmsJspNavElement>();
 
-        List<CmsResource> resources = null;
-        try {
+        List<CmsJspNavElement> elements;
+        if (CmsJspNavigationCache.isCacheable(m_cms, resourceFilter)) {
+            elements = getSnapshotNavigationForFolder(folder, false);
+        } else {
+            List<CmsResource> resources = null;
+            try {
 
-            resources = m_cms.getResourcesInFolder(folder, resourceFilter);
-        } catch (Exception e) {
-            // should never happen
-            LOG.error(e.getLocalizedMessage(), e);
-        }
-        if (resources == null) {
-            return Collections.<CmsJspNavElement> emptyList();
+                resources = m_cms.getResourcesInFolder(folder, resourceFilter);
+            } catch (Exception e) {
+                // should never happen
+                LOG.error(e.getLocalizedMessage(), e);
+            }
+            if (resources == null) {
+                return Collections.<CmsJspNavElement> emptyList();
+            }
+            readNavigationProperties(resources);
+            elements = new ArrayList<CmsJspNavElement>(resources.size());
+            for (CmsResource r : resources) {
+                elements.add(getNavigationForResource(m_cms.getSitePath(r), resourceFilter));
+            }
         }
         boolean includeAll = visibility == Visibility.all;
         boolean includeHidden = visibility == Visibility.includeHidden;
-        for (CmsResource r : resources) {
-            CmsJspNavElement element = getNavigationForResource(m_cms.getSitePath(r), resourceFilter);
+        for (CmsJspNavElement element : elements) {
             if ((element != null)
                 && (includeAll
                     || (element.isInNavigation() && (includeHidden || !element.isHiddenNavigationEntry())))) {
@@ -662,6 +672,54 @@ public class CmsJspNavBuilder {
         m_requestUriFolder = CmsResource.getFolderPath(m_requestUri);
     }
 
+    /**
+     * Creates the navigation element for a resource which has already been read together with its properties.<p>
+     *
+     * @param sitePath the site path of the resource
+     * @param resource the resource
+     * @param propertiesMap the properties of the resource
+     * @param resourceFilter the filter to use reading the resources
+     * @param shallow <code>true</code> for a shallow look up, not regarding next level resources
+     *
+     * @return the navigation element, or <code>null</code> if the navigation level could not be resolved
+     */
+    private CmsJspNavElement createNavigationElement(
+        String sitePath,
+        CmsResource resource,
+        Map<String, String> propertiesMap,
+        CmsResourceFilter resourceFilter,
+        boolean shallow) {
+
+        int level = CmsResource.getPathLevel(sitePath);
+        if (sitePath.endsWith("/")) {
+            level--;
+        }
+        try {
+            if (resource.isFolder()) {
+                if (!sitePath.endsWith("/")) {
+                    sitePath = sitePath + "/";
+                }
+                if (!shallow
+                    && (NAVIGATION_LEVEL_FOLDER.equals(
+                        propertiesMap.get(CmsPropertyDefinition.PROPERTY_DEFAULT_FILE)))) {
+                    // this folder is marked as a navigation level, set the site path to the first sub element
+                    List<CmsJspNavElement> subElements = getNavigationForFolder(sitePath, false, resourceFilter, true);
+                    if (!subElements.isEmpty()) {
+                        CmsJspNavElement subElement = subElements.get(0);
+                        subElement = getNavigationForResource(subElement.getSitePath(), resourceFilter, false);
+                        sitePath = subElement.getSitePath();
+                    }
+                }
+            }
+        } catch (Exception e) {
+            // may happen if permissions are not sufficient
+            LOG.warn(e.getLocalizedMessage(), e);
+            return null;
+        }
+
+        return new CmsJspNavElement(sitePath, resource, propertiesMap, level, m_locale);
+    }
+
     /**
      * Collect all navigation elements from the files in the given folder.<p>
     *
@@ -681,17 +739,26 @@ public class CmsJspNavBuilder {
         folder = CmsResource.getFolderPath(folder);
         List<CmsJspNavElement> result = new ArrayList<CmsJspNavElement>();
 
-        List<CmsResource> resources;
-        try {
-            resources = m_cms.getResourcesInFolder(folder, resourceFilter);
-        } catch (Exception e) {
-            // should never happen
-            LOG.error(e.getLocalizedMessage(), e);
-            return Collections.<CmsJspNavElement> emptyList();
+        List<CmsJspNavElement> elements;
+        if (CmsJspNavigationCache.isCacheable(m_cms, resourceFilter)) {
+            elements = getSnapshotNavigationForFolder(folder, shallow);
+        } else {
+            List<CmsResource> resources;
+            try {
+                resources = m_cms.getResourcesInFolder(folder, resourceFilter);
+            } catch (Exception e) {
+                // should never happen
+                LOG.error(e.getLocalizedMessage(), e);
+                return Collections.<CmsJspNavElement> emptyList();
+            }
+            readNavigationProperties(resources);
+            elements = new ArrayList<CmsJspNavElement>(resources.size());
+            for (CmsResource r : resources) {
+                elements.add(getNavigationForResource(m_cms.getSitePath(r), resourceFilter, shallow));
+            }
         }
 
-        for (CmsResource r : resources) {
-            CmsJspNavElement element = getNavigationForResource(m_cms.getSitePath(r), resourceFilter, shallow);
+        for (CmsJspNavElement element : elements) {
             if ((element != null) && (includeInvisible || element.isInNavigation())) {
                 result.add(element);
             }
@@ -715,44 +782,52 @@ public class CmsJspNavBuilder {
         CmsResourceFilter resourceFilter,
         boolean shallow) {
 
+        if (CmsJspNavigationCache.isCacheable(m_cms, resourceFilter)) {
+            String parentFolder = CmsResource.getParentFolder(sitePath);
+            if (parentFolder != null) {
+                String rootPath = CmsFileUtil.removeTrailingSeparator(m_cms.getRequestContext().addSiteRoot(sitePath));
+                try {
+                    for (NavigationEntry entry : CmsJspNavigationCache.getInstance().getFolderEntries(
+                        m_cms,
+                        parentFolder)) {
+                        CmsResource resource = entry.getResource();
+                        if (CmsFileUtil.removeTrailingSeparator(resource.getRootPath()).equals(rootPath)) {
+                            if (!isValidSnapshotEntry(entry)) {
+                                // unreleased or expired resources are not part of the navigation
+                                return null;
+                            }
+                            return createNavigationElement(
+                                sitePath,
+                                resource,
+                                entry.getProperties(),
+                                resourceFilter,
+                                shallow);
+                        }
+                    }
+                } catch (CmsException e) {
+                    LOG.warn(e.getLocalizedMessage(), e);
+                }
+            }
+            // not found in the snapshot, read the resource to get the usual error handling
+        }
         CmsResource resource;
         Map<String, String> propertiesMap;
-        int level = CmsResource.getPathLevel(sitePath);
-        if (sitePath.endsWith("/")) {
-            level--;
-        }
         try {
             resource = m_cms.readResource(sitePath, resourceFilter);
             List<CmsProperty> properties = m_cms.readPropertyObjects(resource, false);
             propertiesMap = CmsProperty.toMap(properties);
-            if (resource.isFolder()) {
-                if (resourceFilter.equals(CmsResourceFilter.DEFAULT)
-                    && !NAVIGATION_LEVEL_FOLDER.equals(
-                        propertiesMap.get(CmsPropertyDefinition.PROPERTY_DEFAULT_FILE))) {
-                    try {
-                        CmsResource defaultFile = m_cms.readDefaultFile(resource, resourceFilter);
-                        if ((defaultFile != null)
-                            && !defaultFile.isReleasedAndNotExpired(m_cms.getRequestContext().getRequestTime())) {
-                            // do not show navigation entries for unreleased or expired resources
-                            return null;
-                        }
-                    } catch (@SuppressWarnings("unused") CmsException e) {
-                        // may happen if permissions are not sufficient can be ignored
-                    }
-                }
-                if (!sitePath.endsWith("/")) {
-                    sitePath = sitePath + "/";
-                }
-                if (!shallow
-                    && (NAVIGATION_LEVEL_FOLDER.equals(
-                        propertiesMap.get(CmsPropertyDefinition.PROPERTY_DEFAULT_FILE)))) {
-                    // this folder is marked as a navigation level, set the site path to the first sub element
-                    List<CmsJspNavElement> subElements = getNavigationForFolder(sitePath, false, resourceFilter, true);
-                    if (!subElements.isEmpty()) {
-                        CmsJspNavElement subElement = subElements.get(0);
-                        subElement = getNavigationForResource(subElement.getSitePath(), resourceFilter, false);
-                        sitePath = subElement.getSitePath();
+            if (resource.isFolder()
+                && resourceFilter.equals(CmsResourceFilter.DEFAULT)
+                && !NAVIGATION_LEVEL_FOLDER.equals(propertiesMap.get(CmsPropertyDefinition.PROPERTY_DEFAULT_FILE))) {
+                try {
+                    CmsResource defaultFile = m_cms.readDefaultFile(resource, resourceFilter);
+                    if ((defaultFile != null)
+                        && !defaultFile.isReleasedAndNotExpired(m_cms.getRequestContext().getRequestTime())) {
+                        // do not show navigation entries for unreleased or expired resources
+                        return null;
                     }
+                } catch (@SuppressWarnings("unused") CmsException e) {
+                    // may happen if permissions are not sufficient can be ignored
                 }
             }
         } catch (Exception e) {
@@ -760,7 +835,82 @@ public class CmsJspNavBuilder {
             LOG.warn(e.getLocalizedMessage(), e);
             return null;
         }
+        return createNavigationElement(sitePath, resource, propertiesMap, resourceFilter, shallow);
+    }
 
-        return new CmsJspNavElement(sitePath, resource, propertiesMap, level, m_locale);
+    /**
+     * Creates the navigation elements for the children of a folder from the Online navigation snapshot.<p>
+     *
+     * The snapshot contains the children regardless of their release and expiration dates,
+     * so these are checked against the current request time here, like the dates of the folder default files.<p>
+     *
+     * @param folder the selected folder
+     * @param shallow <code>true</code> for a shallow look up, not regarding next level resources
+     *
+     * @return the navigation elements for the valid children of the folder, in no particular order
+     */
+    private List<CmsJspNavElement> getSnapshotNavigationForFolder(String folder, boolean shallow) {
+
+        List<NavigationEntry> entries;
+        try {
+            entries = CmsJspNavigationCache.getInstance().getFolderEntries(m_cms, folder);
+        } catch (Exception e) {
+            // should never happen
+            LOG.error(e.getLocalizedMessage(), e);
+            return Collections.<CmsJspNavElement> emptyList();
+        }
+        List<CmsJspNavElement> result = new ArrayList<CmsJspNavElement>(entries.size());
+        for (NavigationEntry entry : entries) {
+            CmsResource resource = entry.getResource();
+            if (isValidSnapshotEntry(entry)) {
+                result.add(
+                    createNavigationElement(
+                        m_cms.getSitePath(resource),
+                        resource,
+                        entry.getProperties(),
+                        CmsResourceFilter.DEFAULT,
+                        shallow));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks if an entry of the navigation snapshot is valid at the current request time.<p>
+     *
+     * Like for the navigation read from the VFS, folders are not valid if their default file
+     * is unreleased or expired.<p>
+     *
+     * @param entry the snapshot entry
+     *
+     * @return <code>true</code> if the entry is part of the navigation
+     */
+    private boolean isValidSnapshotEntry(NavigationEntry entry) {
+
+        if (!CmsResourceFilter.DEFAULT.isValid(m_cms.getRequestContext(), entry.getResource())) {
+            return false;
+        }
+        CmsResource defaultFile = entry.getDefaultFile();
+        return (defaultFile == null)
+            || defaultFile.isReleasedAndNotExpired(m_cms.getRequestContext().getRequestTime());
+    }
+
+    /**
+     * Reads the properties of all resources of a folder with a single bulk read.<p>
+     *
+     * This fills the property cache, so building the navigation elements for the resources
+     * one by one does not need a database query per resource.<p>
+     *
+     * @param resources the resources of the folder
+     */
+    private void readNavigationProperties(List<CmsResource> resources) {
+
+        if (resources.size() > 1) {
+            try {
+                m_cms.readPropertyObjects(resources, false);
+            } catch (CmsException e) {
+                LOG.warn(e.getLocalizedMessage(), e);
+            }
+        }
     }
 }
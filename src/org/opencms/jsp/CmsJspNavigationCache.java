@@ -0,0 +1,378 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.jsp;
+
+import org.opencms.db.CmsPublishedResource;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProperty;
+import org.opencms.file.CmsPropertyDefinition;
+import org.opencms.file.CmsResource;
+import org.opencms.file.CmsResourceFilter;
+import org.opencms.main.CmsEvent;
+import org.opencms.main.CmsException;
+import org.opencms.main.CmsLog;
+import org.opencms.main.I_CmsEventListener;
+import org.opencms.main.OpenCms;
+import org.opencms.util.CmsFileUtil;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.commons.logging.Log;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Snapshot of the Online navigation used by the {@link CmsJspNavBuilder}.<p>
+ *
+ * For every folder, the snapshot holds the child resources together with their properties, read with
+ * a single bulk property read. The release and expiration dates are not applied when the snapshot is built,
+ * so the same snapshot can be used for any request time. The navigation elements themselves are created
+ * per request, since they depend on the locale and may be modified by the navigation builder.<p>
+ *
+ * The snapshot is only used for the guest user in the Online project with the default resource filter,
+ * since the result depends on the permissions of the current user. After publishing, only the folders
+ * containing the published resources are removed from the snapshot.<p>
+ *
+ * @since 10.5.0
+ */
+public final class CmsJspNavigationCache implements I_CmsEventListener {
+
+    /**
+     * A resource of the navigation snapshot together with its properties.<p>
+     */
+    public static class NavigationEntry {
+
+        /** The default file of a folder resource. */
+        private CmsResource m_defaultFile;
+
+        /** The resource properties. */
+        private Map<String, String> m_properties;
+
+        /** The resource. */
+        private CmsResource m_resource;
+
+        /**
+         * Creates a new entry.<p>
+         *
+         * @param resource the resource
+         * @param properties the resource properties
+         * @param defaultFile the default file of a folder resource, or <code>null</code>
+         */
+        NavigationEntry(CmsResource resource, Map<String, String> properties, CmsResource defaultFile) {
+
+            m_resource = resource;
+            m_properties = Collections.unmodifiableMap(properties);
+            m_defaultFile = defaultFile;
+        }
+
+        /**
+         * Returns the default file of a folder resource, regardless of its release and expiration dates.<p>
+         *
+         * @return the default file, or <code>null</code> if the resource is no folder, has no default file
+         *      or is a navigation level
+         */
+        public CmsResource getDefaultFile() {
+
+            return m_defaultFile;
+        }
+
+        /**
+         * Returns the (unmodifiable) properties of the resource.<p>
+         *
+         * @return the properties of the resource
+         */
+        public Map<String, String> getProperties() {
+
+            return m_properties;
+        }
+
+        /**
+         * Returns the resource.<p>
+         *
+         * @return the resource
+         */
+        public CmsResource getResource() {
+
+            return m_resource;
+        }
+    }
+
+    /** The maximum number of folders kept in the snapshot. */
+    private static final int MAX_FOLDERS = 10000;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsJspNavigationCache.class);
+
+    /** The singleton instance. */
+    private static CmsJspNavigationCache m_instance;
+
+    /** The navigation entries by folder root path. */
+    private Cache<String, List<NavigationEntry>> m_folders;
+
+    /**
+     * Creates a new navigation cache.<p>
+     */
+    private CmsJspNavigationCache() {
+
+        m_folders = CacheBuilder.newBuilder().maximumSize(MAX_FOLDERS).recordStats().build();
+    }
+
+    /**
+     * Returns the navigation cache instance.<p>
+     *
+     * @return the navigation cache instance
+     */
+    public static synchronized CmsJspNavigationCache getInstance() {
+
+        if (m_instance == null) {
+            m_instance = new CmsJspNavigationCache();
+            OpenCms.addCmsEventListener(
+                m_instance,
+                new int[] {
+                    I_CmsEventListener.EVENT_PUBLISH_PROJECT,
+                    I_CmsEventListener.EVENT_CLEAR_CACHES,
+                    I_CmsEventListener.EVENT_CLEAR_ONLINE_CACHES});
+        }
+        return m_instance;
+    }
+
+    /**
+     * Checks if the navigation snapshot can be used for the given context and resource filter.<p>
+     *
+     * @param cms the current CMS context
+     * @param resourceFilter the resource filter used to read the navigation
+     *
+     * @return <code>true</code> if the navigation snapshot can be used
+     */
+    public static boolean isCacheable(CmsObject cms, CmsResourceFilter resourceFilter) {
+
+        return CmsResourceFilter.DEFAULT.equals(resourceFilter)
+            && cms.getRequestContext().getCurrentProject().isOnlineProject()
+            && cms.getRequestContext().getCurrentUser().isGuestUser();
+    }
+
+    /**
+     * @see org.opencms.main.I_CmsEventListener#cmsEvent(org.opencms.main.CmsEvent)
+     */
+    public void cmsEvent(CmsEvent event) {
+
+        switch (event.getType()) {
+            case I_CmsEventListener.EVENT_PUBLISH_PROJECT:
+                Object publishHistoryId = event.getData().get(I_CmsEventListener.KEY_PUBLISHID);
+                if (publishHistoryId == null) {
+                    m_folders.invalidateAll();
+                    return;
+                }
+                try {
+                    CmsObject cms = OpenCms.initCmsObject(OpenCms.getDefaultUsers().getUserExport());
+                    removePublishedResources(cms.readPublishedResources(new CmsUUID(publishHistoryId.toString())));
+                } catch (CmsException e) {
+                    LOG.error(
+                        Messages.get().getBundle().key(Messages.LOG_NAV_CACHE_PUBLISH_FAILED_1, publishHistoryId),
+                        e);
+                    m_folders.invalidateAll();
+                }
+                break;
+            case I_CmsEventListener.EVENT_CLEAR_CACHES:
+            case I_CmsEventListener.EVENT_CLEAR_ONLINE_CACHES:
+                m_folders.invalidateAll();
+                break;
+            default:
+                // noop
+                break;
+        }
+    }
+
+    /**
+     * Returns the navigation entries for all children of a folder, regardless of their release and expiration dates.<p>
+     *
+     * @param cms the current CMS context, must be {@link #isCacheable(CmsObject, CmsResourceFilter) cacheable}
+     * @param folder the site path of the folder
+     *
+     * @return the navigation entries for the children of the folder
+     *
+     * @throws CmsException if something goes wrong reading the folder
+     */
+    public List<NavigationEntry> getFolderEntries(final CmsObject cms, final String folder) throws CmsException {
+
+        String rootPath = cms.getRequestContext().addSiteRoot(CmsFileUtil.addTrailingSeparator(folder));
+        try {
+            return m_folders.get(rootPath, new Callable<List<NavigationEntry>>() {
+
+                public List<NavigationEntry> call() throws CmsException {
+
+                    return readFolderEntries(cms, folder);
+                }
+            });
+        } catch (ExecutionException e) {
+            throw (CmsException)e.getCause();
+        } catch (UncheckedExecutionException e) {
+            throw (RuntimeException)e.getCause();
+        }
+    }
+
+    /**
+     * Returns the number of snapshot lookups answered from memory.<p>
+     *
+     * @return the number of cache hits
+     */
+    public long getHitCount() {
+
+        return m_folders.stats().hitCount();
+    }
+
+    /**
+     * Returns the ratio of snapshot lookups answered from memory.<p>
+     *
+     * @return the hit rate, between 0 and 1
+     */
+    public double getHitRate() {
+
+        return m_folders.stats().hitRate();
+    }
+
+    /**
+     * Returns the number of snapshot lookups which had to read the folder from the VFS.<p>
+     *
+     * @return the number of cache misses
+     */
+    public long getMissCount() {
+
+        return m_folders.stats().missCount();
+    }
+
+    /**
+     * Returns the number of folders in the snapshot.<p>
+     *
+     * @return the number of folders in the snapshot
+     */
+    public long getSize() {
+
+        return m_folders.size();
+    }
+
+    /**
+     * Removes the folders affected by the given published resources from the snapshot.<p>
+     *
+     * These are the parent folder of a published resource, which lists the resource, and the
+     * grand parent folder, since the navigation of a folder depends on its default file and its children.
+     * For published folders, the folder and all folders below it are removed as well.<p>
+     *
+     * @param publishedResources the published resources
+     */
+    public void removePublishedResources(List<CmsPublishedResource> publishedResources) {
+
+        Set<String> folders = new HashSet<String>();
+        List<String> subTrees = new ArrayList<String>();
+        for (CmsPublishedResource pubRes : publishedResources) {
+            String parent = CmsResource.getParentFolder(pubRes.getRootPath());
+            if (parent != null) {
+                folders.add(parent);
+                String grandParent = CmsResource.getParentFolder(parent);
+                if (grandParent != null) {
+                    folders.add(grandParent);
+                }
+            }
+            if (pubRes.isFolder()) {
+                subTrees.add(CmsResource.getFolderPath(pubRes.getRootPath()));
+            }
+        }
+        m_folders.invalidateAll(folders);
+        if (!subTrees.isEmpty()) {
+            for (String cachedFolder : m_folders.asMap().keySet()) {
+                for (String subTree : subTrees) {
+                    if (cachedFolder.startsWith(subTree)) {
+                        m_folders.invalidate(cachedFolder);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the navigation entries of a folder from the VFS.<p>
+     *
+     * @param cms the current CMS context
+     * @param folder the site path of the folder
+     *
+     * @return the navigation entries of the folder
+     *
+     * @throws CmsException if something goes wrong
+     */
+    List<NavigationEntry> readFolderEntries(CmsObject cms, String folder) throws CmsException {
+
+        List<CmsResource> resources = cms.getResourcesInFolder(folder, CmsResourceFilter.IGNORE_EXPIRATION);
+        Map<CmsResource, List<CmsProperty>> properties = cms.readPropertyObjects(resources, false);
+        List<NavigationEntry> result = new ArrayList<NavigationEntry>(resources.size());
+        for (CmsResource resource : resources) {
+            List<CmsProperty> resourceProperties = properties.get(resource);
+            if (resourceProperties == null) {
+                resourceProperties = cms.readPropertyObjects(resource, false);
+            }
+            Map<String, String> propertiesMap = CmsProperty.toMap(resourceProperties);
+            result.add(new NavigationEntry(resource, propertiesMap, readDefaultFile(cms, resource, propertiesMap)));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Reads the default file of a folder, regardless of its release and expiration dates.<p>
+     *
+     * @param cms the current CMS context
+     * @param resource the resource
+     * @param properties the resource properties
+     *
+     * @return the default file, or <code>null</code> if the resource is no folder, has no default file
+     *      or is a navigation level
+     */
+    private CmsResource readDefaultFile(CmsObject cms, CmsResource resource, Map<String, String> properties) {
+
+        if (!resource.isFolder()
+            || CmsJspNavBuilder.NAVIGATION_LEVEL_FOLDER.equals(
+                properties.get(CmsPropertyDefinition.PROPERTY_DEFAULT_FILE))) {
+            return null;
+        }
+        try {
+            return cms.readDefaultFile(resource, CmsResourceFilter.IGNORE_EXPIRATION);
+        } catch (@SuppressWarnings("unused") CmsException e) {
+            // may happen if permissions are not sufficient can be ignored
+            return null;
+        }
+    }
+}
@@ -220,6 +220,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_MAXELEMENTS_NOT_SET_2 = "LOG_MAXELEMENTS_NOT_SET_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_NAV_CACHE_PUBLISH_FAILED_1 = "LOG_NAV_CACHE_PUBLISH_FAILED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_WRONG_CONTAINER_MAXELEMENTS_3 = "LOG_WRONG_CONTAINER_MAXELEMENTS_3";
 
@@ -45,6 +45,8 @@ import org.opencms.util.CmsCollectionsGenericWrapper;
 import org.opencms.util.CmsConstantMap;
 import org.opencms.util.CmsUUID;
 import org.opencms.xml.I_CmsXmlDocument;
+import org.opencms.xml.content.CmsXmlCompactDocument;
+import org.opencms.xml.content.CmsXmlContentCache;
 import org.opencms.xml.content.CmsXmlContentFactory;
 import org.opencms.xml.page.CmsXmlPageFactory;
 import org.opencms.xml.types.I_CmsXmlContentValue;
@@ -81,7 +83,7 @@ public class CmsJspContentAccessBean {
          */
         public Object transform(Object input) {
 
-            return Boolean.valueOf(getRawContent().hasLocale(CmsJspElFunctions.convertLocale(input)));
+            return Boolean.valueOf(getReadOnlyContent().hasLocale(CmsJspElFunctions.convertLocale(input)));
         }
     }
 
@@ -98,7 +100,7 @@ public class CmsJspContentAccessBean {
 
             Locale locale = CmsJspElFunctions.convertLocale(input);
             Map<String, Boolean> result;
-            if (getRawContent().hasLocale(locale)) {
+            if (getReadOnlyContent().hasLocale(locale)) {
                 result = CmsCollectionsGenericWrapper.createLazyMap(new CmsHasValueTransformer(locale));
             } else {
                 result = CmsConstantMap.CONSTANT_BOOLEAN_FALSE_MAP;
@@ -131,7 +133,7 @@ public class CmsJspContentAccessBean {
          */
         public Object transform(Object input) {
 
-            return Boolean.valueOf(getRawContent().hasValue(String.valueOf(input), m_selectedLocale));
+            return Boolean.valueOf(getReadOnlyContent().hasValue(String.valueOf(input), m_selectedLocale));
         }
     }
 
@@ -180,7 +182,7 @@ public class CmsJspContentAccessBean {
 
             Locale locale = CmsLocaleManager.getLocale(String.valueOf(input));
 
-            return getRawContent().getNames(locale);
+            return getReadOnlyContent().getNames(locale);
         }
     }
 
@@ -197,7 +199,7 @@ public class CmsJspContentAccessBean {
 
             Locale locale = CmsLocaleManager.getLocale(String.valueOf(input));
             Map<String, String> result;
-            if (getRawContent().hasLocale(locale)) {
+            if (getReadOnlyContent().hasLocale(locale)) {
                 result = CmsCollectionsGenericWrapper.createLazyMap(new CmsRdfaTransformer(locale));
             } else {
                 // return a map that always returns an empty string
@@ -220,7 +222,7 @@ public class CmsJspContentAccessBean {
 
             Locale locale = CmsJspElFunctions.convertLocale(input);
             Map<String, List<CmsJspContentAccessValueWrapper>> result;
-            if (getRawContent().hasLocale(locale)) {
+            if (getReadOnlyContent().hasLocale(locale)) {
                 result = CmsCollectionsGenericWrapper.createLazyMap(new CmsSubValueListTransformer(locale));
             } else {
                 result = CmsConstantMap.CONSTANT_EMPTY_LIST_MAP;
@@ -242,7 +244,7 @@ public class CmsJspContentAccessBean {
 
             Locale locale = CmsJspElFunctions.convertLocale(input);
             Map<String, List<CmsJspContentAccessValueWrapper>> result;
-            if (getRawContent().hasLocale(locale)) {
+            if (getReadOnlyContent().hasLocale(locale)) {
                 result = CmsCollectionsGenericWrapper.createLazyMap(new CmsValueListTransformer(locale));
             } else {
                 result = CmsConstantMap.CONSTANT_EMPTY_LIST_MAP;
@@ -264,7 +266,7 @@ public class CmsJspContentAccessBean {
 
             Locale locale = CmsLocaleManager.getLocale(String.valueOf(input));
             Map<String, CmsJspContentAccessValueWrapper> result;
-            if (getRawContent().hasLocale(locale)) {
+            if (getReadOnlyContent().hasLocale(locale)) {
                 result = CmsCollectionsGenericWrapper.createLazyMap(new CmsValueTransformer(locale));
             } else {
                 result = CONSTANT_NULL_VALUE_WRAPPER_MAP;
@@ -448,6 +450,9 @@ public class CmsJspContentAccessBean {
     /** The lazy initialized with the locale value lists. */
     private Map<String, Map<String, List<CmsJspContentAccessValueWrapper>>> m_localeValueList;
 
+    /** The XML content used for read-only access to locales and value names. */
+    private I_CmsXmlDocument m_readOnlyContent;
+
     /** The original locale requested for accessing entries from the XML content. */
     private Locale m_requestedLocale;
 
@@ -754,7 +759,7 @@ public class CmsJspContentAccessBean {
 
         // check the content if the locale has not been set yet
         if (m_locale == null) {
-            getRawContent();
+            getReadOnlyContent();
         }
         return m_locale;
     }
@@ -911,15 +916,16 @@ public class CmsJspContentAccessBean {
 
         if (m_content == null) {
             // content has not been provided, must unmarshal XML first
-            CmsFile file;
             try {
-                file = m_cms.readFile(m_resource);
-                if (CmsResourceTypeXmlPage.isXmlPage(file)) {
+                if (CmsResourceTypeXmlPage.isXmlPage(m_resource)) {
                     // this is an XML page
-                    m_content = CmsXmlPageFactory.unmarshal(m_cms, file);
+                    m_content = CmsXmlPageFactory.unmarshal(m_cms, m_cms.readFile(m_resource));
+                } else if (m_readOnlyContent instanceof CmsXmlCompactDocument) {
+                    // reuse the XML content of the read-only content, it may already have been unmarshalled
+                    m_content = ((CmsXmlCompactDocument)m_readOnlyContent).getXmlContent();
                 } else {
-                    // this is an XML content
-                    m_content = CmsXmlContentFactory.unmarshal(m_cms, file);
+                    // this is an XML content, the parsed XML is shared in the Online project
+                    m_content = CmsXmlContentFactory.unmarshalShared(m_cms, m_resource);
                 }
             } catch (CmsException e) {
                 // this usually should not happen, as the resource already has been read by the current user
@@ -930,23 +936,7 @@ public class CmsJspContentAccessBean {
             }
         }
 
-        // make sure a valid locale is used
-        if (m_locale == null) {
-            m_locale = m_requestedLocale;
-            // check if the requested locale is available
-            if (!m_content.hasLocale(m_locale)) {
-                Iterator<Locale> it = OpenCms.getLocaleManager().getDefaultLocales().iterator();
-                while (it.hasNext()) {
-                    Locale locale = it.next();
-                    if (m_content.hasLocale(locale)) {
-                        // found a matching locale
-                        m_locale = locale;
-                        break;
-                    }
-                }
-            }
-        }
-
+        initLocale(m_content);
         return m_content;
     }
 
@@ -1067,6 +1057,60 @@ public class CmsJspContentAccessBean {
         m_resource = resource;
     }
 
+    /**
+     * Returns the XML content used for read-only access to locales and value names.<p>
+     *
+     * For XML contents in the Online project, this is a read-only content that avoids unmarshalling
+     * the complete XML content, otherwise this is the raw content.<p>
+     *
+     * @return the XML content used for read-only access
+     */
+    private I_CmsXmlDocument getReadOnlyContent() {
+
+        if (m_content != null) {
+            return m_content;
+        }
+        if (m_readOnlyContent == null) {
+            if (CmsResourceTypeXmlPage.isXmlPage(m_resource) || !CmsXmlContentCache.isCacheable(m_cms, m_resource)) {
+                return getRawContent();
+            }
+            try {
+                m_readOnlyContent = CmsXmlContentFactory.unmarshalCompact(m_cms, m_resource);
+            } catch (CmsException e) {
+                throw new CmsRuntimeException(
+                    Messages.get().container(Messages.ERR_XML_CONTENT_UNMARSHAL_1, m_resource.getRootPath()),
+                    e);
+            }
+        }
+        initLocale(m_readOnlyContent);
+        return m_readOnlyContent;
+    }
+
+    /**
+     * Initializes the locale used for accessing the content, if this has not been done yet.<p>
+     *
+     * @param content the content to check the available locales in
+     */
+    private void initLocale(I_CmsXmlDocument content) {
+
+        // make sure a valid locale is used
+        if (m_locale == null) {
+            m_locale = m_requestedLocale;
+            // check if the requested locale is available
+            if (!content.hasLocale(m_locale)) {
+                Iterator<Locale> it = OpenCms.getLocaleManager().getDefaultLocales().iterator();
+                while (it.hasNext()) {
+                    Locale locale = it.next();
+                    if (content.hasLocale(locale)) {
+                        // found a matching locale
+                        m_locale = locale;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Reads the categories assigned to the content's VFS resource.
      * @return the categories assigned to the content's VFS resource.
@@ -27,27 +27,36 @@
 
 package org.opencms.loader;
 
+import org.opencms.cache.CmsVfsContentDiskCache;
 import org.opencms.configuration.CmsParameterConfiguration;
 import org.opencms.file.CmsFile;
 import org.opencms.file.CmsObject;
 import org.opencms.file.CmsResource;
+import org.opencms.file.history.I_CmsHistoryResource;
 import org.opencms.flex.CmsFlexController;
 import org.opencms.main.CmsException;
 import org.opencms.main.CmsLog;
 import org.opencms.main.OpenCms;
+import org.opencms.util.CmsFileUtil;
 import org.opencms.util.CmsRequestUtil;
 import org.opencms.util.CmsStringUtil;
 import org.opencms.workplace.CmsWorkplaceManager;
 
+import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Iterator;
 import java.util.Locale;
 
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
+import javax.servlet.ServletResponseWrapper;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.logging.Log;
+
 /**
  * Dump loader for binary or other unprocessed resource types.<p>
  *
@@ -58,12 +67,60 @@ import javax.servlet.http.HttpServletResponse;
  */
 public class CmsDumpLoader implements I_CmsResourceLoader {
 
+    /** The configuration parameter for the OpenCms XML configuration to enable the content disk cache. */
+    public static final String CONFIGURATION_CONTENT_CACHE_ENABLED = "content.cache.enabled";
+
+    /** The configuration parameter for the OpenCms XML configuration to set the content disk cache repository. */
+    public static final String CONFIGURATION_CONTENT_CACHE_FOLDER = "content.cache.folder";
+
+    /** The configuration parameter for the OpenCms XML configuration to set the maximum content disk cache size (MB). */
+    public static final String CONFIGURATION_CONTENT_CACHE_MAX_SIZE = "content.cache.maxsize";
+
+    /** The configuration parameter for the OpenCms XML configuration to set the minimum length of cached contents (bytes). */
+    public static final String CONFIGURATION_CONTENT_CACHE_MIN_LENGTH = "content.cache.minlength";
+
+    /** The configuration parameter for the OpenCms XML configuration to enable the use of the servlet container sendfile support. */
+    public static final String CONFIGURATION_CONTENT_CACHE_SENDFILE = "content.cache.sendfile";
+
+    /** Default name for the content disk cache repository. */
+    public static final String CONTENT_CACHE_REPOSITORY_DEFAULT = "/WEB-INF/contentcache/";
+
+    /** Default maximum size of the content disk cache in MB. */
+    public static final int DEFAULT_CONTENT_CACHE_MAX_SIZE = 1024;
+
+    /** Default minimum length of cached contents in bytes. */
+    public static final int DEFAULT_CONTENT_CACHE_MIN_LENGTH = 65536;
+
     /** The id of this loader. */
     public static final int RESOURCE_LOADER_ID = 1;
 
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsDumpLoader.class);
+
+    /** Request attribute for the position after the last byte to send with the Tomcat sendfile support. */
+    private static final String SENDFILE_ATTR_END = "org.apache.tomcat.sendfile.end";
+
+    /** Request attribute for the name of the file to send with the Tomcat sendfile support. */
+    private static final String SENDFILE_ATTR_FILENAME = "org.apache.tomcat.sendfile.filename";
+
+    /** Request attribute for the position of the first byte to send with the Tomcat sendfile support. */
+    private static final String SENDFILE_ATTR_START = "org.apache.tomcat.sendfile.start";
+
+    /** Request attribute set by Tomcat if the sendfile support is available. */
+    private static final String SENDFILE_ATTR_SUPPORT = "org.apache.tomcat.sendfile.support";
+
     /** The maximum age for dumped contents in the clients cache. */
     private static long m_clientCacheMaxAge;
 
+    /** The disk cache for the contents of online files, <code>null</code> if not enabled. */
+    private static CmsVfsContentDiskCache m_contentCache;
+
+    /** The minimum length of the contents stored in the content disk cache. */
+    private static long m_contentCacheMinLength;
+
+    /** Indicates if cached contents are sent with the servlet container sendfile support. */
+    private static boolean m_contentCacheSendfile;
+
     /** The resource loader configuration. */
     private CmsParameterConfiguration m_configuration;
 
@@ -84,11 +141,14 @@ public class CmsDumpLoader implements I_CmsResourceLoader {
     }
 
     /**
-     * Destroy this ResourceLoder, this is a NOOP so far.<p>
+     * Destroy this ResourceLoder, removes the content disk cache from the event listeners.<p>
      */
     public void destroy() {
 
-        // NOOP
+        if (m_contentCache != null) {
+            OpenCms.removeCmsEventListener(m_contentCache);
+            m_contentCache = null;
+        }
     }
 
     /**
@@ -176,10 +236,35 @@ public class CmsDumpLoader implements I_CmsResourceLoader {
             m_clientCacheMaxAge = Long.parseLong(String.valueOf(maxAge));
         }
 
+        if (m_configuration.getBoolean(CONFIGURATION_CONTENT_CACHE_ENABLED, false)) {
+            String folder = m_configuration.getString(
+                CONFIGURATION_CONTENT_CACHE_FOLDER,
+                CONTENT_CACHE_REPOSITORY_DEFAULT);
+            long maxSize = m_configuration.getInteger(
+                CONFIGURATION_CONTENT_CACHE_MAX_SIZE,
+                DEFAULT_CONTENT_CACHE_MAX_SIZE) * 1024L * 1024L;
+            m_contentCache = new CmsVfsContentDiskCache(
+                OpenCms.getSystemInfo().getWebApplicationRfsPath(),
+                folder,
+                maxSize);
+            m_contentCache.registerEventListener();
+            m_contentCacheMinLength = m_configuration.getInteger(
+                CONFIGURATION_CONTENT_CACHE_MIN_LENGTH,
+                DEFAULT_CONTENT_CACHE_MIN_LENGTH);
+            m_contentCacheSendfile = m_configuration.getBoolean(CONFIGURATION_CONTENT_CACHE_SENDFILE, true);
+        }
+
         if (CmsLog.INIT.isInfoEnabled()) {
             if (maxAge != null) {
                 CmsLog.INIT.info(Messages.get().getBundle().key(Messages.INIT_CLIENT_CACHE_MAX_AGE_1, maxAge));
             }
+            if (m_contentCache != null) {
+                CmsLog.INIT.info(
+                    Messages.get().getBundle().key(
+                        Messages.INIT_CONTENT_CACHE_2,
+                        m_contentCache.getRepositoryPath(),
+                        Long.valueOf(m_contentCache.getMaxSize() / (1024L * 1024L))));
+            }
             CmsLog.INIT.info(
                 Messages.get().getBundle().key(Messages.INIT_LOADER_INITIALIZED_1, this.getClass().getName()));
         }
@@ -228,21 +313,23 @@ public class CmsDumpLoader implements I_CmsResourceLoader {
             return;
         }
 
-        // make sure we have the file contents available
-        CmsFile file = cms.readFile(resource);
+        // the content is streamed, so the length is taken from the resource if the content is not available
+        long length = resource.getLength();
+        if ((resource instanceof CmsFile) && (((CmsFile)resource).getContents() != null)) {
+            length = ((CmsFile)resource).getContents().length;
+        }
 
         // set response status to "200 - OK" (required for static export "on-demand")
         res.setStatus(HttpServletResponse.SC_OK);
-        // set content length header
-        res.setContentLength(file.getContents().length);
 
         if (CmsWorkplaceManager.isWorkplaceUser(req)) {
             // prevent caching for Workplace users
             res.setDateHeader(CmsRequestUtil.HEADER_LAST_MODIFIED, System.currentTimeMillis());
             CmsRequestUtil.setNoCacheHeaders(res);
         } else {
-            // set date last modified header
-            res.setDateHeader(CmsRequestUtil.HEADER_LAST_MODIFIED, file.getDateLastModified());
+            // set date last modified and entity tag header
+            res.setDateHeader(CmsRequestUtil.HEADER_LAST_MODIFIED, resource.getDateLastModified());
+            res.setHeader(CmsRequestUtil.HEADER_ETAG, getETag(resource));
 
             // set "Expires" only if cache control is not already set
             if (!res.containsHeader(CmsRequestUtil.HEADER_CACHE_CONTROL)) {
@@ -256,7 +343,40 @@ public class CmsDumpLoader implements I_CmsResourceLoader {
             }
         }
 
-        service(cms, file, req, res);
+        res.setHeader(CmsRequestUtil.HEADER_ACCEPT_RANGES, "bytes");
+        long[] range = getRange(req, resource, length);
+        if (range == null) {
+            // send the complete content
+            setContentLength(res, length);
+            File cached = getCachedContent(cms, resource);
+            if (cached != null) {
+                sendCachedContent(cms, resource, req, res, cached, 0, length);
+            } else {
+                service(cms, resource, req, res);
+            }
+        } else if (range.length == 0) {
+            // set status 416 - requested range not satisfiable
+            res.setHeader(CmsRequestUtil.HEADER_CONTENT_RANGE, "bytes */" + length);
+            res.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        } else {
+            // set status 206 - partial content
+            res.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            res.setHeader(
+                CmsRequestUtil.HEADER_CONTENT_RANGE,
+                "bytes " + range[0] + "-" + range[1] + "/" + length);
+            setContentLength(res, (range[1] - range[0]) + 1);
+            File cached = getCachedContent(cms, resource);
+            if (cached != null) {
+                sendCachedContent(cms, resource, req, res, cached, range[0], (range[1] - range[0]) + 1);
+            } else {
+                InputStream in = cms.readFileStream(resource);
+                try {
+                    CmsFileUtil.copyRange(in, res.getOutputStream(), range[0], (range[1] - range[0]) + 1);
+                } finally {
+                    in.close();
+                }
+            }
+        }
     }
 
     /**
@@ -265,7 +385,18 @@ public class CmsDumpLoader implements I_CmsResourceLoader {
     public void service(CmsObject cms, CmsResource resource, ServletRequest req, ServletResponse res)
     throws CmsException, IOException {
 
-        res.getOutputStream().write(cms.readFile(resource).getContents());
+        File cached = getCachedContent(cms, resource);
+        if (cached != null) {
+            CmsFileUtil.copyRange(cached, res.getOutputStream(), 0, -1);
+            return;
+        }
+        // stream the content, so large files are not read into memory at once
+        InputStream in = cms.readFileStream(resource);
+        try {
+            CmsFileUtil.copyRange(in, res.getOutputStream(), 0, -1);
+        } finally {
+            in.close();
+        }
     }
 
     /**
@@ -287,8 +418,8 @@ public class CmsDumpLoader implements I_CmsResourceLoader {
         if (resource.getState().isUnchanged()
             // the request must not have been send by a workplace user (we can't use "304 - not modified" in workplace
             && !CmsWorkplaceManager.isWorkplaceUser(req)
-            // last modified header must match the time form the resource
-            && CmsFlexController.isNotModifiedSince(req, resource.getDateLastModified())) {
+            // entity tag or last modified header must match the resource
+            && isNotModified(req, resource)) {
             long now = System.currentTimeMillis();
             if ((resource.getDateReleased() < now) && (resource.getDateExpired() > now)) {
                 // resource is available and not expired
@@ -300,4 +431,235 @@ public class CmsDumpLoader implements I_CmsResourceLoader {
         }
         return false;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the cached content of the given resource from the content disk cache.<p>
+     *
+     * Only contents of files in the online project within the configured size limits are cached.
+     * If the content is not cached yet, it is read from the database and stored in the cache.<p>
+     *
+     * @param cms the current users OpenCms context
+     * @param resource the requested resource
+     *
+     * @return the cache file, or <code>null</code> if the content is not cached
+     *
+     * @throws CmsException if something goes wrong reading the content
+     */
+    protected File getCachedContent(CmsObject cms, CmsResource resource) throws CmsException {
+
+        CmsVfsContentDiskCache cache = m_contentCache;
+        if ((cache == null)
+            || !cms.getRequestContext().getCurrentProject().isOnlineProject()
+            || (resource instanceof I_CmsHistoryResource)
+            || ((resource instanceof CmsFile) && (((CmsFile)resource).getContents() != null))
+            || (resource.getLength() < m_contentCacheMinLength)
+            || !cache.isCacheable(resource.getLength())) {
+            return null;
+        }
+        File f = cache.getCacheFile(resource.getResourceId(), resource.getDateContent());
+        if (f == null) {
+            InputStream in = cms.readFileStream(resource);
+            try {
+                f = cache.saveCacheFile(resource.getResourceId(), resource.getDateContent(), in);
+            } catch (IOException e) {
+                LOG.warn(
+                    Messages.get().getBundle().key(Messages.LOG_CONTENT_CACHE_SAVE_FAILED_1, resource.getRootPath()),
+                    e);
+                return null;
+            } finally {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    LOG.debug(e.getLocalizedMessage(), e);
+                }
+            }
+        }
+        // the content date changes with every content, the length is only checked for safety
+        return f.length() == resource.getLength() ? f : null;
+    }
+
+    /**
+     * Returns the entity tag for the content of the given resource.<p>
+     *
+     * The entity tag is built from the resource id and the content date,
+     * so all siblings share the same entity tag and it only changes if the content changes.<p>
+     *
+     * @param resource the resource
+     *
+     * @return the entity tag, including the quotes
+     */
+    protected String getETag(CmsResource resource) {
+
+        return "\"" + resource.getResourceId() + "-" + resource.getDateContent() + "\"";
+    }
+
+    /**
+     * Returns the single byte range requested with the "Range" header.<p>
+     *
+     * Only a single range is supported, requests for multiple ranges are answered with the complete content.
+     * If the request contains an "If-Range" header, the range is only used if the resource has not been
+     * modified since the given date.<p>
+     *
+     * @param req the current request
+     * @param resource the requested resource
+     * @param length the length of the content
+     *
+     * @return the first and last byte position of the requested range, <code>null</code> if the complete content
+     *      should be send, or an empty array if the requested range can not be satisfied
+     */
+    protected long[] getRange(HttpServletRequest req, CmsResource resource, long length) {
+
+        String range = req.getHeader(CmsRequestUtil.HEADER_RANGE);
+        if ((range == null) || !range.startsWith("bytes=") || (range.indexOf(',') > -1)) {
+            return null;
+        }
+        String ifRange = req.getHeader(CmsRequestUtil.HEADER_IF_RANGE);
+        if ((ifRange != null) && (ifRange.trim().startsWith("\"") || ifRange.trim().startsWith("W/"))) {
+            // only a strong entity tag can match
+            if (!ifRange.trim().equals(getETag(resource))) {
+                return null;
+            }
+        } else if (ifRange != null) {
+            try {
+                long ifRangeDate = req.getDateHeader(CmsRequestUtil.HEADER_IF_RANGE);
+                // HTTP dates have a precision of seconds
+                if ((ifRangeDate / 1000) != (resource.getDateLastModified() / 1000)) {
+                    return null;
+                }
+            } catch (IllegalArgumentException e) {
+                // neither a date nor an entity tag
+                return null;
+            }
+        }
+        String spec = range.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        long start;
+        long end;
+        try {
+            if (dash == 0) {
+                // suffix range, the last n bytes
+                long suffix = Long.parseLong(spec.substring(1).trim());
+                if (suffix <= 0) {
+                    return new long[0];
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash).trim());
+                String last = spec.substring(dash + 1).trim();
+                end = last.length() > 0 ? Long.parseLong(last) : Long.MAX_VALUE;
+                if (end < start) {
+                    // syntactically invalid, send the complete content
+                    return null;
+                }
+                end = Math.min(end, length - 1);
+            }
+        } catch (NumberFormatException e) {
+            // invalid range, send the complete content
+            return null;
+        }
+        if ((start >= length) || (length == 0)) {
+            return new long[0];
+        }
+        return new long[] {start, end};
+    }
+
+    /**
+     * Checks if the client has the current version of the given resource by checking the
+     * "If-None-Match" and "If-Modified-Since" http headers.<p>
+     *
+     * If the request contains an "If-None-Match" header, the "If-Modified-Since" header is ignored.<p>
+     *
+     * @param req the current request
+     * @param resource the requested resource
+     *
+     * @return <code>true</code> if the client has the current version of the resource
+     */
+    protected boolean isNotModified(HttpServletRequest req, CmsResource resource) {
+
+        String ifNoneMatch = req.getHeader(CmsRequestUtil.HEADER_IF_NONE_MATCH);
+        if (ifNoneMatch == null) {
+            return CmsFlexController.isNotModifiedSince(req, resource.getDateLastModified());
+        }
+        String eTag = getETag(resource);
+        for (String tag : CmsStringUtil.splitAsArray(ifNoneMatch, ',')) {
+            tag = tag.trim();
+            // the weak comparison is used for "If-None-Match"
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if ("*".equals(tag) || eTag.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sends a range of the given content disk cache file to the client.<p>
+     *
+     * If the servlet container supports it, the file is sent by the container with sendfile after the request
+     * has been processed. Otherwise it is transferred to the response output stream with a file channel.
+     * If the file has been removed from the RFS in the meantime, the content is read from the VFS.<p>
+     *
+     * @param cms the current users OpenCms context
+     * @param resource the requested resource
+     * @param req the current request
+     * @param res the current response
+     * @param file the content disk cache file
+     * @param offset the position of the first byte to send
+     * @param length the number of bytes to send
+     *
+     * @throws IOException in case writing to the response fails
+     * @throws CmsException if something goes wrong reading the content from the VFS
+     */
+    private void sendCachedContent(
+        CmsObject cms,
+        CmsResource resource,
+        HttpServletRequest req,
+        HttpServletResponse res,
+        File file,
+        long offset,
+        long length) throws IOException, CmsException {
+
+        if (m_contentCacheSendfile
+            && Boolean.TRUE.equals(req.getAttribute(SENDFILE_ATTR_SUPPORT))
+            && !(res instanceof ServletResponseWrapper)
+            && file.isFile()) {
+            // removed cache files are deleted with a delay, so the file is still available for the container
+            req.setAttribute(SENDFILE_ATTR_FILENAME, file.getCanonicalPath());
+            req.setAttribute(SENDFILE_ATTR_START, Long.valueOf(offset));
+            req.setAttribute(SENDFILE_ATTR_END, Long.valueOf(offset + length));
+            return;
+        }
+        try {
+            CmsFileUtil.copyRange(file, res.getOutputStream(), offset, length);
+        } catch (FileNotFoundException e) {
+            // the file has been removed from the RFS, nothing has been written yet
+            InputStream in = cms.readFileStream(resource);
+            try {
+                CmsFileUtil.copyRange(in, res.getOutputStream(), offset, length);
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * Sets the content length header of the response, also for contents larger than 2 GB.<p>
+     *
+     * @param res the current response
+     * @param length the content length
+     */
+    private void setContentLength(HttpServletResponse res, long length) {
+
+        if (length <= Integer.MAX_VALUE) {
+            res.setContentLength((int)length);
+        } else {
+            res.setHeader(CmsRequestUtil.HEADER_CONTENT_LENGTH, String.valueOf(length));
+        }
+    }
+}
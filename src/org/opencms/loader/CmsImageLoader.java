@@ -27,6 +27,8 @@
 
 package org.opencms.loader;
 
+import com.alkacon.simapi.Simapi;
+
 import org.opencms.cache.CmsVfsNameBasedDiskCache;
 import org.opencms.configuration.CmsParameterConfiguration;
 import org.opencms.file.CmsFile;
@@ -39,9 +41,17 @@ import org.opencms.main.I_CmsEventListener;
 import org.opencms.main.OpenCms;
 import org.opencms.scheduler.jobs.CmsImageCacheCleanupJob;
 import org.opencms.util.CmsStringUtil;
+import org.opencms.util.CmsUUID;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -77,6 +87,36 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
     /** The configuration parameter for the OpenCms XML configuration to enable the image scaling. */
     public static final String CONFIGURATION_SCALING_ENABLED = "image.scaling.enabled";
 
+    /** The configuration parameter for the OpenCms XML configuration to set the image scaling fallback. */
+    public static final String CONFIGURATION_SCALING_FALLBACK = "image.scaling.fallback";
+
+    /** The configuration parameter for the OpenCms XML configuration to enable the generation of image variants on publish. */
+    public static final String CONFIGURATION_SCALING_PREGENERATE = "image.scaling.pregenerate";
+
+    /** The configuration parameter for the OpenCms XML configuration to add scale parameters generated for all published images. */
+    public static final String CONFIGURATION_SCALING_PRESET = "image.scaling.preset";
+
+    /** The configuration parameter for the OpenCms XML configuration to set the image scaling queue size. */
+    public static final String CONFIGURATION_SCALING_QUEUE_SIZE = "image.scaling.queuesize";
+
+    /** The configuration parameter for the OpenCms XML configuration to set the number of image scaling threads. */
+    public static final String CONFIGURATION_SCALING_THREADS = "image.scaling.threads";
+
+    /** The configuration parameter for the OpenCms XML configuration to set the image scaling timeout (ms). */
+    public static final String CONFIGURATION_SCALING_TIMEOUT = "image.scaling.timeout";
+
+    /** Default maximum number of queued image scaling operations. */
+    public static final int DEFAULT_SCALING_QUEUE_SIZE = 50;
+
+    /** Default time in milliseconds to wait for a scaled image. */
+    public static final int DEFAULT_SCALING_TIMEOUT = 30000;
+
+    /** Fallback: serve the unscaled original image. */
+    public static final String FALLBACK_ORIGINAL = "original";
+
+    /** Fallback: scale the image in the request thread using the fastest render mode. */
+    public static final String FALLBACK_SPEED = "speed";
+
     /** Default name for the image cache repository. */
     public static final String IMAGE_REPOSITORY_DEFAULT = "/WEB-INF/imagecache/";
 
@@ -98,6 +138,12 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
     /** The maximum image size (width * height) to apply image blurring when down scaling (setting this to high may cause "out of memory" errors). */
     protected static int m_maxBlurSize = CmsImageScaler.SCALE_DEFAULT_MAX_BLUR_SIZE;
 
+    /** The executor for the image scaling operations. */
+    protected static CmsImageScalingExecutor m_scalingExecutor;
+
+    /** The generator for the scaled variants of published images. */
+    protected static CmsImageVariantGenerator m_variantGenerator;
+
     /** The disk cache to use for saving scaled image versions. */
     protected static CmsVfsNameBasedDiskCache m_vfsDiskCache;
 
@@ -107,6 +153,24 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
     /** The maximum image size (width or height) to allow when up scaling an image using request parameters. */
     protected int m_maxScaleSize = CmsImageScaler.SCALE_DEFAULT_MAX_SIZE;
 
+    /** The fallback to use if an image can not be scaled in time. */
+    protected String m_scalingFallback = FALLBACK_ORIGINAL;
+
+    /** Indicates if the scaled variants of published images are generated on publish. */
+    protected boolean m_scalingPregenerate = true;
+
+    /** The scale parameters of the variants generated for all published images. */
+    protected List<String> m_scalingPresets = new ArrayList<String>();
+
+    /** The maximum number of queued image scaling operations. */
+    protected int m_scalingQueueSize = DEFAULT_SCALING_QUEUE_SIZE;
+
+    /** The number of image scaling threads. */
+    protected int m_scalingThreads = Runtime.getRuntime().availableProcessors();
+
+    /** The time in milliseconds to wait for a scaled image. */
+    protected int m_scalingTimeout = DEFAULT_SCALING_TIMEOUT;
+
     /**
      * Creates a new image loader.<p>
      */
@@ -172,6 +236,41 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
         return m_enabled;
     }
 
+    /**
+     * Creates the operation that scales an image and saves the result in the disk cache.<p>
+     *
+     * The operation checks the disk cache first, since the image may have been scaled
+     * by another operation in the meantime.<p>
+     *
+     * @param cms the OpenCms context to read the image with, must not be used concurrently
+     * @param resource the base VFS resource for the image
+     * @param scaler the configured image scaler
+     * @param diskCache the disk cache for the scaled images
+     * @param cacheName the name of the scaled image in the disk cache
+     *
+     * @return the operation, which returns the content of the scaled image
+     */
+    static Callable<byte[]> createScalingTask(
+        final CmsObject cms,
+        final CmsResource resource,
+        final CmsImageScaler scaler,
+        final CmsVfsNameBasedDiskCache diskCache,
+        final String cacheName) {
+
+        return new Callable<byte[]>() {
+
+            public byte[] call() throws Exception {
+
+                byte[] scaled = diskCache.getCacheContent(cacheName);
+                if (scaled == null) {
+                    scaled = scaler.scaleImage(cms.readFile(resource));
+                    diskCache.saveCacheFile(cacheName, scaled);
+                }
+                return scaled;
+            }
+        };
+    }
+
     /**
      * @see org.opencms.configuration.I_CmsConfigurationParameterHandler#addConfigurationParameter(java.lang.String, java.lang.String)
      */
@@ -200,6 +299,26 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
             if (CONFIGURATION_DOWNSCALE.equals(paramName)) {
                 m_downScaleParams = paramValue.trim();
             }
+            if (CONFIGURATION_SCALING_THREADS.equals(paramName)) {
+                m_scalingThreads = CmsStringUtil.getIntValue(paramValue, m_scalingThreads, paramName);
+            }
+            if (CONFIGURATION_SCALING_QUEUE_SIZE.equals(paramName)) {
+                m_scalingQueueSize = CmsStringUtil.getIntValue(paramValue, DEFAULT_SCALING_QUEUE_SIZE, paramName);
+            }
+            if (CONFIGURATION_SCALING_TIMEOUT.equals(paramName)) {
+                m_scalingTimeout = CmsStringUtil.getIntValue(paramValue, DEFAULT_SCALING_TIMEOUT, paramName);
+            }
+            if (CONFIGURATION_SCALING_FALLBACK.equals(paramName)) {
+                m_scalingFallback = FALLBACK_SPEED.equalsIgnoreCase(paramValue.trim())
+                ? FALLBACK_SPEED
+                : FALLBACK_ORIGINAL;
+            }
+            if (CONFIGURATION_SCALING_PREGENERATE.equals(paramName)) {
+                m_scalingPregenerate = Boolean.valueOf(paramValue).booleanValue();
+            }
+            if (CONFIGURATION_SCALING_PRESET.equals(paramName)) {
+                m_scalingPresets.add(paramValue.trim());
+            }
         }
         super.addConfigurationParameter(paramName, paramValue);
     }
@@ -212,16 +331,24 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
         if (event == null) {
             return;
         }
-        // only react on the clear caches event
+        Map<String, ?> data = event.getData();
+        if (data == null) {
+            return;
+        }
         int type = event.getType();
-        if (type != I_CmsEventListener.EVENT_CLEAR_CACHES) {
+        if ((type == I_CmsEventListener.EVENT_PUBLISH_PROJECT) && (m_variantGenerator != null)) {
+            // generate the scaled variants of the published images
+            Object publishHistoryId = data.get(I_CmsEventListener.KEY_PUBLISHID);
+            if (publishHistoryId != null) {
+                m_variantGenerator.generateVariants(new CmsUUID(publishHistoryId.toString()));
+            }
             return;
         }
-        // only react if the clear images cache parameter is set
-        Map<String, ?> data = event.getData();
-        if (data == null) {
+        // only react on the clear caches event
+        if (type != I_CmsEventListener.EVENT_CLEAR_CACHES) {
             return;
         }
+        // only react if the clear images cache parameter is set
         Object param = data.get(PARAM_CLEAR_IMAGES_CACHE);
         if (param == null) {
             return;
@@ -244,6 +371,14 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
         m_enabled = false;
         m_imageRepositoryFolder = null;
         m_vfsDiskCache = null;
+        if (m_variantGenerator != null) {
+            m_variantGenerator.shutdown();
+            m_variantGenerator = null;
+        }
+        if (m_scalingExecutor != null) {
+            m_scalingExecutor.shutdown();
+            m_scalingExecutor = null;
+        }
     }
 
     /**
@@ -286,6 +421,18 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
                 OpenCms.getSystemInfo().getWebApplicationRfsPath(),
                 m_imageRepositoryFolder);
         }
+        // initialize the image scaling threads
+        if (m_scalingExecutor == null) {
+            m_scalingExecutor = new CmsImageScalingExecutor(Math.max(1, m_scalingThreads), m_scalingQueueSize);
+        }
+        if (m_enabled && m_scalingPregenerate && (m_variantGenerator == null)) {
+            m_variantGenerator = new CmsImageVariantGenerator(
+                m_vfsDiskCache,
+                m_scalingExecutor,
+                m_scalingPresets,
+                m_maxScaleSize,
+                m_maxBlurSize);
+        }
         OpenCms.addCmsEventListener(this);
         // output setup information
         if (CmsLog.INIT.isInfoEnabled()) {
@@ -295,6 +442,16 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
                     m_vfsDiskCache.getRepositoryPath()));
             CmsLog.INIT.info(
                 Messages.get().getBundle().key(Messages.INIT_IMAGE_SCALING_ENABLED_1, Boolean.valueOf(m_enabled)));
+            CmsLog.INIT.info(
+                Messages.get().getBundle().key(
+                    Messages.INIT_IMAGE_SCALING_THREADS_2,
+                    Integer.valueOf(m_scalingExecutor.getThreads()),
+                    Integer.valueOf(m_scalingExecutor.getMaxQueueSize())));
+            CmsLog.INIT.info(
+                Messages.get().getBundle().key(
+                    Messages.INIT_IMAGE_SCALING_PREGENERATE_2,
+                    Boolean.valueOf(m_variantGenerator != null),
+                    m_scalingPresets));
         }
     }
 
@@ -326,7 +483,10 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
      * Returns a scaled version of the given OpenCms VFS image resource.<p>
      *
      * All results are cached in disk.
-     * If the scaled version does not exist in the cache, it is created.
+     * If the scaled version does not exist in the cache, it is created by the image scaling threads,
+     * where concurrent requests for the same scaled version share a single scaling operation.
+     * If the scaling threads are saturated or the scaled version is not available in time,
+     * the configured fallback is returned, which is not cached.
      * Unscaled versions of the images are also stored in the cache.<p>
      *
      * @param cms the current users OpenCms context
@@ -347,15 +507,53 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
 
         CmsFile file;
         if (content != null) {
-            if (resource instanceof CmsFile) {
-                // the original file content must be modified (required e.g. for static export)
-                file = (CmsFile)resource;
+            file = createFile(resource, content);
+        } else if (scaler.isValid() && (m_scalingExecutor != null)) {
+            if (m_variantGenerator != null) {
+                // remember the variant to generate it again when the image is published, requests
+                // served from the disk cache don't record it again, so this is done once per image version
+                m_variantGenerator.addVariant(resource.getRootPath(), cacheParam);
+            }
+            // scale the image in the worker threads, the operation is shared with concurrent requests
+            Future<byte[]> result = m_scalingExecutor.submit(
+                cacheName,
+                scaler.getPixelCount(),
+                createScalingTask(OpenCms.initCmsObject(cms), resource, scaler, m_vfsDiskCache, cacheName));
+            if (result == null) {
+                LOG.warn(Messages.get().getBundle().key(Messages.LOG_IMAGE_SCALING_SATURATED_1, cacheName));
+                file = getScalingFallback(cms, resource, scaler);
             } else {
-                // this is no file, but we don't want to use "upgrade" since we don't need to read the content from the VFS
-                file = new CmsFile(resource);
+                try {
+                    file = createFile(resource, result.get(m_scalingTimeout, TimeUnit.MILLISECONDS));
+                } catch (TimeoutException e) {
+                    LOG.warn(
+                        Messages.get().getBundle().key(
+                            Messages.LOG_IMAGE_SCALING_TIMEOUT_2,
+                            cacheName,
+                            Integer.valueOf(m_scalingTimeout)));
+                    file = getScalingFallback(cms, resource, scaler);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    file = getScalingFallback(cms, resource, scaler);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof CmsException) {
+                        throw (CmsException)cause;
+                    } else if (cause instanceof IOException) {
+                        throw (IOException)cause;
+                    } else if (cause instanceof RuntimeException) {
+                        throw (RuntimeException)cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error)cause;
+                    }
+                    throw new CmsLoaderException(
+                        Messages.get().container(
+                            Messages.ERR_UNABLE_TO_SCALE_IMAGE_2,
+                            resource.getRootPath(),
+                            cacheParam),
+                        cause);
+                }
             }
-            // save the content in the file
-            file.setContents(content);
         } else {
             // we must read the content from the VFS (if this has not been done yet)
             file = cms.readFile(resource);
@@ -371,4 +569,54 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
         }
         return file;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the image to serve if the scaled version could not be created in time.<p>
+     *
+     * Depending on the configured fallback, this is either the unscaled original image,
+     * or the image scaled in the current thread using the fastest render mode.
+     * The result is not cached.<p>
+     *
+     * @param cms the current users OpenCms context
+     * @param resource the base VFS resource for the image
+     * @param scaler the configured image scaler
+     *
+     * @return the image to serve
+     *
+     * @throws CmsException in case of errors accessing the OpenCms VFS
+     */
+    protected CmsFile getScalingFallback(CmsObject cms, CmsResource resource, CmsImageScaler scaler)
+    throws CmsException {
+
+        CmsFile file = cms.readFile(resource);
+        if (FALLBACK_SPEED.equals(m_scalingFallback)) {
+            CmsImageScaler fastScaler = (CmsImageScaler)scaler.clone();
+            fastScaler.setRenderMode(Simapi.RENDER_SPEED);
+            file.setContents(fastScaler.scaleImage(file));
+        }
+        return file;
+    }
+
+    /**
+     * Creates a file for the given resource with the given content.<p>
+     *
+     * @param resource the base VFS resource for the image
+     * @param content the content of the image
+     *
+     * @return the file with the given content
+     */
+    private CmsFile createFile(CmsResource resource, byte[] content) {
+
+        CmsFile file;
+        if (resource instanceof CmsFile) {
+            // the original file content must be modified (required e.g. for static export)
+            file = (CmsFile)resource;
+        } else {
+            // this is no file, but we don't want to use "upgrade" since we don't need to read the content from the VFS
+            file = new CmsFile(resource);
+        }
+        // save the content in the file
+        file.setContents(content);
+        return file;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.loader;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executes image scaling operations in a bounded pool of worker threads.<p>
+ *
+ * Concurrent requests for the same scaled image share one scaling operation ("single flight"):
+ * the operations are keyed by the name of the scaled image in the disk cache, and as long as an operation
+ * is queued or running, requests for the same key are given the existing operation to wait for.<p>
+ *
+ * Queued operations are executed in order of their priority, lower values first. If the number of queued operations
+ * reaches the configured maximum, new operations are rejected, so that the caller can fall back to a cheaper result
+ * instead of adding to the load.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsImageScalingExecutor {
+
+    /**
+     * A scaling operation, ordered by priority and then by the order of submission.<p>
+     */
+    private class CmsScalingTask extends FutureTask<byte[]> implements Comparable<CmsScalingTask> {
+
+        /** The key of the operation. */
+        private String m_key;
+
+        /** The priority of the operation. */
+        private int m_priority;
+
+        /** The sequence number of the operation. */
+        private long m_sequence;
+
+        /**
+         * Creates a new scaling operation.<p>
+         *
+         * @param key the key of the operation
+         * @param priority the priority of the operation, lower values are executed first
+         * @param callable the operation to execute
+         */
+        CmsScalingTask(String key, int priority, Callable<byte[]> callable) {
+
+            super(callable);
+            m_key = key;
+            m_priority = priority;
+            m_sequence = m_sequenceCounter.incrementAndGet();
+        }
+
+        /**
+         * @see java.lang.Comparable#compareTo(java.lang.Object)
+         */
+        public int compareTo(CmsScalingTask other) {
+
+            if (m_priority != other.m_priority) {
+                return m_priority < other.m_priority ? -1 : 1;
+            }
+            return m_sequence < other.m_sequence ? -1 : (m_sequence == other.m_sequence ? 0 : 1);
+        }
+
+        /**
+         * @see java.util.concurrent.FutureTask#done()
+         */
+        @Override
+        protected void done() {
+
+            // later requests find the result in the disk cache
+            m_tasks.remove(m_key, this);
+        }
+    }
+
+    /** The thread pool executing the operations. */
+    ThreadPoolExecutor m_executor;
+
+    /** The counter for the order of submission. */
+    AtomicLong m_sequenceCounter = new AtomicLong();
+
+    /** The queued and running operations, keyed by the name of the scaled image. */
+    ConcurrentHashMap<String, CmsScalingTask> m_tasks = new ConcurrentHashMap<String, CmsScalingTask>();
+
+    /** The maximum number of queued operations. */
+    private int m_maxQueueSize;
+
+    /**
+     * Creates a new image scaling executor.<p>
+     *
+     * @param threads the number of worker threads
+     * @param maxQueueSize the maximum number of queued operations
+     */
+    public CmsImageScalingExecutor(int threads, int maxQueueSize) {
+
+        m_maxQueueSize = maxQueueSize;
+        m_executor = new ThreadPoolExecutor(
+            threads,
+            threads,
+            60L,
+            TimeUnit.SECONDS,
+            new PriorityBlockingQueue<Runnable>(),
+            new ThreadFactory() {
+
+                public Thread newThread(Runnable r) {
+
+                    Thread thread = new Thread(r, "OpenCms: Image scaling worker");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        m_executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns the maximum number of queued operations.<p>
+     *
+     * @return the maximum number of queued operations
+     */
+    public int getMaxQueueSize() {
+
+        return m_maxQueueSize;
+    }
+
+    /**
+     * Returns the number of queued operations.<p>
+     *
+     * @return the number of queued operations
+     */
+    public int getQueueSize() {
+
+        return m_executor.getQueue().size();
+    }
+
+    /**
+     * Returns the number of worker threads.<p>
+     *
+     * @return the number of worker threads
+     */
+    public int getThreads() {
+
+        return m_executor.getMaximumPoolSize();
+    }
+
+    /**
+     * Shuts down the worker threads, queued operations are not executed anymore.<p>
+     */
+    public void shutdown() {
+
+        m_executor.shutdownNow();
+    }
+
+    /**
+     * Submits an operation, or returns the queued or running operation with the same key.<p>
+     *
+     * @param key the key of the operation, usually the name of the scaled image in the disk cache
+     * @param priority the priority of the operation, lower values are executed first
+     * @param callable the operation creating the scaled image
+     *
+     * @return the result of the operation, or <code>null</code> if the operation has been rejected
+     *      because the maximum number of queued operations is reached
+     */
+    public Future<byte[]> submit(String key, int priority, Callable<byte[]> callable) {
+
+        CmsScalingTask existing = m_tasks.get(key);
+        // a finished operation may still be registered for a short moment, its result is in the disk cache
+        if ((existing != null) && !existing.isDone()) {
+            return existing;
+        }
+        if (m_executor.getQueue().size() >= m_maxQueueSize) {
+            return null;
+        }
+        CmsScalingTask task = new CmsScalingTask(key, priority, callable);
+        if (existing != null) {
+            if (!m_tasks.replace(key, existing, task)) {
+                existing = m_tasks.putIfAbsent(key, task);
+            } else {
+                existing = null;
+            }
+        } else {
+            existing = m_tasks.putIfAbsent(key, task);
+        }
+        if (existing != null) {
+            // another request has submitted the same operation in the meantime
+            return existing;
+        }
+        try {
+            m_executor.execute(task);
+        } catch (RuntimeException e) {
+            // executor has been shut down
+            m_tasks.remove(key, task);
+            throw e;
+        }
+        return task;
+    }
+}
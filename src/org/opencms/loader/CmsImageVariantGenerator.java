@@ -0,0 +1,316 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.loader;
+
+import org.opencms.cache.CmsVfsNameBasedDiskCache;
+import org.opencms.db.CmsPublishedResource;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsResource;
+import org.opencms.file.CmsResourceFilter;
+import org.opencms.main.CmsException;
+import org.opencms.main.CmsLog;
+import org.opencms.main.OpenCms;
+import org.opencms.util.CmsUUID;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Generates the scaled variants of published images in the background, so that the first requests
+ * after a publish operation find the scaled images in the disk cache.<p>
+ *
+ * The variants to generate for an image are the configured presets, plus the scale parameters
+ * that have been requested for the image at runtime, for example by the <code>&lt;cms:img&gt;</code> tag.
+ * The scale parameters requested at runtime are recorded for a limited number of images only.<p>
+ *
+ * The variants are scaled one after another by the image scaling threads with the lowest priority,
+ * so requests for scaled images are always served first. Requests for a variant that is just generated
+ * share the scaling operation with the generator.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsImageVariantGenerator {
+
+    /** The maximum number of images for which the requested variants are recorded. */
+    public static final int MAX_RECORDED_IMAGES = 5000;
+
+    /** The maximum number of recorded variants per image. */
+    public static final int MAX_RECORDED_VARIANTS = 16;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsImageVariantGenerator.class);
+
+    /** The disk cache for the scaled images. */
+    private CmsVfsNameBasedDiskCache m_diskCache;
+
+    /** The single thread generating the variants. */
+    private ExecutorService m_executor;
+
+    /** The maximum image size (width * height) to apply image blurring when down scaling. */
+    private int m_maxBlurSize;
+
+    /** The maximum image size (width or height) to allow when scaling an image. */
+    private int m_maxScaleSize;
+
+    /** The scale parameters of the variants to generate for all images. */
+    private List<String> m_presets;
+
+    /** The executor for the image scaling operations. */
+    private CmsImageScalingExecutor m_scalingExecutor;
+
+    /** The recorded scale parameters, by root path of the image. */
+    private Map<String, Set<String>> m_variants;
+
+    /**
+     * Creates a new image variant generator.<p>
+     *
+     * @param diskCache the disk cache for the scaled images
+     * @param scalingExecutor the executor for the image scaling operations
+     * @param presets the scale parameters of the variants to generate for all images
+     * @param maxScaleSize the maximum image size (width or height) to allow when scaling an image
+     * @param maxBlurSize the maximum image size (width * height) to apply image blurring when down scaling
+     */
+    public CmsImageVariantGenerator(
+        CmsVfsNameBasedDiskCache diskCache,
+        CmsImageScalingExecutor scalingExecutor,
+        List<String> presets,
+        int maxScaleSize,
+        int maxBlurSize) {
+
+        m_diskCache = diskCache;
+        m_scalingExecutor = scalingExecutor;
+        m_presets = Collections.unmodifiableList(new ArrayList<String>(presets));
+        m_maxScaleSize = maxScaleSize;
+        m_maxBlurSize = maxBlurSize;
+        m_variants = Collections.synchronizedMap(new LinkedHashMap<String, Set<String>>(64, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Set<String>> eldest) {
+
+                return size() > MAX_RECORDED_IMAGES;
+            }
+        });
+        m_executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+            public Thread newThread(Runnable r) {
+
+                Thread thread = new Thread(r, "OpenCms: Image variant generation");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Records the scale parameters requested for an image.<p>
+     *
+     * @param rootPath the root path of the image
+     * @param parameters the requested scale parameters
+     */
+    public void addVariant(String rootPath, String parameters) {
+
+        synchronized (m_variants) {
+            Set<String> variants = m_variants.get(rootPath);
+            if (variants == null) {
+                variants = new LinkedHashSet<String>();
+                m_variants.put(rootPath, variants);
+            }
+            if (!variants.contains(parameters) && (variants.size() < MAX_RECORDED_VARIANTS)) {
+                variants.add(parameters);
+            }
+        }
+    }
+
+    /**
+     * Generates the variants of the images published with the given publish job in the background.<p>
+     *
+     * @param publishHistoryId the publish history id of the publish job
+     */
+    public void generateVariants(final CmsUUID publishHistoryId) {
+
+        try {
+            m_executor.execute(new Runnable() {
+
+                public void run() {
+
+                    generatePublishedVariants(publishHistoryId);
+                }
+            });
+        } catch (RuntimeException e) {
+            // generator has been shut down
+            LOG.debug(e.getLocalizedMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the presets, that is the scale parameters of the variants to generate for all images.<p>
+     *
+     * @return the presets
+     */
+    public List<String> getPresets() {
+
+        return m_presets;
+    }
+
+    /**
+     * Returns the scale parameters of the variants to generate for the given image.<p>
+     *
+     * @param rootPath the root path of the image
+     *
+     * @return the scale parameters of the variants to generate
+     */
+    public List<String> getVariants(String rootPath) {
+
+        Set<String> result = new LinkedHashSet<String>(m_presets);
+        synchronized (m_variants) {
+            Set<String> variants = m_variants.get(rootPath);
+            if (variants != null) {
+                result.addAll(variants);
+            }
+        }
+        return new ArrayList<String>(result);
+    }
+
+    /**
+     * Stops the generation of variants.<p>
+     */
+    public void shutdown() {
+
+        m_executor.shutdownNow();
+    }
+
+    /**
+     * Generates the variants of the images published with the given publish job.<p>
+     *
+     * @param publishHistoryId the publish history id of the publish job
+     */
+    protected void generatePublishedVariants(CmsUUID publishHistoryId) {
+
+        try {
+            // use the export user, like the static export does for published resources
+            CmsObject cms = OpenCms.initCmsObject(OpenCms.getDefaultUsers().getUserExport());
+            for (CmsPublishedResource pubRes : cms.readPublishedResources(publishHistoryId)) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                if (!pubRes.isFile()
+                    || pubRes.getState().isDeleted()
+                    || !isImage(pubRes.getType())
+                    || !cms.existsResource(pubRes.getStructureId(), CmsResourceFilter.DEFAULT)) {
+                    continue;
+                }
+                CmsResource resource = cms.readResource(pubRes.getStructureId(), CmsResourceFilter.DEFAULT);
+                for (String parameters : getVariants(resource.getRootPath())) {
+                    if (!generateVariant(cms, resource, parameters)) {
+                        // scaling threads are busy or shut down, the remaining variants are scaled on demand
+                        return;
+                    }
+                }
+            }
+        } catch (CmsException e) {
+            LOG.error(Messages.get().getBundle().key(Messages.LOG_IMAGE_VARIANTS_FAILED_1, publishHistoryId), e);
+        }
+    }
+
+    /**
+     * Generates a single variant of an image, if it is not already in the disk cache.<p>
+     *
+     * @param cms the current users OpenCms context
+     * @param resource the image resource
+     * @param parameters the scale parameters of the variant
+     *
+     * @return <code>false</code> if the variant could not be scheduled because the scaling threads are busy
+     */
+    private boolean generateVariant(CmsObject cms, CmsResource resource, String parameters) {
+
+        CmsImageScaler scaler = new CmsImageScaler(parameters);
+        if (!scaler.isValid() || (scaler.getWidth() > m_maxScaleSize) || (scaler.getHeight() > m_maxScaleSize)) {
+            // the image loader would not scale this variant either
+            return true;
+        }
+        scaler.setMaxBlurSize(m_maxBlurSize);
+        String cacheName = m_diskCache.getCacheName(resource, scaler.toString());
+        if (new File(cacheName).exists()) {
+            return true;
+        }
+        Future<byte[]> result = m_scalingExecutor.submit(
+            cacheName,
+            Integer.MAX_VALUE,
+            CmsImageLoader.createScalingTask(cms, resource, scaler, m_diskCache, cacheName));
+        if (result == null) {
+            return false;
+        }
+        try {
+            result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            LOG.warn(
+                Messages.get().getBundle().key(
+                    Messages.LOG_IMAGE_VARIANT_FAILED_2,
+                    resource.getRootPath(),
+                    scaler.toString()),
+                e);
+        }
+        return true;
+    }
+
+    /**
+     * Checks if resources of the given type are loaded by the image loader.<p>
+     *
+     * @param type the resource type id
+     *
+     * @return <code>true</code> if resources of the given type are images
+     */
+    private boolean isImage(int type) {
+
+        try {
+            int loaderId = OpenCms.getResourceManager().getResourceType(type).getLoaderId();
+            return loaderId == CmsImageLoader.RESOURCE_LOADER_ID_IMAGE_LOADER;
+        } catch (CmsException e) {
+            // unknown resource type
+            return false;
+        }
+    }
+}
@@ -166,6 +166,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String INIT_COLLECTOR_REPLACED_1 = "INIT_COLLECTOR_REPLACED_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_CONTENT_CACHE_2 = "INIT_CONTENT_CACHE_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String INIT_DUPLICATE_COLLECTOR_SKIPPED_1 = "INIT_DUPLICATE_COLLECTOR_SKIPPED_1";
 
@@ -178,6 +181,12 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String INIT_IMAGE_SCALING_ENABLED_1 = "INIT_IMAGE_SCALING_ENABLED_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_IMAGE_SCALING_PREGENERATE_2 = "INIT_IMAGE_SCALING_PREGENERATE_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_IMAGE_SCALING_THREADS_2 = "INIT_IMAGE_SCALING_THREADS_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String INIT_JSP_CACHE_SIZE_1 = "INIT_JSP_CACHE_SIZE_1";
 
@@ -217,6 +226,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_COLLECTOR_BAD_ORDER_NUMBER_1 = "LOG_COLLECTOR_BAD_ORDER_NUMBER_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_CONTENT_CACHE_SAVE_FAILED_1 = "LOG_CONTENT_CACHE_SAVE_FAILED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_CONTENT_COLLECTOR_CLASS_NOT_FOUND_1 = "LOG_CONTENT_COLLECTOR_CLASS_NOT_FOUND_1";
 
@@ -238,6 +250,18 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_IGNORING_EXC_1 = "LOG_IGNORING_EXC_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_IMAGE_SCALING_SATURATED_1 = "LOG_IMAGE_SCALING_SATURATED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_IMAGE_SCALING_TIMEOUT_2 = "LOG_IMAGE_SCALING_TIMEOUT_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_IMAGE_VARIANTS_FAILED_1 = "LOG_IMAGE_VARIANTS_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_IMAGE_VARIANT_FAILED_2 = "LOG_IMAGE_VARIANT_FAILED_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_JSP_PERMCHECK_4 = "LOG_JSP_PERMCHECK_4";
 
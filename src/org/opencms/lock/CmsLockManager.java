@@ -44,6 +44,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -126,11 +127,11 @@ public final class CmsLockManager {
         // handle collisions with exclusive locked sub-resources in case of a folder
         if (resource.isFolder() && newLock.getSystemLock().isUnlocked()) {
             String resourceName = resource.getRootPath();
-            Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getAllCachedLocks().iterator();
+            Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getAllCachedLocks(resourceName).iterator();
             while (itLocks.hasNext()) {
                 CmsLock lock = itLocks.next();
                 String lockedPath = lock.getResourceName();
-                if (lockedPath.startsWith(resourceName) && !lockedPath.equals(resourceName)) {
+                if (!lockedPath.equals(resourceName)) {
                     unlockResource(lockedPath, false);
                 }
             }
@@ -231,7 +232,7 @@ public final class CmsLockManager {
     throws CmsException {
 
         List<CmsResource> lockedResources = new ArrayList<CmsResource>();
-        Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getAllCachedLocks().iterator();
+        Iterator<CmsLock> itLocks = getCandidateLocks(resource.getRootPath(), filter).iterator();
         while (itLocks.hasNext()) {
             CmsLock lock = itLocks.next();
             CmsResource lockedResource;
@@ -283,7 +284,7 @@ public final class CmsLockManager {
         Map<String, CmsResource> cache) throws CmsException {
 
         List<CmsResource> lockedResources = new ArrayList<CmsResource>();
-        Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getAllCachedLocks().iterator();
+        Iterator<CmsLock> itLocks = getCandidateLocks(resource.getRootPath(), filter).iterator();
         while (itLocks.hasNext()) {
             CmsLock lock = itLocks.next();
             CmsResource lockedResource;
@@ -358,7 +359,7 @@ public final class CmsLockManager {
     public List<CmsLock> getLocks(CmsDbContext dbc, String resourceName, CmsLockFilter filter) throws CmsException {
 
         List<CmsLock> locks = new ArrayList<CmsLock>();
-        Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getAllCachedLocks().iterator();
+        Iterator<CmsLock> itLocks = getCandidateLocks(resourceName, filter).iterator();
         while (itLocks.hasNext()) {
             CmsLock lock = itLocks.next();
             if (filter.isSharedExclusive()) {
@@ -404,40 +405,12 @@ public final class CmsLockManager {
         if (resource == null) {
             return false;
         }
-        Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getAllCachedLocks().iterator();
+        // only the locks in the sub-tree of the resource can match
+        Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getAllCachedLocks(resource.getRootPath()).iterator();
         while (itLocks.hasNext()) {
             CmsLock lock = itLocks.next();
-            if (lock.getSystemLock().isUnlocked()) {
-                // only system locks matter here
-                continue;
-            }
-            if (lock.getResourceName().startsWith(resource.getRootPath())) {
-                if (lock.getResourceName().startsWith(resource.getRootPath())) {
-                    return true;
-                }
-                try {
-                    resource = m_driverManager.readResource(dbc, lock.getResourceName(), CmsResourceFilter.ALL);
-                } catch (CmsVfsResourceNotFoundException e) {
-                    OpenCms.getMemoryMonitor().uncacheLock(lock.getResourceName());
-                    continue;
-                }
-                CmsResource lockedResource;
-                try {
-                    lockedResource = m_driverManager.readResource(dbc, lock.getResourceName(), CmsResourceFilter.ALL);
-                } catch (CmsVfsResourceNotFoundException e) {
-                    OpenCms.getMemoryMonitor().uncacheLock(lock.getResourceName());
-                    continue;
-                }
-                if (lockedResource.getSiblingCount() > 1) {
-                    Iterator<CmsResource> itSiblings = internalReadSiblings(dbc, lockedResource).iterator();
-                    while (itSiblings.hasNext()) {
-                        CmsResource sibling = itSiblings.next();
-                        CmsLock siblingLock = internalSiblingLock(lock, sibling.getRootPath());
-                        if (siblingLock.getResourceName().startsWith(resource.getRootPath())) {
-                            return true;
-                        }
-                    }
-                }
+            if (!lock.getSystemLock().isUnlocked()) {
+                return true;
             }
         }
         return false;
@@ -576,10 +549,10 @@ public final class CmsLockManager {
             if (resource.isFolder()) {
                 // in case of a folder, remove any exclusive locks on sub-resources that probably have
                 // been upgraded from an inherited lock when the user edited a resource
-                Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getAllCachedLocks().iterator();
+                Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getAllCachedLocks(resourcename).iterator();
                 while (itLocks.hasNext()) {
                     String lockedPath = (itLocks.next()).getResourceName();
-                    if (lockedPath.startsWith(resourcename) && !lockedPath.equals(resourcename)) {
+                    if (!lockedPath.equals(resourcename)) {
                         // remove the exclusive locked sub-resource
                         unlockResource(lockedPath, false);
                     }
@@ -745,6 +718,42 @@ public final class CmsLockManager {
         }
     }
 
+    /**
+     * Returns the cached locks which may match the given lock filter for the given root path.<p>
+     *
+     * If the filter has to look at the siblings of the locked resources, all locks are returned,
+     * otherwise only the locks of the resource itself, of the resources below it and of its parent folders,
+     * depending on the filter settings.<p>
+     *
+     * @param rootPath the root path to match the locks against
+     * @param filter the lock filter
+     *
+     * @return the candidate locks
+     */
+    private List<CmsLock> getCandidateLocks(String rootPath, CmsLockFilter filter) {
+
+        if (filter.isSharedExclusive()) {
+            return OpenCms.getMemoryMonitor().getAllCachedLocks();
+        }
+        Map<String, CmsLock> candidates = new LinkedHashMap<String, CmsLock>();
+        if (filter.isIncludeChildren()) {
+            for (CmsLock lock : OpenCms.getMemoryMonitor().getAllCachedLocks(rootPath)) {
+                candidates.put(lock.getResourceName(), lock);
+            }
+        }
+        if (filter.isIncludeParent()) {
+            String folder = rootPath.endsWith("/") ? rootPath : CmsResource.getParentFolder(rootPath);
+            while (folder != null) {
+                CmsLock lock = OpenCms.getMemoryMonitor().getCachedLock(folder);
+                if (lock != null) {
+                    candidates.put(lock.getResourceName(), lock);
+                }
+                folder = CmsResource.getParentFolder(folder);
+            }
+        }
+        return new ArrayList<CmsLock>(candidates.values());
+    }
+
     /**
      * Returns the direct lock of a resource.<p>
      *
@@ -766,12 +775,11 @@ public final class CmsLockManager {
      */
     private CmsLock getParentFolderLock(String resourceName) {
 
-        Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getAllCachedLocks().iterator();
-        while (itLocks.hasNext()) {
-            CmsLock lock = itLocks.next();
-            if (lock.getResourceName().endsWith("/")
-                && resourceName.startsWith(lock.getResourceName())
-                && !resourceName.equals(lock.getResourceName())) {
+        // walk up the parent folders, since only folder locks are inherited
+        String parentFolder = CmsResource.getParentFolder(resourceName);
+        while (parentFolder != null) {
+            CmsLock lock = OpenCms.getMemoryMonitor().getCachedLock(parentFolder);
+            if (lock != null) {
                 // system locks does not get inherited
                 lock = lock.getEditionLock();
                 // check the lock
@@ -779,6 +787,7 @@ public final class CmsLockManager {
                     return lock;
                 }
             }
+            parentFolder = CmsResource.getParentFolder(parentFolder);
         }
         return CmsLock.getNullLock();
     }
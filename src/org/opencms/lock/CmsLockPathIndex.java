@@ -0,0 +1,210 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.lock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Path trie over the root paths of the cached resource locks.<p>
+ *
+ * The trie only stores the lock paths, the locks themselves are kept in the lock cache of the memory monitor.
+ * It allows to find the locks below a folder in time proportional to the path depth and the number of matching
+ * locks instead of the total number of locks.<p>
+ *
+ * Lookups are lock-free and may run concurrently to modifications, modifications are synchronized.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsLockPathIndex {
+
+    /**
+     * A node of the path trie.<p>
+     */
+    private static class Node {
+
+        /** The child nodes by path segment. */
+        final Map<String, Node> m_children = new ConcurrentHashMap<String, Node>();
+
+        /** The lock paths ending in this node, i.e. the file and the folder path variant. */
+        final Set<String> m_paths = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+        /**
+         * Collects the lock paths of this node and of all its descendants.<p>
+         *
+         * @param result the list to add the paths to
+         */
+        void collect(List<String> result) {
+
+            result.addAll(m_paths);
+            for (Node child : m_children.values()) {
+                child.collect(result);
+            }
+        }
+    }
+
+    /** The root node. */
+    private final Node m_root = new Node();
+
+    /** The number of indexed paths. */
+    private int m_size;
+
+    /**
+     * Adds a lock path to the index.<p>
+     *
+     * @param rootPath the root path of the lock
+     */
+    public synchronized void add(String rootPath) {
+
+        Node node = m_root;
+        for (String segment : getSegments(rootPath)) {
+            Node child = node.m_children.get(segment);
+            if (child == null) {
+                child = new Node();
+                node.m_children.put(segment, child);
+            }
+            node = child;
+        }
+        if (node.m_paths.add(rootPath)) {
+            m_size++;
+        }
+    }
+
+    /**
+     * Removes all paths from the index.<p>
+     */
+    public synchronized void clear() {
+
+        m_root.m_children.clear();
+        m_root.m_paths.clear();
+        m_size = 0;
+    }
+
+    /**
+     * Returns all indexed lock paths in the sub-tree of the given path.<p>
+     *
+     * For a folder path (ending with a slash) these are the paths of the folder itself and of all locks
+     * below the folder, for a file path this is only the path itself.<p>
+     *
+     * @param rootPath the root path to look up
+     *
+     * @return the matching lock paths
+     */
+    public List<String> getPathsInSubtree(String rootPath) {
+
+        List<String> result = new ArrayList<String>();
+        Node node = m_root;
+        for (String segment : getSegments(rootPath)) {
+            node = node.m_children.get(segment);
+            if (node == null) {
+                return result;
+            }
+        }
+        if (rootPath.endsWith("/") || (node == m_root)) {
+            node.collect(result);
+        } else {
+            // a file has no sub-resources, and a folder with the same name is not below it
+            if (node.m_paths.contains(rootPath)) {
+                result.add(rootPath);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes a lock path from the index.<p>
+     *
+     * Nodes which become empty are pruned from the trie.<p>
+     *
+     * @param rootPath the root path of the lock
+     */
+    public synchronized void remove(String rootPath) {
+
+        List<Node> nodes = new ArrayList<Node>();
+        List<String> segments = getSegments(rootPath);
+        Node node = m_root;
+        nodes.add(node);
+        for (String segment : segments) {
+            node = node.m_children.get(segment);
+            if (node == null) {
+                return;
+            }
+            nodes.add(node);
+        }
+        if (!node.m_paths.remove(rootPath)) {
+            return;
+        }
+        m_size--;
+        for (int i = segments.size(); i > 0; i--) {
+            Node current = nodes.get(i);
+            if (!current.m_paths.isEmpty() || !current.m_children.isEmpty()) {
+                break;
+            }
+            nodes.get(i - 1).m_children.remove(segments.get(i - 1));
+        }
+    }
+
+    /**
+     * Returns the number of indexed lock paths.<p>
+     *
+     * @return the number of indexed lock paths
+     */
+    public synchronized int size() {
+
+        return m_size;
+    }
+
+    /**
+     * Splits a root path into its non-empty path segments.<p>
+     *
+     * @param rootPath the root path
+     *
+     * @return the path segments
+     */
+    private List<String> getSegments(String rootPath) {
+
+        List<String> result = new ArrayList<String>();
+        int start = 0;
+        int length = rootPath.length();
+        while (start < length) {
+            int end = rootPath.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            if (end > start) {
+                result.add(rootPath.substring(start, end));
+            }
+            start = end + 1;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,481 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.main;
+
+import org.opencms.db.CmsResourceState;
+import org.opencms.file.CmsProperty;
+import org.opencms.file.CmsResource;
+import org.opencms.util.CmsUUID;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * An OpenCms event in the form it is sent between the nodes of a cluster.<p>
+ *
+ * The event data is stored in a restricted binary format, so that no objects other than the supported
+ * value types are ever created from the data received from the database. Supported values are
+ * <code>null</code>, strings, UUIDs, integers, longs, booleans, resources, properties and lists of these.
+ * The database context and the report of the originating node are dropped. If the data contains any
+ * other value, the event is sent as {@link I_CmsEventListener#EVENT_CLEAR_CACHES} instead.<p>
+ *
+ * Two cluster events are equal if they have the same type and the same serialized data,
+ * regardless of the node they originate from.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsClusterEvent {
+
+    /** The version of the data format. */
+    private static final byte FORMAT_VERSION = 1;
+
+    /** The static log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsClusterEvent.class);
+
+    /** Type tag for boolean values. */
+    private static final byte TYPE_BOOLEAN = 5;
+
+    /** Type tag for integer values. */
+    private static final byte TYPE_INTEGER = 3;
+
+    /** Type tag for lists. */
+    private static final byte TYPE_LIST = 6;
+
+    /** Type tag for long values. */
+    private static final byte TYPE_LONG = 4;
+
+    /** Type tag for <code>null</code> values. */
+    private static final byte TYPE_NULL = 0;
+
+    /** Type tag for properties. */
+    private static final byte TYPE_PROPERTY = 8;
+
+    /** Type tag for resources. */
+    private static final byte TYPE_RESOURCE = 7;
+
+    /** Type tag for strings. */
+    private static final byte TYPE_STRING = 1;
+
+    /** Type tag for UUIDs. */
+    private static final byte TYPE_UUID = 2;
+
+    /** The serialized event data. */
+    private byte[] m_data;
+
+    /** The id of the node the event originates from. */
+    private String m_nodeId;
+
+    /** The event type. */
+    private int m_type;
+
+    /**
+     * Creates a new cluster event.<p>
+     *
+     * @param type the event type
+     * @param data the serialized event data
+     * @param nodeId the id of the node the event originates from
+     */
+    public CmsClusterEvent(int type, byte[] data, String nodeId) {
+
+        m_type = type;
+        m_data = data;
+        m_nodeId = nodeId;
+    }
+
+    /**
+     * Creates a cluster event for the given local event.<p>
+     *
+     * If the event data contains values that can not be sent to the other nodes,
+     * a cluster event of type {@link I_CmsEventListener#EVENT_CLEAR_CACHES} is returned.<p>
+     *
+     * @param event the local event
+     * @param nodeId the id of the local node
+     *
+     * @return the cluster event
+     */
+    public static CmsClusterEvent fromEvent(CmsEvent event, String nodeId) {
+
+        byte[] data = serializeData(event.getData());
+        if (data == null) {
+            return new CmsClusterEvent(
+                I_CmsEventListener.EVENT_CLEAR_CACHES,
+                serializeData(new HashMap<String, Object>()),
+                nodeId);
+        }
+        return new CmsClusterEvent(event.getType(), data, nodeId);
+    }
+
+    /**
+     * Deserializes the given event data.<p>
+     *
+     * @param data the serialized event data
+     *
+     * @return the event data
+     *
+     * @throws IOException if the data is invalid
+     */
+    protected static Map<String, Object> deserializeData(byte[] data) throws IOException {
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (in.readByte() != FORMAT_VERSION) {
+            throw new IOException();
+        }
+        int size = in.readInt();
+        if ((size < 0) || (size > data.length)) {
+            throw new IOException();
+        }
+        Map<String, Object> result = new HashMap<String, Object>();
+        for (int i = 0; i < size; i++) {
+            String key = in.readUTF();
+            result.put(key, readValue(in, true));
+        }
+        if (in.read() != -1) {
+            throw new IOException();
+        }
+        return result;
+    }
+
+    /**
+     * Serializes the given event data.<p>
+     *
+     * The database context and the report are dropped.<p>
+     *
+     * @param data the event data
+     *
+     * @return the serialized event data, or <code>null</code> if the data contains values that can not be serialized
+     */
+    protected static byte[] serializeData(Map<String, Object> data) {
+
+        Map<String, Object> values = new HashMap<String, Object>();
+        if (data != null) {
+            for (Map.Entry<String, Object> entry : data.entrySet()) {
+                String key = entry.getKey();
+                if (!I_CmsEventListener.KEY_DBCONTEXT.equals(key) && !I_CmsEventListener.KEY_REPORT.equals(key)) {
+                    values.put(key, entry.getValue());
+                }
+            }
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(FORMAT_VERSION);
+            out.writeInt(values.size());
+            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                out.writeUTF(entry.getKey());
+                if (!writeValue(out, entry.getValue(), true)) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug(
+                            Messages.get().getBundle().key(
+                                Messages.LOG_CLUSTER_EVENT_VALUE_UNSUPPORTED_2,
+                                entry.getKey(),
+                                entry.getValue().getClass().getName()));
+                    }
+                    return null;
+                }
+            }
+            out.close();
+        } catch (IOException e) {
+            // can not happen when writing to a byte array
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads a UUID written by {@link #writeUUID(DataOutputStream, CmsUUID)}.<p>
+     *
+     * @param in the input to read from
+     *
+     * @return the UUID
+     *
+     * @throws IOException if the data is invalid
+     */
+    private static CmsUUID readUUID(DataInputStream in) throws IOException {
+
+        if (!in.readBoolean()) {
+            return null;
+        }
+        byte[] bytes = new byte[16];
+        in.readFully(bytes);
+        return new CmsUUID(bytes);
+    }
+
+    /**
+     * Reads a value written by {@link #writeValue(DataOutputStream, Object, boolean)}.<p>
+     *
+     * @param in the input to read from
+     * @param allowList if lists are allowed, lists can not be nested
+     *
+     * @return the value
+     *
+     * @throws IOException if the data is invalid
+     */
+    private static Object readValue(DataInputStream in, boolean allowList) throws IOException {
+
+        byte type = in.readByte();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_STRING:
+                return in.readUTF();
+            case TYPE_UUID:
+                return readUUID(in);
+            case TYPE_INTEGER:
+                return Integer.valueOf(in.readInt());
+            case TYPE_LONG:
+                return Long.valueOf(in.readLong());
+            case TYPE_BOOLEAN:
+                return Boolean.valueOf(in.readBoolean());
+            case TYPE_LIST:
+                if (allowList) {
+                    int size = in.readInt();
+                    if ((size >= 0) && (size <= in.available())) {
+                        List<Object> list = new ArrayList<Object>(size);
+                        for (int i = 0; i < size; i++) {
+                            list.add(readValue(in, false));
+                        }
+                        return list;
+                    }
+                }
+                break;
+            case TYPE_RESOURCE:
+                return new CmsResource(
+                    readUUID(in),
+                    readUUID(in),
+                    in.readUTF(),
+                    in.readInt(),
+                    in.readBoolean(),
+                    in.readInt(),
+                    readUUID(in),
+                    CmsResourceState.valueOf(in.readInt()),
+                    in.readLong(),
+                    readUUID(in),
+                    in.readLong(),
+                    readUUID(in),
+                    in.readLong(),
+                    in.readLong(),
+                    in.readInt(),
+                    in.readInt(),
+                    in.readLong(),
+                    in.readInt());
+            case TYPE_PROPERTY:
+                return new CmsProperty(in.readUTF(), (String)readValue(in, false), (String)readValue(in, false));
+            default:
+                break;
+        }
+        throw new IOException();
+    }
+
+    /**
+     * Writes a UUID, which may be <code>null</code>.<p>
+     *
+     * @param out the output to write to
+     * @param uuid the UUID
+     *
+     * @throws IOException if writing fails
+     */
+    private static void writeUUID(DataOutputStream out, CmsUUID uuid) throws IOException {
+
+        out.writeBoolean(uuid != null);
+        if (uuid != null) {
+            out.write(uuid.toByteArray());
+        }
+    }
+
+    /**
+     * Writes a value of one of the supported types.<p>
+     *
+     * @param out the output to write to
+     * @param value the value
+     * @param allowList if lists are allowed, lists can not be nested
+     *
+     * @return <code>false</code> if the value is not supported
+     *
+     * @throws IOException if writing fails
+     */
+    private static boolean writeValue(DataOutputStream out, Object value, boolean allowList) throws IOException {
+
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+        } else if ((value instanceof String) && (((String)value).length() < 16384)) {
+            // writeUTF is limited to 64 KB
+            out.writeByte(TYPE_STRING);
+            out.writeUTF((String)value);
+        } else if (value instanceof CmsUUID) {
+            out.writeByte(TYPE_UUID);
+            writeUUID(out, (CmsUUID)value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TYPE_INTEGER);
+            out.writeInt(((Integer)value).intValue());
+        } else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong(((Long)value).longValue());
+        } else if (value instanceof Boolean) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean(((Boolean)value).booleanValue());
+        } else if (allowList && (value instanceof List)) {
+            List<?> list = (List<?>)value;
+            out.writeByte(TYPE_LIST);
+            out.writeInt(list.size());
+            for (Object element : list) {
+                if (!writeValue(out, element, false)) {
+                    return false;
+                }
+            }
+        } else if (value instanceof CmsResource) {
+            // files are sent without their content
+            CmsResource resource = (CmsResource)value;
+            out.writeByte(TYPE_RESOURCE);
+            writeUUID(out, resource.getStructureId());
+            writeUUID(out, resource.getResourceId());
+            out.writeUTF(resource.getRootPath());
+            out.writeInt(resource.getTypeId());
+            out.writeBoolean(resource.isFolder());
+            out.writeInt(resource.getFlags());
+            writeUUID(out, resource.getProjectLastModified());
+            out.writeInt(resource.getState().getState());
+            out.writeLong(resource.getDateCreated());
+            writeUUID(out, resource.getUserCreated());
+            out.writeLong(resource.getDateLastModified());
+            writeUUID(out, resource.getUserLastModified());
+            out.writeLong(resource.getDateReleased());
+            out.writeLong(resource.getDateExpired());
+            out.writeInt(resource.getSiblingCount());
+            out.writeInt(resource.getLength());
+            out.writeLong(resource.getDateContent());
+            out.writeInt(resource.getVersion());
+        } else if (value instanceof CmsProperty) {
+            CmsProperty property = (CmsProperty)value;
+            out.writeByte(TYPE_PROPERTY);
+            out.writeUTF(property.getName());
+            return writeValue(out, property.getStructureValue(), false)
+                && writeValue(out, property.getResourceValue(), false);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+
+        if (obj == this) {
+            return true;
+        }
+        if (obj instanceof CmsClusterEvent) {
+            CmsClusterEvent other = (CmsClusterEvent)obj;
+            return (m_type == other.m_type) && Arrays.equals(m_data, other.m_data);
+        }
+        return false;
+    }
+
+    /**
+     * Returns the serialized event data.<p>
+     *
+     * @return the serialized event data
+     */
+    public byte[] getData() {
+
+        return m_data;
+    }
+
+    /**
+     * Returns the id of the node the event originates from.<p>
+     *
+     * @return the id of the node the event originates from
+     */
+    public String getNodeId() {
+
+        return m_nodeId;
+    }
+
+    /**
+     * Returns the event type.<p>
+     *
+     * @return the event type
+     */
+    public int getType() {
+
+        return m_type;
+    }
+
+    /**
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+
+        return (31 * m_type) + Arrays.hashCode(m_data);
+    }
+
+    /**
+     * Creates the local event for this cluster event.<p>
+     *
+     * If the event data can not be read, an event of type {@link I_CmsEventListener#EVENT_CLEAR_CACHES}
+     * is returned, since the listeners could not do their work for the original event without its data.<p>
+     *
+     * @return the local event
+     */
+    public CmsEvent toEvent() {
+
+        Map<String, Object> data = new HashMap<String, Object>();
+        if ((m_data != null) && (m_data.length > 0)) {
+            try {
+                data = deserializeData(m_data);
+            } catch (Exception e) {
+                LOG.error(
+                    Messages.get().getBundle().key(Messages.LOG_CLUSTER_EVENT_DATA_INVALID_2, new Integer(m_type), m_nodeId),
+                    e);
+                return new CmsEvent(I_CmsEventListener.EVENT_CLEAR_CACHES, new HashMap<String, Object>());
+            }
+        }
+        return new CmsEvent(m_type, data);
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+
+        return "[CmsClusterEvent type: " + m_type + ", node: " + m_nodeId + "]";
+    }
+}
@@ -0,0 +1,413 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.main;
+
+import org.opencms.configuration.CmsConfigurationException;
+import org.opencms.configuration.CmsParameterConfiguration;
+import org.opencms.configuration.I_CmsConfigurationParameterHandler;
+import org.opencms.db.CmsJdbcEventTransport;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Event manager that distributes selected events to the other OpenCms nodes of a cluster.<p>
+ *
+ * Events are always fired to the local listeners first. Events of the distributed types are then
+ * queued and sent to the other nodes in batches by a background thread, using the configured
+ * {@link I_CmsEventTransport}. Identical events in a batch are sent only once. Events received from
+ * other nodes are fired to the local listeners, but never sent again.<p>
+ *
+ * The publish event of the local node carries the database context and the report of the publish job,
+ * so it is sent as {@link I_CmsEventListener#EVENT_CLEAR_CACHES} to the other nodes.
+ * If events are lost because the queue is full or the transport failed,
+ * {@link I_CmsEventListener#EVENT_CLEAR_CACHES} is sent as well, so the other nodes never keep stale caches.<p>
+ *
+ * The manager is configured in <code>opencms-system.xml</code>:
+ * <pre>
+ * &lt;eventmanager class="org.opencms.main.CmsClusterEventManager"&gt;
+ *     &lt;param name="transport"&gt;org.opencms.db.CmsJdbcEventTransport&lt;/param&gt;
+ *     &lt;param name="interval"&gt;2000&lt;/param&gt;
+ * &lt;/eventmanager&gt;
+ * </pre>
+ * All parameters are passed to the transport as well.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsClusterEventManager extends CmsEventManager implements I_CmsConfigurationParameterHandler {
+
+    /** Parameter for the comma separated list of distributed event types. */
+    public static final String PARAM_EVENTS = "events";
+
+    /** Parameter for the interval in milliseconds used to send and receive events, 0 disables the background thread. */
+    public static final String PARAM_INTERVAL = "interval";
+
+    /** Parameter for the maximum number of queued events. */
+    public static final String PARAM_MAX_QUEUE = "maxqueue";
+
+    /** Parameter for the unique node id, by default a new id is generated for each start. */
+    public static final String PARAM_NODE = "node";
+
+    /** Parameter for the transport class name. */
+    public static final String PARAM_TRANSPORT = "transport";
+
+    /** The event types distributed by default. */
+    private static final int[] DEFAULT_EVENTS = {
+        I_CmsEventListener.EVENT_CLEAR_CACHES,
+        I_CmsEventListener.EVENT_CLEAR_OFFLINE_CACHES,
+        I_CmsEventListener.EVENT_CLEAR_ONLINE_CACHES,
+        I_CmsEventListener.EVENT_CLEAR_PRINCIPAL_CACHES,
+        I_CmsEventListener.EVENT_FLEX_CACHE_CLEAR,
+        I_CmsEventListener.EVENT_FLEX_PURGE_JSP_REPOSITORY,
+        I_CmsEventListener.EVENT_GROUP_MODIFIED,
+        I_CmsEventListener.EVENT_OU_MODIFIED,
+        I_CmsEventListener.EVENT_PROJECT_MODIFIED,
+        I_CmsEventListener.EVENT_PROPERTY_DEFINITION_CREATED,
+        I_CmsEventListener.EVENT_PROPERTY_DEFINITION_MODIFIED,
+        I_CmsEventListener.EVENT_PROPERTY_MODIFIED,
+        I_CmsEventListener.EVENT_PUBLISH_PROJECT,
+        I_CmsEventListener.EVENT_RESOURCE_AND_PROPERTIES_MODIFIED,
+        I_CmsEventListener.EVENT_RESOURCE_COPIED,
+        I_CmsEventListener.EVENT_RESOURCE_CREATED,
+        I_CmsEventListener.EVENT_RESOURCE_DELETED,
+        I_CmsEventListener.EVENT_RESOURCE_MODIFIED,
+        I_CmsEventListener.EVENT_RESOURCE_MOVED,
+        I_CmsEventListener.EVENT_RESOURCES_AND_PROPERTIES_MODIFIED,
+        I_CmsEventListener.EVENT_RESOURCES_MODIFIED,
+        I_CmsEventListener.EVENT_USER_MODIFIED};
+
+    /** The default interval in milliseconds. */
+    private static final int DEFAULT_INTERVAL = 2000;
+
+    /** The default maximum number of queued events. */
+    private static final int DEFAULT_MAX_QUEUE = 10000;
+
+    /** The static log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsClusterEventManager.class);
+
+    /** The configuration parameters. */
+    private CmsParameterConfiguration m_configuration;
+
+    /** The distributed event types. */
+    private Set<Integer> m_events;
+
+    /** The background thread that sends and receives the events. */
+    private ScheduledExecutorService m_executor;
+
+    /** Flag indicating that events were lost and the other nodes must clear their caches. */
+    private volatile boolean m_eventsLost;
+
+    /** The maximum number of queued events. */
+    private int m_maxQueue;
+
+    /** The id of this node. */
+    private String m_nodeId;
+
+    /** The queued events that have to be sent to the other nodes. */
+    private ConcurrentLinkedQueue<CmsEvent> m_queue;
+
+    /** The number of queued events. */
+    private AtomicInteger m_queueSize;
+
+    /** Flag set for the thread that fires events received from other nodes. */
+    private ThreadLocal<Boolean> m_receiving;
+
+    /** The event transport. */
+    private I_CmsEventTransport m_transport;
+
+    /**
+     * Creates a new cluster event manager.<p>
+     */
+    public CmsClusterEventManager() {
+
+        m_configuration = new CmsParameterConfiguration();
+        m_queue = new ConcurrentLinkedQueue<CmsEvent>();
+        m_queueSize = new AtomicInteger();
+        m_receiving = new ThreadLocal<Boolean>();
+    }
+
+    /**
+     * @see org.opencms.configuration.I_CmsConfigurationParameterHandler#addConfigurationParameter(java.lang.String, java.lang.String)
+     */
+    public void addConfigurationParameter(String paramName, String paramValue) {
+
+        m_configuration.add(paramName, paramValue);
+    }
+
+    /**
+     * @see org.opencms.main.CmsEventManager#fireEvent(org.opencms.main.CmsEvent)
+     */
+    @Override
+    public void fireEvent(CmsEvent event) {
+
+        super.fireEvent(event);
+        if ((m_events != null) && m_events.contains(event.getTypeInteger()) && (m_receiving.get() == null)) {
+            if (m_queueSize.incrementAndGet() > m_maxQueue) {
+                // the transport can't keep up, the other nodes have to clear their caches instead
+                m_queueSize.decrementAndGet();
+                if (!m_eventsLost) {
+                    LOG.warn(Messages.get().getBundle().key(Messages.LOG_CLUSTER_QUEUE_FULL_1, new Integer(m_maxQueue)));
+                    m_eventsLost = true;
+                }
+            } else {
+                m_queue.add(event);
+            }
+        }
+    }
+
+    /**
+     * @see org.opencms.configuration.I_CmsConfigurationParameterHandler#getConfiguration()
+     */
+    public CmsParameterConfiguration getConfiguration() {
+
+        return m_configuration;
+    }
+
+    /**
+     * Returns the id of this node.<p>
+     *
+     * @return the id of this node
+     */
+    public String getNodeId() {
+
+        return m_nodeId;
+    }
+
+    /**
+     * Returns the number of events waiting to be sent to the other nodes.<p>
+     *
+     * @return the number of queued events
+     */
+    public int getQueueSize() {
+
+        return m_queueSize.get();
+    }
+
+    /**
+     * @see org.opencms.configuration.I_CmsConfigurationParameterHandler#initConfiguration()
+     */
+    public void initConfiguration() throws CmsConfigurationException {
+
+        m_maxQueue = m_configuration.getInteger(PARAM_MAX_QUEUE, DEFAULT_MAX_QUEUE);
+        m_nodeId = m_configuration.getString(PARAM_NODE, new CmsUUID().toString());
+        List<String> events = m_configuration.getList(PARAM_EVENTS, Collections.<String> emptyList());
+        Set<Integer> eventTypes = new HashSet<Integer>();
+        if (events.isEmpty()) {
+            for (int type : DEFAULT_EVENTS) {
+                eventTypes.add(Integer.valueOf(type));
+            }
+        } else {
+            for (String type : events) {
+                try {
+                    eventTypes.add(Integer.valueOf(type.trim()));
+                } catch (NumberFormatException e) {
+                    throw new CmsConfigurationException(
+                        Messages.get().container(Messages.ERR_CLUSTER_INVALID_EVENT_TYPE_1, type),
+                        e);
+                }
+            }
+        }
+        m_events = eventTypes;
+    }
+
+    /**
+     * Initializes the cluster communication with the given transport.<p>
+     *
+     * If the configured interval is greater than 0, a background thread is started that sends
+     * and receives the events, otherwise {@link #processEvents()} has to be called.<p>
+     *
+     * @param transport the event transport
+     *
+     * @throws Exception if the transport can not be initialized
+     */
+    public synchronized void initializeCluster(I_CmsEventTransport transport) throws Exception {
+
+        if (m_events == null) {
+            initConfiguration();
+        }
+        transport.initialize(m_nodeId, m_configuration);
+        m_transport = transport;
+        int interval = m_configuration.getInteger(PARAM_INTERVAL, DEFAULT_INTERVAL);
+        if (CmsLog.INIT.isInfoEnabled()) {
+            CmsLog.INIT.info(
+                Messages.get().getBundle().key(
+                    Messages.INIT_CLUSTER_EVENTS_3,
+                    m_nodeId,
+                    transport.getClass().getName(),
+                    new Integer(interval)));
+        }
+        if (interval > 0) {
+            m_executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+                public Thread newThread(Runnable r) {
+
+                    Thread thread = new Thread(r, "OpenCms: Cluster events");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            m_executor.scheduleWithFixedDelay(new Runnable() {
+
+                public void run() {
+
+                    processEvents();
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sends the queued events to the other nodes and fires the events received from the other nodes.<p>
+     */
+    public void processEvents() {
+
+        I_CmsEventTransport transport = m_transport;
+        if ((transport == null) || !transport.isAvailable()) {
+            return;
+        }
+        try {
+            sendEvents(transport);
+        } catch (Throwable t) {
+            m_eventsLost = true;
+            LOG.error(Messages.get().getBundle().key(Messages.LOG_CLUSTER_SEND_FAILED_1, m_nodeId), t);
+        }
+        List<CmsClusterEvent> received;
+        try {
+            received = transport.receive();
+        } catch (Throwable t) {
+            LOG.error(Messages.get().getBundle().key(Messages.LOG_CLUSTER_RECEIVE_FAILED_1, m_nodeId), t);
+            return;
+        }
+        m_receiving.set(Boolean.TRUE);
+        try {
+            for (CmsClusterEvent clusterEvent : received) {
+                try {
+                    super.fireEvent(clusterEvent.toEvent());
+                } catch (Throwable t) {
+                    LOG.error(
+                        Messages.get().getBundle().key(Messages.LOG_CLUSTER_DISPATCH_FAILED_1, clusterEvent),
+                        t);
+                }
+            }
+        } finally {
+            m_receiving.remove();
+        }
+    }
+
+    /**
+     * @see org.opencms.main.CmsEventManager#shutdown()
+     */
+    @Override
+    public synchronized void shutdown() {
+
+        if (m_executor != null) {
+            m_executor.shutdownNow();
+            m_executor = null;
+        }
+        if (m_transport != null) {
+            // send the remaining events
+            processEvents();
+            m_transport.shutdown();
+            m_transport = null;
+        }
+        super.shutdown();
+    }
+
+    /**
+     * Initializes this event manager with the events from the given base event manager
+     * and starts the cluster communication with the configured transport.<p>
+     *
+     * @see org.opencms.main.CmsEventManager#initialize(org.opencms.main.CmsEventManager)
+     */
+    @Override
+    protected void initialize(CmsEventManager base) {
+
+        super.initialize(base);
+        String className = m_configuration.getString(PARAM_TRANSPORT, CmsJdbcEventTransport.class.getName());
+        try {
+            initializeCluster((I_CmsEventTransport)Class.forName(className).newInstance());
+        } catch (Throwable t) {
+            // the node can still run, but it will not be informed about changes on other nodes
+            LOG.error(Messages.get().getBundle().key(Messages.LOG_CLUSTER_INIT_FAILED_1, className), t);
+        }
+    }
+
+    /**
+     * Sends the queued events to the other nodes.<p>
+     *
+     * @param transport the transport to use
+     *
+     * @throws Exception if sending the events fails
+     */
+    private void sendEvents(I_CmsEventTransport transport) throws Exception {
+
+        // identical events are sent only once, the order of the first occurrences is kept
+        Set<CmsClusterEvent> batch = new LinkedHashSet<CmsClusterEvent>();
+        boolean eventsLost = m_eventsLost;
+        m_eventsLost = false;
+        CmsEvent event;
+        while ((event = m_queue.poll()) != null) {
+            m_queueSize.decrementAndGet();
+            if (event.getType() == I_CmsEventListener.EVENT_PUBLISH_PROJECT) {
+                // the publish event only makes sense with the database context and report of this node
+                event = new CmsEvent(I_CmsEventListener.EVENT_CLEAR_CACHES, new HashMap<String, Object>());
+            }
+            batch.add(CmsClusterEvent.fromEvent(event, m_nodeId));
+        }
+        if (eventsLost) {
+            batch.add(
+                CmsClusterEvent.fromEvent(
+                    new CmsEvent(I_CmsEventListener.EVENT_CLEAR_CACHES, new HashMap<String, Object>()),
+                    m_nodeId));
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transport.send(new ArrayList<CmsClusterEvent>(batch));
+        } catch (Exception e) {
+            // the events are lost, make sure the other nodes clear their caches with the next batch
+            m_eventsLost = true;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.main;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Bounded queue that delivers events to an asynchronous event listener in a separate thread.<p>
+ *
+ * The events are delivered in the order they were added. If the queue is full, {@link #add(CmsEvent)}
+ * blocks until the listener has processed an event, unless it is called by the listener thread itself.<p>
+ *
+ * @since 10.5.0
+ *
+ * @see I_CmsAsyncEventListener
+ */
+public class CmsEventListenerQueue implements Runnable, I_CmsEventListenerQueueMXBean {
+
+    /** The default maximum number of events in the queue. */
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    /** The time to wait for the remaining events to be processed on shutdown. */
+    private static final long SHUTDOWN_TIMEOUT = 10000;
+
+    /** The static log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsEventListenerQueue.class);
+
+    /** The number of events that had to wait because the queue was full. */
+    private AtomicLong m_blockedCount;
+
+    /** The maximum number of events in the queue. */
+    private int m_capacity;
+
+    /** The number of events that caused an error. */
+    private AtomicLong m_errorCount;
+
+    /** The number of processed events. */
+    private AtomicLong m_eventCount;
+
+    /** The queued events. */
+    private ArrayDeque<CmsEvent> m_events;
+
+    /** The listener. */
+    private I_CmsEventListener m_listener;
+
+    /** The maximum processing time in nanoseconds. */
+    private AtomicLong m_maxLatency;
+
+    /** Flag indicating that the queue has been shut down. */
+    private boolean m_shutdown;
+
+    /** The thread delivering the events. */
+    private Thread m_thread;
+
+    /** The total processing time in nanoseconds. */
+    private AtomicLong m_totalLatency;
+
+    /**
+     * Creates a new event queue for the given listener and starts the listener thread.<p>
+     *
+     * @param listener the listener
+     * @param capacity the maximum number of events in the queue
+     */
+    public CmsEventListenerQueue(I_CmsEventListener listener, int capacity) {
+
+        m_listener = listener;
+        m_capacity = Math.max(1, capacity);
+        m_events = new ArrayDeque<CmsEvent>();
+        m_blockedCount = new AtomicLong();
+        m_errorCount = new AtomicLong();
+        m_eventCount = new AtomicLong();
+        m_maxLatency = new AtomicLong();
+        m_totalLatency = new AtomicLong();
+        m_thread = new Thread(this, "OpenCms: Event listener " + listener.getClass().getName());
+        m_thread.setDaemon(true);
+        m_thread.start();
+    }
+
+    /**
+     * Adds an event to the queue.<p>
+     *
+     * If the queue has already been shut down, the event is delivered on the calling thread.<p>
+     *
+     * @param event the event to add
+     */
+    public void add(CmsEvent event) {
+
+        synchronized (this) {
+            if (!m_shutdown) {
+                // the listener thread must not wait for itself
+                if ((m_events.size() >= m_capacity) && (Thread.currentThread() != m_thread)) {
+                    m_blockedCount.incrementAndGet();
+                    try {
+                        while ((m_events.size() >= m_capacity) && !m_shutdown) {
+                            wait();
+                        }
+                    } catch (InterruptedException e) {
+                        // don't lose the event, just exceed the capacity
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                m_events.add(event);
+                notifyAll();
+                return;
+            }
+        }
+        process(event);
+    }
+
+    /**
+     * @see org.opencms.main.I_CmsEventListenerQueueMXBean#getAverageLatency()
+     */
+    public double getAverageLatency() {
+
+        long count = m_eventCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        return (m_totalLatency.get() / (double)count) / 1000000;
+    }
+
+    /**
+     * @see org.opencms.main.I_CmsEventListenerQueueMXBean#getBlockedCount()
+     */
+    public long getBlockedCount() {
+
+        return m_blockedCount.get();
+    }
+
+    /**
+     * @see org.opencms.main.I_CmsEventListenerQueueMXBean#getCapacity()
+     */
+    public int getCapacity() {
+
+        return m_capacity;
+    }
+
+    /**
+     * @see org.opencms.main.I_CmsEventListenerQueueMXBean#getErrorCount()
+     */
+    public long getErrorCount() {
+
+        return m_errorCount.get();
+    }
+
+    /**
+     * @see org.opencms.main.I_CmsEventListenerQueueMXBean#getEventCount()
+     */
+    public long getEventCount() {
+
+        return m_eventCount.get();
+    }
+
+    /**
+     * Returns the listener of this queue.<p>
+     *
+     * @return the listener
+     */
+    public I_CmsEventListener getListener() {
+
+        return m_listener;
+    }
+
+    /**
+     * @see org.opencms.main.I_CmsEventListenerQueueMXBean#getListenerName()
+     */
+    public String getListenerName() {
+
+        return m_listener.getClass().getName();
+    }
+
+    /**
+     * @see org.opencms.main.I_CmsEventListenerQueueMXBean#getMaxLatency()
+     */
+    public long getMaxLatency() {
+
+        return TimeUnit.NANOSECONDS.toMillis(m_maxLatency.get());
+    }
+
+    /**
+     * @see org.opencms.main.I_CmsEventListenerQueueMXBean#getQueueSize()
+     */
+    public synchronized int getQueueSize() {
+
+        return m_events.size();
+    }
+
+    /**
+     * @see org.opencms.main.I_CmsEventListenerQueueMXBean#reset()
+     */
+    public void reset() {
+
+        m_blockedCount.set(0);
+        m_errorCount.set(0);
+        m_eventCount.set(0);
+        m_maxLatency.set(0);
+        m_totalLatency.set(0);
+    }
+
+    /**
+     * Delivers the queued events to the listener until the queue is shut down.<p>
+     *
+     * @see java.lang.Runnable#run()
+     */
+    public void run() {
+
+        while (true) {
+            CmsEvent event;
+            synchronized (this) {
+                while (m_events.isEmpty() && !m_shutdown) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // continue until the queue is shut down
+                    }
+                }
+                if (m_events.isEmpty()) {
+                    // shut down and all events delivered
+                    return;
+                }
+                event = m_events.poll();
+                notifyAll();
+            }
+            process(event);
+        }
+    }
+
+    /**
+     * Shuts down this queue.<p>
+     *
+     * Waits until the events remaining in the queue have been delivered to the listener.<p>
+     */
+    public void shutdown() {
+
+        synchronized (this) {
+            m_shutdown = true;
+            notifyAll();
+        }
+        if (Thread.currentThread() != m_thread) {
+            try {
+                m_thread.join(SHUTDOWN_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (m_thread.isAlive()) {
+                LOG.warn(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_EVENT_QUEUE_SHUTDOWN_TIMEOUT_2,
+                        getListenerName(),
+                        new Integer(getQueueSize())));
+            }
+        }
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+
+        return "[" + getClass().getName() + ": " + getListenerName() + ", size " + getQueueSize() + "]";
+    }
+
+    /**
+     * Delivers an event to the listener and records the processing time.<p>
+     *
+     * @param event the event to deliver
+     */
+    private void process(CmsEvent event) {
+
+        long start = System.nanoTime();
+        try {
+            m_listener.cmsEvent(event);
+        } catch (Throwable t) {
+            m_errorCount.incrementAndGet();
+            LOG.error(
+                Messages.get().getBundle().key(Messages.LOG_EVENT_LISTENER_FAILED_2, getListenerName(), event),
+                t);
+        }
+        long latency = System.nanoTime() - start;
+        m_eventCount.incrementAndGet();
+        m_totalLatency.addAndGet(latency);
+        long max = m_maxLatency.get();
+        while ((latency > max) && !m_maxLatency.compareAndSet(max, latency)) {
+            max = m_maxLatency.get();
+        }
+    }
+}
@@ -27,11 +27,17 @@
 
 package org.opencms.main;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.apache.commons.logging.Log;
 
@@ -44,6 +50,10 @@ import org.apache.commons.logging.Log;
  * Events can be used in OpenCms to notify custom event listeners that certain system events have happened.
  * Event listeners have to implement the interface {@link org.opencms.main.I_CmsEventListener}.<p>
  *
+ * Listeners are called on the thread that fires the event, except for listeners implementing
+ * {@link org.opencms.main.I_CmsAsyncEventListener}, which get the events through a
+ * {@link org.opencms.main.CmsEventListenerQueue}.<p>
+ *
  * @since 7.0.0
  *
  * @see org.opencms.main.CmsEvent
@@ -54,18 +64,35 @@ public class CmsEventManager {
     /** Required as template for event list generation. */
     protected static final I_CmsEventListener[] EVENT_LIST = new I_CmsEventListener[0];
 
+    /** The JMX object name prefix for the event listener queues. */
+    private static final String JMX_EVENT_LISTENER_QUEUE = "org.opencms:type=EventListenerQueue,name=";
+
     /** The static log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsEventManager.class);
 
+    /** Counter used to distinguish the JMX object names of queues for listeners of the same class. */
+    private static final AtomicInteger QUEUE_COUNTER = new AtomicInteger();
+
     /** Stores the active event listeners. */
     private Map<Integer, List<I_CmsEventListener>> m_eventListeners;
 
+    /** The event queues of the asynchronous event listeners. */
+    private Map<I_CmsEventListener, CmsEventListenerQueue> m_listenerQueues;
+
+    /** The JMX object names of the event queues. */
+    private Map<CmsEventListenerQueue, ObjectName> m_queueNames;
+
+    /** Indicates if this event manager has been shut down. */
+    private volatile boolean m_shutdown;
+
     /**
      * Create a new instance of an OpenCms event manager.<p>
      */
     public CmsEventManager() {
 
         m_eventListeners = new HashMap<Integer, List<I_CmsEventListener>>();
+        m_listenerQueues = new ConcurrentHashMap<I_CmsEventListener, CmsEventListenerQueue>();
+        m_queueNames = new ConcurrentHashMap<CmsEventListenerQueue, ObjectName>();
     }
 
     /**
@@ -139,6 +166,18 @@ public class CmsEventManager {
         fireEvent(new CmsEvent(type, data));
     }
 
+    /**
+     * Returns the event queues of the asynchronous event listeners.<p>
+     *
+     * The queues provide the current queue size and the processing times of the listeners.<p>
+     *
+     * @return the event queues of the asynchronous event listeners
+     */
+    public List<CmsEventListenerQueue> getListenerQueues() {
+
+        return new ArrayList<CmsEventListenerQueue>(m_listenerQueues.values());
+    }
+
     /**
      * Removes a cms event listener.<p>
      *
@@ -146,12 +185,38 @@ public class CmsEventManager {
      */
     public void removeCmsEventListener(I_CmsEventListener listener) {
 
+        CmsEventListenerQueue queue;
         synchronized (m_eventListeners) {
             Iterator<Integer> it = m_eventListeners.keySet().iterator();
             while (it.hasNext()) {
                 List<I_CmsEventListener> listeners = m_eventListeners.get(it.next());
                 listeners.remove(listener);
             }
+            queue = m_listenerQueues.remove(listener);
+        }
+        if (queue != null) {
+            unregisterQueue(queue);
+            queue.shutdown();
+        }
+    }
+
+    /**
+     * Shuts down this event manager.<p>
+     *
+     * Waits until the asynchronous event listeners have processed their queued events.
+     * Events fired after the shutdown are delivered to all listeners directly.<p>
+     */
+    public void shutdown() {
+
+        List<CmsEventListenerQueue> queues;
+        synchronized (m_eventListeners) {
+            m_shutdown = true;
+            queues = getListenerQueues();
+            m_listenerQueues.clear();
+        }
+        for (CmsEventListenerQueue queue : queues) {
+            unregisterQueue(queue);
+            queue.shutdown();
         }
     }
 
@@ -173,6 +238,31 @@ public class CmsEventManager {
     protected void initialize(CmsEventManager base) {
 
         m_eventListeners = new HashMap<Integer, List<I_CmsEventListener>>(base.getEventListeners());
+        // take over the queues, so that the order of the events is kept
+        m_listenerQueues = base.m_listenerQueues;
+        m_queueNames = base.m_queueNames;
+    }
+
+    /**
+     * Delivers an event to a single listener.<p>
+     *
+     * Asynchronous listeners get the event through their event queue,
+     * all other listeners are called directly.<p>
+     *
+     * @param listener the listener
+     * @param event the event
+     */
+    protected void dispatchEvent(I_CmsEventListener listener, CmsEvent event) {
+
+        CmsEventListenerQueue queue = null;
+        if (listener instanceof I_CmsAsyncEventListener) {
+            queue = getListenerQueue(listener);
+        }
+        if (queue != null) {
+            queue.add(event);
+        } else {
+            listener.cmsEvent(event);
+        }
     }
 
     /**
@@ -191,7 +281,7 @@ public class CmsEventManager {
                 // loop through all registered event listeners
                 for (int i = 0; i < list.length; i++) {
                     // fire the event
-                    list[i].cmsEvent(event);
+                    dispatchEvent(list[i], event);
                 }
             }
         } else {
@@ -235,7 +325,7 @@ public class CmsEventManager {
                             new Integer(i),
                             event.toString()));
                     // fire the event
-                    list[i].cmsEvent(event);
+                    dispatchEvent(list[i], event);
                     LOG.debug(
                         Messages.get().getBundle().key(
                             Messages.LOG_DEBUG_EVENT_END_LISTENER_3,
@@ -249,4 +339,88 @@ public class CmsEventManager {
             LOG.debug(Messages.get().getBundle().key(Messages.LOG_DEBUG_EVENT_COMPLETE_1, event.toString()));
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the event queue for an asynchronous listener, creating it if required.<p>
+     *
+     * No queue is created if this event manager has been shut down, or if the listener
+     * has been removed in the meantime.<p>
+     *
+     * @param listener the listener
+     *
+     * @return the event queue of the listener, or <code>null</code> if the event should be delivered directly
+     */
+    private CmsEventListenerQueue getListenerQueue(I_CmsEventListener listener) {
+
+        CmsEventListenerQueue queue = m_listenerQueues.get(listener);
+        if (queue == null) {
+            synchronized (m_eventListeners) {
+                queue = m_listenerQueues.get(listener);
+                if ((queue == null) && !m_shutdown && isRegistered(listener)) {
+                    queue = new CmsEventListenerQueue(listener, CmsEventListenerQueue.DEFAULT_CAPACITY);
+                    m_listenerQueues.put(listener, queue);
+                    registerQueue(queue);
+                }
+            }
+        }
+        return queue;
+    }
+
+    /**
+     * Checks if the given listener is registered for any event type.<p>
+     *
+     * @param listener the listener
+     *
+     * @return <code>true</code> if the listener is registered
+     */
+    private boolean isRegistered(I_CmsEventListener listener) {
+
+        for (List<I_CmsEventListener> listeners : m_eventListeners.values()) {
+            if (listeners.contains(listener)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Registers the statistics of an event queue with the platform MBean server.<p>
+     *
+     * The object name contains a sequence number, since there may be several listeners of the same class.<p>
+     *
+     * @param queue the event queue
+     */
+    private void registerQueue(CmsEventListenerQueue queue) {
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(
+                JMX_EVENT_LISTENER_QUEUE + queue.getListenerName() + ",id=" + QUEUE_COUNTER.incrementAndGet());
+            server.registerMBean(queue, name);
+            m_queueNames.put(queue, name);
+        } catch (Exception e) {
+            LOG.warn(Messages.get().getBundle().key(Messages.LOG_EVENT_JMX_REGISTER_1, queue.getListenerName()), e);
+        }
+    }
+
+    /**
+     * Removes the statistics of an event queue from the platform MBean server.<p>
+     *
+     * @param queue the event queue
+     */
+    private void unregisterQueue(CmsEventListenerQueue queue) {
+
+        ObjectName name = m_queueNames.remove(queue);
+        if (name == null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (Exception e) {
+            LOG.warn(Messages.get().getBundle().key(Messages.LOG_EVENT_JMX_UNREGISTER_1, queue.getListenerName()), e);
+        }
+    }
+}
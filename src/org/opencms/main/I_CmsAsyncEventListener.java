@@ -0,0 +1,47 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.main;
+
+/**
+ * Event listener that receives its events asynchronously.<p>
+ *
+ * The event manager delivers the events for listeners implementing this interface through a bounded queue
+ * that is processed by a separate thread for each listener. The events are delivered in the order in which
+ * they were fired. If the queue is full, the thread firing the event waits until the listener has caught up.<p>
+ *
+ * Only implement this interface if the code firing the event does not depend on the listener having
+ * processed the event when {@link CmsEventManager#fireEvent(CmsEvent)} returns.<p>
+ *
+ * @since 10.5.0
+ *
+ * @see CmsEventListenerQueue
+ */
+public interface I_CmsAsyncEventListener extends I_CmsEventListener {
+
+    // marker interface
+}
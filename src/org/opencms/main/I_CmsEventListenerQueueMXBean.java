@@ -0,0 +1,97 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.main;
+
+/**
+ * Management interface for the event queue of an asynchronous event listener.<p>
+ *
+ * @since 10.5.0
+ */
+public interface I_CmsEventListenerQueueMXBean {
+
+    /**
+     * Returns the average time in milliseconds the listener needed to process an event.<p>
+     *
+     * @return the average processing time in milliseconds
+     */
+    double getAverageLatency();
+
+    /**
+     * Returns the number of events the firing thread had to wait for because the queue was full.<p>
+     *
+     * @return the number of blocked events
+     */
+    long getBlockedCount();
+
+    /**
+     * Returns the maximum number of events in the queue.<p>
+     *
+     * @return the maximum number of events in the queue
+     */
+    int getCapacity();
+
+    /**
+     * Returns the number of events that caused an error in the listener.<p>
+     *
+     * @return the number of failed events
+     */
+    long getErrorCount();
+
+    /**
+     * Returns the number of events processed by the listener.<p>
+     *
+     * @return the number of processed events
+     */
+    long getEventCount();
+
+    /**
+     * Returns the class name of the listener.<p>
+     *
+     * @return the class name of the listener
+     */
+    String getListenerName();
+
+    /**
+     * Returns the maximum time in milliseconds the listener needed to process an event.<p>
+     *
+     * @return the maximum processing time in milliseconds
+     */
+    long getMaxLatency();
+
+    /**
+     * Returns the current number of events waiting in the queue.<p>
+     *
+     * @return the current number of events in the queue
+     */
+    int getQueueSize();
+
+    /**
+     * Resets all counters.<p>
+     */
+    void reset();
+}
@@ -0,0 +1,86 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.main;
+
+import org.opencms.configuration.CmsParameterConfiguration;
+
+import java.util.List;
+
+/**
+ * Transports OpenCms events between the nodes of a cluster.<p>
+ *
+ * A transport is used by the {@link CmsClusterEventManager}. All events sent by a node
+ * must be delivered to all other nodes in the order they were sent, but a node must
+ * never receive its own events.<p>
+ *
+ * @since 10.5.0
+ */
+public interface I_CmsEventTransport {
+
+    /**
+     * Initializes the transport.<p>
+     *
+     * @param nodeId the unique id of this node
+     * @param parameters the parameters of the cluster event manager
+     *
+     * @throws Exception if the transport can not be initialized
+     */
+    void initialize(String nodeId, CmsParameterConfiguration parameters) throws Exception;
+
+    /**
+     * Returns if the transport can currently send and receive events.<p>
+     *
+     * While the transport is not available, the events stay in the queue of the cluster event manager.<p>
+     *
+     * @return <code>true</code> if the transport can currently send and receive events
+     */
+    boolean isAvailable();
+
+    /**
+     * Returns the events sent by other nodes since the last call of this method.<p>
+     *
+     * @return the events sent by other nodes
+     *
+     * @throws Exception if the events can not be received
+     */
+    List<CmsClusterEvent> receive() throws Exception;
+
+    /**
+     * Sends the given events to all other nodes.<p>
+     *
+     * @param events the events to send
+     *
+     * @throws Exception if the events can not be sent
+     */
+    void send(List<CmsClusterEvent> events) throws Exception;
+
+    /**
+     * Shuts the transport down and frees all resources.<p>
+     */
+    void shutdown();
+}
@@ -51,6 +51,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_ALREADY_INITIALIZED_0 = "ERR_ALREADY_INITIALIZED_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_CLUSTER_INVALID_EVENT_TYPE_1 = "ERR_CLUSTER_INVALID_EVENT_TYPE_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_CONTEXT_INFO_FROZEN_0 = "ERR_CONTEXT_INFO_FROZEN_0";
 
@@ -267,6 +270,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String INIT_ADDED_REQUEST_HANDLER_2 = "INIT_ADDED_REQUEST_HANDLER_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_CLUSTER_EVENTS_3 = "INIT_CLUSTER_EVENTS_3";
+
     /** Message constant for key in the resource bundle. */
     public static final String INIT_CURRENT_RUNLEVEL_1 = "INIT_CURRENT_RUNLEVEL_1";
 
@@ -348,6 +354,27 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String INIT_WEBINF_PATH_1 = "INIT_WEBINF_PATH_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_CLUSTER_DISPATCH_FAILED_1 = "LOG_CLUSTER_DISPATCH_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_CLUSTER_EVENT_DATA_INVALID_2 = "LOG_CLUSTER_EVENT_DATA_INVALID_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_CLUSTER_EVENT_VALUE_UNSUPPORTED_2 = "LOG_CLUSTER_EVENT_VALUE_UNSUPPORTED_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_CLUSTER_INIT_FAILED_1 = "LOG_CLUSTER_INIT_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_CLUSTER_QUEUE_FULL_1 = "LOG_CLUSTER_QUEUE_FULL_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_CLUSTER_RECEIVE_FAILED_1 = "LOG_CLUSTER_RECEIVE_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_CLUSTER_SEND_FAILED_1 = "LOG_CLUSTER_SEND_FAILED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_CONSOLE_TOTAL_RUNTIME_1 = "LOG_CONSOLE_TOTAL_RUNTIME_1";
 
@@ -384,6 +411,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_ERROR_DERIGISTERING_JDBC_DRIVER_1 = "LOG_ERROR_DERIGISTERING_JDBC_DRIVER_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_ERROR_EVENT_MANAGER_SHUTDOWN_1 = "LOG_ERROR_EVENT_MANAGER_SHUTDOWN_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_ERROR_EXPORT_1 = "LOG_ERROR_EXPORT_1";
 
@@ -435,6 +465,18 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_ERROR_WRITING_CONFIG_1 = "LOG_ERROR_WRITING_CONFIG_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_EVENT_JMX_REGISTER_1 = "LOG_EVENT_JMX_REGISTER_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_EVENT_JMX_UNREGISTER_1 = "LOG_EVENT_JMX_UNREGISTER_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_EVENT_LISTENER_FAILED_2 = "LOG_EVENT_LISTENER_FAILED_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_EVENT_QUEUE_SHUTDOWN_TIMEOUT_2 = "LOG_EVENT_QUEUE_SHUTDOWN_TIMEOUT_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_INIT_CMSOBJECT_IN_HANDLER_2 = "LOG_INIT_CMSOBJECT_IN_HANDLER_2";
 
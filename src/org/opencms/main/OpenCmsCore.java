@@ -1898,6 +1898,16 @@ public final class OpenCmsCore {
                         e);
                 }
 
+                try {
+                    if (m_eventManager != null) {
+                        m_eventManager.shutdown();
+                    }
+                } catch (Throwable e) {
+                    CmsLog.INIT.error(
+                        Messages.get().getBundle().key(Messages.LOG_ERROR_EVENT_MANAGER_SHUTDOWN_1, e.getMessage()),
+                        e);
+                }
+
                 try {
                     if (m_scheduleManager != null) {
                         m_scheduleManager.shutDown();
@@ -0,0 +1,237 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.monitor;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hit, miss, eviction and load time counters for a cache of the memory monitor.<p>
+ *
+ * The counters are updated without locking, so the values read from a running system
+ * are not necessarily consistent with each other.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsCacheStatistics implements I_CmsCacheStatisticsMXBean {
+
+    /** The monitored cache, used to read the current size. */
+    private CmsMonitoredCacheMap<?, ?> m_cache;
+
+    /** The maximum number of entries in the cache. */
+    private int m_capacity;
+
+    /** The number of evicted entries. */
+    private AtomicLong m_evictions = new AtomicLong();
+
+    /** The number of successful lookups. */
+    private AtomicLong m_hits = new AtomicLong();
+
+    /** The number of loaded values. */
+    private AtomicLong m_loads = new AtomicLong();
+
+    /** The total load time in nanoseconds. */
+    private AtomicLong m_loadTime = new AtomicLong();
+
+    /** The number of failed lookups. */
+    private AtomicLong m_misses = new AtomicLong();
+
+    /** The name of the cache type. */
+    private String m_name;
+
+    /**
+     * Creates new cache statistics.<p>
+     *
+     * @param name the name of the cache type
+     * @param capacity the maximum number of entries in the cache
+     */
+    public CmsCacheStatistics(String name, int capacity) {
+
+        m_name = name;
+        m_capacity = capacity;
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsCacheStatisticsMXBean#getCapacity()
+     */
+    public int getCapacity() {
+
+        return m_capacity;
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsCacheStatisticsMXBean#getEvictionCount()
+     */
+    public long getEvictionCount() {
+
+        return m_evictions.get();
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsCacheStatisticsMXBean#getHitCount()
+     */
+    public long getHitCount() {
+
+        return m_hits.get();
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsCacheStatisticsMXBean#getHitRatio()
+     */
+    public int getHitRatio() {
+
+        long hits = m_hits.get();
+        long lookups = hits + m_misses.get();
+        if (lookups == 0) {
+            return 0;
+        }
+        return (int)((hits * 100) / lookups);
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsCacheStatisticsMXBean#getLoadCount()
+     */
+    public long getLoadCount() {
+
+        return m_loads.get();
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsCacheStatisticsMXBean#getLoadTime()
+     */
+    public long getLoadTime() {
+
+        return m_loadTime.get() / 1000000L;
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsCacheStatisticsMXBean#getMissCount()
+     */
+    public long getMissCount() {
+
+        return m_misses.get();
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsCacheStatisticsMXBean#getName()
+     */
+    public String getName() {
+
+        return m_name;
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsCacheStatisticsMXBean#getSize()
+     */
+    public int getSize() {
+
+        return m_cache != null ? m_cache.size() : 0;
+    }
+
+    /**
+     * Records the eviction of an entry because of the size limit of the cache.<p>
+     */
+    public void recordEviction() {
+
+        m_evictions.incrementAndGet();
+    }
+
+    /**
+     * Records a successful lookup.<p>
+     */
+    public void recordHit() {
+
+        m_hits.incrementAndGet();
+    }
+
+    /**
+     * Records a value that was loaded and cached after a failed lookup.<p>
+     *
+     * @param nanos the time between the failed lookup and the caching of the value in nanoseconds
+     */
+    public void recordLoad(long nanos) {
+
+        m_loads.incrementAndGet();
+        m_loadTime.addAndGet(nanos);
+    }
+
+    /**
+     * Records a failed lookup.<p>
+     */
+    public void recordMiss() {
+
+        m_misses.incrementAndGet();
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsCacheStatisticsMXBean#reset()
+     */
+    public void reset() {
+
+        m_hits.set(0);
+        m_misses.set(0);
+        m_evictions.set(0);
+        m_loads.set(0);
+        m_loadTime.set(0);
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+
+        return m_name
+            + " size: "
+            + getSize()
+            + "/"
+            + m_capacity
+            + " hits: "
+            + getHitCount()
+            + " misses: "
+            + getMissCount()
+            + " ratio: "
+            + getHitRatio()
+            + "% evictions: "
+            + getEvictionCount()
+            + " loads: "
+            + getLoadCount()
+            + " load time: "
+            + getLoadTime()
+            + " ms";
+    }
+
+    /**
+     * Sets the monitored cache, used to read the current size.<p>
+     *
+     * @param cache the monitored cache
+     */
+    protected void setCache(CmsMonitoredCacheMap<?, ?> cache) {
+
+        m_cache = cache;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.monitor;
+
+import org.opencms.monitor.CmsMemoryMonitor.CacheType;
+
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+
+/**
+ * The default cache provider, creating bounded guava caches.<p>
+ *
+ * The number of lock stripes of each cache scales with the number of available processors,
+ * so that concurrent request threads rarely wait for the same segment lock.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsDefaultCacheProvider implements I_CmsCacheProvider {
+
+    /** The minimum number of lock stripes per cache. */
+    private static final int MIN_CONCURRENCY_LEVEL = 8;
+
+    /** The number of lock stripes per cache. */
+    private int m_concurrencyLevel;
+
+    /**
+     * Creates a new default cache provider.<p>
+     */
+    public CmsDefaultCacheProvider() {
+
+        m_concurrencyLevel = Math.max(MIN_CONCURRENCY_LEVEL, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsCacheProvider#createCache(org.opencms.monitor.CmsMemoryMonitor.CacheType, int, org.opencms.monitor.CmsCacheStatistics)
+     */
+    @SuppressWarnings("unchecked")
+    public <K, V> ConcurrentMap<K, V> createCache(CacheType type, int capacity, final CmsCacheStatistics statistics) {
+
+        // don't use more stripes than entries, small caches would otherwise evict much too early
+        int concurrencyLevel = Math.max(1, Math.min(m_concurrencyLevel, capacity / 16));
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().concurrencyLevel(concurrencyLevel).maximumSize(
+            capacity);
+        builder.removalListener(new RemovalListener<Object, Object>() {
+
+            public void onRemoval(RemovalNotification<Object, Object> notification) {
+
+                if (notification.wasEvicted()) {
+                    statistics.recordEviction();
+                }
+            }
+        });
+        return (ConcurrentMap<K, V>)builder.build().asMap();
+    }
+}
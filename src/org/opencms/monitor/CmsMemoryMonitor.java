@@ -47,6 +47,7 @@ import org.opencms.flex.CmsFlexCache.CmsFlexCacheVariation;
 import org.opencms.i18n.CmsLocaleManager;
 import org.opencms.lock.CmsLock;
 import org.opencms.lock.CmsLockManager;
+import org.opencms.lock.CmsLockPathIndex;
 import org.opencms.mail.CmsMailTransport;
 import org.opencms.mail.CmsSimpleMail;
 import org.opencms.main.CmsEvent;
@@ -70,6 +71,7 @@ import org.opencms.util.PrintfFormat;
 import org.opencms.xml.CmsXmlContentDefinition;
 import org.opencms.xml.CmsXmlEntityResolver;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.ConcurrentModificationException;
@@ -80,8 +82,11 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.mail.internet.InternetAddress;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.apache.commons.collections.Buffer;
 import org.apache.commons.collections.buffer.SynchronizedBuffer;
@@ -156,6 +161,9 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     /** The concurrency level for the guava caches. */
     private static final int CONCURRENCY_LEVEL = 8;
 
+    /** The JMX object name prefix for the cache statistics. */
+    private static final String JMX_CACHE_STATISTICS = "org.opencms:type=CacheStatistics,name=";
+
     /** Set interval for clearing the caches to 10 minutes. */
     private static final int INTERVAL_CLEAR = 1000 * 60 * 10;
 
@@ -171,6 +179,13 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     /** Cache for access control lists. */
     private Map<String, CmsAccessControlList> m_cacheAccessControlList;
 
+    /** The provider used to create the bounded caches. */
+    private I_CmsCacheProvider m_cacheProvider;
+
+    /** The statistics of the bounded caches. */
+    private Map<CacheType, CmsCacheStatistics> m_cacheStatistics = new ConcurrentHashMap<CacheType, CmsCacheStatistics>(
+        32);
+
     /** A temporary cache for XML content definitions. */
     private Map<String, CmsXmlContentDefinition> m_cacheContentDefinitions;
 
@@ -267,6 +282,9 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     /** The time the last warning log was written. */
     private long m_lastLogWarning;
 
+    /** The path index of the cached resource locks. */
+    private CmsLockPathIndex m_lockPathIndex;
+
     /** The number of times the log entry was written. */
     private int m_logCount;
 
@@ -616,6 +634,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
             return;
         }
         m_cacheLock.put(lock.getResourceName(), lock);
+        m_lockPathIndex.add(lock.getResourceName());
     }
 
     /**
@@ -1034,6 +1053,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
                     break;
                 case LOCK:
                     m_cacheLock.clear();
+                    m_lockPathIndex.clear();
                     break;
                 case MEMORY_OBJECT:
                     m_cacheMemObject.clear();
@@ -1144,12 +1164,17 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         }
         // initialize new lock cache
         Map<String, CmsLock> newLockCache = new ConcurrentHashMap<String, CmsLock>(newLocks);
+        CmsLockPathIndex newLockPathIndex = new CmsLockPathIndex();
+        for (String lockPath : newLockCache.keySet()) {
+            newLockPathIndex.add(lockPath);
+        }
         // register it
         register(CmsLockManager.class.getName(), newLockCache);
         // save the old cache
         Map<String, CmsLock> oldCache = m_cacheLock;
         // replace the old by the new cache
         m_cacheLock = newLockCache;
+        m_lockPathIndex = newLockPathIndex;
         // clean up the old cache
         oldCache.clear();
     }
@@ -1374,6 +1399,26 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         return new ArrayList<String>(m_cacheLock.keySet());
     }
 
+    /**
+     * Returns all cached locks for the given root path and, if it is a folder, for all resources below it.<p>
+     *
+     * @param rootPath the root path of the resource or folder
+     *
+     * @return a list of {@link CmsLock} objects
+     */
+    public List<CmsLock> getAllCachedLocks(String rootPath) {
+
+        Map<String, CmsLock> cacheLock = m_cacheLock;
+        List<CmsLock> result = new ArrayList<CmsLock>();
+        for (String lockPath : m_lockPathIndex.getPathsInSubtree(rootPath)) {
+            CmsLock lock = cacheLock.get(lockPath);
+            if (lock != null) {
+                result.add(lock);
+            }
+        }
+        return result;
+    }
+
     /**
      * Returns all cached locks.<p>
      *
@@ -1406,6 +1451,35 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         return new ArrayList<CmsPublishJobInfoBean>(m_publishHistory);
     }
 
+    /**
+     * Returns the statistics of all bounded caches.<p>
+     *
+     * @return the statistics of all bounded caches
+     */
+    public List<CmsCacheStatistics> getCacheStatistics() {
+
+        List<CmsCacheStatistics> result = new ArrayList<CmsCacheStatistics>();
+        for (CacheType type : CacheType.values()) {
+            CmsCacheStatistics statistics = m_cacheStatistics.get(type);
+            if (statistics != null) {
+                result.add(statistics);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the statistics of the given cache type.<p>
+     *
+     * @param type the cache type
+     *
+     * @return the statistics, or <code>null</code> if the cache type is not backed by a bounded cache
+     */
+    public CmsCacheStatistics getCacheStatistics(CacheType type) {
+
+        return m_cacheStatistics.get(type);
+    }
+
     /**
      * Returns the ACL cached with the given cache key or <code>null</code> if not found.<p>
      *
@@ -1835,10 +1909,15 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
             }
         }
 
+        // create the cache provider
+        m_cacheProvider = createCacheProvider(m_configuration.getCacheProvider());
+        unregisterCacheStatistics();
+        m_cacheStatistics.clear();
+
         // create and register all system caches
 
         // temporary xml entities cache
-        m_cacheXmlTemporaryEntity = createLRUCacheMap(128);
+        m_cacheXmlTemporaryEntity = createCache(CacheType.XML_ENTITY_TEMP, 128);
         register(CmsXmlEntityResolver.class.getName() + ".xmlEntityTemporaryCache", m_cacheXmlTemporaryEntity);
 
         // permanent xml entities cache
@@ -1846,11 +1925,12 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         register(CmsXmlEntityResolver.class.getName() + ".xmlEntityPermanentCache", m_cacheXmlPermanentEntity);
 
         // xml content definitions cache
-        m_cacheContentDefinitions = createLRUCacheMap(64);
+        m_cacheContentDefinitions = createCache(CacheType.CONTENT_DEFINITION, 64);
         register(CmsXmlEntityResolver.class.getName() + ".contentDefinitionsCache", m_cacheContentDefinitions);
 
         // lock cache
         m_cacheLock = new ConcurrentHashMap<String, CmsLock>();
+        m_lockPathIndex = new CmsLockPathIndex();
         register(CmsLockManager.class.getName(), m_cacheLock);
 
         // locale cache
@@ -1858,35 +1938,37 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         register(CmsLocaleManager.class.getName(), m_cacheLocale);
 
         // permissions cache
-        m_cachePermission = createLRUCacheMap(cacheSettings.getPermissionCacheSize());
+        m_cachePermission = createCache(CacheType.PERMISSION, cacheSettings.getPermissionCacheSize());
         register(CmsSecurityManager.class.getName(), m_cachePermission);
 
         // user cache
-        m_cacheUser = createLRUCacheMap(cacheSettings.getUserCacheSize());
+        m_cacheUser = createCache(CacheType.USER, cacheSettings.getUserCacheSize());
         register(CmsDriverManager.class.getName() + ".userCache", m_cacheUser);
 
         // user list cache
-        m_cacheUserList = createLRUCacheMap(cacheSettings.getUserCacheSize());
+        m_cacheUserList = createCache(CacheType.USER_LIST, cacheSettings.getUserCacheSize());
         register(CmsDriverManager.class.getName() + ".userListCache", m_cacheUserList);
 
         // group cache
-        m_cacheGroup = createLRUCacheMap(cacheSettings.getGroupCacheSize());
+        m_cacheGroup = createCache(CacheType.GROUP, cacheSettings.getGroupCacheSize());
         register(CmsDriverManager.class.getName() + ".groupCache", m_cacheGroup);
 
         // organizational unit cache
-        m_cacheOrgUnit = createLRUCacheMap(cacheSettings.getOrgUnitCacheSize());
+        m_cacheOrgUnit = createCache(CacheType.ORG_UNIT, cacheSettings.getOrgUnitCacheSize());
         register(CmsDriverManager.class.getName() + ".orgUnitCache", m_cacheOrgUnit);
 
         // user groups list cache
-        m_cacheUserGroups = createLRUCacheMap(cacheSettings.getUserGroupsCacheSize());
+        m_cacheUserGroups = createCache(CacheType.USERGROUPS, cacheSettings.getUserGroupsCacheSize());
         register(CmsDriverManager.class.getName() + ".userGroupsCache", m_cacheUserGroups);
 
         // project cache
-        m_cacheProject = createLRUCacheMap(cacheSettings.getProjectCacheSize());
+        m_cacheProject = createCache(CacheType.PROJECT, cacheSettings.getProjectCacheSize());
         register(CmsDriverManager.class.getName() + ".projectCache", m_cacheProject);
 
         // project resources cache cache
-        m_cacheProjectResources = createLRUCacheMap(cacheSettings.getProjectResourcesCacheSize());
+        m_cacheProjectResources = createCache(
+            CacheType.PROJECT_RESOURCES,
+            cacheSettings.getProjectResourcesCacheSize());
         register(CmsDriverManager.class.getName() + ".projectResourcesCache", m_cacheProjectResources);
 
         // publish history
@@ -1901,35 +1983,35 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         register(CmsPublishQueue.class.getName() + ".publishQueue", buffer);
 
         // resource cache
-        m_cacheResource = createLRUCacheMap(cacheSettings.getResourceCacheSize());
+        m_cacheResource = createCache(CacheType.RESOURCE, cacheSettings.getResourceCacheSize());
         register(CmsDriverManager.class.getName() + ".resourceCache", m_cacheResource);
 
         // roles cache
-        m_cacheHasRoles = createLRUCacheMap(cacheSettings.getRolesCacheSize());
+        m_cacheHasRoles = createCache(CacheType.HAS_ROLE, cacheSettings.getRolesCacheSize());
         register(CmsDriverManager.class.getName() + ".rolesCache", m_cacheHasRoles);
 
         // role lists cache
-        m_cacheRoleLists = createLRUCacheMap(cacheSettings.getRolesCacheSize());
+        m_cacheRoleLists = createCache(CacheType.ROLE_LIST, cacheSettings.getRolesCacheSize());
         register(CmsDriverManager.class.getName() + ".roleListsCache", m_cacheRoleLists);
 
         // resource list cache
-        m_cacheResourceList = createLRUCacheMap(cacheSettings.getResourcelistCacheSize());
+        m_cacheResourceList = createCache(CacheType.RESOURCE_LIST, cacheSettings.getResourcelistCacheSize());
         register(CmsDriverManager.class.getName() + ".resourceListCache", m_cacheResourceList);
 
         // property cache
-        m_cacheProperty = createLRUCacheMap(cacheSettings.getPropertyCacheSize());
+        m_cacheProperty = createCache(CacheType.PROPERTY, cacheSettings.getPropertyCacheSize());
         register(CmsDriverManager.class.getName() + ".propertyCache", m_cacheProperty);
 
         // property list cache
-        m_cachePropertyList = createLRUCacheMap(cacheSettings.getPropertyListsCacheSize());
+        m_cachePropertyList = createCache(CacheType.PROPERTY_LIST, cacheSettings.getPropertyListsCacheSize());
         register(CmsDriverManager.class.getName() + ".propertyListCache", m_cachePropertyList);
 
         // published resources list cache
-        m_cachePublishedResources = createLRUCacheMap(5);
+        m_cachePublishedResources = createCache(CacheType.PUBLISHED_RESOURCES, 5);
         register(CmsDriverManager.class.getName() + ".publishedResourcesCache", m_cachePublishedResources);
 
         // acl cache
-        m_cacheAccessControlList = createLRUCacheMap(cacheSettings.getAclCacheSize());
+        m_cacheAccessControlList = createCache(CacheType.ACL, cacheSettings.getAclCacheSize());
         register(CmsDriverManager.class.getName() + ".accessControlListCache", m_cacheAccessControlList);
 
         // vfs object cache
@@ -1940,6 +2022,8 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         m_cacheMemObject = new ConcurrentHashMap<String, Object>();
         register(CmsMemoryObjectCache.class.getName(), m_cacheMemObject);
 
+        registerCacheStatistics();
+
         if (LOG.isDebugEnabled()) {
             // this will happen only once during system startup
             LOG.debug(Messages.get().getBundle().key(Messages.LOG_MM_CREATED_1, new Date(System.currentTimeMillis())));
@@ -2181,6 +2265,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         for (CacheType type : CacheType.values()) {
             flushCache(type);
         }
+        unregisterCacheStatistics();
     }
 
     /**
@@ -2214,6 +2299,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     public void uncacheLock(String rootPath) {
 
         m_cacheLock.remove(rootPath);
+        m_lockPathIndex.remove(rootPath);
     }
 
     /**
@@ -2426,7 +2512,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     /**
      * Returns the max costs for all items within a monitored object.<p>
      *
-     * <code>obj</code> must be of type {@link CmsLruCache} or {@link LRUMap}.<p>
+     * <code>obj</code> must be of type {@link CmsLruCache}, {@link LRUMap} or {@link CmsMonitoredCacheMap}.<p>
      *
      * @param obj the object
      *
@@ -2440,6 +2526,9 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         if (obj instanceof LRUMap) {
             return Integer.toString(((LRUMap)obj).maxSize());
         }
+        if (obj instanceof CmsMonitoredCacheMap) {
+            return Integer.toString(((CmsMonitoredCacheMap<?, ?>)obj).getStatistics().getCapacity());
+        }
 
         return "-";
     }
@@ -2555,6 +2644,12 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         }
         content += "\nTotal size of cache memory monitored: " + totalSize + " (" + (totalSize / 1048576) + ")\n\n";
 
+        content += "Cache statistics:\n\n";
+        for (CmsCacheStatistics statistics : getCacheStatistics()) {
+            content += statistics.toString() + "\n";
+        }
+        content += "\n\n";
+
         String from = m_configuration.getEmailSender();
         List<InternetAddress> receivers = new ArrayList<InternetAddress>();
         List<String> receiverEmails = m_configuration.getEmailReceiver();
@@ -2689,6 +2784,22 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
                         new Long(m_memoryAverage.getUsage()),
                         new Integer(m_memoryAverage.getCount())}));
 
+            for (CmsCacheStatistics statistics : getCacheStatistics()) {
+                LOG.info(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_MM_CACHE_STATISTICS_9,
+                        new Object[] {
+                            statistics.getName(),
+                            String.valueOf(statistics.getSize()),
+                            String.valueOf(statistics.getCapacity()),
+                            String.valueOf(statistics.getHitCount()),
+                            String.valueOf(statistics.getMissCount()),
+                            String.valueOf(statistics.getHitRatio()),
+                            String.valueOf(statistics.getEvictionCount()),
+                            String.valueOf(statistics.getLoadCount()),
+                            String.valueOf(statistics.getLoadTime())}));
+            }
+
             CmsSessionManager sm = OpenCms.getSessionManager();
 
             if (sm != null) {
@@ -2736,4 +2847,86 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         m_memoryCurrent.update();
         m_memoryAverage.calculateAverage(m_memoryCurrent);
     }
+
+    /**
+     * Creates a bounded cache for the given cache type with the configured cache provider.<p>
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     *
+     * @param type the cache type
+     * @param capacity the maximum number of entries
+     *
+     * @return the new cache
+     */
+    private <K, V> Map<K, V> createCache(CacheType type, int capacity) {
+
+        CmsCacheStatistics statistics = new CmsCacheStatistics(type.name(), capacity);
+        ConcurrentMap<K, V> cache = m_cacheProvider.createCache(type, capacity, statistics);
+        m_cacheStatistics.put(type, statistics);
+        return new CmsMonitoredCacheMap<K, V>(cache, statistics);
+    }
+
+    /**
+     * Creates the cache provider with the given class name.<p>
+     *
+     * @param className the cache provider class name, or <code>null</code> for the default provider
+     *
+     * @return the cache provider
+     */
+    private I_CmsCacheProvider createCacheProvider(String className) {
+
+        I_CmsCacheProvider provider = null;
+        if (className != null) {
+            try {
+                provider = (I_CmsCacheProvider)Class.forName(className).newInstance();
+            } catch (Exception e) {
+                LOG.error(Messages.get().getBundle().key(Messages.LOG_MM_CACHE_PROVIDER_INVALID_1, className), e);
+            }
+        }
+        if (provider == null) {
+            provider = new CmsDefaultCacheProvider();
+        }
+        if (CmsLog.INIT.isInfoEnabled()) {
+            CmsLog.INIT.info(
+                Messages.get().getBundle().key(Messages.LOG_MM_CACHE_PROVIDER_1, provider.getClass().getName()));
+        }
+        return provider;
+    }
+
+    /**
+     * Registers the cache statistics with the platform MBean server.<p>
+     */
+    private void registerCacheStatistics() {
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (CmsCacheStatistics statistics : m_cacheStatistics.values()) {
+            try {
+                ObjectName name = new ObjectName(JMX_CACHE_STATISTICS + statistics.getName());
+                if (!server.isRegistered(name)) {
+                    server.registerMBean(statistics, name);
+                }
+            } catch (Exception e) {
+                LOG.warn(Messages.get().getBundle().key(Messages.LOG_MM_JMX_REGISTER_1, statistics.getName()), e);
+            }
+        }
+    }
+
+    /**
+     * Removes the cache statistics from the platform MBean server.<p>
+     */
+    private void unregisterCacheStatistics() {
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (CmsCacheStatistics statistics : m_cacheStatistics.values()) {
+            try {
+                ObjectName name = new ObjectName(JMX_CACHE_STATISTICS + statistics.getName());
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+            } catch (Exception e) {
+                LOG.warn(Messages.get().getBundle().key(Messages.LOG_MM_JMX_UNREGISTER_1, statistics.getName()), e);
+            }
+        }
+    }
 }
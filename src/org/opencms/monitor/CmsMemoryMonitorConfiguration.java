@@ -40,6 +40,9 @@ import java.util.List;
  */
 public class CmsMemoryMonitorConfiguration {
 
+    /** The cache provider class name. */
+    private String m_cacheProvider;
+
     /** The memory monitor class name. */
     private String m_className;
 
@@ -79,6 +82,16 @@ public class CmsMemoryMonitorConfiguration {
         m_emailReceiver.add(emailReceiver);
     }
 
+    /**
+     * Returns the name of the cache provider class, or <code>null</code> to use the default provider.<p>
+     *
+     * @return the name of the cache provider class
+     */
+    public String getCacheProvider() {
+
+        return m_cacheProvider;
+    }
+
     /**
      * Returns the name of the memory monitor class.<p>
      *
@@ -180,6 +193,16 @@ public class CmsMemoryMonitorConfiguration {
         m_warningInterval = Integer.parseInt(warningInterval);
     }
 
+    /**
+     * Sets the name of the cache provider class.<p>
+     *
+     * @param cacheProvider the name of the cache provider class
+     */
+    public void setCacheProvider(String cacheProvider) {
+
+        m_cacheProvider = CmsStringUtil.isEmptyOrWhitespaceOnly(cacheProvider) ? null : cacheProvider.trim();
+    }
+
     /**
      * Sets the emailSender.<p>
      *
@@ -0,0 +1,278 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.monitor;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Wraps a cache created by a {@link I_CmsCacheProvider} and records the lookups in the cache statistics.<p>
+ *
+ * The callers of the memory monitor use the "get, read on miss, put" pattern. The time between a failed
+ * lookup and the caching of the same key by the same thread is recorded as load time.<p>
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ *
+ * @since 10.5.0
+ */
+public class CmsMonitoredCacheMap<K, V> implements ConcurrentMap<K, V> {
+
+    /**
+     * The last failed lookup of a thread.<p>
+     */
+    private static class CmsPendingLoad {
+
+        /** The key of the failed lookup. */
+        Object m_key;
+
+        /** The start time of the load in nanoseconds. */
+        long m_start;
+    }
+
+    /** The wrapped cache. */
+    private ConcurrentMap<K, V> m_cache;
+
+    /** The last failed lookup of the current thread. */
+    private ThreadLocal<CmsPendingLoad> m_pendingLoad = new ThreadLocal<CmsPendingLoad>() {
+
+        @Override
+        protected CmsPendingLoad initialValue() {
+
+            return new CmsPendingLoad();
+        }
+    };
+
+    /** The cache statistics. */
+    private CmsCacheStatistics m_statistics;
+
+    /**
+     * Creates a new monitored cache map.<p>
+     *
+     * @param cache the cache to wrap
+     * @param statistics the cache statistics
+     */
+    public CmsMonitoredCacheMap(ConcurrentMap<K, V> cache, CmsCacheStatistics statistics) {
+
+        m_cache = cache;
+        m_statistics = statistics;
+        statistics.setCache(this);
+    }
+
+    /**
+     * @see java.util.Map#clear()
+     */
+    public void clear() {
+
+        m_cache.clear();
+    }
+
+    /**
+     * @see java.util.Map#containsKey(java.lang.Object)
+     */
+    public boolean containsKey(Object key) {
+
+        return m_cache.containsKey(key);
+    }
+
+    /**
+     * @see java.util.Map#containsValue(java.lang.Object)
+     */
+    public boolean containsValue(Object value) {
+
+        return m_cache.containsValue(value);
+    }
+
+    /**
+     * @see java.util.Map#entrySet()
+     */
+    public Set<Map.Entry<K, V>> entrySet() {
+
+        return m_cache.entrySet();
+    }
+
+    /**
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+
+        return m_cache.equals(obj);
+    }
+
+    /**
+     * @see java.util.Map#get(java.lang.Object)
+     */
+    public V get(Object key) {
+
+        V value = m_cache.get(key);
+        if (value != null) {
+            m_statistics.recordHit();
+        } else {
+            m_statistics.recordMiss();
+            CmsPendingLoad pending = m_pendingLoad.get();
+            pending.m_key = key;
+            pending.m_start = System.nanoTime();
+        }
+        return value;
+    }
+
+    /**
+     * Returns the cache statistics.<p>
+     *
+     * @return the cache statistics
+     */
+    public CmsCacheStatistics getStatistics() {
+
+        return m_statistics;
+    }
+
+    /**
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+
+        return m_cache.hashCode();
+    }
+
+    /**
+     * @see java.util.Map#isEmpty()
+     */
+    public boolean isEmpty() {
+
+        return m_cache.isEmpty();
+    }
+
+    /**
+     * @see java.util.Map#keySet()
+     */
+    public Set<K> keySet() {
+
+        return m_cache.keySet();
+    }
+
+    /**
+     * @see java.util.Map#put(java.lang.Object, java.lang.Object)
+     */
+    public V put(K key, V value) {
+
+        recordLoad(key);
+        return m_cache.put(key, value);
+    }
+
+    /**
+     * @see java.util.Map#putAll(java.util.Map)
+     */
+    public void putAll(Map<? extends K, ? extends V> m) {
+
+        m_cache.putAll(m);
+    }
+
+    /**
+     * @see java.util.concurrent.ConcurrentMap#putIfAbsent(java.lang.Object, java.lang.Object)
+     */
+    public V putIfAbsent(K key, V value) {
+
+        recordLoad(key);
+        return m_cache.putIfAbsent(key, value);
+    }
+
+    /**
+     * @see java.util.Map#remove(java.lang.Object)
+     */
+    public V remove(Object key) {
+
+        return m_cache.remove(key);
+    }
+
+    /**
+     * @see java.util.concurrent.ConcurrentMap#remove(java.lang.Object, java.lang.Object)
+     */
+    public boolean remove(Object key, Object value) {
+
+        return m_cache.remove(key, value);
+    }
+
+    /**
+     * @see java.util.concurrent.ConcurrentMap#replace(java.lang.Object, java.lang.Object)
+     */
+    public V replace(K key, V value) {
+
+        return m_cache.replace(key, value);
+    }
+
+    /**
+     * @see java.util.concurrent.ConcurrentMap#replace(java.lang.Object, java.lang.Object, java.lang.Object)
+     */
+    public boolean replace(K key, V oldValue, V newValue) {
+
+        return m_cache.replace(key, oldValue, newValue);
+    }
+
+    /**
+     * @see java.util.Map#size()
+     */
+    public int size() {
+
+        return m_cache.size();
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+
+        return m_cache.toString();
+    }
+
+    /**
+     * @see java.util.Map#values()
+     */
+    public Collection<V> values() {
+
+        return m_cache.values();
+    }
+
+    /**
+     * Records the load time if the given key is the last failed lookup of the current thread.<p>
+     *
+     * @param key the key that is cached
+     */
+    private void recordLoad(Object key) {
+
+        CmsPendingLoad pending = m_pendingLoad.get();
+        if ((pending.m_key != null) && pending.m_key.equals(key)) {
+            m_statistics.recordLoad(System.nanoTime() - pending.m_start);
+            pending.m_key = null;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.monitor;
+
+import org.opencms.monitor.CmsMemoryMonitor.CacheType;
+
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Creates the bounded caches used by the memory monitor.<p>
+ *
+ * A cache provider is configured with the <code>cache-provider</code> node of the memory monitor configuration.
+ * Implementations must provide a public empty constructor and must create thread safe caches.<p>
+ *
+ * @since 10.5.0
+ */
+public interface I_CmsCacheProvider {
+
+    /**
+     * Creates a new bounded cache for the given cache type.<p>
+     *
+     * The created cache must report each entry that is evicted because of its size limit
+     * with {@link CmsCacheStatistics#recordEviction()}.<p>
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     *
+     * @param type the cache type
+     * @param capacity the maximum number of entries in the cache
+     * @param statistics the statistics of the cache
+     *
+     * @return the new cache
+     */
+    <K, V> ConcurrentMap<K, V> createCache(CacheType type, int capacity, CmsCacheStatistics statistics);
+}
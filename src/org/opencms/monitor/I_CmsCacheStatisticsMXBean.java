@@ -0,0 +1,104 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.monitor;
+
+/**
+ * Management interface for the statistics of a cache of the memory monitor.<p>
+ *
+ * @since 10.5.0
+ */
+public interface I_CmsCacheStatisticsMXBean {
+
+    /**
+     * Returns the maximum number of entries in the cache.<p>
+     *
+     * @return the maximum number of entries in the cache
+     */
+    int getCapacity();
+
+    /**
+     * Returns the number of entries evicted because of the size limit of the cache.<p>
+     *
+     * @return the number of evicted entries
+     */
+    long getEvictionCount();
+
+    /**
+     * Returns the number of successful cache lookups.<p>
+     *
+     * @return the number of successful cache lookups
+     */
+    long getHitCount();
+
+    /**
+     * Returns the ratio of successful cache lookups in percent.<p>
+     *
+     * @return the ratio of successful cache lookups in percent
+     */
+    int getHitRatio();
+
+    /**
+     * Returns the number of values that were loaded and cached after a failed lookup.<p>
+     *
+     * @return the number of loaded values
+     */
+    long getLoadCount();
+
+    /**
+     * Returns the total time in milliseconds between failed lookups and the caching of the loaded values.<p>
+     *
+     * @return the total load time in milliseconds
+     */
+    long getLoadTime();
+
+    /**
+     * Returns the number of failed cache lookups.<p>
+     *
+     * @return the number of failed cache lookups
+     */
+    long getMissCount();
+
+    /**
+     * Returns the name of the cache type.<p>
+     *
+     * @return the name of the cache type
+     */
+    String getName();
+
+    /**
+     * Returns the current number of entries in the cache.<p>
+     *
+     * @return the current number of entries in the cache
+     */
+    int getSize();
+
+    /**
+     * Resets all counters.<p>
+     */
+    void reset();
+}
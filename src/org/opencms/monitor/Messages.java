@@ -43,6 +43,15 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_CLEAR_CACHE_MEM_CONS_0 = "LOG_CLEAR_CACHE_MEM_CONS_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_MM_CACHE_PROVIDER_1 = "LOG_MM_CACHE_PROVIDER_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_MM_CACHE_PROVIDER_INVALID_1 = "LOG_MM_CACHE_PROVIDER_INVALID_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_MM_CACHE_STATISTICS_9 = "LOG_MM_CACHE_STATISTICS_9";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_MM_CONNECTIONS_3 = "LOG_MM_CONNECTIONS_3";
 
@@ -70,6 +79,12 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_MM_INTERVAL_WARNING_1 = "LOG_MM_INTERVAL_WARNING_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_MM_JMX_REGISTER_1 = "LOG_MM_JMX_REGISTER_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_MM_JMX_UNREGISTER_1 = "LOG_MM_JMX_UNREGISTER_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_MM_LOG_INFO_2 = "LOG_MM_LOG_INFO_2";
 
@@ -69,6 +69,9 @@ public class CmsPublishManager {
     /** The default history size. */
     public static final int DEFAULT_HISTORY_SIZE = 100;
 
+    /** The default number of threads used to publish the files of a publish job. */
+    public static final int DEFAULT_PUBLISH_THREADS = 1;
+
     /** The default persistence setting for the publish queue. */
     public static final boolean DEFAULT_QUEUE_PERSISTANCE = false;
 
@@ -93,6 +96,9 @@ public class CmsPublishManager {
     /** The publish list remove mode. */
     private CmsPublishManager.PublishListRemoveMode m_publishListRemoveMode;
 
+    /** The number of threads used to publish the files of a publish job. */
+    private int m_publishThreads = DEFAULT_PUBLISH_THREADS;
+
     /** Indicates if the publish queue is re-initialized on startup. */
     private boolean m_publishQueuePersistance;
 
@@ -413,6 +419,16 @@ public class CmsPublishManager {
         return m_publishQueueShutdowntime;
     }
 
+    /**
+     * Returns the number of threads used to publish the files of a publish job.<p>
+     *
+     * @return the number of publish threads
+     */
+    public int getPublishThreads() {
+
+        return m_publishThreads;
+    }
+
     /**
      * Returns a new publish list that contains the unpublished resources related
      * to all resources in the given publish list, the related resources exclude
@@ -712,6 +728,19 @@ public class CmsPublishManager {
         m_publishQueueShutdowntime = Integer.parseInt(publishQueueShutdowntime);
     }
 
+    /**
+     * Sets the number of threads used to publish the files of a publish job.<p>
+     *
+     * @param publishThreads the number of publish threads, parsed as <code>int</code>
+     */
+    public void setPublishThreads(String publishThreads) {
+
+        if (m_frozen) {
+            throw new CmsRuntimeException(Messages.get().container(Messages.ERR_CONFIG_FROZEN_0));
+        }
+        m_publishThreads = Math.max(1, Integer.parseInt(publishThreads.trim()));
+    }
+
     /**
      * Sets the security manager during initialization.<p>
      *
@@ -0,0 +1,334 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.report;
+
+import org.opencms.i18n.CmsMessageContainer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Report that collects the output and writes it to another report on {@link #flush()}.<p>
+ *
+ * This is used if several threads write to the same report, so that the lines
+ * written by one thread are not mixed with the output of other threads.<p>
+ *
+ * The report itself may be written and flushed by different threads.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsBufferedReport implements I_CmsReport {
+
+    /**
+     * A single buffered report call.<p>
+     */
+    private static class CmsReportEntry {
+
+        /** The format of the entry. */
+        int m_format;
+
+        /** The entry type. */
+        int m_type;
+
+        /** The value of the entry. */
+        Object m_value;
+
+        /**
+         * Creates a new report entry.<p>
+         *
+         * @param type the entry type
+         * @param value the value
+         * @param format the format
+         */
+        CmsReportEntry(int type, Object value, int format) {
+
+            m_type = type;
+            m_value = value;
+            m_format = format;
+        }
+    }
+
+    /** Entry type for an error object. */
+    private static final int ENTRY_ERROR = 0;
+
+    /** Entry type for a line break. */
+    private static final int ENTRY_NEWLINE = 1;
+
+    /** Entry type for a message. */
+    private static final int ENTRY_PRINT = 2;
+
+    /** Entry type for a message followed by a line break. */
+    private static final int ENTRY_PRINTLN = 3;
+
+    /** Entry type for an exception. */
+    private static final int ENTRY_THROWABLE = 4;
+
+    /** Entry type for a warning object. */
+    private static final int ENTRY_WARNING = 5;
+
+    /** The buffered entries. */
+    private List<CmsReportEntry> m_entries;
+
+    /** The report to write the output to. */
+    private I_CmsReport m_report;
+
+    /**
+     * Creates a new buffered report for the given report.<p>
+     *
+     * @param report the report to write the buffered output to
+     */
+    public CmsBufferedReport(I_CmsReport report) {
+
+        m_report = report;
+        m_entries = Collections.synchronizedList(new ArrayList<CmsReportEntry>());
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#addError(java.lang.Object)
+     */
+    public void addError(Object obj) {
+
+        m_entries.add(new CmsReportEntry(ENTRY_ERROR, obj, FORMAT_ERROR));
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#addWarning(java.lang.Object)
+     */
+    public void addWarning(Object obj) {
+
+        m_entries.add(new CmsReportEntry(ENTRY_WARNING, obj, FORMAT_WARNING));
+    }
+
+    /**
+     * Writes the buffered output to the underlying report and clears the buffer.<p>
+     *
+     * The underlying report is locked while the output is written.<p>
+     */
+    public void flush() {
+
+        List<CmsReportEntry> entries;
+        synchronized (m_entries) {
+            if (m_entries.isEmpty()) {
+                return;
+            }
+            entries = new ArrayList<CmsReportEntry>(m_entries);
+            m_entries.clear();
+        }
+        synchronized (m_report) {
+            for (CmsReportEntry entry : entries) {
+                switch (entry.m_type) {
+                    case ENTRY_ERROR:
+                        m_report.addError(entry.m_value);
+                        break;
+                    case ENTRY_WARNING:
+                        m_report.addWarning(entry.m_value);
+                        break;
+                    case ENTRY_NEWLINE:
+                        m_report.println();
+                        break;
+                    case ENTRY_PRINT:
+                        m_report.print((CmsMessageContainer)entry.m_value, entry.m_format);
+                        break;
+                    case ENTRY_PRINTLN:
+                        m_report.println((CmsMessageContainer)entry.m_value, entry.m_format);
+                        break;
+                    case ENTRY_THROWABLE:
+                    default:
+                        m_report.println((Throwable)entry.m_value);
+                }
+            }
+        }
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#formatRuntime()
+     */
+    public String formatRuntime() {
+
+        return m_report.formatRuntime();
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#getErrors()
+     */
+    public List<Object> getErrors() {
+
+        return m_report.getErrors();
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#getLastEntryTime()
+     */
+    public long getLastEntryTime() {
+
+        return m_report.getLastEntryTime();
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#getLocale()
+     */
+    public Locale getLocale() {
+
+        return m_report.getLocale();
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#getReportUpdate()
+     */
+    public String getReportUpdate() {
+
+        return m_report.getReportUpdate();
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#getRuntime()
+     */
+    public long getRuntime() {
+
+        return m_report.getRuntime();
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#getSiteRoot()
+     */
+    public String getSiteRoot() {
+
+        return m_report.getSiteRoot();
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#getWarnings()
+     */
+    public List<Object> getWarnings() {
+
+        return m_report.getWarnings();
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#hasError()
+     */
+    public boolean hasError() {
+
+        return m_report.hasError();
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#hasWarning()
+     */
+    public boolean hasWarning() {
+
+        return m_report.hasWarning();
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#print(org.opencms.i18n.CmsMessageContainer)
+     */
+    public void print(CmsMessageContainer container) {
+
+        print(container, FORMAT_DEFAULT);
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#print(org.opencms.i18n.CmsMessageContainer, int)
+     */
+    public void print(CmsMessageContainer container, int format) {
+
+        m_entries.add(new CmsReportEntry(ENTRY_PRINT, container, format));
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#println()
+     */
+    public void println() {
+
+        m_entries.add(new CmsReportEntry(ENTRY_NEWLINE, null, FORMAT_DEFAULT));
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#println(org.opencms.i18n.CmsMessageContainer)
+     */
+    public void println(CmsMessageContainer container) {
+
+        println(container, FORMAT_DEFAULT);
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#println(org.opencms.i18n.CmsMessageContainer, int)
+     */
+    public void println(CmsMessageContainer container, int format) {
+
+        m_entries.add(new CmsReportEntry(ENTRY_PRINTLN, container, format));
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#println(java.lang.Throwable)
+     */
+    public void println(Throwable t) {
+
+        m_entries.add(new CmsReportEntry(ENTRY_THROWABLE, t, FORMAT_ERROR));
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#printMessageWithParam(org.opencms.i18n.CmsMessageContainer, java.lang.Object)
+     */
+    public void printMessageWithParam(CmsMessageContainer container, Object param) {
+
+        print(container, I_CmsReport.FORMAT_NOTE);
+        print(Messages.get().container(Messages.RPT_ARGUMENT_1, param));
+        print(Messages.get().container(Messages.RPT_DOTS_0));
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#printMessageWithParam(int, int, org.opencms.i18n.CmsMessageContainer, java.lang.Object)
+     */
+    public void printMessageWithParam(int m, int n, CmsMessageContainer container, Object param) {
+
+        print(
+            Messages.get().container(Messages.RPT_SUCCESSION_2, String.valueOf(m), String.valueOf(n)),
+            I_CmsReport.FORMAT_NOTE);
+        printMessageWithParam(container, param);
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#removeSiteRoot(java.lang.String)
+     */
+    public String removeSiteRoot(String resourcename) {
+
+        return m_report.removeSiteRoot(resourcename);
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#resetRuntime()
+     */
+    public void resetRuntime() {
+
+        m_report.resetRuntime();
+    }
+}
@@ -27,6 +27,8 @@
 
 package org.opencms.repository;
 
+import java.io.InputStream;
+
 /**
  * This class represents items in the repository interface. That can be
  * files or folders (collections). <p>
@@ -49,6 +51,15 @@ public interface I_CmsRepositoryItem {
      */
     long getContentLength();
 
+    /**
+     * Returns the content of this item as a stream, which must be closed by the caller.<p>
+     *
+     * Use this instead of {@link #getContent()} to send the content of large files.<p>
+     *
+     * @return the content of this item as a stream, or <code>null</code> if this item has no content
+     */
+    InputStream getContentStream();
+
     /**
      * Returns the date of the creation of this item.<p>
      *
@@ -28,29 +28,111 @@
 package org.opencms.search;
 
 import org.opencms.db.CmsPublishedResource;
+import org.opencms.file.CmsObject;
 import org.opencms.file.CmsResource;
 import org.opencms.i18n.CmsMessageContainer;
+import org.opencms.main.CmsException;
 import org.opencms.main.CmsLog;
+import org.opencms.main.OpenCms;
+import org.opencms.report.CmsBufferedReport;
 import org.opencms.report.CmsLogReport;
 import org.opencms.report.I_CmsReport;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 
 /**
  * Implements the management of indexing threads.<p>
  *
+ * The documents are extracted by a limited number of indexing threads running in parallel.
+ * The thread calling {@link #createIndexingThread(CmsVfsIndexer, I_CmsIndexWriter, CmsResource)}
+ * collects the finished documents and the resources without document in batches, writes them to
+ * the index in the order the resources were passed in, and commits the index after a number of
+ * modifications or after a time interval.<p>
+ *
  * @since 6.0.0
  */
 public class CmsIndexingThreadManager {
 
+    /**
+     * A resource for which an indexing thread was started.<p>
+     */
+    private static class CmsIndexingJob {
+
+        /** The document created by the thread, <code>null</code> if the resource is deleted from the index. */
+        I_CmsSearchDocument m_document;
+
+        /** The indexer the thread was started for. */
+        CmsVfsIndexer m_indexer;
+
+        /** The report buffering the output of the thread, may be <code>null</code>. */
+        CmsBufferedReport m_report;
+
+        /** The resource to index. */
+        CmsResource m_resource;
+
+        /** The time the thread was started. */
+        long m_startTime;
+
+        /** The indexing thread. */
+        CmsIndexingThread m_thread;
+
+        /** The index writer to write the document with. */
+        I_CmsIndexWriter m_writer;
+
+        /**
+         * Creates a new indexing job.<p>
+         *
+         * @param indexer the indexer the thread was started for
+         * @param writer the index writer to write the document with
+         * @param resource the resource to index
+         * @param thread the indexing thread
+         * @param report the report buffering the output of the thread, may be <code>null</code>
+         */
+        CmsIndexingJob(
+            CmsVfsIndexer indexer,
+            I_CmsIndexWriter writer,
+            CmsResource resource,
+            CmsIndexingThread thread,
+            CmsBufferedReport report) {
+
+            m_indexer = indexer;
+            m_writer = writer;
+            m_resource = resource;
+            m_thread = thread;
+            m_report = report;
+            m_startTime = System.currentTimeMillis();
+        }
+    }
+
+    /** The number of documents written to the index writer with a single request. */
+    public static final int DEFAULT_BATCH_SIZE = 50;
+
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsIndexingThreadManager.class);
 
     /** Number of threads abandoned. */
     private int m_abandonedCounter;
 
+    /** The finished jobs whose documents are not yet written to or deleted from the index, keyed by root path. */
+    private Map<String, CmsIndexingJob> m_batch;
+
+    /** The number of batches written to the index. */
+    private int m_batchCounter;
+
+    /** The maximum time in milliseconds between two commits, 0 if commits only depend on the number of modifications. */
+    private long m_commitInterval;
+
+    /** The started indexing threads whose documents are not yet written, in the order they were started. */
+    private LinkedList<CmsIndexingJob> m_jobs;
+
+    /** The time of the last commit. */
+    private long m_lastCommitTime;
+
     /** The time the last error was written to the log. */
     private long m_lastLogErrorTime;
 
@@ -60,12 +142,24 @@ public class CmsIndexingThreadManager {
     /** The maximum number of modifications before a commit in the search index is triggered. */
     private int m_maxModificationsBeforeCommit;
 
+    /** The maximum number of indexing threads whose documents were waiting to be written. */
+    private int m_maxQueueDepth;
+
+    /** Number of modifications written to the index. */
+    private int m_modificationCounter;
+
     /** Number of thread returned. */
     private int m_returnedCounter;
 
     /** Overall number of threads started. */
     private int m_startedCounter;
 
+    /** The time this thread manager was created. */
+    private long m_startTime;
+
+    /** The maximum number of indexing threads running in parallel. */
+    private int m_threads;
+
     /** Timeout for abandoning threads. */
     private long m_timeout;
 
@@ -77,89 +171,95 @@ public class CmsIndexingThreadManager {
      */
     public CmsIndexingThreadManager(long timeout, int maxModificationsBeforeCommit) {
 
+        this(timeout, maxModificationsBeforeCommit, 1, 0);
+    }
+
+    /**
+     * Creates and starts a thread manager for indexing threads running in parallel.<p>
+     *
+     * @param timeout timeout after a thread is abandoned
+     * @param maxModificationsBeforeCommit the maximum number of modifications before a commit in the search index is triggered
+     * @param threads the maximum number of indexing threads running in parallel
+     * @param commitInterval the maximum time in milliseconds between two commits, 0 to commit only after the number of modifications
+     */
+    public CmsIndexingThreadManager(
+        long timeout,
+        int maxModificationsBeforeCommit,
+        int threads,
+        long commitInterval) {
+
         m_timeout = timeout;
         m_maxModificationsBeforeCommit = maxModificationsBeforeCommit;
+        m_threads = Math.max(1, threads);
+        m_commitInterval = commitInterval;
+        m_jobs = new LinkedList<CmsIndexingJob>();
+        m_batch = new LinkedHashMap<String, CmsIndexingJob>();
+        m_startTime = System.currentTimeMillis();
+        m_lastCommitTime = m_startTime;
     }
 
     /**
      * Creates and starts a new indexing thread for a resource.<p>
      *
-     * After an indexing thread was started, the manager suspends itself
-     * and waits for an amount of time specified by the <code>timeout</code>
-     * value. If the timeout value is reached, the indexing thread is
-     * aborted by an interrupt signal.<p>
+     * If the maximum number of indexing threads is running, the manager waits for the oldest
+     * thread until it has finished or the <code>timeout</code> value is reached.
+     * If the timeout value is reached, the indexing thread is aborted by an interrupt signal.
+     * The documents of all finished threads are then written to the index.<p>
      *
      * @param indexer the VFS indexer to create the index thread for
      * @param writer the index writer that can update the index
      * @param res the resource
+     *
+     * @throws CmsException if the user context for the indexing thread can not be created
      */
-    public void createIndexingThread(CmsVfsIndexer indexer, I_CmsIndexWriter writer, CmsResource res) {
+    public void createIndexingThread(CmsVfsIndexer indexer, I_CmsIndexWriter writer, CmsResource res)
+    throws CmsException {
 
         I_CmsReport report = indexer.getReport();
+        // buffer the output so that the lines of threads running in parallel are not mixed
+        CmsBufferedReport threadReport = (report != null) ? new CmsBufferedReport(report) : null;
+        CmsObject cms = indexer.getCms();
+        if (m_threads > 1) {
+            // threads running in parallel must not share the request context
+            cms = OpenCms.initCmsObject(cms);
+        }
         m_startedCounter++;
         CmsIndexingThread thread = new CmsIndexingThread(
-            indexer.getCms(),
+            cms,
             res,
             indexer.getIndex(),
             m_startedCounter,
-            report);
+            threadReport);
         thread.setPriority(Thread.MIN_PRIORITY);
         thread.start();
-        try {
-            thread.join(m_timeout);
-        } catch (InterruptedException e) {
-            // ignore
-        }
-        if (thread.isAlive()) {
-            // the thread has not finished - so it must be marked as an abandoned thread
-            m_abandonedCounter++;
-            thread.interrupt();
-            if (LOG.isWarnEnabled()) {
-                LOG.warn(Messages.get().getBundle().key(Messages.LOG_INDEXING_TIMEOUT_1, res.getRootPath()));
-            }
-            if (report != null) {
-                report.println();
-                report.print(
-                    org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_FAILED_0),
-                    I_CmsReport.FORMAT_WARNING);
-                report.println(
-                    Messages.get().container(Messages.RPT_SEARCH_INDEXING_TIMEOUT_1, res.getRootPath()),
-                    I_CmsReport.FORMAT_WARNING);
-            }
-        } else {
-            // the thread finished normally
-            m_returnedCounter++;
-        }
-        I_CmsSearchDocument doc = thread.getResult();
-        if (doc != null) {
-            // write the document to the index
-            indexer.updateResource(writer, res.getRootPath(), doc);
-        } else {
-            indexer.deleteResource(writer, new CmsPublishedResource(res));
+        m_jobs.add(new CmsIndexingJob(indexer, writer, res, thread, threadReport));
+        m_maxQueueDepth = Math.max(m_maxQueueDepth, m_jobs.size());
+
+        // write the documents of the threads that are already finished, keeping the order of the resources
+        while (!m_jobs.isEmpty() && !m_jobs.getFirst().m_thread.isAlive()) {
+            finishJob(m_jobs.removeFirst());
         }
-        if ((m_startedCounter % m_maxModificationsBeforeCommit) == 0) {
-            try {
-                writer.commit();
-            } catch (IOException e) {
-                if (LOG.isWarnEnabled()) {
-                    LOG.warn(
-                        Messages.get().getBundle().key(
-                            Messages.LOG_IO_INDEX_WRITER_COMMIT_2,
-                            indexer.getIndex().getName(),
-                            indexer.getIndex().getPath()),
-                        e);
-                }
-            }
+        // wait for the oldest threads if no more threads may be started
+        while (m_jobs.size() >= m_threads) {
+            finishJob(m_jobs.removeFirst());
         }
     }
 
     /**
      * Returns if the indexing manager still have indexing threads.<p>
      *
+     * Before checking, the manager waits for all started indexing threads and
+     * writes their documents to the index.<p>
+     *
      * @return true if the indexing manager still have indexing threads
      */
     public boolean isRunning() {
 
+        while (!m_jobs.isEmpty()) {
+            finishJob(m_jobs.removeFirst());
+        }
+        writeBatch();
+
         if (m_lastLogErrorTime <= 0) {
             m_lastLogErrorTime = System.currentTimeMillis();
             m_lastLogWarnTime = m_lastLogErrorTime;
@@ -202,6 +302,8 @@ public class CmsIndexingThreadManager {
      * (equals to the number of indexed files), the number of returned
      * threads (equals to the number of successfully indexed files),
      * and the number of abandoned threads (hanging threads reaching the timeout).
+     * It also reports the number of parallel indexing threads, the maximum number of
+     * documents waiting to be written, the throughput and the number of batches written.<p>
      *
      * @param report the report to write the statistics to
      */
@@ -215,12 +317,157 @@ public class CmsIndexingThreadManager {
                     new Integer(m_returnedCounter),
                     new Integer(m_abandonedCounter),
                     report.formatRuntime()});
+            long runtime = Math.max(1, System.currentTimeMillis() - m_startTime);
+            CmsMessageContainer pipelineMessage = Messages.get().container(
+                Messages.RPT_SEARCH_INDEXING_PIPELINE_STATS_4,
+                new Object[] {
+                    new Integer(m_threads),
+                    new Integer(m_maxQueueDepth),
+                    new Double((m_startedCounter * 1000.0) / runtime),
+                    new Integer(m_batchCounter)});
 
             report.println(message);
+            report.println(pipelineMessage);
             if (!(report instanceof CmsLogReport) && LOG.isInfoEnabled()) {
                 // only write to the log if report is not already a log report
                 LOG.info(message.key());
+                LOG.info(pipelineMessage.key());
+            }
+        }
+    }
+
+    /**
+     * Commits the index after writing the pending documents.<p>
+     *
+     * @param indexer the indexer
+     * @param writer the index writer to commit
+     */
+    private void commit(CmsVfsIndexer indexer, I_CmsIndexWriter writer) {
+
+        writeBatch();
+        try {
+            writer.commit();
+        } catch (IOException e) {
+            if (LOG.isWarnEnabled()) {
+                LOG.warn(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_IO_INDEX_WRITER_COMMIT_2,
+                        indexer.getIndex().getName(),
+                        indexer.getIndex().getPath()),
+                    e);
+            }
+        }
+        m_lastCommitTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Waits for the indexing thread of a job and writes its document to the index.<p>
+     *
+     * @param job the job to finish
+     */
+    private void finishJob(CmsIndexingJob job) {
+
+        CmsIndexingThread thread = job.m_thread;
+        try {
+            if (m_timeout <= 0) {
+                thread.join();
+            } else {
+                long remaining = m_timeout - (System.currentTimeMillis() - job.m_startTime);
+                if (remaining > 0) {
+                    thread.join(remaining);
+                }
+            }
+        } catch (InterruptedException e) {
+            // ignore
+        }
+        if (job.m_report != null) {
+            job.m_report.flush();
+        }
+        CmsResource res = job.m_resource;
+        if (thread.isAlive()) {
+            // the thread has not finished - so it must be marked as an abandoned thread
+            m_abandonedCounter++;
+            thread.interrupt();
+            if (LOG.isWarnEnabled()) {
+                LOG.warn(Messages.get().getBundle().key(Messages.LOG_INDEXING_TIMEOUT_1, res.getRootPath()));
             }
+            I_CmsReport report = job.m_indexer.getReport();
+            if (report != null) {
+                report.println();
+                report.print(
+                    org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_FAILED_0),
+                    I_CmsReport.FORMAT_WARNING);
+                report.println(
+                    Messages.get().container(Messages.RPT_SEARCH_INDEXING_TIMEOUT_1, res.getRootPath()),
+                    I_CmsReport.FORMAT_WARNING);
+            }
+        } else {
+            // the thread finished normally
+            m_returnedCounter++;
+        }
+        // read the result only once, an abandoned thread may still set it later
+        job.m_document = thread.getResult();
+        if (!m_batch.isEmpty() && (m_batch.values().iterator().next().m_writer != job.m_writer)) {
+            writeBatch();
+        }
+        // collect the update or delete to write it to the index together with others,
+        // a later modification of the same resource replaces and follows the earlier ones
+        m_batch.remove(res.getRootPath());
+        m_batch.put(res.getRootPath(), job);
+        if (m_batch.size() >= DEFAULT_BATCH_SIZE) {
+            writeBatch();
+        }
+        m_modificationCounter++;
+        if (((m_modificationCounter % m_maxModificationsBeforeCommit) == 0)
+            || ((m_commitInterval > 0) && ((System.currentTimeMillis() - m_lastCommitTime) >= m_commitInterval))) {
+            commit(job.m_indexer, job.m_writer);
+        }
+    }
+
+    /**
+     * Writes the collected documents to the index and deletes the collected resources without document.<p>
+     *
+     * The updates and deletes are sent in the order the resources were passed in.<p>
+     */
+    private void writeBatch() {
+
+        if (m_batch.isEmpty()) {
+            return;
+        }
+        Map<String, I_CmsSearchDocument> documents = new LinkedHashMap<String, I_CmsSearchDocument>();
+        CmsIndexingJob last = null;
+        for (CmsIndexingJob job : m_batch.values()) {
+            if (job.m_document != null) {
+                documents.put(job.m_resource.getRootPath(), job.m_document);
+            } else {
+                // write the documents collected so far first to keep the order
+                writeDocuments(job, documents);
+                job.m_indexer.deleteResource(job.m_writer, new CmsPublishedResource(job.m_resource));
+            }
+            last = job;
+        }
+        writeDocuments(last, documents);
+        m_batchCounter++;
+        m_batch.clear();
+    }
+
+    /**
+     * Writes the given documents to the index and clears the map.<p>
+     *
+     * @param job a job of the current batch, providing the indexer and the index writer
+     * @param documents the documents to write, keyed by root path
+     */
+    private void writeDocuments(CmsIndexingJob job, Map<String, I_CmsSearchDocument> documents) {
+
+        if (documents.isEmpty()) {
+            return;
+        }
+        if (documents.size() == 1) {
+            Map.Entry<String, I_CmsSearchDocument> entry = documents.entrySet().iterator().next();
+            job.m_indexer.updateResource(job.m_writer, entry.getKey(), entry.getValue());
+        } else {
+            job.m_indexer.updateDocuments(job.m_writer, new LinkedHashMap<String, I_CmsSearchDocument>(documents));
         }
+        documents.clear();
     }
-}
\ No newline at end of file
+}
@@ -32,6 +32,7 @@ import org.opencms.main.CmsLog;
 import org.opencms.search.fields.CmsSearchField;
 
 import java.io.IOException;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.lucene.document.Document;
@@ -173,4 +174,16 @@ public class CmsLuceneIndexWriter implements I_CmsIndexWriter {
         }
         m_indexWriter.updateDocument(pathTerm, (Document)document.getDocument());
     }
+
+    /**
+     * @see org.opencms.search.I_CmsIndexWriter#updateDocuments(java.util.Map)
+     *
+     * The Lucene index writer buffers the documents anyway, so they are just added one by one.<p>
+     */
+    public void updateDocuments(Map<String, I_CmsSearchDocument> documents) throws IOException {
+
+        for (Map.Entry<String, I_CmsSearchDocument> entry : documents.entrySet()) {
+            updateDocument(entry.getKey(), entry.getValue());
+        }
+    }
 }
@@ -1218,6 +1218,19 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         return m_indexWriter != null;
     }
 
+    /**
+     * Returns <code>true</code> if the documents of all files below a published folder are updated.<p>
+     *
+     * This is required if the documents contain data inherited from the parent folders,
+     * which changes without the files themselves being published.<p>
+     *
+     * @return <code>true</code> if the documents of all files below a published folder are updated
+     */
+    public boolean isUpdatingFolderContents() {
+
+        return false;
+    }
+
     /**
      * Removes an index source from this search index.<p>
      *
@@ -623,12 +623,21 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         }
     }
 
+    /** The default maximum time between two commits while indexing, 0 means only the number of modifications triggers a commit. */
+    public static final long DEFAULT_COMMIT_INTERVAL = 0;
+
     /** The default value used for generating search result excerpts (1024 chars). */
     public static final int DEFAULT_EXCERPT_LENGTH = 1024;
 
     /** The default value used for keeping the extraction results in the cache (672 hours = 4 weeks). */
     public static final float DEFAULT_EXTRACTION_CACHE_MAX_AGE = 672.0f;
 
+    /** The default maximum size of the extraction result cache in megabytes (512). */
+    public static final int DEFAULT_EXTRACTION_CACHE_MAX_SIZE = 512;
+
+    /** The default number of indexing threads extracting documents in parallel (1). */
+    public static final int DEFAULT_INDEXING_THREADS = 1;
+
     /** Default for the maximum number of modifications before a commit in the search index is triggered (500). */
     public static final int DEFAULT_MAX_MODIFICATIONS_BEFORE_COMMIT = 500;
 
@@ -665,6 +674,9 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
     /** Configured analyzers for languages using &lt;analyzer&gt;. */
     private HashMap<Locale, CmsSearchAnalyzer> m_analyzers;
 
+    /** The maximum time in milliseconds between two commits while indexing. */
+    private long m_commitInterval;
+
     /** Stores the offline update frequency while indexing is paused. */
     private long m_configuredOfflineIndexingFrequency;
 
@@ -680,6 +692,9 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
     /** The max age for extraction results to remain in the cache. */
     private float m_extractionCacheMaxAge;
 
+    /** The maximum size of the extraction result cache in megabytes. */
+    private int m_extractionCacheMaxSize;
+
     /** The cache for the extraction results. */
     private CmsExtractionResultCache m_extractionResultCache;
 
@@ -695,6 +710,9 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
     /** A list of search indexes. */
     private List<CmsSearchIndex> m_indexes;
 
+    /** The number of indexing threads extracting documents in parallel. */
+    private int m_indexingThreads;
+
     /** Seconds to wait for an index lock. */
     private int m_indexLockMaxWaitSeconds = 10;
 
@@ -737,9 +755,12 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         m_indexSources = new TreeMap<String, CmsSearchIndexSource>();
         m_offlineHandler = new CmsSearchOfflineHandler();
         m_extractionCacheMaxAge = DEFAULT_EXTRACTION_CACHE_MAX_AGE;
+        m_extractionCacheMaxSize = DEFAULT_EXTRACTION_CACHE_MAX_SIZE;
         m_maxExcerptLength = DEFAULT_EXCERPT_LENGTH;
         m_offlineUpdateFrequency = DEFAULT_OFFLINE_UPDATE_FREQNENCY;
         m_maxIndexWaitTime = DEFAULT_MAX_INDEX_WAITTIME;
+        m_indexingThreads = DEFAULT_INDEXING_THREADS;
+        m_commitInterval = DEFAULT_COMMIT_INTERVAL;
         m_maxModificationsBeforeCommit = DEFAULT_MAX_MODIFICATIONS_BEFORE_COMMIT;
 
         m_fieldConfigurations = new HashMap<String, CmsSearchFieldConfiguration>();
@@ -1086,6 +1107,16 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         return m_analyzers.get(locale);
     }
 
+    /**
+     * Returns the maximum time in milliseconds between two commits while indexing.<p>
+     *
+     * @return the maximum time between two commits, 0 if only the number of modifications triggers a commit
+     */
+    public long getCommitInterval() {
+
+        return m_commitInterval;
+    }
+
     /**
      * Returns the name of the directory below WEB-INF/ where the search indexes are stored.<p>
      *
@@ -1196,6 +1227,16 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         return m_extractionCacheMaxAge;
     }
 
+    /**
+     * Returns the maximum size of the text extraction result cache (in megabytes).<p>
+     *
+     * @return the maximum size of the text extraction result cache (in megabytes), 0 for no limit
+     */
+    public int getExtractionCacheMaxSize() {
+
+        return m_extractionCacheMaxSize;
+    }
+
     /**
      * Returns the search field configuration with the given name.<p>
      *
@@ -1295,6 +1336,16 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         return null;
     }
 
+    /**
+     * Returns the number of indexing threads extracting documents in parallel.<p>
+     *
+     * @return the number of indexing threads extracting documents in parallel
+     */
+    public int getIndexingThreads() {
+
+        return m_indexingThreads;
+    }
+
     /**
      * Returns the seconds to wait for an index lock during an update operation.<p>
      *
@@ -1502,6 +1553,7 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         m_extractionResultCache = new CmsExtractionResultCache(
             OpenCms.getSystemInfo().getAbsoluteRfsPathRelativeToWebInf(getDirectory()),
             "/extractCache");
+        m_extractionResultCache.setMaxSize(m_extractionCacheMaxSize * 1024L * 1024L);
         initializeIndexes();
         initOfflineIndexes();
 
@@ -2018,6 +2070,36 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         }
     }
 
+    /**
+     * Sets the maximum time in milliseconds between two commits while indexing.<p>
+     *
+     * @param commitInterval the maximum time between two commits, 0 if only the number of modifications triggers a commit
+     */
+    public void setCommitInterval(long commitInterval) {
+
+        m_commitInterval = commitInterval;
+    }
+
+    /**
+     * Sets the maximum time in milliseconds between two commits while indexing as a String.<p>
+     *
+     * @param commitInterval the maximum time between two commits, 0 if only the number of modifications triggers a commit
+     */
+    public void setCommitInterval(String commitInterval) {
+
+        try {
+            setCommitInterval(Long.parseLong(commitInterval));
+        } catch (Exception e) {
+            LOG.error(
+                Messages.get().getBundle().key(
+                    Messages.LOG_PARSE_COMMIT_INTERVAL_FAILED_2,
+                    commitInterval,
+                    new Long(DEFAULT_COMMIT_INTERVAL)),
+                e);
+            setCommitInterval(DEFAULT_COMMIT_INTERVAL);
+        }
+    }
+
     /**
      * Sets the name of the directory below WEB-INF/ where the search indexes are stored.<p>
      *
@@ -2058,6 +2140,41 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         }
     }
 
+    /**
+     * Sets the maximum size of the text extraction result cache (in megabytes).<p>
+     *
+     * If the size is exceeded, the least recently used extraction results are removed from the cache.<p>
+     *
+     * @param extractionCacheMaxSize the maximum size of the text extraction result cache, 0 for no limit
+     */
+    public void setExtractionCacheMaxSize(int extractionCacheMaxSize) {
+
+        m_extractionCacheMaxSize = extractionCacheMaxSize;
+        if (m_extractionResultCache != null) {
+            m_extractionResultCache.setMaxSize(extractionCacheMaxSize * 1024L * 1024L);
+        }
+    }
+
+    /**
+     * Sets the maximum size of the text extraction result cache (in megabytes) as a String.<p>
+     *
+     * @param extractionCacheMaxSize the maximum size of the text extraction result cache, 0 for no limit
+     */
+    public void setExtractionCacheMaxSize(String extractionCacheMaxSize) {
+
+        try {
+            setExtractionCacheMaxSize(Integer.parseInt(extractionCacheMaxSize));
+        } catch (NumberFormatException e) {
+            LOG.error(
+                Messages.get().getBundle().key(
+                    Messages.LOG_PARSE_EXTRACTION_CACHE_SIZE_FAILED_2,
+                    extractionCacheMaxSize,
+                    new Integer(DEFAULT_EXTRACTION_CACHE_MAX_SIZE)),
+                e);
+            setExtractionCacheMaxSize(DEFAULT_EXTRACTION_CACHE_MAX_SIZE);
+        }
+    }
+
     /**
      * Sets the unlock mode during indexing.<p>
      *
@@ -2085,6 +2202,36 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         }
     }
 
+    /**
+     * Sets the number of indexing threads extracting documents in parallel.<p>
+     *
+     * @param indexingThreads the number of indexing threads
+     */
+    public void setIndexingThreads(int indexingThreads) {
+
+        m_indexingThreads = indexingThreads;
+    }
+
+    /**
+     * Sets the number of indexing threads extracting documents in parallel as a String.<p>
+     *
+     * @param indexingThreads the number of indexing threads
+     */
+    public void setIndexingThreads(String indexingThreads) {
+
+        try {
+            setIndexingThreads(Integer.parseInt(indexingThreads));
+        } catch (Exception e) {
+            LOG.error(
+                Messages.get().getBundle().key(
+                    Messages.LOG_PARSE_INDEXING_THREADS_FAILED_2,
+                    indexingThreads,
+                    new Integer(DEFAULT_INDEXING_THREADS)),
+                e);
+            setIndexingThreads(DEFAULT_INDEXING_THREADS);
+        }
+    }
+
     /**
      * Sets the seconds to wait for an index lock during an update operation.<p>
      *
@@ -2463,7 +2610,11 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
      */
     protected CmsIndexingThreadManager getThreadManager() {
 
-        return new CmsIndexingThreadManager(m_timeout, m_maxModificationsBeforeCommit);
+        return new CmsIndexingThreadManager(
+            m_timeout,
+            m_maxModificationsBeforeCommit,
+            m_indexingThreads,
+            m_commitInterval);
     }
 
     /**
@@ -39,8 +39,11 @@ import org.opencms.util.CmsUUID;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 
@@ -144,6 +147,10 @@ public class CmsVfsIndexer implements I_CmsIndexer {
                 if (CmsProject.isInsideProject(source.getResourcesNames(), pubRes.getRootPath())) {
                     // the resource is "inside" this index source
                     addResourceToUpdateData(pubRes, result);
+                    if (pubRes.isFolder() && pubRes.getState().isChanged() && m_index.isUpdatingFolderContents()) {
+                        // the documents of the files below the folder inherit data from it, e.g. the permissions
+                        addFolderContentsToUpdateData(pubRes, result);
+                    }
                 }
             }
         }
@@ -243,7 +250,7 @@ public class CmsVfsIndexer implements I_CmsIndexer {
         }
 
         // contains all resources already updated to avoid multiple updates in case of siblings
-        List<String> resourcesAlreadyUpdated = new ArrayList<String>(resourcesToUpdate.size());
+        Set<String> resourcesAlreadyUpdated = new HashSet<String>(resourcesToUpdate.size());
 
         // index all resources that are in the given list
         Iterator<CmsPublishedResource> i = resourcesToUpdate.iterator();
@@ -275,6 +282,33 @@ public class CmsVfsIndexer implements I_CmsIndexer {
         }
     }
 
+    /**
+     * Adds all files below a published folder to the provided search index update data.<p>
+     *
+     * @param folder the published folder
+     * @param updateData the search index update data to add the files to
+     */
+    protected void addFolderContentsToUpdateData(CmsPublishedResource folder, CmsSearchIndexUpdateData updateData) {
+
+        try {
+            List<CmsResource> resources = m_cms.readResources(
+                folder.getRootPath(),
+                CmsResourceFilter.IGNORE_EXPIRATION.addRequireFile());
+            for (CmsResource resource : resources) {
+                updateData.addResourceToUpdate(new CmsPublishedResource(resource));
+            }
+        } catch (CmsException e) {
+            if (LOG.isWarnEnabled()) {
+                LOG.warn(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_UNABLE_TO_READ_RESOURCE_2,
+                        folder.getRootPath(),
+                        m_index.getName()),
+                    e);
+            }
+        }
+    }
+
     /**
      * Adds a given published resource to the provided search index update data.<p>
      *
@@ -332,6 +366,34 @@ public class CmsVfsIndexer implements I_CmsIndexer {
             CmsResourceFilter.DEFAULT);
     }
 
+    /**
+     * Updates several resources with the given index writer and the new documents provided.<p>
+     *
+     * If writing the documents together fails, they are written one by one, so only the
+     * broken documents are missing in the index.<p>
+     *
+     * @param indexWriter the index writer to update the resources with
+     * @param documents the new documents, keyed by the root path of the resource
+     */
+    protected void updateDocuments(I_CmsIndexWriter indexWriter, Map<String, I_CmsSearchDocument> documents) {
+
+        try {
+            indexWriter.updateDocuments(documents);
+        } catch (Exception e) {
+            if (LOG.isWarnEnabled()) {
+                LOG.warn(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_IO_INDEX_DOCUMENTS_UPDATE_2,
+                        new Integer(documents.size()),
+                        m_index.getName()),
+                    e);
+            }
+            for (Map.Entry<String, I_CmsSearchDocument> entry : documents.entrySet()) {
+                updateResource(indexWriter, entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
     /**
      * Updates (writes) a single resource in the index.<p>
      *
@@ -30,6 +30,7 @@ package org.opencms.search;
 import org.opencms.db.CmsPublishedResource;
 
 import java.io.IOException;
+import java.util.Map;
 
 /**
  * Abstracts the index writer implementation for the most important index manipulation operations.
@@ -81,4 +82,13 @@ public interface I_CmsIndexWriter {
      * @throws IOException in case something goes wrong
      */
     void updateDocument(String rootPath, I_CmsSearchDocument document) throws IOException;
+
+    /**
+     * Updates several documents in the index with a single request, if the index supports this.<p>
+     *
+     * @param documents the documents to update, keyed by the root path of the resource
+     *
+     * @throws IOException in case something goes wrong
+     */
+    void updateDocuments(Map<String, I_CmsSearchDocument> documents) throws IOException;
 }
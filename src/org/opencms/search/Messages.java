@@ -310,6 +310,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_IO_INDEX_BACKUP_REMOVE_2 = "LOG_IO_INDEX_BACKUP_REMOVE_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_IO_INDEX_DOCUMENTS_UPDATE_2 = "LOG_IO_INDEX_DOCUMENTS_UPDATE_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_IO_INDEX_DOCUMENT_DELETE_2 = "LOG_IO_INDEX_DOCUMENT_DELETE_2";
 
@@ -349,12 +352,21 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_OI_UPDATE_START_1 = "LOG_OI_UPDATE_START_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_PARSE_COMMIT_INTERVAL_FAILED_2 = "LOG_PARSE_COMMIT_INTERVAL_FAILED_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_PARSE_EXCERPT_LENGTH_FAILED_2 = "LOG_PARSE_EXCERPT_LENGTH_FAILED_2";
 
     /** Message constant for key in the resource bundle. */
     public static final String LOG_PARSE_EXTRACTION_CACHE_AGE_FAILED_2 = "LOG_PARSE_EXTRACTION_CACHE_AGE_FAILED_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_PARSE_EXTRACTION_CACHE_SIZE_FAILED_2 = "LOG_PARSE_EXTRACTION_CACHE_SIZE_FAILED_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_PARSE_INDEXING_THREADS_FAILED_2 = "LOG_PARSE_INDEXING_THREADS_FAILED_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_PARSE_MAXCOMMIT_FAILED_2 = "LOG_PARSE_MAXCOMMIT_FAILED_2";
 
@@ -453,6 +465,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String RPT_SEARCH_INDEXING_LOCK_WAIT_2 = "RPT_SEARCH_INDEXING_LOCK_WAIT_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String RPT_SEARCH_INDEXING_PIPELINE_STATS_4 = "RPT_SEARCH_INDEXING_PIPELINE_STATS_4";
+
     /** Message constant for key in the resource bundle. */
     public static final String RPT_SEARCH_INDEXING_REBUILD_BEGIN_1 = "RPT_SEARCH_INDEXING_REBUILD_BEGIN_1";
 
@@ -43,6 +43,7 @@ import org.opencms.search.fields.CmsSearchField;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 
 import org.apache.commons.logging.Log;
 
@@ -113,43 +114,55 @@ public abstract class A_CmsVfsDocument implements I_CmsDocumentFactory {
         if (index.isExtractingContent()) {
             // do full text content extraction only if required
 
+            // compare "date of last modification of content" from Lucene index and OpenCms VFS
+            // if this is identical, then the data from the Lucene index can be re-used
+            I_CmsSearchDocument oldDoc = index.getDocument(CmsSearchField.FIELD_PATH, resource.getRootPath());
+            // first check if the document is already in the index
+            if ((oldDoc != null) && (oldDoc.getFieldValueAsDate(CmsSearchField.FIELD_DATE_CONTENT) != null)) {
+                long contentDateIndex = oldDoc.getFieldValueAsDate(CmsSearchField.FIELD_DATE_CONTENT).getTime();
+                // now compare the date with the date stored in the resource
+                if (contentDateIndex == resource.getDateContent()) {
+                    // extract stored content blob from index
+                    content = CmsExtractionResult.fromBytes(oldDoc.getContentBlob());
+                }
+            }
+
             // check if caching is enabled for this document type
             CmsExtractionResultCache cache = getCache();
             String cacheName = null;
-            if ((cache != null) && (resource.getSiblingCount() > 1)) {
-                // hard drive based caching only makes sense for resources that have siblings,
-                // because the index will also store the content as a blob
-                cacheName = cache.getCacheName(
-                    resource,
-                    isLocaleDependend() ? index.getLocaleForResource(cms, resource, null) : null,
-                    getName());
-                content = cache.getCacheObject(cacheName);
-            }
-
-            if (content == null) {
-                // extraction result has not been found in the cache
-                // compare "date of last modification of content" from Lucene index and OpenCms VFS
-                // if this is identical, then the data from the Lucene index can be re-used
-                I_CmsSearchDocument oldDoc = index.getDocument(CmsSearchField.FIELD_PATH, resource.getRootPath());
-                // first check if the document is already in the index
-                if ((oldDoc != null) && (oldDoc.getFieldValueAsDate(CmsSearchField.FIELD_DATE_CONTENT) != null)) {
-                    long contentDateIndex = oldDoc.getFieldValueAsDate(CmsSearchField.FIELD_DATE_CONTENT).getTime();
-                    // now compare the date with the date stored in the resource
-                    if (contentDateIndex == resource.getDateContent()) {
-                        // extract stored content blob from index
-                        content = CmsExtractionResult.fromBytes(oldDoc.getContentBlob());
+            CmsResource extractionResource = resource;
+            if ((content == null) && (cache != null)) {
+                Locale locale = isLocaleDependend() ? index.getLocaleForResource(cms, resource, null) : null;
+                if (isOnlyDependentOnContent()) {
+                    if (resource.isFile() && (resource.getLength() > 0)) {
+                        // the cache is keyed by the content, so siblings and copies of the same file share the result,
+                        // the file read here is passed on to the extraction so the content is only read once
+                        try {
+                            CmsFile file = readFile(cms, resource);
+                            cacheName = cache.getCacheName(file.getContents(), locale, getName());
+                            content = cache.getCacheObject(cacheName);
+                            extractionResource = file;
+                        } catch (CmsException e) {
+                            // the extraction will read the file again and handle the error
+                            LOG.debug(e.getLocalizedMessage(), e);
+                        }
                     }
+                } else if (resource.getSiblingCount() > 1) {
+                    // the result may depend on more than the content, e.g. on the content definition,
+                    // so it is only shared by siblings, because the index will also store the content as a blob
+                    cacheName = cache.getCacheName(resource, locale, getName());
+                    content = cache.getCacheObject(cacheName);
                 }
             }
 
             if (content == null) {
                 // extraction result has not been attached to the resource
                 try {
-                    content = extractContent(cms, resource, index);
+                    content = extractContent(cms, extractionResource, index);
                     if (LOG.isDebugEnabled()) {
                         LOG.debug("Extracting content for '" + resource.getRootPath() + "' successful.");
                     }
-                    if ((cache != null) && (resource.getSiblingCount() > 1)) {
+                    if (cacheName != null) {
                         // save extracted content to the cache
                         cache.saveCacheObject(cacheName, content);
                     }
@@ -222,6 +235,20 @@ public abstract class A_CmsVfsDocument implements I_CmsDocumentFactory {
         return m_name;
     }
 
+    /**
+     * Returns <code>true</code> if the extraction result of this document type only depends on the content
+     * of the resource, so the extraction result cache can be keyed by the content.<p>
+     *
+     * This is the case for binary documents, but not e.g. for XML contents, where the extraction
+     * also depends on the content definition and the detail containers.<p>
+     *
+     * @return <code>true</code> if the extraction result only depends on the content of the resource
+     */
+    public boolean isOnlyDependentOnContent() {
+
+        return false;
+    }
+
     /**
      * @see org.opencms.search.documents.I_CmsDocumentFactory#setCache(org.opencms.search.documents.CmsExtractionResultCache)
      */
@@ -85,6 +85,15 @@ public class CmsDocumentMsOfficeOLE2 extends A_CmsVfsDocument {
         return false;
     }
 
+    /**
+     * @see org.opencms.search.documents.A_CmsVfsDocument#isOnlyDependentOnContent()
+     */
+    @Override
+    public boolean isOnlyDependentOnContent() {
+
+        return true;
+    }
+
     /**
      * @see org.opencms.search.documents.I_CmsDocumentFactory#isUsingCache()
      */
@@ -29,44 +29,113 @@ package org.opencms.search.documents;
 
 import org.opencms.cache.CmsVfsDiskCache;
 import org.opencms.file.CmsResource;
+import org.opencms.i18n.CmsLocaleManager;
 import org.opencms.main.CmsLog;
 import org.opencms.search.extractors.CmsExtractionResult;
 import org.opencms.search.extractors.I_CmsExtractionResult;
 import org.opencms.util.CmsFileUtil;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.logging.Log;
 
 /**
  * Implements a disk cache that stores text extraction results in the RFS.<p>
  *
- * This cache operates on resource file names, plus a hash code calculated from
- * {@link org.opencms.file.CmsResource#getDateLastModified()}
- * and {@link org.opencms.file.CmsResource#getLength()}. Optional a locale can be appended to this name.<p>
+ * This cache operates on a hash of the resource content. Optional the locale is appended to this name,
+ * as well as the name of the search document type that created the extraction result.<p>
  *
- * Since text extraction is done only on the content of a resource, all siblings must have the same content.
- * The difference can be only by the locale setting in case of an XML content or XML page. However,
- * the most problematic contents to extract for the search are in fact the MS Office and PDF formats.
- * For these documents, all siblings must produce the exact same text extraction result.<p>
+ * Since text extraction is done only on the content of a resource, all resources with identical content
+ * produce the same text extraction result. This means siblings, copies and re-uploads of the same file
+ * share one cache entry, in the online AND the offline project, and for all indexes of this OpenCms instance.
+ * Any change to the content results in a new hash and thus a new cache entry.<p>
  *
- * This cache is usable for resources from the online AND the offline project at the same time,
- * because any change to a resource will result in a changed hash code. This means a resource changed in the offline
- * project will have a new hash code compared to the online project. If the resource is identical in the online and
- * the offline project, the generated hash codes will be the same.<p>
+ * The entries are stored in a compressed binary format starting with a version header.
+ * All entries are kept in an in-memory index, ordered by their last access, which is built once
+ * from the cache folder. Lookups do not need to touch the file system for missing entries, and
+ * if the configured maximum size is exceeded, the least recently used entries are removed.<p>
  *
  * @since 6.2.0
  */
 public class CmsExtractionResultCache {
 
+    /**
+     * An entry in the in-memory index of the cache.<p>
+     */
+    private static class CmsExtractionCacheEntry {
+
+        /** The time of the last access to the entry. */
+        long m_lastAccess;
+
+        /** The size of the entry in the RFS. */
+        long m_size;
+
+        /**
+         * Creates a new cache index entry.<p>
+         *
+         * @param size the size of the entry in the RFS
+         * @param lastAccess the time of the last access to the entry
+         */
+        CmsExtractionCacheEntry(long size, long lastAccess) {
+
+            m_size = size;
+            m_lastAccess = lastAccess;
+        }
+    }
+
+    /** The file suffix of the cache entries. */
+    public static final String CACHE_FILE_SUFFIX = ".exr";
+
+    /** The magic bytes the cache files start with. */
+    private static final byte[] FORMAT_MAGIC = new byte[] {'O', 'C', 'E', 'X'};
+
+    /** The version of the binary format of the cache files. */
+    private static final int FORMAT_VERSION = 1;
+
+    /** The algorithm used to calculate the content hash. */
+    private static final String HASH_ALGORITHM = "SHA-1";
+
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsExtractionResultCache.class);
 
+    /** Interval after which the date of last modification of a cache file is updated on access (1 hour). */
+    private static final long TOUCH_INTERVAL = 3600000L;
+
+    /** The charset used for the Strings in the cache files. */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** The in-memory index of the cache entries, keyed by file name, in order of last access. */
+    private LinkedHashMap<String, CmsExtractionCacheEntry> m_index;
+
+    /** The maximum size of all cache entries in bytes, 0 for no limit. */
+    private long m_maxSize;
+
     /** The name of the cache base repository folder in the RFS. */
     private String m_rfsRepository;
 
+    /** The size of all cache entries in bytes. */
+    private long m_size;
+
     /**
      * Creates a new disk cache.<p>
      *
@@ -80,60 +149,271 @@ public class CmsExtractionResultCache {
     }
 
     /**
-     * Removes all expired extraction result cache entries from the RFS cache.<p>
+     * Reads an extraction result from the binary format of the cache files.<p>
+     *
+     * @param bytes the cache file content
+     *
+     * @return the extraction result
+     *
+     * @throws IOException if the bytes are not a valid cache entry of the current format version
+     */
+    static CmsExtractionResult fromBytes(byte[] bytes) throws IOException {
+
+        if ((bytes.length <= FORMAT_MAGIC.length)
+            || !Arrays.equals(FORMAT_MAGIC, Arrays.copyOf(bytes, FORMAT_MAGIC.length))
+            || (bytes[FORMAT_MAGIC.length] != FORMAT_VERSION)) {
+            throw new IOException(Messages.get().getBundle().key(Messages.LOG_EXTRACTION_CACHE_INVALID_FORMAT_0));
+        }
+        int offset = FORMAT_MAGIC.length + 1;
+        DataInputStream in = new DataInputStream(
+            new InflaterInputStream(new ByteArrayInputStream(bytes, offset, bytes.length - offset)));
+        try {
+            Locale defaultLocale = readLocale(in);
+            int localeCount = in.readInt();
+            Map<Locale, LinkedHashMap<String, String>> contentItems = new LinkedHashMap<Locale, LinkedHashMap<String, String>>(
+                localeCount);
+            for (int i = 0; i < localeCount; i++) {
+                Locale locale = readLocale(in);
+                contentItems.put(locale, readMap(in));
+            }
+            return new CmsExtractionResult(defaultLocale, contentItems, readMap(in));
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Writes an extraction result in the binary format of the cache files.<p>
+     *
+     * @param content the extraction result
+     *
+     * @return the cache file content
+     *
+     * @throws IOException should not happen, since only memory is written
+     */
+    static byte[] toBytes(I_CmsExtractionResult content) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        bytes.write(FORMAT_MAGIC);
+        bytes.write(FORMAT_VERSION);
+        DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes));
+        Locale defaultLocale = content.getDefaultLocale();
+        List<Locale> locales = new ArrayList<Locale>();
+        locales.add(defaultLocale);
+        for (Locale locale : content.getLocales()) {
+            if (!locales.contains(locale)) {
+                locales.add(locale);
+            }
+        }
+        writeLocale(out, defaultLocale);
+        out.writeInt(locales.size());
+        for (Locale locale : locales) {
+            writeLocale(out, locale);
+            writeMap(
+                out,
+                locale == defaultLocale ? content.getContentItems() : content.getContentItems(locale));
+        }
+        writeMap(out, content.getFieldMappings());
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads a locale written with {@link #writeLocale(DataOutputStream, Locale)}.<p>
+     *
+     * @param in the stream to read from
+     *
+     * @return the locale, may be <code>null</code>
+     *
+     * @throws IOException if reading fails
+     */
+    private static Locale readLocale(DataInputStream in) throws IOException {
+
+        String locale = readString(in);
+        return locale == null ? null : CmsLocaleManager.getLocale(locale);
+    }
+
+    /**
+     * Reads a map written with {@link #writeMap(DataOutputStream, Map)}.<p>
+     *
+     * @param in the stream to read from
+     *
+     * @return the map
+     *
+     * @throws IOException if reading fails
+     */
+    private static LinkedHashMap<String, String> readMap(DataInputStream in) throws IOException {
+
+        int size = in.readInt();
+        LinkedHashMap<String, String> result = new LinkedHashMap<String, String>(size);
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            result.put(key, readString(in));
+        }
+        return result;
+    }
+
+    /**
+     * Reads a String written with {@link #writeString(DataOutputStream, String)}.<p>
+     *
+     * @param in the stream to read from
+     *
+     * @return the String, may be <code>null</code>
+     *
+     * @throws IOException if reading fails
+     */
+    private static String readString(DataInputStream in) throws IOException {
+
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * Writes a locale, which may be <code>null</code>.<p>
+     *
+     * @param out the stream to write to
+     * @param locale the locale
+     *
+     * @throws IOException if writing fails
+     */
+    private static void writeLocale(DataOutputStream out, Locale locale) throws IOException {
+
+        writeString(out, locale == null ? null : locale.toString());
+    }
+
+    /**
+     * Writes a map of Strings.<p>
+     *
+     * @param out the stream to write to
+     * @param map the map, may be <code>null</code>
+     *
+     * @throws IOException if writing fails
+     */
+    private static void writeMap(DataOutputStream out, Map<String, String> map) throws IOException {
+
+        if (map == null) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(map.size());
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    /**
+     * Writes a String of any length, which may be <code>null</code>.<p>
+     *
+     * @param out the stream to write to
+     * @param value the String
+     *
+     * @throws IOException if writing fails
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(UTF8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Removes all extraction result cache entries from the RFS cache that have not been accessed
+     * for longer than the given time.<p>
      *
      * @param maxAge the maximum age of the extraction result cache files in hours (or fractions of hours)
      *
      * @return the total number of deleted resources
      */
-    public synchronized int cleanCache(float maxAge) {
+    public int cleanCache(float maxAge) {
 
         // calculate oldest possible date for the cache files
         long expireDate = System.currentTimeMillis() - (long)(maxAge * 60.0f * 60.0f * 1000.0f);
-        File basedir = new File(m_rfsRepository);
-        // perform the cache cleanup
-        int count = 0;
-        if (basedir.canRead() && basedir.isDirectory()) {
-            File[] files = basedir.listFiles();
-            if (files != null) {
-                for (int i = 0; i < files.length; i++) {
-                    File f = files[i];
-                    if (f.canWrite()) {
-                        if (f.lastModified() < expireDate) {
-                            try {
-                                f.delete();
-                                count++;
-                            } catch (Exception e) {
-                                if (LOG.isWarnEnabled()) {
-                                    LOG.warn(
-                                        Messages.get().getBundle().key(
-                                            Messages.LOG_EXCERPT_CACHE_DELETE_ERROR_1,
-                                            f.getAbsolutePath()),
-                                        e);
-                                }
-                            }
-                        }
-                    }
+        List<String> expired = new ArrayList<String>();
+        synchronized (this) {
+            Iterator<Map.Entry<String, CmsExtractionCacheEntry>> it = getIndex().entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, CmsExtractionCacheEntry> entry = it.next();
+                if (entry.getValue().m_lastAccess >= expireDate) {
+                    // the index is ordered by access, so all following entries are newer
+                    break;
                 }
+                expired.add(entry.getKey());
+                m_size -= entry.getValue().m_size;
+                it.remove();
             }
         }
-        return count;
+        deleteFiles(expired);
+        return expired.size();
+    }
+
+    /**
+     * Returns the RFS name used for caching the text extraction result of the given content.<p>
+     *
+     * Use this name only for document types where the extraction result depends on nothing but the content.<p>
+     *
+     * @param content the content of the VFS resource to generate the cache name for
+     * @param locale the locale to generate the cache name for (may be <code>null</code>)
+     * @param docTypeName the name of the search document type
+     *
+     * @return the RFS name to use for caching the text extraction result of the given content
+     */
+    public String getCacheName(byte[] content, Locale locale, String docTypeName) {
+
+        // create a StringBuffer for the result
+        StringBuffer buf = new StringBuffer(m_rfsRepository.length() + 64);
+        buf.append(m_rfsRepository);
+        buf.append('/');
+        try {
+            buf.append(Hex.encodeHexString(MessageDigest.getInstance(HASH_ALGORITHM).digest(content)));
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform must support SHA-1
+            throw new RuntimeException(e);
+        }
+        buf.append('_');
+        buf.append(content.length);
+
+        if (docTypeName != null) {
+            buf.append('_');
+            buf.append(docTypeName);
+        }
+
+        // check if parameters are provided, if so add them as well
+        if (locale != null) {
+            buf.append('_');
+            buf.append(locale.toString());
+        }
+
+        // finally append the extension
+        buf.append(CACHE_FILE_SUFFIX);
+        return buf.toString();
     }
 
     /**
-     * Returns the RFS name used for caching an the text extraction result
-     * based on the given VFS resource and locale.<p>
+     * Returns the RFS name used for caching the text extraction result of the given VFS resource.<p>
+     *
+     * The name is based on the resource id and the date of the last content modification,
+     * so it is shared by the siblings of the resource.<p>
      *
      * @param resource the VFS resource to generate the cache name for
      * @param locale the locale to generate the cache name for (may be <code>null</code>)
      * @param docTypeName the name of the search document type
      *
-     * @return the RFS name to use for caching the given VFS resource with parameters
+     * @return the RFS name to use for caching the text extraction result of the given VFS resource
      */
     public String getCacheName(CmsResource resource, Locale locale, String docTypeName) {
 
         // create a StringBuffer for the result
-        StringBuffer buf = new StringBuffer(m_rfsRepository.length() + 36);
+        StringBuffer buf = new StringBuffer(m_rfsRepository.length() + 64);
         buf.append(m_rfsRepository);
         buf.append('/');
         buf.append(resource.getResourceId().toString());
@@ -155,13 +435,13 @@ public class CmsExtractionResultCache {
         buf.append(resource.getDateContent());
 
         // finally append the extension
-        buf.append(".ext");
+        buf.append(CACHE_FILE_SUFFIX);
         return buf.toString();
     }
 
     /**
      * Returns the extraction result in the requested file in the disk cache, or <code>null</code> if the
-     * file is not found in the cache, or is found but out-dated.<p>
+     * file is not found in the cache.<p>
      *
      * @param rfsName the file RFS name to look up in the cache
      *
@@ -169,24 +449,48 @@ public class CmsExtractionResultCache {
      */
     public CmsExtractionResult getCacheObject(String rfsName) {
 
+        File f = new File(rfsName);
+        long lastAccess;
+        synchronized (this) {
+            CmsExtractionCacheEntry entry = getIndex().get(f.getName());
+            if (entry == null) {
+                return null;
+            }
+            lastAccess = entry.m_lastAccess;
+            entry.m_lastAccess = System.currentTimeMillis();
+        }
         try {
-            File f = new File(rfsName);
-            if (f.exists()) {
-                long age = f.lastModified();
-                if ((System.currentTimeMillis() - age) > 3600000) {
-                    // file has not been touched for 1 hour, touch the file with the current date
-                    f.setLastModified(System.currentTimeMillis());
-                }
-                byte[] byteContent = CmsFileUtil.readFile(f);
-                return CmsExtractionResult.fromBytes(byteContent);
+            CmsExtractionResult result = fromBytes(CmsFileUtil.readFile(f));
+            if ((System.currentTimeMillis() - lastAccess) > TOUCH_INTERVAL) {
+                // file has not been touched for 1 hour, touch the file so the access survives a restart
+                f.setLastModified(System.currentTimeMillis());
             }
+            return result;
         } catch (IOException e) {
-            // unable to read content
+            // unable to read content, remove the entry
+            LOG.warn(Messages.get().getBundle().key(Messages.LOG_EXTRACTION_CACHE_READ_ERROR_1, rfsName), e);
+            synchronized (this) {
+                CmsExtractionCacheEntry entry = getIndex().remove(f.getName());
+                if (entry != null) {
+                    m_size -= entry.m_size;
+                }
+            }
+            deleteFiles(Collections.singletonList(f.getName()));
         }
         // this code can be reached only in case of an error
         return null;
     }
 
+    /**
+     * Returns the maximum size of all cache entries in bytes.<p>
+     *
+     * @return the maximum size of all cache entries in bytes, 0 for no limit
+     */
+    public long getMaxSize() {
+
+        return m_maxSize;
+    }
+
     /**
      * Returns the absolute path of the cache repository in the RFS.<p>
      *
@@ -198,18 +502,123 @@ public class CmsExtractionResultCache {
     }
 
     /**
-     * Serializes the given extraction result and saves it in the disk cache.<p>
+     * Returns the size of all cache entries in bytes.<p>
+     *
+     * @return the size of all cache entries in bytes
+     */
+    public synchronized long getSize() {
+
+        getIndex();
+        return m_size;
+    }
+
+    /**
+     * Saves the given extraction result in the disk cache.<p>
+     *
+     * If the maximum size of the cache is exceeded, the least recently used entries are removed.<p>
      *
      * @param rfsName the RFS name of the file to save the extraction result in
-     * @param content the extraction result to serialize and save
+     * @param content the extraction result to save
      *
      * @throws IOException in case of disk access errors
      */
     public void saveCacheObject(String rfsName, I_CmsExtractionResult content) throws IOException {
 
-        byte[] byteContent = content.getBytes();
-        if (byteContent != null) {
-            CmsVfsDiskCache.saveFile(rfsName, byteContent);
+        byte[] byteContent = toBytes(content);
+        File f = CmsVfsDiskCache.saveFile(rfsName, byteContent);
+        List<String> evicted = new ArrayList<String>();
+        synchronized (this) {
+            // only complete files are added to the index
+            CmsExtractionCacheEntry entry = getIndex().put(
+                f.getName(),
+                new CmsExtractionCacheEntry(byteContent.length, System.currentTimeMillis()));
+            if (entry != null) {
+                m_size -= entry.m_size;
+            }
+            m_size += byteContent.length;
+            if (m_maxSize > 0) {
+                Iterator<Map.Entry<String, CmsExtractionCacheEntry>> it = m_index.entrySet().iterator();
+                while ((m_size > m_maxSize) && it.hasNext()) {
+                    Map.Entry<String, CmsExtractionCacheEntry> eldest = it.next();
+                    if (eldest.getKey().equals(f.getName())) {
+                        // never remove the entry just written
+                        continue;
+                    }
+                    evicted.add(eldest.getKey());
+                    m_size -= eldest.getValue().m_size;
+                    it.remove();
+                }
+            }
+        }
+        deleteFiles(evicted);
+    }
+
+    /**
+     * Sets the maximum size of all cache entries in bytes.<p>
+     *
+     * @param maxSize the maximum size of all cache entries in bytes, 0 for no limit
+     */
+    public void setMaxSize(long maxSize) {
+
+        m_maxSize = maxSize;
+    }
+
+    /**
+     * Deletes the given cache files from the RFS.<p>
+     *
+     * @param fileNames the names of the files to delete
+     */
+    private void deleteFiles(List<String> fileNames) {
+
+        for (String fileName : fileNames) {
+            File f = new File(m_rfsRepository, fileName);
+            if (f.exists() && !f.delete()) {
+                LOG.warn(
+                    Messages.get().getBundle().key(Messages.LOG_EXCERPT_CACHE_DELETE_ERROR_1, f.getAbsolutePath()));
+            }
+        }
+    }
+
+    /**
+     * Returns the in-memory index of the cache entries, which is built from the cache folder on first access.<p>
+     *
+     * Cache files of the previous, resource based format are removed while the index is built.
+     * Must be called while holding the lock on this cache.<p>
+     *
+     * @return the in-memory index of the cache entries
+     */
+    private LinkedHashMap<String, CmsExtractionCacheEntry> getIndex() {
+
+        if (m_index == null) {
+            m_index = new LinkedHashMap<String, CmsExtractionCacheEntry>(256, 0.75f, true);
+            m_size = 0;
+            File[] files = new File(m_rfsRepository).listFiles();
+            if (files != null) {
+                Arrays.sort(files, new Comparator<File>() {
+
+                    public int compare(File f1, File f2) {
+
+                        long l1 = f1.lastModified();
+                        long l2 = f2.lastModified();
+                        return l1 < l2 ? -1 : (l1 > l2 ? 1 : 0);
+                    }
+                });
+                for (File f : files) {
+                    if (!f.isFile()) {
+                        continue;
+                    }
+                    if (f.getName().endsWith(CACHE_FILE_SUFFIX)) {
+                        m_index.put(f.getName(), new CmsExtractionCacheEntry(f.length(), f.lastModified()));
+                        m_size += f.length();
+                    } else if (!f.delete()) {
+                        LOG.warn(
+                            Messages.get().getBundle().key(
+                                Messages.LOG_EXCERPT_CACHE_DELETE_ERROR_1,
+                                f.getAbsolutePath()));
+                    }
+                }
+            }
         }
+        return m_index;
     }
-}
\ No newline at end of file
+}
@@ -146,6 +146,15 @@ public class CmsSearchField implements Serializable {
      */
     public static final String FIELD_PRIORITY = "priority";
 
+    /** Name of the field that contains the ids of the principals that are allowed to read the resource. */
+    public static final String FIELD_READ_ALLOWED = "read_allowed";
+
+    /** Name of the field that contains the ids of the principals that are denied to read the resource. */
+    public static final String FIELD_READ_DENIED = "read_denied";
+
+    /** Name of the field that contains the ids of all principals with an access control entry for the resource. */
+    public static final String FIELD_READ_PRINCIPALS = "read_principals";
+
     /** Name of the field that contains the resource locales of the document. */
     public static final String FIELD_RESOURCE_LOCALES = "res_locales";
 
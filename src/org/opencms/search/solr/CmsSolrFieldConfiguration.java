@@ -55,6 +55,7 @@ import org.opencms.search.fields.CmsSearchFieldConfiguration;
 import org.opencms.search.fields.CmsSearchFieldMapping;
 import org.opencms.search.fields.CmsSearchFieldMappingType;
 import org.opencms.search.fields.I_CmsSearchFieldMapping;
+import org.opencms.security.CmsAccessControlList;
 import org.opencms.util.CmsStringUtil;
 import org.opencms.xml.CmsXmlContentDefinition;
 import org.opencms.xml.containerpage.CmsContainerElementBean;
@@ -226,6 +227,19 @@ public class CmsSolrFieldConfiguration extends CmsSearchFieldConfiguration {
             document.addSearchField(m_solrFields.get(CmsSearchField.FIELD_SEARCH_CHANNEL), "content");
         }
 
+        try {
+            // add the read permissions, used by the index to filter the results before paging
+            CmsAccessControlList acl = cms.getAccessControlList(cms.getSitePath(resource));
+            Map<String, List<String>> permissionFields = CmsSolrPermissionFilter.getPermissionFields(acl);
+            for (Map.Entry<String, List<String>> field : permissionFields.entrySet()) {
+                document.addSearchField(
+                    m_solrFields.get(field.getKey()),
+                    CmsStringUtil.listAsString(field.getValue(), "\n"));
+            }
+        } catch (CmsException e) {
+            LOG.error(e.getMessage(), e);
+        }
+
         return document;
     }
 
@@ -718,6 +732,15 @@ public class CmsSolrFieldConfiguration extends CmsSearchFieldConfiguration {
         sfield = new CmsSolrField(CmsSearchField.FIELD_SEARCH_CHANNEL, null, null, null, 0);
         m_solrFields.put(sfield.getName(), sfield);
 
+        sfield = new CmsSolrField(CmsSearchField.FIELD_READ_ALLOWED, null, null, null, 0);
+        m_solrFields.put(sfield.getName(), sfield);
+
+        sfield = new CmsSolrField(CmsSearchField.FIELD_READ_DENIED, null, null, null, 0);
+        m_solrFields.put(sfield.getName(), sfield);
+
+        sfield = new CmsSolrField(CmsSearchField.FIELD_READ_PRINCIPALS, null, null, null, 0);
+        m_solrFields.put(sfield.getName(), sfield);
+
         /*
          * Fields with mapping
          */
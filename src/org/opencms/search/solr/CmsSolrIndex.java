@@ -120,6 +120,9 @@ public class CmsSolrIndex extends CmsSearchIndex {
     /** The name of the default Solr Online index. */
     public static final String DEFAULT_INDEX_NAME_ONLINE = "Solr Online";
 
+    /** Constant for additional parameter to filter the results by the indexed read permissions. */
+    public static final String PERMISSION_FILTER = "search.solr.permissionFilter";
+
     /** Constant for additional parameter to set the post processor class name. */
     public static final String POST_PROCESSOR = "search.solr.postProcessor";
 
@@ -168,8 +171,11 @@ public class CmsSolrIndex extends CmsSearchIndex {
     /** A constant for UTF-8 charset. */
     private static final Charset UTF8 = Charset.forName("UTF-8");
 
-    /** The embedded Solr client for this index. */
-    SolrClient m_solr;
+    /** The embedded Solr client for this index, the client is thread-safe and shared by all searches. */
+    volatile SolrClient m_solr;
+
+    /** Indicates if the results are filtered by the indexed read permissions. */
+    private boolean m_permissionFilter;
 
     /** The post document manipulator. */
     private I_CmsSolrPostSearchProcessor m_postProcessor;
@@ -236,6 +242,8 @@ public class CmsSolrIndex extends CmsSearchIndex {
                     LOG.error(ex.getMessage(), ex);
                 }
             }
+        } else if (PERMISSION_FILTER.equals(key)) {
+            setPermissionFilter(Boolean.valueOf(value).booleanValue());
         }
         super.addConfigurationParameter(key, value);
     }
@@ -314,6 +322,9 @@ public class CmsSolrIndex extends CmsSearchIndex {
         if (getPostProcessor() != null) {
             result.put(POST_PROCESSOR, getPostProcessor().getClass().getName());
         }
+        if (isPermissionFilter()) {
+            result.put(PERMISSION_FILTER, String.valueOf(isPermissionFilter()));
+        }
         return result;
     }
 
@@ -332,7 +343,7 @@ public class CmsSolrIndex extends CmsSearchIndex {
      * @see org.opencms.search.CmsSearchIndex#getDocument(java.lang.String, java.lang.String)
      */
     @Override
-    public synchronized I_CmsSearchDocument getDocument(String fieldname, String term) {
+    public I_CmsSearchDocument getDocument(String fieldname, String term) {
 
         try {
             SolrQuery query = new SolrQuery();
@@ -343,7 +354,7 @@ public class CmsSolrIndex extends CmsSearchIndex {
             }
             QueryResponse res = m_solr.query(query);
             if (res != null) {
-                SolrDocumentList sdl = m_solr.query(query).getResults();
+                SolrDocumentList sdl = res.getResults();
                 if ((sdl.getNumFound() == 1L) && (sdl.get(0) != null)) {
                     return new CmsSolrDocument(sdl.get(0));
                 }
@@ -440,6 +451,31 @@ public class CmsSolrIndex extends CmsSearchIndex {
         return null == m_solr;
     }
 
+    /**
+     * Returns <code>true</code> if the search results are filtered by the read permissions written to the index.<p>
+     *
+     * In this case only the requested page is fetched from Solr and checked against the VFS,
+     * otherwise all documents up to the requested page are fetched and checked.<p>
+     *
+     * @return <code>true</code> if the search results are filtered by the indexed read permissions
+     */
+    public boolean isPermissionFilter() {
+
+        return m_permissionFilter;
+    }
+
+    /**
+     * Returns <code>true</code> if the search results are filtered by the indexed read permissions,
+     * since these are inherited from the parent folders.<p>
+     *
+     * @see org.opencms.search.CmsSearchIndex#isUpdatingFolderContents()
+     */
+    @Override
+    public boolean isUpdatingFolderContents() {
+
+        return isPermissionFilter();
+    }
+
     /**
      * Not yet implemented for Solr.<p>
      *
@@ -453,7 +489,7 @@ public class CmsSolrIndex extends CmsSearchIndex {
      */
     @Override
     @Deprecated
-    public synchronized CmsSearchResultList search(CmsObject cms, CmsSearchParameters params) {
+    public CmsSearchResultList search(CmsObject cms, CmsSearchParameters params) {
 
         throw new UnsupportedOperationException();
     }
@@ -617,19 +653,36 @@ public class CmsSolrIndex extends CmsSearchIndex {
                 page = Math.round(start / rows) + 1;
             }
 
-            // set the start to '0' and expand the rows before performing the query
-            query.setStart(new Integer(0));
-            query.setRows(new Integer((5 * rows * page) + start));
+            boolean permissionFilter = isPermissionFilter() && isCheckingPermissions();
+            if (permissionFilter) {
+                // let Solr remove the documents the user is not allowed to read, so only the requested page is fetched
+                String permissionQuery = CmsSolrPermissionFilter.getFilterQuery(searchCms);
+                if (permissionQuery != null) {
+                    query.addFilterQuery(permissionQuery);
+                }
+                query.setStart(new Integer(start));
+                query.setRows(new Integer(rows));
+            } else {
+                // set the start to '0' and expand the rows before performing the query
+                query.setStart(new Integer(0));
+                query.setRows(new Integer((5 * rows * page) + start));
+            }
+            int requestedStart = start;
 
             // perform the Solr query and remember the original Solr response
-            QueryResponse queryResponse = m_solr.query(query);
+            SolrClient solr = m_solr;
+            QueryResponse queryResponse = solr.query(query);
             long solrTime = System.currentTimeMillis() - startTime;
 
             // initialize the counts
             long hitCount = queryResponse.getResults().getNumFound();
             start = -1;
             end = -1;
-            if ((rows > 0) && (page > 0) && (hitCount > 0)) {
+            if (permissionFilter) {
+                // the Solr result already is the requested page, the VFS check below is only a safety net
+                start = new Long(Math.min(requestedStart, hitCount)).intValue();
+                end = new Long(Math.min(requestedStart + rows, hitCount)).intValue();
+            } else if ((rows > 0) && (page > 0) && (hitCount > 0)) {
                 // calculate the final size of the search result
                 start = rows * (page - 1);
                 end = start + rows;
@@ -644,14 +697,12 @@ public class CmsSolrIndex extends CmsSearchIndex {
             long visibleHitCount = hitCount;
             float maxScore = 0;
 
-            // If we're using a postprocessor, (re-)initialize it before using it
-            if (m_postProcessor != null) {
-                m_postProcessor.init();
-            }
+            // use a post processor of our own, the configured instance may be used by concurrent searches
+            I_CmsSolrPostSearchProcessor postProcessor = createPostProcessor();
 
             // process found documents
             List<CmsSearchResource> allDocs = new ArrayList<CmsSearchResource>();
-            int cnt = 0;
+            int cnt = permissionFilter ? start : 0;
             for (int i = 0; (i < queryResponse.getResults().size()) && (cnt < end); i++) {
                 try {
                     SolrDocument doc = queryResponse.getResults().get(i);
@@ -664,8 +715,8 @@ public class CmsSolrIndex extends CmsSearchIndex {
                         if (resource != null) {
                             // permission check performed successfully: the user has read permissions!
                             if (cnt >= start) {
-                                if (m_postProcessor != null) {
-                                    doc = m_postProcessor.process(
+                                if (postProcessor != null) {
+                                    doc = postProcessor.process(
                                         searchCms,
                                         resource,
                                         (SolrInputDocument)searchDoc.getDocument());
@@ -724,8 +775,8 @@ public class CmsSolrIndex extends CmsSearchIndex {
                 queryResponse.getResponseHeader().indexOf(QUERY_TIME_NAME, 0),
                 new Integer(new Long(System.currentTimeMillis() - startTime).intValue()));
             long highlightEndTime = System.currentTimeMillis();
-            SolrCore core = m_solr instanceof EmbeddedSolrServer
-            ? ((EmbeddedSolrServer)m_solr).getCoreContainer().getCore(getCoreName())
+            SolrCore core = solr instanceof EmbeddedSolrServer
+            ? ((EmbeddedSolrServer)solr).getCoreContainer().getCore(getCoreName())
             : null;
             CmsSolrResultList result = null;
             try {
@@ -940,6 +991,20 @@ public class CmsSolrIndex extends CmsSearchIndex {
         updateCoreName();
     }
 
+    /**
+     * Enables or disables the filtering of the search results by the indexed read permissions.<p>
+     *
+     * Documents indexed without the permission fields always pass the filter and are checked against the VFS only.
+     * The indexed permissions include the permissions inherited from the parent folders, so with the filter
+     * enabled, the documents of all files below a published folder are updated as well.<p>
+     *
+     * @param permissionFilter <code>true</code> to filter the search results by the indexed read permissions
+     */
+    public void setPermissionFilter(boolean permissionFilter) {
+
+        m_permissionFilter = permissionFilter;
+    }
+
     /**
      * Sets the search post processor.<p>
      *
@@ -976,11 +1041,13 @@ public class CmsSolrIndex extends CmsSearchIndex {
         try {
             q.setRequestHandler("/spell");
 
-            QueryResponse queryResponse = m_solr.query(q);
+            SolrClient solr = m_solr;
+            QueryResponse queryResponse = solr.query(q);
 
             List<CmsSearchResource> resourceDocumentList = new ArrayList<CmsSearchResource>();
             SolrDocumentList solrDocumentList = new SolrDocumentList();
-            if (m_postProcessor != null) {
+            I_CmsSolrPostSearchProcessor postProcessor = createPostProcessor();
+            if (postProcessor != null) {
                 for (int i = 0; (i < queryResponse.getResults().size()); i++) {
                     try {
                         SolrDocument doc = queryResponse.getResults().get(i);
@@ -990,8 +1057,8 @@ public class CmsSolrIndex extends CmsSearchIndex {
                             CmsResource resource = getResource(cms, searchDoc);
                             if (resource != null) {
                                 // permission check performed successfully: the user has read permissions!
-                                if (m_postProcessor != null) {
-                                    doc = m_postProcessor.process(
+                                if (postProcessor != null) {
+                                    doc = postProcessor.process(
                                         cms,
                                         resource,
                                         (SolrInputDocument)searchDoc.getDocument());
@@ -1011,8 +1078,8 @@ public class CmsSolrIndex extends CmsSearchIndex {
             }
 
             // create and return the result
-            core = m_solr instanceof EmbeddedSolrServer
-            ? ((EmbeddedSolrServer)m_solr).getCoreContainer().getCore(getCoreName())
+            core = solr instanceof EmbeddedSolrServer
+            ? ((EmbeddedSolrServer)solr).getCoreContainer().getCore(getCoreName())
             : null;
 
             SolrQueryResponse solrQueryResponse = new SolrQueryResponse();
@@ -1162,6 +1229,29 @@ public class CmsSolrIndex extends CmsSearchIndex {
         }
     }
 
+    /**
+     * Creates a new instance of the configured post processor for a single search.<p>
+     *
+     * Post processors are (re-)initialized for every search and may keep state while processing the results,
+     * so concurrent searches must not share an instance. If the configured post processor can not be
+     * instantiated again, the configured instance is initialized and used instead.<p>
+     *
+     * @return the post processor to use for a single search, or <code>null</code> if none is configured
+     */
+    private I_CmsSolrPostSearchProcessor createPostProcessor() {
+
+        I_CmsSolrPostSearchProcessor postProcessor = m_postProcessor;
+        if (postProcessor != null) {
+            try {
+                postProcessor = postProcessor.getClass().newInstance();
+            } catch (Exception e) {
+                LOG.debug(e.getLocalizedMessage(), e);
+            }
+            postProcessor.init();
+        }
+        return postProcessor;
+    }
+
     /**
      * Generates a valid core name from the provided name (the index name).
      * @param name the index name.
@@ -38,6 +38,9 @@ import org.opencms.search.I_CmsIndexWriter;
 import org.opencms.search.I_CmsSearchDocument;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.solr.client.solrj.SolrClient;
@@ -198,4 +201,32 @@ public class CmsSolrIndexWriter implements I_CmsIndexWriter {
             }
         }
     }
+
+    /**
+     * @see org.opencms.search.I_CmsIndexWriter#updateDocuments(java.util.Map)
+     */
+    public void updateDocuments(Map<String, I_CmsSearchDocument> documents) throws IOException {
+
+        if ((m_server != null) && (m_index != null)) {
+            List<SolrInputDocument> solrDocuments = new ArrayList<SolrInputDocument>(documents.size());
+            for (I_CmsSearchDocument document : documents.values()) {
+                if (document.getDocument() != null) {
+                    solrDocuments.add((SolrInputDocument)document.getDocument());
+                }
+            }
+            if (!solrDocuments.isEmpty()) {
+                try {
+                    LOG.info(
+                        Messages.get().getBundle().key(
+                            Messages.LOG_SOLR_WRITER_DOCS_UPDATE_3,
+                            new Integer(solrDocuments.size()),
+                            m_index.getName(),
+                            m_index.getPath()));
+                    m_server.add(solrDocuments, m_commitMs);
+                } catch (SolrServerException e) {
+                    throw new IOException(e.getLocalizedMessage(), e);
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,174 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.search.solr;
+
+import org.opencms.file.CmsGroup;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsUser;
+import org.opencms.main.CmsException;
+import org.opencms.main.OpenCms;
+import org.opencms.search.fields.CmsSearchField;
+import org.opencms.security.CmsAccessControlEntry;
+import org.opencms.security.CmsAccessControlList;
+import org.opencms.security.CmsPermissionSet;
+import org.opencms.security.CmsRole;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Translates the access control list of a resource into index fields and the principals of a user
+ * into a Solr filter query on these fields.<p>
+ *
+ * The filter mirrors {@link CmsAccessControlList#getPermissions(CmsUser, List, List)}: a user may read a resource
+ * if one of his principals is allowed to read it and none of them is denied, or, if none of his principals has
+ * an entry at all, if the 'all others' entry allows reading. Documents indexed without the permission fields
+ * always pass the filter and are left to the permission check against the VFS.<p>
+ *
+ * @since 10.5.0
+ */
+public final class CmsSolrPermissionFilter {
+
+    /**
+     * Hides the public constructor.<p>
+     */
+    private CmsSolrPermissionFilter() {
+
+        // noop
+    }
+
+    /**
+     * Returns the filter query that removes all documents the given principals are not allowed to read.<p>
+     *
+     * @param principals the ids of the user, his groups and his roles
+     *
+     * @return the filter query
+     */
+    public static String getFilterQuery(Collection<CmsUUID> principals) {
+
+        StringBuffer ids = new StringBuffer();
+        ids.append('(');
+        for (CmsUUID principal : principals) {
+            if (ids.length() > 1) {
+                ids.append(' ');
+            }
+            ids.append('"').append(principal.toString()).append('"');
+        }
+        ids.append(')');
+        StringBuffer result = new StringBuffer();
+        // one of the principals is allowed, none is denied
+        result.append("(+").append(CmsSearchField.FIELD_READ_ALLOWED).append(':').append(ids);
+        result.append(" -").append(CmsSearchField.FIELD_READ_DENIED).append(':').append(ids).append(')');
+        // no principal has an entry, but 'all others' may read
+        result.append(" OR (+").append(CmsSearchField.FIELD_READ_ALLOWED).append(":\"");
+        result.append(CmsAccessControlEntry.PRINCIPAL_ALL_OTHERS_ID.toString()).append('"');
+        result.append(" -").append(CmsSearchField.FIELD_READ_PRINCIPALS).append(':').append(ids).append(')');
+        // the document was indexed without permission information
+        result.append(" OR (*:* -").append(CmsSearchField.FIELD_READ_PRINCIPALS).append(":[* TO *])");
+        return result.toString();
+    }
+
+    /**
+     * Returns the filter query for the current user of the given context.<p>
+     *
+     * Returns <code>null</code> if the user is allowed to read every resource, i.e. if he has the
+     * {@link CmsRole#VFS_MANAGER} role in any organizational unit.<p>
+     *
+     * @param cms the current CMS context
+     *
+     * @return the filter query, or <code>null</code> if no filter is required
+     *
+     * @throws CmsException if the groups or roles of the user could not be read
+     */
+    public static String getFilterQuery(CmsObject cms) throws CmsException {
+
+        CmsUser user = cms.getRequestContext().getCurrentUser();
+        if (OpenCms.getRoleManager().hasRole(cms, CmsRole.VFS_MANAGER)) {
+            return null;
+        }
+        Set<CmsUUID> principals = new LinkedHashSet<CmsUUID>();
+        principals.add(user.getId());
+        for (CmsGroup group : cms.getGroupsOfUser(user.getName(), false)) {
+            principals.add(group.getId());
+        }
+        if (!user.isGuestUser()) {
+            for (CmsRole role : OpenCms.getRoleManager().getRolesOfUser(cms, user.getName(), "", true, false, false)) {
+                if (role.getRoleName().equals(CmsRole.VFS_MANAGER.getRoleName())) {
+                    // VFS managers of a sub organizational unit may read everything below it
+                    return null;
+                }
+                principals.add(role.forOrgUnit(null).getId());
+            }
+        }
+        return getFilterQuery(principals);
+    }
+
+    /**
+     * Returns the values of the read permission fields for the given access control list.<p>
+     *
+     * The returned map contains the lists for {@link CmsSearchField#FIELD_READ_ALLOWED},
+     * {@link CmsSearchField#FIELD_READ_DENIED} and {@link CmsSearchField#FIELD_READ_PRINCIPALS},
+     * empty lists are omitted.<p>
+     *
+     * @param acl the complete (including inherited entries) access control list of the resource
+     *
+     * @return the field values, keyed by field name
+     */
+    public static Map<String, List<String>> getPermissionFields(CmsAccessControlList acl) {
+
+        List<String> allowed = new ArrayList<String>();
+        List<String> denied = new ArrayList<String>();
+        List<String> principals = new ArrayList<String>();
+        for (Map.Entry<CmsUUID, ? extends CmsPermissionSet> entry : acl.getPermissionMap().entrySet()) {
+            String id = entry.getKey().toString();
+            principals.add(id);
+            if ((entry.getValue().getDeniedPermissions() & CmsPermissionSet.PERMISSION_READ) > 0) {
+                denied.add(id);
+            } else if ((entry.getValue().getAllowedPermissions() & CmsPermissionSet.PERMISSION_READ) > 0) {
+                allowed.add(id);
+            }
+        }
+        Map<String, List<String>> result = new HashMap<String, List<String>>();
+        if (!allowed.isEmpty()) {
+            result.put(CmsSearchField.FIELD_READ_ALLOWED, allowed);
+        }
+        if (!denied.isEmpty()) {
+            result.put(CmsSearchField.FIELD_READ_DENIED, denied);
+        }
+        if (!principals.isEmpty()) {
+            result.put(CmsSearchField.FIELD_READ_PRINCIPALS, principals);
+        }
+        return result;
+    }
+}
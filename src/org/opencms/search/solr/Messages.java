@@ -79,6 +79,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_SOLR_WRITER_DELETE_ALL_2 = "LOG_SOLR_WRITER_DELETE_ALL_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_SOLR_WRITER_DOCS_UPDATE_3 = "LOG_SOLR_WRITER_DOCS_UPDATE_3";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_SOLR_WRITER_DOC_DELETE_3 = "LOG_SOLR_WRITER_DOC_DELETE_3";
 
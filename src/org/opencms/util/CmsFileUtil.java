@@ -50,8 +50,12 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -132,6 +136,47 @@ public final class CmsFileUtil {
         }
     }
 
+    /**
+     * File input stream which deletes the file when the stream is closed.<p>
+     */
+    private static class DeleteOnCloseInputStream extends FileInputStream {
+
+        /** The file to delete on close. */
+        private File m_file;
+
+        /**
+         * Creates a new stream for the given file.<p>
+         *
+         * @param file the file to read and delete on close
+         *
+         * @throws FileNotFoundException if the file does not exist
+         */
+        DeleteOnCloseInputStream(File file)
+        throws FileNotFoundException {
+
+            super(file);
+            m_file = file;
+        }
+
+        /**
+         * @see java.io.FileInputStream#close()
+         */
+        @Override
+        public void close() throws IOException {
+
+            try {
+                super.close();
+            } finally {
+                if (m_file.exists() && !m_file.delete()) {
+                    LOG.warn(
+                        Messages.get().getBundle().key(
+                            Messages.LOG_DELETE_SPOOL_FILE_FAILED_1,
+                            m_file.getAbsolutePath()));
+                }
+            }
+        }
+    }
+
     /** The static log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsFileUtil.class);
 
@@ -217,6 +262,74 @@ public final class CmsFileUtil {
         out.close();
     }
 
+    /**
+     * Copies a range of bytes from the given file to the given output stream.<p>
+     *
+     * The bytes are transferred with {@link FileChannel#transferTo(long, long, WritableByteChannel)},
+     * so they are not copied to the Java heap if the output stream allows this.
+     * The output stream is not closed.<p>
+     *
+     * @param file the file to read the bytes from
+     * @param out the output stream to write the bytes to
+     * @param offset the position of the first byte to copy
+     * @param length the number of bytes to copy, or a negative value to copy all remaining bytes
+     *
+     * @return the number of bytes copied, which is less than the given length if the file ends before
+     *
+     * @throws IOException in case of errors in the underlying java.nio methods used
+     */
+    public static long copyRange(File file, OutputStream out, long offset, long length) throws IOException {
+
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            long end = length < 0 ? channel.size() : Math.min(channel.size(), offset + length);
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = offset;
+            while (position < end) {
+                long count = channel.transferTo(position, end - position, target);
+                if (count <= 0) {
+                    break;
+                }
+                position += count;
+            }
+            return Math.max(0, position - offset);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Copies a range of bytes from the given input stream to the given output stream.<p>
+     *
+     * Neither of the streams is closed.<p>
+     *
+     * @param in the input stream to read the bytes from
+     * @param out the output stream to write the bytes to
+     * @param offset the number of bytes to skip in the input stream before copying
+     * @param length the number of bytes to copy, or a negative value to copy all remaining bytes
+     *
+     * @return the number of bytes copied, which is less than the given length if the input stream ends before
+     *
+     * @throws IOException in case of errors in the underlying java.io methods used
+     */
+    public static long copyRange(InputStream in, OutputStream out, long offset, long length) throws IOException {
+
+        skipFully(in, offset);
+        byte[] buf = new byte[8192];
+        long copied = 0;
+        while ((length < 0) || (copied < length)) {
+            int max = length < 0 ? buf.length : (int)Math.min(buf.length, length - copied);
+            int len = in.read(buf, 0, max);
+            if (len < 0) {
+                break;
+            }
+            out.write(buf, 0, len);
+            copied += len;
+        }
+        return copied;
+    }
+
     /**
      * Returns the formatted filesize to Bytes, KB, MB or GB depending on the given value.<p>
      *
@@ -922,6 +1035,85 @@ public final class CmsFileUtil {
         return webInfFolder;
     }
 
+    /**
+     * Skips the given number of bytes in the input stream.<p>
+     *
+     * In contrast to {@link InputStream#skip(long)}, this method only returns early
+     * if the end of the stream has been reached.<p>
+     *
+     * @param in the input stream
+     * @param count the number of bytes to skip
+     *
+     * @return the number of bytes skipped
+     *
+     * @throws IOException in case of errors in the underlying java.io methods used
+     */
+    public static long skipFully(InputStream in, long count) throws IOException {
+
+        long remaining = count;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                // skip may return 0 before the end of the stream, check by reading a single byte
+                if (in.read() < 0) {
+                    break;
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+        return count - remaining;
+    }
+
+    /**
+     * Reads the given input stream completely and returns a stream with the same content
+     * that does not depend on the original stream any more.<p>
+     *
+     * Content up to the given memory limit is kept in memory. Larger content is written
+     * to a temporary file, which is deleted when the returned stream is closed.
+     * The input stream is not closed.<p>
+     *
+     * @param in the input stream to read
+     * @param memoryLimit the maximum number of bytes kept in memory
+     *
+     * @return a stream with the content of the input stream
+     *
+     * @throws IOException in case of errors in the underlying java.io methods used
+     */
+    public static InputStream spool(InputStream in, int memoryLimit) throws IOException {
+
+        ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int len;
+        while ((len = in.read(buf)) >= 0) {
+            if ((memory.size() + len) > memoryLimit) {
+                File file = File.createTempFile("opencms", ".spool");
+                boolean success = false;
+                try {
+                    OutputStream out = new FileOutputStream(file);
+                    try {
+                        memory.writeTo(out);
+                        memory = null;
+                        do {
+                            out.write(buf, 0, len);
+                        } while ((len = in.read(buf)) >= 0);
+                    } finally {
+                        out.close();
+                    }
+                    InputStream result = new DeleteOnCloseInputStream(file);
+                    success = true;
+                    return result;
+                } finally {
+                    if (!success) {
+                        file.delete();
+                    }
+                }
+            }
+            memory.write(buf, 0, len);
+        }
+        return new ByteArrayInputStream(memory.toByteArray());
+    }
+
     /**
      * Traverses the file system starting from a base folder and executes a callback for every directory found.<p>
      *
@@ -121,6 +121,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_CONVERSION_BYTE_FAILED_0 = "LOG_CONVERSION_BYTE_FAILED_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_DELETE_SPOOL_FILE_FAILED_1 = "LOG_DELETE_SPOOL_FILE_FAILED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_ENC_MULTIPART_REQ_ERROR_0 = "LOG_ENC_MULTIPART_REQ_ERROR_0";
 
@@ -58,6 +58,7 @@ import org.opencms.repository.CmsRepositoryLockInfo;
 import org.opencms.repository.I_CmsRepositoryItem;
 import org.opencms.repository.I_CmsRepositorySession;
 import org.opencms.security.CmsSecurityException;
+import org.opencms.util.CmsFileUtil;
 import org.opencms.util.CmsRequestUtil;
 
 import java.io.BufferedInputStream;
@@ -65,6 +66,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -523,7 +525,7 @@ public class CmsWebdavServlet extends HttpServlet {
 
         InputStream resourceInputStream = null;
         if (!item.isCollection()) {
-            resourceInputStream = new ByteArrayInputStream(item.getContent());
+            resourceInputStream = getContentStream(item);
         } else {
             resourceInputStream = is;
         }
@@ -564,15 +566,9 @@ public class CmsWebdavServlet extends HttpServlet {
         IOException exception = null;
         InputStream resourceInputStream = null;
 
-        // Optimization: If the binary content has already been loaded, send
-        // it directly
+        // stream the binary content, so large files are not read into memory at once
         if (!item.isCollection()) {
-            byte[] buffer = item.getContent();
-            if (buffer != null) {
-                ostream.write(buffer, 0, buffer.length);
-                return;
-            }
-            resourceInputStream = new ByteArrayInputStream(item.getContent());
+            resourceInputStream = getContentStream(item);
         } else {
             resourceInputStream = is;
         }
@@ -612,7 +608,7 @@ public class CmsWebdavServlet extends HttpServlet {
 
         IOException exception = null;
 
-        InputStream resourceInputStream = new ByteArrayInputStream(item.getContent());
+        InputStream resourceInputStream = getContentStream(item);
 
         Reader reader = new InputStreamReader(resourceInputStream);
         exception = copyRange(reader, writer, range.getStart(), range.getEnd());
@@ -651,11 +647,18 @@ public class CmsWebdavServlet extends HttpServlet {
         String contentType) throws IOException {
 
         IOException exception = null;
+        InputStream resourceInputStream = null;
 
         while ((exception == null) && (ranges.hasNext())) {
 
-            InputStream resourceInputStream = new ByteArrayInputStream(item.getContent());
+            // the content is opened once and rewound for every range
+            if (resourceInputStream == null) {
+                resourceInputStream = getContentStream(item);
+            } else {
+                resourceInputStream = rewindContentStream(item, resourceInputStream);
+            }
 
+            // the reader is not closed, since this would close the content stream
             Reader reader = new InputStreamReader(resourceInputStream);
             CmsWebdavRange currentRange = ranges.next();
 
@@ -677,16 +680,10 @@ public class CmsWebdavServlet extends HttpServlet {
             // Printing content
             exception = copyRange(reader, writer, currentRange.getStart(), currentRange.getEnd());
 
-            try {
-                reader.close();
-            } catch (Exception e) {
-                if (LOG.isErrorEnabled()) {
-                    LOG.error(Messages.get().getBundle().key(Messages.ERR_CLOSE_READER_0), e);
-                }
-            }
-
         }
 
+        closeContentStream(resourceInputStream);
+
         writer.println();
         writer.print("--" + MIME_SEPARATION + "--");
 
@@ -712,7 +709,7 @@ public class CmsWebdavServlet extends HttpServlet {
 
         IOException exception = null;
 
-        InputStream resourceInputStream = new ByteArrayInputStream(item.getContent());
+        InputStream resourceInputStream = getContentStream(item);
         InputStream istream = new BufferedInputStream(resourceInputStream, m_input);
         exception = copyRange(istream, ostream, range.getStart(), range.getEnd());
 
@@ -750,11 +747,16 @@ public class CmsWebdavServlet extends HttpServlet {
         String contentType) throws IOException {
 
         IOException exception = null;
+        InputStream resourceInputStream = null;
 
         while ((exception == null) && (ranges.hasNext())) {
 
-            InputStream resourceInputStream = new ByteArrayInputStream(item.getContent());
-            InputStream istream = new BufferedInputStream(resourceInputStream, m_input);
+            // the content is opened once and rewound for every range
+            if (resourceInputStream == null) {
+                resourceInputStream = getContentStream(item);
+            } else {
+                resourceInputStream = rewindContentStream(item, resourceInputStream);
+            }
 
             CmsWebdavRange currentRange = ranges.next();
 
@@ -774,18 +776,12 @@ public class CmsWebdavServlet extends HttpServlet {
             ostream.println();
 
             // Printing content
-            exception = copyRange(istream, ostream, currentRange.getStart(), currentRange.getEnd());
-
-            try {
-                istream.close();
-            } catch (Exception e) {
-                if (LOG.isErrorEnabled()) {
-                    LOG.error(Messages.get().getBundle().key(Messages.ERR_CLOSE_INPUT_STREAM_0), e);
-                }
-            }
+            exception = copyRange(resourceInputStream, ostream, currentRange.getStart(), currentRange.getEnd());
 
         }
 
+        closeContentStream(resourceInputStream);
+
         ostream.println();
         ostream.print("--" + MIME_SEPARATION + "--");
 
@@ -846,37 +842,12 @@ public class CmsWebdavServlet extends HttpServlet {
         }
 
         try {
-            istream.skip(start);
+            // streams may return less bytes than requested before they end
+            CmsFileUtil.copyRange(istream, ostream, start, (end - start) + 1);
         } catch (IOException e) {
             return e;
         }
-
-        IOException exception = null;
-        long bytesToRead = (end - start) + 1;
-
-        byte[] buffer = new byte[m_input];
-        int len = buffer.length;
-        while ((bytesToRead > 0) && (len >= buffer.length)) {
-            try {
-                len = istream.read(buffer);
-                if (bytesToRead >= len) {
-                    ostream.write(buffer, 0, len);
-                    bytesToRead -= len;
-                } else {
-                    ostream.write(buffer, 0, (int)bytesToRead);
-                    bytesToRead = 0;
-                }
-            } catch (IOException e) {
-                exception = e;
-                len = -1;
-            }
-
-            if (len < buffer.length) {
-                break;
-            }
-        }
-
-        return exception;
+        return null;
     }
 
     /**
@@ -925,37 +896,30 @@ public class CmsWebdavServlet extends HttpServlet {
      */
     protected IOException copyRange(Reader reader, PrintWriter writer, long start, long end) {
 
-        try {
-            reader.skip(start);
-        } catch (IOException e) {
-            return e;
-        }
-
         IOException exception = null;
-        long bytesToRead = (end - start) + 1;
-
-        char[] buffer = new char[m_input];
-        int len = buffer.length;
-        while ((bytesToRead > 0) && (len >= buffer.length)) {
-            try {
-                len = reader.read(buffer);
-                if (bytesToRead >= len) {
-                    writer.write(buffer, 0, len);
-                    bytesToRead -= len;
-                } else {
-                    writer.write(buffer, 0, (int)bytesToRead);
-                    bytesToRead = 0;
+        try {
+            // readers may skip and return less characters than requested before they end
+            long toSkip = start;
+            while (toSkip > 0) {
+                long skipped = reader.skip(toSkip);
+                if (skipped <= 0) {
+                    break;
                 }
-            } catch (IOException e) {
-                exception = e;
-                len = -1;
+                toSkip -= skipped;
             }
-
-            if (len < buffer.length) {
-                break;
+            long charsToRead = (end - start) + 1;
+            char[] buffer = new char[m_input];
+            while (charsToRead > 0) {
+                int len = reader.read(buffer, 0, (int)Math.min(buffer.length, charsToRead));
+                if (len < 0) {
+                    break;
+                }
+                writer.write(buffer, 0, len);
+                charsToRead -= len;
             }
+        } catch (IOException e) {
+            exception = e;
         }
-
         return exception;
     }
 
@@ -1207,7 +1171,7 @@ public class CmsWebdavServlet extends HttpServlet {
     protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
 
         // Serve the requested resource, including the data content
-        serveResource(request, response, true);
+        serveResourceOrError(request, response, true);
     }
 
     /**
@@ -1222,7 +1186,7 @@ public class CmsWebdavServlet extends HttpServlet {
     protected void doHead(HttpServletRequest request, HttpServletResponse response) throws IOException {
 
         // Serve the requested resource, without the data content
-        serveResource(request, response, false);
+        serveResourceOrError(request, response, false);
     }
 
     /**
@@ -2963,6 +2927,25 @@ public class CmsWebdavServlet extends HttpServlet {
         }
     }
 
+    /**
+     * Closes a content stream, which may delete the temporary file backing it.<p>
+     *
+     * @param stream the content stream, may be <code>null</code>
+     */
+    private void closeContentStream(InputStream stream) {
+
+        if (stream == null) {
+            return;
+        }
+        try {
+            stream.close();
+        } catch (Exception e) {
+            if (LOG.isErrorEnabled()) {
+                LOG.error(Messages.get().getBundle().key(Messages.ERR_CLOSE_INPUT_STREAM_0), e);
+            }
+        }
+    }
+
     /**
      * Determines the methods normally allowed for the resource.<p>
      *
@@ -3065,6 +3048,25 @@ public class CmsWebdavServlet extends HttpServlet {
         return MD5_ENCODER.encode(m_md5Helper.digest(lockTokenStr.getBytes()));
     }
 
+    /**
+     * Returns the content stream of the given item.<p>
+     *
+     * @param item the item to read the content for
+     *
+     * @return the content stream of the item
+     *
+     * @throws FileNotFoundException if the content of the item can not be read
+     */
+    private InputStream getContentStream(I_CmsRepositoryItem item) throws FileNotFoundException {
+
+        InputStream result = item.getContentStream();
+        if (result == null) {
+            throw new FileNotFoundException(
+                Messages.get().getBundle().key(Messages.LOG_ITEM_NOT_FOUND_1, item.getName()));
+        }
+        return result;
+    }
+
     /**
      * Return the relative path associated with this servlet.<p>
      *
@@ -3571,6 +3573,38 @@ public class CmsWebdavServlet extends HttpServlet {
         resp.sendError(HttpServletResponse.SC_UNAUTHORIZED);
     }
 
+    /**
+     * Rewinds a content stream to its start, so the next range can be read without opening the content again.<p>
+     *
+     * The content streams are kept in memory or backed by a temporary file, so they can be rewound.
+     * Other streams are closed and the content is opened again.<p>
+     *
+     * @param item the item the content stream belongs to
+     * @param stream the content stream
+     *
+     * @return the rewound content stream
+     *
+     * @throws IOException if the content stream can not be rewound
+     */
+    private InputStream rewindContentStream(I_CmsRepositoryItem item, InputStream stream) throws IOException {
+
+        try {
+            if (stream instanceof ByteArrayInputStream) {
+                stream.reset();
+                return stream;
+            }
+            if (stream instanceof FileInputStream) {
+                ((FileInputStream)stream).getChannel().position(0);
+                return stream;
+            }
+        } catch (IOException e) {
+            closeContentStream(stream);
+            throw e;
+        }
+        closeContentStream(stream);
+        return getContentStream(item);
+    }
+
     /**
      * Send a multistatus element containing a complete error report to the
      * client.<p>
@@ -3613,4 +3647,29 @@ public class CmsWebdavServlet extends HttpServlet {
         doc.write(writer);
         writer.close();
     }
+    /**
+     * Serves the requested resource, and sends an error if the content of the resource can not be read.<p>
+     *
+     * @param request the servlet request we are processing
+     * @param response the servlet response we are creating
+     * @param content should the content be included?
+     *
+     * @throws IOException if an input/output error occurs
+     */
+    private void serveResourceOrError(HttpServletRequest request, HttpServletResponse response, boolean content)
+    throws IOException {
+
+        try {
+            serveResource(request, response, content);
+        } catch (FileNotFoundException e) {
+            // the content could not be read, send an error instead of the announced content
+            if (LOG.isErrorEnabled()) {
+                LOG.error(e.getLocalizedMessage(), e);
+            }
+            if (!response.isCommitted()) {
+                response.reset();
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            }
+        }
+    }
 }
\ No newline at end of file
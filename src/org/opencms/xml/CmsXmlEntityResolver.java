@@ -97,6 +97,9 @@ public class CmsXmlEntityResolver implements EntityResolver, I_CmsEventListener
     /** A temporary cache to avoid multiple readings of often used files from the VFS. */
     private static Map<String, byte[]> m_cacheTemporary;
 
+    /** A temporary cache for compiled XML schemas used for validation. */
+    private static Map<String, CmsXmlValidationSchema> m_cacheValidationSchemas;
+
     /** The location of the XML page XML schema. */
     private static final String XMLPAGE_OLD_DTD_LOCATION = "org/opencms/xml/page/xmlpage.dtd";
 
@@ -211,6 +214,8 @@ public class CmsXmlEntityResolver implements EntityResolver, I_CmsEventListener
             m_cachePermanent = new ConcurrentHashMap<String, byte[]>(32);
 
             m_cacheContentDefinitions = CmsMemoryMonitor.createLRUCacheMap(CONTENT_DEFINITION_CACHE_SIZE);
+
+            m_cacheValidationSchemas = CmsMemoryMonitor.createLRUCacheMap(CONTENT_DEFINITION_CACHE_SIZE);
         }
         if (OpenCms.getRunLevel() > OpenCms.RUNLEVEL_1_CORE_OBJECT) {
             if ((OpenCms.getMemoryMonitor() != null)
@@ -237,6 +242,14 @@ public class CmsXmlEntityResolver implements EntityResolver, I_CmsEventListener
                 OpenCms.getMemoryMonitor().register(
                     CmsXmlEntityResolver.class.getName() + ".cacheContentDefinitions",
                     cacheContentDefinitions);
+
+                Map<String, CmsXmlValidationSchema> cacheValidationSchemas = CmsMemoryMonitor.createLRUCacheMap(
+                    CONTENT_DEFINITION_CACHE_SIZE);
+                cacheValidationSchemas.putAll(m_cacheValidationSchemas);
+                m_cacheValidationSchemas = cacheValidationSchemas;
+                OpenCms.getMemoryMonitor().register(
+                    CmsXmlEntityResolver.class.getName() + ".cacheValidationSchemas",
+                    cacheValidationSchemas);
             }
         }
     }
@@ -279,6 +292,18 @@ public class CmsXmlEntityResolver implements EntityResolver, I_CmsEventListener
         }
     }
 
+    /**
+     * Caches a compiled XML schema used for validation based on the given system id and the online / offline status
+     * of this entity resolver instance.<p>
+     *
+     * @param systemId the system id to use as cache key
+     * @param schema the compiled XML schema to cache
+     */
+    public void cacheValidationSchema(String systemId, CmsXmlValidationSchema schema) {
+
+        m_cacheValidationSchemas.put(getCacheKeyForCurrentProject(systemId), schema);
+    }
+
     /**
      * @see org.opencms.main.I_CmsEventListener#cmsEvent(org.opencms.main.CmsEvent)
      */
@@ -292,6 +317,7 @@ public class CmsXmlEntityResolver implements EntityResolver, I_CmsEventListener
                 if (isSchemaDefinitionInPublishList(publishHistoryId)) {
                     m_cacheTemporary.clear();
                     m_cacheContentDefinitions.clear();
+                    m_cacheValidationSchemas.clear();
                     if (LOG.isDebugEnabled()) {
                         LOG.debug(Messages.get().getBundle().key(Messages.LOG_ERR_FLUSHED_CACHES_0));
                     }
@@ -301,6 +327,7 @@ public class CmsXmlEntityResolver implements EntityResolver, I_CmsEventListener
                 // flush cache
                 m_cacheTemporary.clear();
                 m_cacheContentDefinitions.clear();
+                m_cacheValidationSchemas.clear();
                 if (LOG.isDebugEnabled()) {
                     LOG.debug(Messages.get().getBundle().key(Messages.LOG_ERR_FLUSHED_CACHES_0));
                 }
@@ -345,6 +372,18 @@ public class CmsXmlEntityResolver implements EntityResolver, I_CmsEventListener
         return result;
     }
 
+    /**
+     * Looks up the compiled XML schema used for validation with the given system id in the internal cache.<p>
+     *
+     * @param systemId the system id of the XML schema to look up
+     *
+     * @return the compiled XML schema found, or null if no schema is cached for the given system id
+     */
+    public CmsXmlValidationSchema getCachedValidationSchema(String systemId) {
+
+        return m_cacheValidationSchemas.get(getCacheKeyForCurrentProject(systemId));
+    }
+
     /**
      * @see org.xml.sax.EntityResolver#resolveEntity(java.lang.String, java.lang.String)
      */
@@ -462,12 +501,14 @@ public class CmsXmlEntityResolver implements EntityResolver, I_CmsEventListener
             // if an object was removed from the temporary cache, all XML content definitions must be cleared
             // because this may be a nested subschema
             m_cacheContentDefinitions.clear();
+            m_cacheValidationSchemas.clear();
             if (LOG.isDebugEnabled()) {
                 LOG.debug(
                     Messages.get().getBundle().key(Messages.LOG_ERR_UNCACHED_SYS_ID_1, getCacheKey(systemId, false)));
             }
         } else {
             // check if a cached content definition has to be removed based on the system id
+            m_cacheValidationSchemas.remove(getCacheKey(systemId, false));
             o = m_cacheContentDefinitions.remove(getCacheKey(systemId, false));
             if ((null != o) && LOG.isDebugEnabled()) {
                 LOG.debug(
@@ -40,6 +40,13 @@ import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.apache.commons.logging.Log;
 
@@ -67,6 +74,15 @@ public final class CmsXmlUtils {
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsXmlUtils.class);
 
+    /** The number of validated XML documents. */
+    private static final AtomicLong VALIDATION_COUNT = new AtomicLong();
+
+    /** The total validation time in nanoseconds. */
+    private static final AtomicLong VALIDATION_TIME = new AtomicLong();
+
+    /** The StAX factory used to read the schema location of XML documents. */
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
     /**
      * Prevents instances of this class from being generated.<p>
      */
@@ -252,6 +268,27 @@ public final class CmsXmlUtils {
         return CmsXmlUtils.removeXpathIndex(path);
     }
 
+    /**
+     * Returns the number of XML documents validated with {@link #validateXmlStructure(byte[], EntityResolver)}
+     * and its variants since startup.<p>
+     *
+     * @return the number of validated XML documents
+     */
+    public static long getValidationCount() {
+
+        return VALIDATION_COUNT.get();
+    }
+
+    /**
+     * Returns the total time used to validate XML documents since startup in milliseconds.<p>
+     *
+     * @return the total validation time in milliseconds
+     */
+    public static long getValidationTime() {
+
+        return VALIDATION_TIME.get() / 1000000L;
+    }
+
     /**
      * Returns the last Xpath index from the given path.<p>
      *
@@ -725,6 +762,9 @@ public final class CmsXmlUtils {
      * Validates the structure of a XML document contained in a byte array
      * with the DTD or XML schema used by the document.<p>
      *
+     * If the document uses an XML schema without namespace and the resolver is a {@link CmsXmlEntityResolver},
+     * the compiled schema is cached and validation uses a pooled validator. Otherwise a validating parser is used.<p>
+     *
      * @param xmlData a byte array containing a XML document that should be validated
      * @param resolver the XML entity resolver to use
      *
@@ -732,7 +772,34 @@ public final class CmsXmlUtils {
      */
     public static void validateXmlStructure(byte[] xmlData, EntityResolver resolver) throws CmsXmlException {
 
-        validateXmlStructure(new ByteArrayInputStream(xmlData), resolver);
+        long start = System.nanoTime();
+        try {
+            CmsXmlValidationSchema schema = getValidationSchema(xmlData, resolver);
+            if (schema == null) {
+                validateXmlStructureWithParser(new ByteArrayInputStream(xmlData), resolver);
+                return;
+            }
+            // add an error handler which turns any errors into XML
+            CmsXmlValidationErrorHandler errorHandler = new CmsXmlValidationErrorHandler();
+            try {
+                schema.validate(xmlData, resolver, errorHandler);
+            } catch (IOException e) {
+                // should not happen since we read form a byte array
+                if (LOG.isErrorEnabled()) {
+                    LOG.error(Messages.get().getBundle().key(Messages.LOG_READ_XML_FROM_BYTE_ARR_FAILED_0), e);
+                }
+                return;
+            } catch (SAXException e) {
+                // should not happen since all errors are handled in the XML error handler
+                if (LOG.isErrorEnabled()) {
+                    LOG.error(Messages.get().getBundle().key(Messages.LOG_PARSE_SAX_EXC_0), e);
+                }
+                return;
+            }
+            checkValidationErrors(errorHandler);
+        } finally {
+            recordValidation(System.nanoTime() - start);
+        }
     }
 
     /**
@@ -767,6 +834,142 @@ public final class CmsXmlUtils {
      */
     public static void validateXmlStructure(InputStream xmlStream, EntityResolver resolver) throws CmsXmlException {
 
+        long start = System.nanoTime();
+        try {
+            validateXmlStructureWithParser(xmlStream, resolver);
+        } finally {
+            recordValidation(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Throws an exception if the given error handler contains validation errors.<p>
+     *
+     * @param errorHandler the error handler used for validation
+     *
+     * @throws CmsXmlException if the error handler contains validation errors
+     */
+    private static void checkValidationErrors(CmsXmlValidationErrorHandler errorHandler) throws CmsXmlException {
+
+        if (errorHandler.getErrors().elements().size() > 0) {
+            // there was at last one validation error, so throw an exception
+            StringWriter out = new StringWriter(256);
+            OutputFormat format = OutputFormat.createPrettyPrint();
+            XMLWriter writer = new XMLWriter(out, format);
+            try {
+                writer.write(errorHandler.getErrors());
+                writer.write(errorHandler.getWarnings());
+                writer.close();
+            } catch (IOException e) {
+                // should not happen since we write to a StringWriter
+                if (LOG.isErrorEnabled()) {
+                    LOG.error(Messages.get().getBundle().key(Messages.LOG_STRINGWRITER_IO_EXC_0), e);
+                }
+            }
+            // generate String from XML for display of document in error message
+            throw new CmsXmlException(Messages.get().container(Messages.ERR_XML_VALIDATION_1, out.toString()));
+        }
+    }
+
+    /**
+     * Creates the StAX factory used to read the schema location of XML documents.<p>
+     *
+     * @return the StAX factory
+     */
+    private static XMLInputFactory createXmlInputFactory() {
+
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        return factory;
+    }
+
+    /**
+     * Returns the schema location without namespace of the given XML document.<p>
+     *
+     * Only the start of the document is read. If the document has a document type declaration,
+     * <code>null</code> is returned since it must be validated against the DTD.<p>
+     *
+     * @param xmlData the XML document
+     *
+     * @return the schema location without namespace, or <code>null</code>
+     */
+    private static String getNoNamespaceSchemaLocation(byte[] xmlData) {
+
+        XMLStreamReader reader = null;
+        try {
+            reader = XML_INPUT_FACTORY.createXMLStreamReader(new ByteArrayInputStream(xmlData));
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.DTD) {
+                    return null;
+                } else if (event == XMLStreamConstants.START_ELEMENT) {
+                    return reader.getAttributeValue(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "noNamespaceSchemaLocation");
+                }
+            }
+        } catch (XMLStreamException e) {
+            // the validating parser will report this
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    // ignore
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the cached compiled XML schema to validate the given XML document with.<p>
+     *
+     * @param xmlData the XML document
+     * @param resolver the XML entity resolver
+     *
+     * @return the compiled XML schema, or <code>null</code> if the document must be validated with a validating parser
+     */
+    private static CmsXmlValidationSchema getValidationSchema(byte[] xmlData, EntityResolver resolver) {
+
+        if (!(resolver instanceof CmsXmlEntityResolver)) {
+            return null;
+        }
+        String systemId = getNoNamespaceSchemaLocation(xmlData);
+        if (systemId == null) {
+            return null;
+        }
+        CmsXmlEntityResolver cmsResolver = (CmsXmlEntityResolver)resolver;
+        CmsXmlValidationSchema result = cmsResolver.getCachedValidationSchema(systemId);
+        if (result == null) {
+            result = CmsXmlValidationSchema.create(systemId, resolver);
+            if (result != null) {
+                cmsResolver.cacheValidationSchema(systemId, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Records the time used for a validation.<p>
+     *
+     * @param nanos the time used for the validation in nanoseconds
+     */
+    private static void recordValidation(long nanos) {
+
+        VALIDATION_COUNT.incrementAndGet();
+        VALIDATION_TIME.addAndGet(nanos);
+    }
+
+    /**
+     * Validates the structure of a XML document with a validating parser.<p>
+     *
+     * @param xmlStream a source providing a XML document that should be validated
+     * @param resolver the XML entity resolver to use
+     *
+     * @throws CmsXmlException if the validation fails
+     */
+    private static void validateXmlStructureWithParser(InputStream xmlStream, EntityResolver resolver)
+    throws CmsXmlException {
+
         XMLReader reader;
         try {
             reader = XMLReaderFactory.createXMLReader("org.apache.xerces.parsers.SAXParser");
@@ -827,23 +1030,6 @@ public final class CmsXmlUtils {
             return;
         }
 
-        if (errorHandler.getErrors().elements().size() > 0) {
-            // there was at last one validation error, so throw an exception
-            StringWriter out = new StringWriter(256);
-            OutputFormat format = OutputFormat.createPrettyPrint();
-            XMLWriter writer = new XMLWriter(out, format);
-            try {
-                writer.write(errorHandler.getErrors());
-                writer.write(errorHandler.getWarnings());
-                writer.close();
-            } catch (IOException e) {
-                // should not happen since we write to a StringWriter
-                if (LOG.isErrorEnabled()) {
-                    LOG.error(Messages.get().getBundle().key(Messages.LOG_STRINGWRITER_IO_EXC_0), e);
-                }
-            }
-            // generate String from XML for display of document in error message
-            throw new CmsXmlException(Messages.get().container(Messages.ERR_XML_VALIDATION_1, out.toString()));
-        }
+        checkValidationErrors(errorHandler);
     }
 }
\ No newline at end of file
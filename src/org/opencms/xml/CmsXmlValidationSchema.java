@@ -0,0 +1,404 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.xml;
+
+import org.opencms.main.CmsLog;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+
+import org.apache.commons.logging.Log;
+
+import org.w3c.dom.ls.LSInput;
+import org.w3c.dom.ls.LSResourceResolver;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * A compiled XML schema used to validate XML documents, with a pool of reusable validators.<p>
+ *
+ * Instances are cached by the {@link CmsXmlEntityResolver} and are flushed together with the
+ * cached XML content definitions.<p>
+ *
+ * @since 10.5.0
+ *
+ * @see CmsXmlUtils#validateXmlStructure(byte[], EntityResolver)
+ */
+public final class CmsXmlValidationSchema {
+
+    /**
+     * Resolves schema resources with an entity resolver.<p>
+     */
+    private static class CmsEntityResourceResolver implements LSResourceResolver {
+
+        /** The entity resolver. */
+        private EntityResolver m_resolver;
+
+        /**
+         * Creates a new resource resolver.<p>
+         *
+         * @param resolver the entity resolver to use
+         */
+        CmsEntityResourceResolver(EntityResolver resolver) {
+
+            m_resolver = resolver;
+        }
+
+        /**
+         * @see org.w3c.dom.ls.LSResourceResolver#resolveResource(java.lang.String, java.lang.String, java.lang.String, java.lang.String, java.lang.String)
+         */
+        public LSInput resolveResource(
+            String type,
+            String namespaceURI,
+            String publicId,
+            String systemId,
+            String baseURI) {
+
+            if (systemId == null) {
+                return null;
+            }
+            String absoluteId = systemId;
+            if (baseURI != null) {
+                try {
+                    absoluteId = new URI(baseURI).resolve(systemId).toString();
+                } catch (URISyntaxException e) {
+                    // use the system id as is
+                }
+            }
+            try {
+                InputSource source = m_resolver.resolveEntity(publicId, absoluteId);
+                return source != null ? new CmsInput(source, publicId, absoluteId, baseURI) : null;
+            } catch (SAXException e) {
+                LOG.error(e.getLocalizedMessage(), e);
+            } catch (IOException e) {
+                LOG.error(e.getLocalizedMessage(), e);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * An input for a schema resource resolved by an entity resolver.<p>
+     */
+    private static class CmsInput implements LSInput {
+
+        /** The base URI. */
+        private String m_baseURI;
+
+        /** The byte stream. */
+        private InputStream m_byteStream;
+
+        /** The character stream. */
+        private Reader m_characterStream;
+
+        /** The encoding. */
+        private String m_encoding;
+
+        /** The public id. */
+        private String m_publicId;
+
+        /** The system id. */
+        private String m_systemId;
+
+        /**
+         * Creates a new input.<p>
+         *
+         * @param source the resolved input source
+         * @param publicId the public id
+         * @param systemId the system id
+         * @param baseURI the base URI
+         */
+        CmsInput(InputSource source, String publicId, String systemId, String baseURI) {
+
+            m_byteStream = source.getByteStream();
+            m_characterStream = source.getCharacterStream();
+            m_encoding = source.getEncoding();
+            m_publicId = publicId;
+            m_systemId = source.getSystemId() != null ? source.getSystemId() : systemId;
+            m_baseURI = baseURI;
+        }
+
+        /**
+         * @see org.w3c.dom.ls.LSInput#getBaseURI()
+         */
+        public String getBaseURI() {
+
+            return m_baseURI;
+        }
+
+        /**
+         * @see org.w3c.dom.ls.LSInput#getByteStream()
+         */
+        public InputStream getByteStream() {
+
+            return m_byteStream;
+        }
+
+        /**
+         * @see org.w3c.dom.ls.LSInput#getCertifiedText()
+         */
+        public boolean getCertifiedText() {
+
+            return false;
+        }
+
+        /**
+         * @see org.w3c.dom.ls.LSInput#getCharacterStream()
+         */
+        public Reader getCharacterStream() {
+
+            return m_characterStream;
+        }
+
+        /**
+         * @see org.w3c.dom.ls.LSInput#getEncoding()
+         */
+        public String getEncoding() {
+
+            return m_encoding;
+        }
+
+        /**
+         * @see org.w3c.dom.ls.LSInput#getPublicId()
+         */
+        public String getPublicId() {
+
+            return m_publicId;
+        }
+
+        /**
+         * @see org.w3c.dom.ls.LSInput#getStringData()
+         */
+        public String getStringData() {
+
+            return null;
+        }
+
+        /**
+         * @see org.w3c.dom.ls.LSInput#getSystemId()
+         */
+        public String getSystemId() {
+
+            return m_systemId;
+        }
+
+        /**
+         * @see org.w3c.dom.ls.LSInput#setBaseURI(java.lang.String)
+         */
+        public void setBaseURI(String baseURI) {
+
+            m_baseURI = baseURI;
+        }
+
+        /**
+         * @see org.w3c.dom.ls.LSInput#setByteStream(java.io.InputStream)
+         */
+        public void setByteStream(InputStream byteStream) {
+
+            m_byteStream = byteStream;
+        }
+
+        /**
+         * @see org.w3c.dom.ls.LSInput#setCertifiedText(boolean)
+         */
+        public void setCertifiedText(boolean certifiedText) {
+
+            // not supported
+        }
+
+        /**
+         * @see org.w3c.dom.ls.LSInput#setCharacterStream(java.io.Reader)
+         */
+        public void setCharacterStream(Reader characterStream) {
+
+            m_characterStream = characterStream;
+        }
+
+        /**
+         * @see org.w3c.dom.ls.LSInput#setEncoding(java.lang.String)
+         */
+        public void setEncoding(String encoding) {
+
+            m_encoding = encoding;
+        }
+
+        /**
+         * @see org.w3c.dom.ls.LSInput#setPublicId(java.lang.String)
+         */
+        public void setPublicId(String publicId) {
+
+            m_publicId = publicId;
+        }
+
+        /**
+         * @see org.w3c.dom.ls.LSInput#setStringData(java.lang.String)
+         */
+        public void setStringData(String stringData) {
+
+            // not supported
+        }
+
+        /**
+         * @see org.w3c.dom.ls.LSInput#setSystemId(java.lang.String)
+         */
+        public void setSystemId(String systemId) {
+
+            m_systemId = systemId;
+        }
+    }
+
+    /** The maximum number of idle validators kept for reuse. */
+    public static final int MAX_POOLED_VALIDATORS = 8;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsXmlValidationSchema.class);
+
+    /** The compiled schema. */
+    private Schema m_schema;
+
+    /** The system id of the schema. */
+    private String m_systemId;
+
+    /** The idle validators. */
+    private BlockingQueue<Validator> m_validators;
+
+    /**
+     * Creates a new validation schema.<p>
+     *
+     * @param systemId the system id of the schema
+     * @param schema the compiled schema
+     */
+    private CmsXmlValidationSchema(String systemId, Schema schema) {
+
+        m_systemId = systemId;
+        m_schema = schema;
+        m_validators = new ArrayBlockingQueue<Validator>(MAX_POOLED_VALIDATORS);
+    }
+
+    /**
+     * Compiles the XML schema with the given system id.<p>
+     *
+     * Returns <code>null</code> if the schema can not be resolved or compiled without errors,
+     * in this case the validating parser must be used, which reports the schema errors.<p>
+     *
+     * @param systemId the system id of the schema
+     * @param resolver the entity resolver used to read the schema and its includes
+     *
+     * @return the compiled schema, or <code>null</code>
+     */
+    public static CmsXmlValidationSchema create(String systemId, EntityResolver resolver) {
+
+        try {
+            InputSource source = resolver.resolveEntity(null, systemId);
+            if (source == null) {
+                return null;
+            }
+            if (source.getSystemId() == null) {
+                source.setSystemId(systemId);
+            }
+            SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+            factory.setResourceResolver(new CmsEntityResourceResolver(resolver));
+            CmsXmlValidationErrorHandler errorHandler = new CmsXmlValidationErrorHandler();
+            factory.setErrorHandler(errorHandler);
+            Schema schema = factory.newSchema(new SAXSource(source));
+            if (errorHandler.getErrors().elements().size() > 0) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(
+                        Messages.get().getBundle().key(Messages.LOG_VALIDATION_SCHEMA_COMPILE_FAILED_1, systemId)
+                            + "\n"
+                            + errorHandler.getErrors().asXML());
+                }
+                return null;
+            }
+            return new CmsXmlValidationSchema(systemId, schema);
+        } catch (SAXException e) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(Messages.get().getBundle().key(Messages.LOG_VALIDATION_SCHEMA_COMPILE_FAILED_1, systemId), e);
+            }
+        } catch (IOException e) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(Messages.get().getBundle().key(Messages.LOG_VALIDATION_SCHEMA_COMPILE_FAILED_1, systemId), e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the system id of the schema.<p>
+     *
+     * @return the system id of the schema
+     */
+    public String getSystemId() {
+
+        return m_systemId;
+    }
+
+    /**
+     * Validates the given XML document against this schema.<p>
+     *
+     * Validation errors are reported to the given error handler.<p>
+     *
+     * @param xmlData the XML document to validate
+     * @param resolver the entity resolver used to resolve external entities of the document
+     * @param errorHandler the error handler
+     *
+     * @throws SAXException if the document can not be parsed
+     * @throws IOException if reading the document fails
+     */
+    public void validate(byte[] xmlData, EntityResolver resolver, ErrorHandler errorHandler)
+    throws SAXException, IOException {
+
+        Validator validator = m_validators.poll();
+        if (validator == null) {
+            validator = m_schema.newValidator();
+        }
+        validator.setErrorHandler(errorHandler);
+        validator.setResourceResolver(resolver != null ? new CmsEntityResourceResolver(resolver) : null);
+        validator.validate(new StreamSource(new ByteArrayInputStream(xmlData)));
+        // only validators that finished without an exception are reused
+        validator.reset();
+        validator.setErrorHandler(null);
+        validator.setResourceResolver(null);
+        m_validators.offer(validator);
+    }
+}
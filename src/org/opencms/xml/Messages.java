@@ -229,6 +229,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_VALIDATION_INIT_XERXES_SAX_READER_FAILED_0 = "LOG_VALIDATION_INIT_XERXES_SAX_READER_FAILED_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_VALIDATION_SCHEMA_COMPILE_FAILED_1 = "LOG_VALIDATION_SCHEMA_COMPILE_FAILED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_XML_CONTENT_SCHEMA_TYPE_CLASS_NOT_FOUND_1 = "LOG_XML_CONTENT_SCHEMA_TYPE_CLASS_NOT_FOUND_1";
 
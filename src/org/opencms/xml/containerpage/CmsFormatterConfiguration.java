@@ -177,17 +177,26 @@ public final class CmsFormatterConfiguration {
     /** The container width to match all width configured formatters. */
     public static final int MATCH_ALL_CONTAINER_WIDTH = -2;
 
+    /** The maximum number of cached formatter matches per configuration. */
+    private static final int MAX_CACHED_MATCHES = 256;
+
     /** CmsObject used to read the JSP resources configured in the XSD schema. */
     private static CmsObject m_adminCms;
 
     /** All formatters that have been added to this configuration. */
     private List<I_CmsFormatterBean> m_allFormatters;
 
+    /** Cache for the default formatters by container types, width and nested flag. */
+    private Map<String, Optional<I_CmsFormatterBean>> m_defaultFormatters = Maps.newConcurrentMap();
+
+    /** Cache for the detail formatters by container types and width. */
+    private Map<String, Optional<I_CmsFormatterBean>> m_detailFormatters = Maps.newConcurrentMap();
+
     /** The available display formatters. */
-    private List<I_CmsFormatterBean> m_displayFormatters;
+    private volatile List<I_CmsFormatterBean> m_displayFormatters;
 
     /** Cache for the searchContent option. */
-    private Map<CmsUUID, Boolean> m_searchContent = Maps.newHashMap();
+    private Map<CmsUUID, Boolean> m_searchContent = Maps.newConcurrentMap();
 
     /**
      * Creates a new formatter configuration based on the given list of formatters.<p>
@@ -305,7 +314,8 @@ public final class CmsFormatterConfiguration {
      * Selects the best matching formatter for the provided type and width from this configuration.<p>
      *
      * This method first tries to find the formatter for the provided container type.
-     * If this fails, it returns the width based formatter that matched the container width.<p>
+     * If this fails, it returns the width based formatter that matched the container width.
+     * The result is cached, since configurations are shared by all elements of the same type.<p>
      *
      * @param containerTypes the container types (comma separated)
      * @param containerWidth the container width
@@ -318,9 +328,14 @@ public final class CmsFormatterConfiguration {
         final int containerWidth,
         final boolean allowNested) {
 
-        Optional<I_CmsFormatterBean> result = Iterables.tryFind(
-            m_allFormatters,
-            new MatchesTypeOrWidth(containerTypes, containerWidth, allowNested));
+        String key = containerTypes + "|" + containerWidth + "|" + allowNested;
+        Optional<I_CmsFormatterBean> result = m_defaultFormatters.get(key);
+        if (result == null) {
+            result = Iterables.tryFind(
+                m_allFormatters,
+                new MatchesTypeOrWidth(containerTypes, containerWidth, allowNested));
+            cacheMatch(m_defaultFormatters, key, result);
+        }
         return result.orNull();
     }
 
@@ -350,11 +365,16 @@ public final class CmsFormatterConfiguration {
      */
     public I_CmsFormatterBean getDetailFormatter(String types, int containerWidth) {
 
-        // detail formatters must still match the type or width
-        Predicate<I_CmsFormatterBean> checkValidDetailFormatter = Predicates.and(
-            new MatchesTypeOrWidth(types, containerWidth, true),
-            new IsDetail());
-        Optional<I_CmsFormatterBean> result = Iterables.tryFind(m_allFormatters, checkValidDetailFormatter);
+        String key = types + "|" + containerWidth;
+        Optional<I_CmsFormatterBean> result = m_detailFormatters.get(key);
+        if (result == null) {
+            // detail formatters must still match the type or width
+            Predicate<I_CmsFormatterBean> checkValidDetailFormatter = Predicates.and(
+                new MatchesTypeOrWidth(types, containerWidth, true),
+                new IsDetail());
+            result = Iterables.tryFind(m_allFormatters, checkValidDetailFormatter);
+            cacheMatch(m_detailFormatters, key, result);
+        }
         return result.orNull();
     }
 
@@ -546,6 +566,23 @@ public final class CmsFormatterConfiguration {
         return result.booleanValue();
     }
 
+    /**
+     * Stores a formatter match in the given cache, unless the cache is full.<p>
+     *
+     * @param cache the cache
+     * @param key the key of the match
+     * @param match the matching formatter
+     */
+    private void cacheMatch(
+        Map<String, Optional<I_CmsFormatterBean>> cache,
+        String key,
+        Optional<I_CmsFormatterBean> match) {
+
+        if (cache.size() < MAX_CACHED_MATCHES) {
+            cache.put(key, match);
+        }
+    }
+
     /**
      * Initializes all formatters of this configuration.<p>
      *
@@ -1112,6 +1112,19 @@ public class CmsDefaultXmlContentHandler implements I_CmsXmlContentHandler, I_Cm
         return (m_formatters != null) && (m_formatters.size() > 0);
     }
 
+    /**
+     * Checks if a link check rule applies to the value with the given xpath,
+     * in which case the value may be removed by {@link #invalidateBrokenLinks(CmsObject, CmsXmlContent)}.<p>
+     *
+     * @param path the xpath of the value to check
+     *
+     * @return <code>true</code> if a link check rule applies to the value with the given xpath
+     */
+    public boolean hasRelationCheck(String path) {
+
+        return (m_relationChecks.get(path) != null) || (m_relationChecks.get(CmsXmlUtils.removeXpath(path)) != null);
+    }
+
     /**
      * @see org.opencms.xml.content.I_CmsXmlContentHandler#hasSynchronizedElements()
      */
@@ -0,0 +1,640 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.xml.content;
+
+import org.opencms.file.CmsObject;
+import org.opencms.i18n.CmsLocaleManager;
+import org.opencms.main.CmsLog;
+import org.opencms.xml.CmsXmlContentDefinition;
+import org.opencms.xml.CmsXmlException;
+import org.opencms.xml.CmsXmlUtils;
+import org.opencms.xml.types.A_CmsXmlValueCdataBase;
+import org.opencms.xml.types.A_CmsXmlValueTextBase;
+import org.opencms.xml.types.CmsXmlNestedContentDefinition;
+import org.opencms.xml.types.I_CmsXmlSchemaType;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.logging.Log;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.SAXException;
+
+/**
+ * A compact, read-only representation of the value structure of an XML content.<p>
+ *
+ * Instead of a dom4j document and a value object for each element, this keeps only two arrays for each locale:
+ * the sorted xpaths of all values, and the string values of the values with plain text types
+ * (for example <code>OpenCmsString</code> or <code>OpenCmsDateTime</code>). Values of other types
+ * (for example HTML or links) depend on the current users context and are only available
+ * from the complete XML content, see {@link CmsXmlCompactDocument}.<p>
+ *
+ * The structure is read with a single streaming pass over the XML data, and the resulting object
+ * is immutable, so it can be shared across requests.<p>
+ *
+ * Links in XML contents are checked when the content is unmarshalled, and broken links may be removed from
+ * the content. Since this can not be done without a user context, locales that contain values with
+ * link check rules are flagged as not exact, and the structure of these locales must be read from the
+ * complete XML content.<p>
+ *
+ * @since 10.5.0
+ */
+public final class CmsXmlCompactContent {
+
+    /** The StAX factory, only used to create readers after it has been configured. */
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsXmlCompactContent.class);
+
+    /** Caches which value classes return the element text as string value. */
+    private static final Map<Class<?>, Boolean> PLAIN_TYPES = new ConcurrentHashMap<Class<?>, Boolean>();
+
+    /** Property of the JDK StAX implementation to report CDATA sections as separate events. */
+    private static final String PROPERTY_REPORT_CDATA = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+
+    /** The content definition of the XML content. */
+    private final CmsXmlContentDefinition m_contentDefinition;
+
+    /** Flags which locales have a value structure that does not depend on link checks, same order as the locales. */
+    private final boolean[] m_exact;
+
+    /** The locales of the XML content, in document order. */
+    private final Locale[] m_locales;
+
+    /** The sorted xpaths of the values for each locale, same order as the locales. */
+    private final String[][] m_paths;
+
+    /** The plain string values for each locale, or <code>null</code> for values that are not plain, same order as the paths. */
+    private final String[][] m_values;
+
+    /**
+     * Creates a new compact XML content.<p>
+     *
+     * @param contentDefinition the content definition
+     * @param locales the values by xpath for each locale
+     * @param exactLocales the locales with a value structure that does not depend on link checks
+     */
+    private CmsXmlCompactContent(
+        CmsXmlContentDefinition contentDefinition,
+        Map<Locale, TreeMap<String, String>> locales,
+        List<Locale> exactLocales) {
+
+        m_contentDefinition = contentDefinition;
+        int size = locales.size();
+        m_locales = new Locale[size];
+        m_exact = new boolean[size];
+        m_paths = new String[size][];
+        m_values = new String[size][];
+        int i = 0;
+        for (Map.Entry<Locale, TreeMap<String, String>> entry : locales.entrySet()) {
+            m_locales[i] = entry.getKey();
+            m_exact[i] = exactLocales.contains(entry.getKey());
+            m_paths[i] = entry.getValue().keySet().toArray(new String[entry.getValue().size()]);
+            m_values[i] = entry.getValue().values().toArray(new String[entry.getValue().size()]);
+            i++;
+        }
+    }
+
+    /**
+     * Reads the compact representation of the XML content from the given XML data.<p>
+     *
+     * @param xmlData the XML data of the content
+     * @param resolver the entity resolver used to read the content definition
+     *
+     * @return the compact XML content
+     *
+     * @throws CmsXmlException if something goes wrong
+     */
+    public static CmsXmlCompactContent read(byte[] xmlData, EntityResolver resolver) throws CmsXmlException {
+
+        XMLStreamReader reader = null;
+        try {
+            reader = INPUT_FACTORY.createXMLStreamReader(new ByteArrayInputStream(xmlData));
+            if (!nextElement(reader)) {
+                throw new CmsXmlException(Messages.get().container(Messages.ERR_XMLCONTENT_MISSING_SCHEMA_0));
+            }
+            String schemaLocation = reader.getAttributeValue(
+                I_CmsXmlSchemaType.XSI_NAMESPACE.getURI(),
+                I_CmsXmlSchemaType.XSI_NAMESPACE_ATTRIBUTE_NO_SCHEMA_LOCATION.getName());
+            if (schemaLocation == null) {
+                throw new CmsXmlException(Messages.get().container(Messages.ERR_XMLCONTENT_MISSING_SCHEMA_0));
+            }
+            CmsXmlContentDefinition definition = readContentDefinition(schemaLocation, resolver);
+            I_CmsXmlContentHandler handler = definition.getContentHandler();
+            // other handlers may modify the content when it is prepared for use
+            CmsDefaultXmlContentHandler linkCheckHandler = handler.getClass() == CmsDefaultXmlContentHandler.class
+            ? (CmsDefaultXmlContentHandler)handler
+            : null;
+
+            Map<Locale, TreeMap<String, String>> locales = new LinkedHashMap<Locale, TreeMap<String, String>>();
+            List<Locale> exactLocales = new ArrayList<Locale>();
+            while (nextElement(reader)) {
+                String language = reader.getAttributeValue(null, CmsXmlContentDefinition.XSD_ATTRIBUTE_VALUE_LANGUAGE);
+                if (language == null) {
+                    LOG.error(Messages.get().getBundle().key(Messages.LOG_XMLCONTENT_INIT_BOOKMARKS_0));
+                    skipElement(reader);
+                    continue;
+                }
+                Locale locale = CmsLocaleManager.getLocale(language);
+                TreeMap<String, String> values = locales.get(locale);
+                if (values == null) {
+                    values = new TreeMap<String, String>();
+                    locales.put(locale, values);
+                }
+                readValues(reader, null, definition, values);
+                if ((linkCheckHandler != null) && !hasRelationChecks(linkCheckHandler, values)) {
+                    exactLocales.add(locale);
+                } else {
+                    exactLocales.remove(locale);
+                }
+            }
+            return new CmsXmlCompactContent(definition, locales, exactLocales);
+        } catch (XMLStreamException e) {
+            throw new CmsXmlException(
+                org.opencms.xml.Messages.get().container(
+                    org.opencms.xml.Messages.ERR_UNMARSHALLING_XML_DOC_1,
+                    e.getLocalizedMessage()),
+                e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends a text run to the given buffer, unless it only contains white space.<p>
+     *
+     * This is the same as the white space handling used when unmarshalling XML documents.<p>
+     *
+     * @param buffer the buffer to append the text to
+     * @param text the text run, which is reset afterwards
+     */
+    private static void appendText(StringBuilder buffer, StringBuilder text) {
+
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                buffer.append(text);
+                break;
+            }
+        }
+        text.setLength(0);
+    }
+
+    /**
+     * Creates the StAX factory used to read XML contents.<p>
+     *
+     * @return the StAX factory
+     */
+    private static XMLInputFactory createInputFactory() {
+
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+        factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, Boolean.TRUE);
+        // CDATA sections must be reported separately to strip white space text like the SAX reader does
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+        if (factory.isPropertySupported(PROPERTY_REPORT_CDATA)) {
+            factory.setProperty(PROPERTY_REPORT_CDATA, Boolean.TRUE);
+        }
+        return factory;
+    }
+
+    /**
+     * Checks if link check rules apply to any of the given values.<p>
+     *
+     * @param handler the content handler
+     * @param values the values by xpath
+     *
+     * @return <code>true</code> if link check rules apply to any of the given values
+     */
+    private static boolean hasRelationChecks(CmsDefaultXmlContentHandler handler, Map<String, String> values) {
+
+        for (String path : values.keySet()) {
+            if (handler.hasRelationCheck(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the string value of the given type is the text of its XML element.<p>
+     *
+     * @param type the schema type to check
+     *
+     * @return <code>true</code> if the string value of the given type is the text of its XML element
+     */
+    private static boolean isPlainType(I_CmsXmlSchemaType type) {
+
+        Class<?> typeClass = type.getClass();
+        Boolean result = PLAIN_TYPES.get(typeClass);
+        if (result == null) {
+            boolean plain = false;
+            if ((type instanceof A_CmsXmlValueTextBase) || (type instanceof A_CmsXmlValueCdataBase)) {
+                try {
+                    Class<?> declaringClass = typeClass.getMethod(
+                        "getStringValue",
+                        CmsObject.class).getDeclaringClass();
+                    plain = (declaringClass == A_CmsXmlValueTextBase.class)
+                        || (declaringClass == A_CmsXmlValueCdataBase.class);
+                } catch (NoSuchMethodException e) {
+                    // can not happen, the method is declared by the interface
+                }
+            }
+            result = Boolean.valueOf(plain);
+            PLAIN_TYPES.put(typeClass, result);
+        }
+        return result.booleanValue();
+    }
+
+    /**
+     * Moves the reader to the start of the next child element of the current element.<p>
+     *
+     * @param reader the XML reader
+     *
+     * @return <code>true</code> if a child element was found, <code>false</code> if the end of the current element was reached
+     *
+     * @throws XMLStreamException if reading the XML fails
+     */
+    private static boolean nextElement(XMLStreamReader reader) throws XMLStreamException {
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            } else if ((event == XMLStreamConstants.END_ELEMENT) || (event == XMLStreamConstants.END_DOCUMENT)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the content definition with the given schema location.<p>
+     *
+     * @param schemaLocation the schema location
+     * @param resolver the entity resolver
+     *
+     * @return the content definition
+     *
+     * @throws CmsXmlException if the content definition can not be read
+     */
+    private static CmsXmlContentDefinition readContentDefinition(String schemaLocation, EntityResolver resolver)
+    throws CmsXmlException {
+
+        try {
+            return CmsXmlContentDefinition.unmarshal(schemaLocation, resolver);
+        } catch (SAXException e) {
+            throw new CmsXmlException(Messages.get().container(Messages.ERR_XML_SCHEMA_PARSE_1, schemaLocation), e);
+        } catch (IOException e) {
+            throw new CmsXmlException(Messages.get().container(Messages.ERR_XML_SCHEMA_IO_1, schemaLocation), e);
+        }
+    }
+
+    /**
+     * Reads the text of the current element, which is the concatenated text and CDATA content
+     * of the element without white space only text.<p>
+     *
+     * After this, the reader is positioned at the end of the element.<p>
+     *
+     * @param reader the XML reader
+     *
+     * @return the text of the current element
+     *
+     * @throws XMLStreamException if reading the XML fails
+     */
+    private static String readText(XMLStreamReader reader) throws XMLStreamException {
+
+        StringBuilder result = new StringBuilder();
+        StringBuilder text = new StringBuilder();
+        while (true) {
+            int event = reader.next();
+            switch (event) {
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.SPACE:
+                    text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    break;
+                case XMLStreamConstants.CDATA:
+                    appendText(result, text);
+                    result.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    break;
+                case XMLStreamConstants.START_ELEMENT:
+                    appendText(result, text);
+                    skipElement(reader);
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    appendText(result, text);
+                    return result.toString();
+                default:
+                    appendText(result, text);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Reads the values below the current element.<p>
+     *
+     * After this, the reader is positioned at the end of the element.<p>
+     *
+     * @param reader the XML reader
+     * @param parentPath the xpath of the current element, or <code>null</code> for a locale element
+     * @param definition the content definition of the current element
+     * @param values the values by xpath to add the values to
+     *
+     * @throws XMLStreamException if reading the XML fails
+     */
+    private static void readValues(
+        XMLStreamReader reader,
+        String parentPath,
+        CmsXmlContentDefinition definition,
+        Map<String, String> values)
+    throws XMLStreamException {
+
+        Map<String, Integer> indexes = new HashMap<String, Integer>();
+        while (nextElement(reader)) {
+            String name = reader.getLocalName().intern();
+            Integer index = indexes.get(name);
+            index = Integer.valueOf(index == null ? 1 : index.intValue() + 1);
+            indexes.put(name, index);
+
+            I_CmsXmlSchemaType type = definition.getSchemaType(name);
+            if (type == null) {
+                // unknown XML node name according to schema
+                if (LOG.isWarnEnabled()) {
+                    LOG.warn(
+                        Messages.get().getBundle().key(
+                            Messages.LOG_XMLCONTENT_INVALID_ELEM_2,
+                            name,
+                            definition.getSchemaLocation()));
+                }
+                skipElement(reader);
+                continue;
+            }
+
+            String path = CmsXmlUtils.createXpathElement(name, index.intValue());
+            if (parentPath != null) {
+                path = CmsXmlUtils.concatXpath(parentPath, path);
+            }
+            path = path.intern();
+            // with duplicate locale elements, the values of the first element are used
+            boolean isNew = !values.containsKey(path);
+            if (type.isSimpleType()) {
+                String value = null;
+                if (isPlainType(type)) {
+                    value = readText(reader);
+                } else {
+                    skipElement(reader);
+                }
+                if (isNew) {
+                    values.put(path, value);
+                }
+            } else {
+                if (isNew) {
+                    values.put(path, null);
+                }
+                CmsXmlContentDefinition nestedDefinition = ((CmsXmlNestedContentDefinition)type).getNestedContentDefinition();
+                readValues(reader, path, nestedDefinition, values);
+            }
+        }
+    }
+
+    /**
+     * Skips the current element including all its children.<p>
+     *
+     * After this, the reader is positioned at the end of the element.<p>
+     *
+     * @param reader the XML reader
+     *
+     * @throws XMLStreamException if reading the XML fails
+     */
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Returns the content definition of the XML content.<p>
+     *
+     * @return the content definition of the XML content
+     */
+    public CmsXmlContentDefinition getContentDefinition() {
+
+        return m_contentDefinition;
+    }
+
+    /**
+     * Returns the locales of the XML content.<p>
+     *
+     * @return the locales of the XML content
+     *
+     * @see org.opencms.xml.I_CmsXmlDocument#getLocales()
+     */
+    public List<Locale> getLocales() {
+
+        return new ArrayList<Locale>(Arrays.asList(m_locales));
+    }
+
+    /**
+     * Returns the locales that contain a value with the given xpath.<p>
+     *
+     * @param path the xpath of the value
+     *
+     * @return the locales that contain a value with the given xpath
+     *
+     * @see org.opencms.xml.I_CmsXmlDocument#getLocales(String)
+     */
+    public List<Locale> getLocales(String path) {
+
+        String xpath = CmsXmlUtils.createXpath(path, 1);
+        List<Locale> result = new ArrayList<Locale>();
+        for (int i = 0; i < m_locales.length; i++) {
+            if (Arrays.binarySearch(m_paths[i], xpath) >= 0) {
+                result.add(m_locales[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the xpaths of all values in the given locale.<p>
+     *
+     * @param locale the locale
+     *
+     * @return the xpaths of all values in the given locale
+     *
+     * @see org.opencms.xml.I_CmsXmlDocument#getNames(Locale)
+     */
+    public List<String> getNames(Locale locale) {
+
+        int i = indexOf(locale);
+        if (i < 0) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<String>(Arrays.asList(m_paths[i]));
+    }
+
+    /**
+     * Returns the string value of a value with a plain text type.<p>
+     *
+     * Returns <code>null</code> if the value does not exist, or if its type is not a plain text type.
+     * Use {@link #hasValue(String, Locale, int)} to tell these cases apart.<p>
+     *
+     * @param path the xpath of the value
+     * @param locale the locale
+     * @param index the index of the value, starting with 0
+     *
+     * @return the string value, or <code>null</code>
+     */
+    public String getPlainValue(String path, Locale locale, int index) {
+
+        int i = indexOf(locale);
+        if (i < 0) {
+            return null;
+        }
+        int pos = Arrays.binarySearch(m_paths[i], CmsXmlUtils.createXpath(path, index + 1));
+        return pos < 0 ? null : m_values[i][pos];
+    }
+
+    /**
+     * Returns the total number of values in all locales.<p>
+     *
+     * @return the total number of values in all locales
+     */
+    public int getValueCount() {
+
+        int result = 0;
+        for (String[] paths : m_paths) {
+            result += paths.length;
+        }
+        return result;
+    }
+
+    /**
+     * Checks if the XML content contains the given locale.<p>
+     *
+     * @param locale the locale to check
+     *
+     * @return <code>true</code> if the XML content contains the given locale
+     */
+    public boolean hasLocale(Locale locale) {
+
+        return indexOf(locale) >= 0;
+    }
+
+    /**
+     * Checks if the XML content contains a value with the given xpath in the given locale.<p>
+     *
+     * @param path the xpath of the value
+     * @param locale the locale
+     * @param index the index of the value, starting with 0
+     *
+     * @return <code>true</code> if the XML content contains the value
+     */
+    public boolean hasValue(String path, Locale locale, int index) {
+
+        int i = indexOf(locale);
+        return (i >= 0) && (Arrays.binarySearch(m_paths[i], CmsXmlUtils.createXpath(path, index + 1)) >= 0);
+    }
+
+    /**
+     * Checks if all locales of the XML content have a value structure that does not depend on link checks.<p>
+     *
+     * @return <code>true</code> if all locales of the XML content have a value structure that does not depend on link checks
+     */
+    public boolean isExact() {
+
+        for (boolean exact : m_exact) {
+            if (!exact) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the given locale has a value structure that does not depend on link checks.<p>
+     *
+     * This is also <code>true</code> for locales not contained in the XML content.<p>
+     *
+     * @param locale the locale to check
+     *
+     * @return <code>true</code> if the given locale has a value structure that does not depend on link checks
+     */
+    public boolean isExact(Locale locale) {
+
+        int i = indexOf(locale);
+        return (i < 0) || m_exact[i];
+    }
+
+    /**
+     * Returns the position of the given locale in the locale array.<p>
+     *
+     * @param locale the locale
+     *
+     * @return the position of the locale, or -1 if the locale is not contained in the XML content
+     */
+    private int indexOf(Locale locale) {
+
+        for (int i = 0; i < m_locales.length; i++) {
+            if (m_locales[i].equals(locale)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
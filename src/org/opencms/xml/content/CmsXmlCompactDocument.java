@@ -0,0 +1,388 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.xml.content;
+
+import org.opencms.file.CmsFile;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsResource;
+import org.opencms.main.CmsException;
+import org.opencms.main.CmsIllegalArgumentException;
+import org.opencms.main.CmsRuntimeException;
+import org.opencms.staticexport.CmsLinkProcessor;
+import org.opencms.staticexport.CmsLinkTable;
+import org.opencms.xml.CmsXmlContentDefinition;
+import org.opencms.xml.I_CmsXmlDocument;
+import org.opencms.xml.types.I_CmsXmlContentValue;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Read-only access to an XML content, based on the shared {@link CmsXmlCompactContent} of the content.<p>
+ *
+ * Locales, value names and the string values of plain text values are read from the compact content.
+ * The complete XML content is only unmarshalled when other values are accessed, for example
+ * HTML or link values, or values as {@link I_CmsXmlContentValue} objects.<p>
+ *
+ * All methods that would modify the XML content throw an {@link UnsupportedOperationException}.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsXmlCompactDocument implements I_CmsXmlDocument {
+
+    /** The current users OpenCms context. */
+    private CmsObject m_cms;
+
+    /** The compact XML content. */
+    private CmsXmlCompactContent m_compactContent;
+
+    /** The complete XML content, unmarshalled on demand. */
+    private CmsXmlContent m_content;
+
+    /** The XML content resource. */
+    private CmsResource m_resource;
+
+    /**
+     * Creates a new read-only XML content.<p>
+     *
+     * @param cms the current users OpenCms context
+     * @param resource the XML content resource
+     * @param compactContent the compact XML content read from the resource
+     */
+    public CmsXmlCompactDocument(CmsObject cms, CmsResource resource, CmsXmlCompactContent compactContent) {
+
+        m_cms = cms;
+        m_resource = resource;
+        m_compactContent = compactContent;
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#addLocale(org.opencms.file.CmsObject, java.util.Locale)
+     */
+    public void addLocale(CmsObject cms, Locale locale) {
+
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#copyLocale(java.util.List, java.util.Locale)
+     */
+    public void copyLocale(List<Locale> possibleSources, Locale destination) {
+
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#copyLocale(java.util.Locale, java.util.Locale)
+     */
+    public void copyLocale(Locale source, Locale destination) {
+
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#getBestMatchingLocale(java.util.Locale)
+     */
+    public Locale getBestMatchingLocale(Locale locale) {
+
+        // the requested locale is the match we want to find most
+        if (hasLocale(locale)) {
+            // check if the requested locale is directly available
+            return locale;
+        }
+        if (locale.getVariant().length() > 0) {
+            // locale has a variant like "en_EN_whatever", try only with language and country
+            Locale check = new Locale(locale.getLanguage(), locale.getCountry(), "");
+            if (hasLocale(check)) {
+                return check;
+            }
+        }
+        if (locale.getCountry().length() > 0) {
+            // locale has a country like "en_EN", try only with language
+            Locale check = new Locale(locale.getLanguage(), "", "");
+            if (hasLocale(check)) {
+                return check;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#getContentDefinition()
+     */
+    public CmsXmlContentDefinition getContentDefinition() {
+
+        return m_compactContent.getContentDefinition();
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#getConversion()
+     */
+    public String getConversion() {
+
+        return getXmlContent().getConversion();
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#getEncoding()
+     */
+    public String getEncoding() {
+
+        return getXmlContent().getEncoding();
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#getFile()
+     */
+    public CmsFile getFile() {
+
+        if (m_resource instanceof CmsFile) {
+            return (CmsFile)m_resource;
+        }
+        return getXmlContent().getFile();
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#getHandler()
+     */
+    public I_CmsXmlContentHandler getHandler() {
+
+        return getContentDefinition().getContentHandler();
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#getIndexCount(java.lang.String, java.util.Locale)
+     */
+    public int getIndexCount(String path, Locale locale) {
+
+        return getXmlContent().getIndexCount(path, locale);
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#getLinkProcessor(org.opencms.file.CmsObject, org.opencms.staticexport.CmsLinkTable)
+     */
+    public CmsLinkProcessor getLinkProcessor(CmsObject cms, CmsLinkTable linkTable) {
+
+        return getXmlContent().getLinkProcessor(cms, linkTable);
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#getLocales()
+     */
+    public List<Locale> getLocales() {
+
+        return m_compactContent.getLocales();
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#getLocales(java.lang.String)
+     */
+    public List<Locale> getLocales(String path) {
+
+        if (!m_compactContent.isExact()) {
+            return getXmlContent().getLocales(path);
+        }
+        return m_compactContent.getLocales(path);
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#getNames(java.util.Locale)
+     */
+    public List<String> getNames(Locale locale) {
+
+        if (!m_compactContent.isExact(locale)) {
+            return getXmlContent().getNames(locale);
+        }
+        return m_compactContent.getNames(locale);
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#getStringValue(org.opencms.file.CmsObject, java.lang.String, java.util.Locale)
+     */
+    public String getStringValue(CmsObject cms, String path, Locale locale) {
+
+        return getStringValue(cms, path, locale, 0);
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#getStringValue(org.opencms.file.CmsObject, java.lang.String, java.util.Locale, int)
+     */
+    public String getStringValue(CmsObject cms, String path, Locale locale, int index) {
+
+        if (m_compactContent.isExact(locale)) {
+            String result = m_compactContent.getPlainValue(path, locale, index);
+            if ((result != null) || !m_compactContent.hasValue(path, locale, index)) {
+                return result;
+            }
+        }
+        // the value depends on the users context
+        return getXmlContent().getStringValue(cms, path, locale, index);
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#getSubValues(java.lang.String, java.util.Locale)
+     */
+    public List<I_CmsXmlContentValue> getSubValues(String path, Locale locale) {
+
+        return getXmlContent().getSubValues(path, locale);
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#getValue(java.lang.String, java.util.Locale)
+     */
+    public I_CmsXmlContentValue getValue(String path, Locale locale) {
+
+        return getXmlContent().getValue(path, locale);
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#getValue(java.lang.String, java.util.Locale, int)
+     */
+    public I_CmsXmlContentValue getValue(String path, Locale locale, int index) {
+
+        return getXmlContent().getValue(path, locale, index);
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#getValues(java.util.Locale)
+     */
+    public List<I_CmsXmlContentValue> getValues(Locale locale) {
+
+        return getXmlContent().getValues(locale);
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#getValues(java.lang.String, java.util.Locale)
+     */
+    public List<I_CmsXmlContentValue> getValues(String path, Locale locale) {
+
+        return getXmlContent().getValues(path, locale);
+    }
+
+    /**
+     * Returns the complete XML content, which is unmarshalled on the first call.<p>
+     *
+     * @return the complete XML content
+     */
+    public CmsXmlContent getXmlContent() {
+
+        if (m_content == null) {
+            try {
+                m_content = CmsXmlContentFactory.unmarshalShared(m_cms, m_resource);
+            } catch (CmsException e) {
+                throw new CmsRuntimeException(
+                    org.opencms.xml.Messages.get().container(
+                        org.opencms.xml.Messages.ERR_UNMARSHALLING_XML_DOC_1,
+                        m_resource.getRootPath()),
+                    e);
+            }
+        }
+        return m_content;
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#hasLocale(java.util.Locale)
+     */
+    public boolean hasLocale(Locale locale) {
+
+        if (locale == null) {
+            throw new CmsIllegalArgumentException(
+                org.opencms.xml.Messages.get().container(org.opencms.xml.Messages.ERR_NULL_LOCALE_0));
+        }
+        return m_compactContent.hasLocale(locale);
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#hasValue(java.lang.String, java.util.Locale)
+     */
+    public boolean hasValue(String path, Locale locale) {
+
+        return hasValue(path, locale, 0);
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#hasValue(java.lang.String, java.util.Locale, int)
+     */
+    public boolean hasValue(String path, Locale locale, int index) {
+
+        if (!m_compactContent.isExact(locale)) {
+            return getXmlContent().hasValue(path, locale, index);
+        }
+        return m_compactContent.hasValue(path, locale, index);
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#initDocument()
+     */
+    public void initDocument() {
+
+        if (m_content != null) {
+            m_content.initDocument();
+        }
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#isEnabled(java.lang.String, java.util.Locale)
+     */
+    public boolean isEnabled(String path, Locale locale) {
+
+        return hasValue(path, locale);
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#isEnabled(java.lang.String, java.util.Locale, int)
+     */
+    public boolean isEnabled(String path, Locale locale, int index) {
+
+        return hasValue(path, locale, index);
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#moveLocale(java.util.Locale, java.util.Locale)
+     */
+    public void moveLocale(Locale source, Locale destination) {
+
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#removeLocale(java.util.Locale)
+     */
+    public void removeLocale(Locale locale) {
+
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @see org.opencms.xml.I_CmsXmlDocument#validate(org.opencms.file.CmsObject)
+     */
+    public CmsXmlContentErrorHandler validate(CmsObject cms) {
+
+        return getXmlContent().validate(cms);
+    }
+}
@@ -1063,6 +1063,16 @@ public class CmsXmlContent extends A_CmsXmlDocument {
         m_file = file;
     }
 
+    /**
+     * Returns a deep copy of the XML document of this content.<p>
+     *
+     * @return a copy of the XML document
+     */
+    Document copyDocument() {
+
+        return (Document)m_document.clone();
+    }
+
     /**
      * Ensures the parent values to the given path are created.<p>
      *
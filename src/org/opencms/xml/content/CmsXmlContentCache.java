@@ -0,0 +1,251 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.xml.content;
+
+import org.opencms.cache.CmsVfsCache;
+import org.opencms.file.CmsFile;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsResource;
+import org.opencms.file.history.I_CmsHistoryResource;
+import org.opencms.main.CmsException;
+import org.opencms.main.OpenCms;
+import org.opencms.monitor.CmsMemoryMonitor;
+import org.opencms.xml.CmsXmlEntityResolver;
+
+import java.util.Map;
+
+import org.dom4j.Document;
+
+/**
+ * Shared cache for the unmarshalled XML contents of the Online project.<p>
+ *
+ * The cache keeps a private copy of the parsed XML document of each content, and every lookup returns
+ * a new XML content instance for a copy of this document and a copy of the file. This is required since content
+ * values cache string values which depend on the current users context, and some values even normalize their XML
+ * element when they are first read.<p>
+ *
+ * The cache also keeps the {@link CmsXmlCompactContent} of contents, which is used for read-only access.<p>
+ *
+ * Contents are keyed by structure id and date of last modification, and the cache is flushed after publishing.
+ * Contents of other projects are never cached, since these may be edited.<p>
+ *
+ * @since 10.5.0
+ */
+public final class CmsXmlContentCache extends CmsVfsCache {
+
+    /**
+     * The cached data of an XML content.<p>
+     */
+    private static class CachedContent {
+
+        /** The parsed XML document, never modified. */
+        final Document m_document;
+
+        /** The encoding of the content. */
+        final String m_encoding;
+
+        /** The file of the content, never modified. */
+        final CmsFile m_file;
+
+        /**
+         * Creates a new cache entry.<p>
+         *
+         * @param content the XML content to take the data from
+         */
+        CachedContent(CmsXmlContent content) {
+
+            m_document = content.copyDocument();
+            m_encoding = content.getEncoding();
+            m_file = (CmsFile)content.getFile().clone();
+        }
+    }
+
+    /** The maximum number of cached compact contents. */
+    public static final int MAX_COMPACT_SIZE = 2000;
+
+    /** The maximum number of cached contents. */
+    public static final int MAX_SIZE = 500;
+
+    /** The singleton instance. */
+    private static CmsXmlContentCache m_instance;
+
+    /** The cached compact Online contents. */
+    private Map<String, CmsXmlCompactContent> m_compactContentsOnline;
+
+    /** The cached Online contents. */
+    private Map<String, CachedContent> m_contentsOnline;
+
+    /**
+     * Creates a new XML content cache.<p>
+     */
+    private CmsXmlContentCache() {
+
+        m_contentsOnline = CmsMemoryMonitor.createLRUCacheMap(MAX_SIZE);
+        m_compactContentsOnline = CmsMemoryMonitor.createLRUCacheMap(MAX_COMPACT_SIZE);
+        if (OpenCms.getMemoryMonitor() != null) {
+            OpenCms.getMemoryMonitor().register(
+                CmsXmlContentCache.class.getName() + ".contentsOnline",
+                m_contentsOnline);
+            OpenCms.getMemoryMonitor().register(
+                CmsXmlContentCache.class.getName() + ".compactContentsOnline",
+                m_compactContentsOnline);
+        }
+        registerEventListener();
+    }
+
+    /**
+     * Returns the XML content cache instance.<p>
+     *
+     * @return the XML content cache instance
+     */
+    public static synchronized CmsXmlContentCache getInstance() {
+
+        if (m_instance == null) {
+            m_instance = new CmsXmlContentCache();
+        }
+        return m_instance;
+    }
+
+    /**
+     * Checks if the XML content for the given resource may be cached.<p>
+     *
+     * @param cms the current CMS context
+     * @param resource the XML content resource
+     *
+     * @return <code>true</code> if the XML content for the given resource may be cached
+     */
+    public static boolean isCacheable(CmsObject cms, CmsResource resource) {
+
+        return cms.getRequestContext().getCurrentProject().isOnlineProject()
+            && !(resource instanceof I_CmsHistoryResource);
+    }
+
+    /**
+     * Returns the compact XML content for the given resource.<p>
+     *
+     * In the Online project, the compact XML content is cached, otherwise it is always read from the file.<p>
+     *
+     * @param cms the current CMS context
+     * @param resource the XML content resource
+     *
+     * @return the compact XML content
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public CmsXmlCompactContent getCompactContent(CmsObject cms, CmsResource resource) throws CmsException {
+
+        boolean cacheable = isCacheable(cms, resource);
+        String key = getCacheKey(resource);
+        CmsXmlCompactContent result = cacheable ? m_compactContentsOnline.get(key) : null;
+        if (result == null) {
+            CmsFile file = resource instanceof CmsFile ? (CmsFile)resource : cms.readFile(resource);
+            result = CmsXmlCompactContent.read(file.getContents(), new CmsXmlEntityResolver(cms));
+            if (cacheable) {
+                m_compactContentsOnline.put(key, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a new XML content instance for the given resource created from the cache,
+     * or <code>null</code> if it is not cached.<p>
+     *
+     * @param cms the current CMS context
+     * @param resource the XML content resource
+     *
+     * @return the XML content, or <code>null</code>
+     */
+    public CmsXmlContent getContent(CmsObject cms, CmsResource resource) {
+
+        if (!isCacheable(cms, resource)) {
+            return null;
+        }
+        CachedContent cached = m_contentsOnline.get(getCacheKey(resource));
+        if (cached == null) {
+            return null;
+        }
+        // the links of the cached document have already been checked, so no CmsObject is passed here
+        CmsXmlContent content = new CmsXmlContent(
+            null,
+            (Document)cached.m_document.clone(),
+            cached.m_encoding,
+            new CmsXmlEntityResolver(cms));
+        // the file is mutable, so every request gets its own copy
+        content.setFile((CmsFile)cached.m_file.clone());
+        return content.getHandler().prepareForUse(cms, content);
+    }
+
+    /**
+     * Caches a copy of the given XML content.<p>
+     *
+     * This must be called before the content is used, since using it may modify the XML document.<p>
+     *
+     * @param cms the current CMS context
+     * @param content the XML content to cache
+     */
+    public void setContent(CmsObject cms, CmsXmlContent content) {
+
+        if ((content.getFile() != null) && isCacheable(cms, content.getFile())) {
+            m_contentsOnline.put(getCacheKey(content.getFile()), new CachedContent(content));
+        }
+    }
+
+    /**
+     * @see org.opencms.cache.CmsVfsCache#flush(boolean)
+     */
+    @Override
+    protected void flush(boolean online) {
+
+        if (online) {
+            m_contentsOnline.clear();
+            m_compactContentsOnline.clear();
+        }
+    }
+
+    /**
+     * @see org.opencms.cache.CmsVfsCache#uncacheResource(org.opencms.file.CmsResource)
+     */
+    @Override
+    protected void uncacheResource(CmsResource resource) {
+
+        // resource modifications only happen offline, the Online cache is flushed when publishing
+    }
+
+    /**
+     * Returns the cache key for the given resource.<p>
+     *
+     * @param resource the resource
+     *
+     * @return the cache key
+     */
+    private String getCacheKey(CmsResource resource) {
+
+        return resource.getStructureId().toString() + "_" + resource.getDateLastModified();
+    }
+}
@@ -262,6 +262,9 @@ public final class CmsXmlContentFactory {
      * Factory method to unmarshal (read) a XML content instance from
      * a resource, using the request attributes as cache.<p>
      *
+     * In the Online project, the parsed XML document is shared with other requests,
+     * see {@link #unmarshalShared(CmsObject, CmsResource)}.<p>
+     *
      * @param cms the current OpenCms context object
      * @param resource the resource to unmarshal
      * @param req the current request
@@ -288,9 +291,8 @@ public final class CmsXmlContentFactory {
         CmsXmlContent content = (CmsXmlContent)req.getAttribute(rootPath);
 
         if (content == null) {
-            // unmarshal XML structure from the file content
-            CmsFile file = resource instanceof CmsFile ? (CmsFile)resource : cms.readFile(resource);
-            content = unmarshal(cms, file);
+            // use the shared content, or unmarshal XML structure from the file content
+            content = unmarshalShared(cms, resource);
             // store the content as request attribute for future read requests
             req.setAttribute(rootPath, content);
         }
@@ -376,4 +378,55 @@ public final class CmsXmlContentFactory {
 
         return unmarshal(null, xmlData, encoding, resolver);
     }
-}
\ No newline at end of file
+
+    /**
+     * Factory method to create a read-only XML content instance for a resource,
+     * based on the compact XML content cached in the Online project.<p>
+     *
+     * Use this for read-only access to locales, value names and plain text values,
+     * which does not require the complete XML content to be unmarshalled.<p>
+     *
+     * @param cms the current OpenCms context object
+     * @param resource the XML content resource
+     *
+     * @return the read-only XML content
+     *
+     * @throws CmsException if something goes wrong
+     *
+     * @see CmsXmlCompactDocument
+     */
+    public static CmsXmlCompactDocument unmarshalCompact(CmsObject cms, CmsResource resource) throws CmsException {
+
+        CmsXmlCompactContent compactContent = CmsXmlContentCache.getInstance().getCompactContent(cms, resource);
+        return new CmsXmlCompactDocument(cms, resource, compactContent);
+    }
+
+    /**
+     * Factory method to unmarshal (read) a XML content instance from a resource,
+     * using the shared XML content cache of the Online project.<p>
+     *
+     * In the Online project, the parsed XML document is cached and shared with other requests,
+     * but every call returns a new content instance. In all other projects, the content is
+     * always unmarshalled from the file.<p>
+     *
+     * @param cms the current OpenCms context object
+     * @param resource the resource to unmarshal
+     *
+     * @return the unmarshalled XML content
+     *
+     * @throws CmsException if something goes wrong
+     *
+     * @see CmsXmlContentCache
+     */
+    public static CmsXmlContent unmarshalShared(CmsObject cms, CmsResource resource) throws CmsException {
+
+        CmsXmlContentCache cache = CmsXmlContentCache.getInstance();
+        CmsXmlContent content = cache.getContent(cms, resource);
+        if (content == null) {
+            CmsFile file = resource instanceof CmsFile ? (CmsFile)resource : cms.readFile(resource);
+            content = unmarshal(cms, file);
+            cache.setContent(cms, content);
+        }
+        return content;
+    }
+}
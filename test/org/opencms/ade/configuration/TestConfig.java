@@ -27,6 +27,7 @@
 
 package org.opencms.ade.configuration;
 
+import org.opencms.ade.configuration.formatters.CmsFormatterChangeSet;
 import org.opencms.ade.detailpage.CmsDetailPageInfo;
 import org.opencms.file.CmsObject;
 import org.opencms.file.CmsResource;
@@ -667,6 +668,113 @@ public class TestConfig extends OpenCmsTestCase {
         assertEquals(typeConf3.getNamePattern(false), resourceTypeConfig.get(0).getNamePattern(false));
     }
 
+    /**
+     * Tests that the folder types of an incrementally updated configuration state are the same as the folder types
+     * of a configuration state built from scratch.<p>
+     *
+     * @throws Exception -
+     */
+    public void testIncrementalFolderTypes() throws Exception {
+
+        CmsObject cms = rootCms();
+        CmsResource masterResource = cms.readResource("/sites/default/test.config");
+        CmsUUID masterId = masterResource.getStructureId();
+        CmsUUID rootId = new CmsUUID();
+        CmsUUID subId = new CmsUUID();
+        CmsUUID subSubId = new CmsUUID();
+        CmsUUID otherId = new CmsUUID();
+
+        Map<CmsUUID, CmsADEConfigDataInternal> configs = new HashMap<CmsUUID, CmsADEConfigDataInternal>();
+        configs.put(
+            rootId,
+            createFolderTypeConfig(
+                "/sites/default/",
+                null,
+                false,
+                createFolderType("foo", "/sites/default/"),
+                createFolderType("bar", "/sites/default/")));
+        // the configurations below store the inherited types in their own content folder
+        configs.put(subId, createFolderTypeConfig("/sites/default/sub/", null, true));
+        configs.put(subSubId, createFolderTypeConfig("/sites/default/sub/subsub/", null, true));
+        configs.put(otherId, createFolderTypeConfig("/sites/default/other/", masterResource, true));
+        configs.put(
+            masterId,
+            new CmsADEConfigDataInternal(
+                masterResource,
+                false,
+                null,
+                null,
+                list(createFolderType("baz", "/sites/default/")),
+                false,
+                NO_PROPERTIES,
+                false,
+                NO_DETAILPAGES,
+                NO_MODEL_PAGES,
+                new ArrayList<CmsFunctionReference>(),
+                false,
+                false,
+                false,
+                new CmsFormatterChangeSet()));
+        CmsADEConfigCacheState state = createConfigState(configs);
+        assertFolderTypes(configs, state);
+
+        // change the root configuration, all configurations below inherit the changed types
+        Map<CmsUUID, CmsADEConfigDataInternal> updates = new HashMap<CmsUUID, CmsADEConfigDataInternal>();
+        updates.put(
+            rootId,
+            createFolderTypeConfig(
+                "/sites/default/",
+                null,
+                false,
+                createFolderType("foo", "/sites/default/"),
+                createFolderType("qux", "/sites/default/")));
+        state = updateConfigState(state, configs, updates);
+        assertTrue(state.getFolderTypes().containsValue("qux"));
+        assertFalse(state.getFolderTypes().containsValue("bar"));
+
+        // change a configuration in the middle of the tree
+        updates.clear();
+        updates.put(
+            subId,
+            createFolderTypeConfig("/sites/default/sub/", null, true, createFolderType("sub", "/sites/default/sub/")));
+        state = updateConfigState(state, configs, updates);
+
+        // change the master configuration, only the configuration using it is affected
+        updates.clear();
+        updates.put(
+            masterId,
+            new CmsADEConfigDataInternal(
+                masterResource,
+                false,
+                null,
+                null,
+                list(createFolderType("baz2", "/sites/default/")),
+                false,
+                NO_PROPERTIES,
+                false,
+                NO_DETAILPAGES,
+                NO_MODEL_PAGES,
+                new ArrayList<CmsFunctionReference>(),
+                false,
+                false,
+                false,
+                new CmsFormatterChangeSet()));
+        state = updateConfigState(state, configs, updates);
+        assertTrue(state.getFolderTypes().containsValue("baz2"));
+        assertFalse(state.getFolderTypes().containsValue("baz"));
+
+        // move a configuration, the folder types of the old and the new location change
+        updates.clear();
+        updates.put(subId, createFolderTypeConfig("/sites/default/moved/", null, true));
+        state = updateConfigState(state, configs, updates);
+        assertFalse(state.getFolderTypes().containsValue("sub"));
+
+        // remove a configuration
+        updates.clear();
+        updates.put(subSubId, null);
+        state = updateConfigState(state, configs, updates);
+    }
+
     /**
      * Tests inheritance of folder names for resource types.<p>
      * @throws Exception -
@@ -1159,6 +1267,22 @@ public class TestConfig extends OpenCmsTestCase {
         assertNotSame(t1.getResourceType("c"), t2.getResourceType("c"));
     }
 
+    /**
+     * Helper method for checking that the folder types of a configuration state are the same as the folder types
+     * of a configuration state built from scratch.<p>
+     *
+     * @param configs the sitemap configurations by structure id
+     * @param state the configuration state to check
+     *
+     * @throws CmsException -
+     */
+    protected void assertFolderTypes(Map<CmsUUID, CmsADEConfigDataInternal> configs, CmsADEConfigCacheState state)
+    throws CmsException {
+
+        assertEquals(createConfigState(configs).getFolderTypes(), state.getFolderTypes());
+        assertEquals(state.computeFolderTypes(), state.getFolderTypes());
+    }
+
     /**
      * Helper method for comparing paths which ignores leading/trailing slashes.<p>
      *
@@ -1176,6 +1300,25 @@ public class TestConfig extends OpenCmsTestCase {
         assertEquals(CmsStringUtil.joinPaths("/", path1, "/"), CmsStringUtil.joinPaths("/", path2, "/"));
     }
 
+    /**
+     * Helper method for creating a configuration state without module configurations.<p>
+     *
+     * @param configs the sitemap configurations by structure id
+     *
+     * @return the configuration state
+     *
+     * @throws CmsException -
+     */
+    protected CmsADEConfigCacheState createConfigState(Map<CmsUUID, CmsADEConfigDataInternal> configs)
+    throws CmsException {
+
+        return new CmsADEConfigCacheState(
+            rootCms(),
+            new HashMap<CmsUUID, CmsADEConfigDataInternal>(configs),
+            new ArrayList<CmsADEConfigDataInternal>(),
+            new HashMap<CmsUUID, CmsElementView>());
+    }
+
     /**
      * Helper method for creating a disabled property configuration.<p>
      *
@@ -1189,6 +1332,59 @@ public class TestConfig extends OpenCmsTestCase {
         return new CmsPropertyConfig(prop, true);
     }
 
+    /**
+     * Helper method for creating a resource type configuration with a content folder.<p>
+     *
+     * @param typeName the resource type name
+     * @param basePath the base path of the sitemap containing the content folder
+     *
+     * @return the resource type configuration
+     */
+    protected CmsResourceTypeConfig createFolderType(String typeName, String basePath) {
+
+        return new CmsResourceTypeConfig(
+            typeName,
+            false,
+            new CmsContentFolderDescriptor(
+                CmsStringUtil.joinPaths(basePath, CmsADEManager.CONTENT_FOLDER_NAME),
+                typeName),
+            typeName + "_%(number)");
+    }
+
+    /**
+     * Helper method for creating a sitemap configuration with resource types.<p>
+     *
+     * @param basePath the base path
+     * @param masterConfig the master configuration, may be null
+     * @param createContentsLocally true if the contents of inherited types should be stored in the local content folder
+     * @param types the resource type configurations
+     *
+     * @return the sitemap configuration
+     */
+    protected CmsADEConfigDataInternal createFolderTypeConfig(
+        String basePath,
+        CmsResource masterConfig,
+        boolean createContentsLocally,
+        CmsResourceTypeConfig... types) {
+
+        return new CmsADEConfigDataInternal(
+            null,
+            false,
+            basePath,
+            masterConfig,
+            list(types),
+            false,
+            NO_PROPERTIES,
+            false,
+            NO_DETAILPAGES,
+            NO_MODEL_PAGES,
+            new ArrayList<CmsFunctionReference>(),
+            false,
+            createContentsLocally,
+            false,
+            new CmsFormatterChangeSet());
+    }
+
     /**
      * Helper method for creating a property configuration object.<p>
      *
@@ -1304,6 +1500,40 @@ public class TestConfig extends OpenCmsTestCase {
         return result;
     }
 
+    /**
+     * Helper method for updating a configuration state incrementally, checking the folder types of the result.<p>
+     *
+     * @param state the configuration state to update
+     * @param configs the sitemap configurations by structure id, the updates are applied to this map
+     * @param updates the changed sitemap configurations by structure id, with null values for removed configurations
+     *
+     * @return the updated configuration state
+     *
+     * @throws CmsException -
+     */
+    protected CmsADEConfigCacheState updateConfigState(
+        CmsADEConfigCacheState state,
+        Map<CmsUUID, CmsADEConfigDataInternal> configs,
+        Map<CmsUUID, CmsADEConfigDataInternal> updates)
+    throws CmsException {
+
+        Map<String, String> oldFolderTypes = state.getFolderTypes();
+        CmsADEConfigCacheState result = state.createUpdatedCopy(
+            new HashMap<CmsUUID, CmsADEConfigDataInternal>(updates),
+            null,
+            null);
+        for (Map.Entry<CmsUUID, CmsADEConfigDataInternal> entry : updates.entrySet()) {
+            if (entry.getValue() != null) {
+                configs.put(entry.getKey(), entry.getValue());
+            } else {
+                configs.remove(entry.getKey());
+            }
+        }
+        assertFolderTypes(configs, result);
+        assertFalse(oldFolderTypes.equals(result.getFolderTypes()));
+        return result;
+    }
+
     /**
      * Helper method for writing a number of spaces.<p>
      *
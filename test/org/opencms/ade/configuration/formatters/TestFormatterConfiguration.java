@@ -27,6 +27,11 @@
 
 package org.opencms.ade.configuration.formatters;
 
+import org.opencms.ade.configuration.CmsADEConfigCacheState;
+import org.opencms.ade.configuration.CmsADEConfigDataInternal;
+import org.opencms.ade.configuration.CmsADEConfigurationSequence;
+import org.opencms.ade.configuration.CmsElementView;
+import org.opencms.ade.configuration.CmsFunctionReference;
 import org.opencms.ade.configuration.CmsTestConfigData;
 import org.opencms.ade.configuration.TestConfig;
 import org.opencms.file.CmsFile;
@@ -47,10 +52,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -64,6 +71,44 @@ import junit.framework.TestSuite;
  */
 public class TestFormatterConfiguration extends OpenCmsTestCase {
 
+    /**
+     * Computes a formatter configuration from all formatters of a formatter cache state and counts the calls.<p>
+     */
+    private static class CmsCountingFormatterLoader implements Callable<CmsFormatterConfiguration> {
+
+        /** The number of computed formatter configurations. */
+        int m_count;
+
+        /** The CMS context. */
+        private CmsObject m_cms;
+
+        /** The formatter cache state. */
+        private CmsFormatterConfigurationCacheState m_formatters;
+
+        /**
+         * Creates a new loader.<p>
+         *
+         * @param cms the CMS context
+         * @param formatters the formatter cache state
+         */
+        CmsCountingFormatterLoader(CmsObject cms, CmsFormatterConfigurationCacheState formatters) {
+
+            m_cms = cms;
+            m_formatters = formatters;
+        }
+
+        /**
+         * @see java.util.concurrent.Callable#call()
+         */
+        public CmsFormatterConfiguration call() {
+
+            m_count++;
+            return CmsFormatterConfiguration.create(
+                m_cms,
+                new ArrayList<I_CmsFormatterBean>(m_formatters.getFormatters().values()));
+        }
+    }
+
     /** A resource type which is used for the formatter configuration tests. */
     public static final String TYPE_A = "article";
 
@@ -208,6 +253,82 @@ public class TestFormatterConfiguration extends OpenCmsTestCase {
             actualNames);
     }
 
+    /**
+     * Tests that cached formatter configurations are computed again when the formatters or the sitemap configuration
+     * change, so the formatter matches cached by the configurations are not reused.<p>
+     *
+     * @throws Exception
+     */
+    public void testCachedFormatterConfiguration() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        I_CmsFormatterBean f1 = createWidthBasedFormatter("f1", 100, 100, 999);
+        I_CmsFormatterBean f2 = createWidthBasedFormatter("f2", 200, 200, 999);
+        CmsFormatterConfigurationCacheState formatters1 = createFormatterState(f1);
+        CmsFormatterConfigurationCacheState formatters2 = createFormatterState(f1, f2);
+
+        CmsUUID configId = new CmsUUID();
+        CmsADEConfigDataInternal sitemapConfig = createSitemapConfig("/sites/default/");
+        Map<CmsUUID, CmsADEConfigDataInternal> configs = new HashMap<CmsUUID, CmsADEConfigDataInternal>();
+        configs.put(configId, sitemapConfig);
+        CmsADEConfigCacheState state = new CmsADEConfigCacheState(
+            cms,
+            configs,
+            new ArrayList<CmsADEConfigDataInternal>(),
+            new HashMap<CmsUUID, CmsElementView>());
+        CmsADEConfigurationSequence sequence = new CmsADEConfigurationSequence(
+            Collections.singletonList(sitemapConfig));
+
+        CmsCountingFormatterLoader loader = new CmsCountingFormatterLoader(cms, formatters1);
+        CmsFormatterConfiguration config1 = state.getFormatterConfiguration(
+            sequence,
+            TYPE_A,
+            null,
+            formatters1,
+            loader);
+        assertEquals("f1", config1.getDefaultFormatter("foo", 350, false).getNiceName());
+        assertSame(config1, state.getFormatterConfiguration(sequence, TYPE_A, null, formatters1, loader));
+        assertEquals("f1", config1.getDefaultFormatter("foo", 350, false).getNiceName());
+        assertEquals("Formatter configuration should have been computed once", 1, loader.m_count);
+        // other resource types have their own formatter configurations
+        state.getFormatterConfiguration(sequence, TYPE_B, null, formatters1, loader);
+        assertEquals(2, loader.m_count);
+
+        // the formatters have changed
+        loader = new CmsCountingFormatterLoader(cms, formatters2);
+        CmsFormatterConfiguration config2 = state.getFormatterConfiguration(
+            sequence,
+            TYPE_A,
+            null,
+            formatters2,
+            loader);
+        assertEquals("Formatter configuration should have been computed again", 1, loader.m_count);
+        assertNotSame(config1, config2);
+        assertEquals("f2", config2.getDefaultFormatter("foo", 350, false).getNiceName());
+        assertSame(config2, state.getFormatterConfiguration(sequence, TYPE_A, null, formatters2, loader));
+        assertEquals(1, loader.m_count);
+
+        // the sitemap configuration has changed
+        CmsADEConfigDataInternal changedConfig = createSitemapConfig("/sites/default/");
+        Map<CmsUUID, CmsADEConfigDataInternal> updates = new HashMap<CmsUUID, CmsADEConfigDataInternal>();
+        updates.put(configId, changedConfig);
+        CmsADEConfigCacheState changedState = state.createUpdatedCopy(updates, null, null);
+        CmsADEConfigurationSequence changedSequence = new CmsADEConfigurationSequence(
+            Collections.singletonList(changedConfig));
+        loader = new CmsCountingFormatterLoader(cms, formatters2);
+        CmsFormatterConfiguration config3 = changedState.getFormatterConfiguration(
+            changedSequence,
+            TYPE_A,
+            null,
+            formatters2,
+            loader);
+        assertEquals("Formatter configuration should have been computed again", 1, loader.m_count);
+        assertNotSame(config2, config3);
+        // the new configuration state does not use the formatter configurations of the old state
+        assertNotSame(config2, changedState.getFormatterConfiguration(sequence, TYPE_A, null, formatters2, loader));
+        assertEquals(2, loader.m_count);
+    }
+
     /**
      * Tests default formatter selection.<p>
      *
@@ -524,11 +645,7 @@ public class TestFormatterConfiguration extends OpenCmsTestCase {
             TestConfig.NO_PROPERTIES,
             TestConfig.NO_DETAILPAGES,
             TestConfig.NO_MODEL_PAGES);
-        Map<CmsUUID, I_CmsFormatterBean> formatterMap = Maps.newHashMap();
-        for (I_CmsFormatterBean formatter : formatters) {
-            formatterMap.put(CmsUUID.getConstantUUID(formatter.getNiceName()), formatter);
-        }
-        config1.setFormatters(new CmsFormatterConfigurationCacheState(formatterMap));
+        config1.setFormatters(createFormatterState(formatters));
         return config1;
     }
 
@@ -644,6 +761,47 @@ public class TestFormatterConfiguration extends OpenCmsTestCase {
         return xml;
     }
 
+    /**
+     * Creates a formatter cache state with the given formatters.<p>
+     *
+     * @param formatters the formatters
+     * @return the formatter cache state
+     */
+    private CmsFormatterConfigurationCacheState createFormatterState(I_CmsFormatterBean... formatters) {
+
+        Map<CmsUUID, I_CmsFormatterBean> formatterMap = Maps.newHashMap();
+        for (I_CmsFormatterBean formatter : formatters) {
+            formatterMap.put(CmsUUID.getConstantUUID(formatter.getNiceName()), formatter);
+        }
+        return new CmsFormatterConfigurationCacheState(formatterMap);
+    }
+
+    /**
+     * Creates a sitemap configuration without resource types and formatter changes.<p>
+     *
+     * @param basePath the base path
+     * @return the sitemap configuration
+     */
+    private CmsADEConfigDataInternal createSitemapConfig(String basePath) {
+
+        return new CmsADEConfigDataInternal(
+            null,
+            false,
+            basePath,
+            null,
+            TestConfig.NO_TYPES,
+            false,
+            TestConfig.NO_PROPERTIES,
+            false,
+            TestConfig.NO_DETAILPAGES,
+            TestConfig.NO_MODEL_PAGES,
+            new ArrayList<CmsFunctionReference>(),
+            false,
+            false,
+            false,
+            new CmsFormatterChangeSet());
+    }
+
     /**
      * Creates a formatter bean for matching by type.<p>
      *
@@ -0,0 +1,275 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the concurrent LRU cache.<p>
+ */
+public class TestCmsConcurrentLruCache extends TestCase {
+
+    /**
+     * Simple cache object for the tests.<p>
+     */
+    static class CmsTestCacheObject implements I_CmsLruCacheObject {
+
+        /** Number of times this object was added to a cache. */
+        AtomicInteger m_added = new AtomicInteger();
+
+        /** The costs. */
+        int m_costs;
+
+        /** The next object. */
+        I_CmsLruCacheObject m_next;
+
+        /** The previous object. */
+        I_CmsLruCacheObject m_previous;
+
+        /** Number of times this object was removed from a cache. */
+        AtomicInteger m_removed = new AtomicInteger();
+
+        /**
+         * Creates a new test object.<p>
+         *
+         * @param costs the costs
+         */
+        CmsTestCacheObject(int costs) {
+
+            m_costs = costs;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#addToLruCache()
+         */
+        public void addToLruCache() {
+
+            m_added.incrementAndGet();
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#getLruCacheCosts()
+         */
+        public int getLruCacheCosts() {
+
+            return m_costs;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#getNextLruObject()
+         */
+        public I_CmsLruCacheObject getNextLruObject() {
+
+            return m_next;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#getPreviousLruObject()
+         */
+        public I_CmsLruCacheObject getPreviousLruObject() {
+
+            return m_previous;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#getValue()
+         */
+        public Object getValue() {
+
+            return this;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#removeFromLruCache()
+         */
+        public void removeFromLruCache() {
+
+            m_removed.incrementAndGet();
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#setNextLruObject(org.opencms.cache.I_CmsLruCacheObject)
+         */
+        public void setNextLruObject(I_CmsLruCacheObject theNextObject) {
+
+            m_next = theNextObject;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#setPreviousLruObject(org.opencms.cache.I_CmsLruCacheObject)
+         */
+        public void setPreviousLruObject(I_CmsLruCacheObject thePreviousObject) {
+
+            m_previous = thePreviousObject;
+        }
+    }
+
+    /**
+     * Tests that adding, touching and removing objects keeps the cost accounting intact.<p>
+     */
+    public void testAddTouchRemove() {
+
+        CmsConcurrentLruCache cache = new CmsConcurrentLruCache(1000, 800, 100);
+        CmsTestCacheObject o1 = new CmsTestCacheObject(10);
+        CmsTestCacheObject o2 = new CmsTestCacheObject(20);
+        CmsTestCacheObject o3 = new CmsTestCacheObject(200);
+
+        assertTrue(cache.add(o1));
+        assertTrue(cache.add(o2));
+        assertFalse(cache.add(o3));
+        assertEquals(2, cache.size());
+        assertEquals(30, cache.getObjectCosts());
+
+        assertTrue(cache.touch(o1));
+        assertFalse(cache.touch(o3));
+
+        assertSame(o2, cache.remove(o2));
+        assertNull(cache.remove(o2));
+        assertEquals(1, cache.size());
+        assertEquals(10, cache.getObjectCosts());
+        assertEquals(1, o2.m_removed.get());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getObjectCosts());
+        assertFalse(cache.touch(o1));
+    }
+
+    /**
+     * Tests that the cost accounting is consistent after concurrent access.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testConcurrentConsistency() throws Exception {
+
+        CmsConcurrentLruCache cache = new CmsConcurrentLruCache(5000, 4000, 100);
+        List<CmsTestCacheObject> objects = runLoadWithObjects(cache, 32, 5000);
+        int costs = 0;
+        int count = 0;
+        for (CmsTestCacheObject o : objects) {
+            int inCache = o.m_added.get() - o.m_removed.get();
+            assertTrue(o.toString(), (inCache == 0) || (inCache == 1));
+            if (inCache == 1) {
+                costs += o.getLruCacheCosts();
+                count++;
+            }
+        }
+        assertEquals(count, cache.size());
+        assertEquals(costs, cache.getObjectCosts());
+        assertTrue(cache.getObjectCosts() <= cache.getMaxCacheCosts());
+    }
+
+    /**
+     * Tests that touched objects survive the garbage collection of the cache.<p>
+     */
+    public void testLruOrder() {
+
+        CmsConcurrentLruCache cache = new CmsConcurrentLruCache(100, 50, -1);
+        CmsTestCacheObject first = new CmsTestCacheObject(10);
+        cache.add(first);
+        for (int i = 0; i < 8; i++) {
+            cache.add(new CmsTestCacheObject(10));
+        }
+        // touch the oldest object, the next structural change applies the touch
+        cache.touch(first);
+        cache.add(new CmsTestCacheObject(10));
+        cache.add(new CmsTestCacheObject(10));
+        // costs exceeded the max. costs, so the cache was shrunk below the avg. costs
+        assertTrue(cache.getObjectCosts() < 50);
+        assertEquals(1, first.m_added.get());
+        assertEquals(0, first.m_removed.get());
+    }
+
+    /**
+     * Runs a mixed add / touch / remove load against the given cache.<p>
+     *
+     * @param cache the cache
+     * @param threads the number of threads
+     * @param operations the number of operations per thread
+     *
+     * @return the cache objects used
+     *
+     * @throws Exception if something goes wrong
+     */
+    private List<CmsTestCacheObject> runLoadWithObjects(final CmsLruCache cache, int threads, final int operations)
+    throws Exception {
+
+        final List<CmsTestCacheObject> objects = new ArrayList<CmsTestCacheObject>();
+        for (int i = 0; i < 1000; i++) {
+            CmsTestCacheObject o = new CmsTestCacheObject(10 + (i % 50));
+            objects.add(o);
+            cache.add(o);
+        }
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        final CountDownLatch doneSignal = new CountDownLatch(threads);
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        for (int t = 0; t < threads; t++) {
+            final int seed = t;
+            Thread thread = new Thread() {
+
+                @Override
+                public void run() {
+
+                    try {
+                        startSignal.await();
+                        int pos = seed;
+                        for (int i = 0; i < operations; i++) {
+                            pos = ((pos * 31) + 17) % objects.size();
+                            CmsTestCacheObject o = objects.get(pos);
+                            int op = i % 20;
+                            if (op == 0) {
+                                cache.add(o);
+                            } else if (op == 1) {
+                                cache.remove(o);
+                            } else {
+                                // 90% of the operations are cache hits
+                                cache.touch(o);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    } finally {
+                        doneSignal.countDown();
+                    }
+                }
+            };
+            thread.start();
+        }
+        startSignal.countDown();
+        doneSignal.await();
+        assertTrue(errors.toString(), errors.isEmpty());
+        return objects;
+    }
+}
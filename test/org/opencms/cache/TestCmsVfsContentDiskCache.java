@@ -0,0 +1,213 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.cache;
+
+import org.opencms.util.CmsFileUtil;
+import org.opencms.util.CmsUUID;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the content disk cache.<p>
+ */
+public class TestCmsVfsContentDiskCache extends TestCase {
+
+    /** The base folder of the test caches. */
+    private File m_baseFolder;
+
+    /**
+     * Tests that the files of removed entries are deleted after the delete delay only.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testDeferredDelete() throws Exception {
+
+        CmsVfsContentDiskCache cache = createCache(150);
+        cache.setDeleteDelay(200);
+        CmsUUID id1 = new CmsUUID();
+        CmsUUID id2 = new CmsUUID();
+        CmsUUID id3 = new CmsUUID();
+        File f1 = cache.saveCacheFile(id1, 1, createContent(100));
+        File f2 = cache.saveCacheFile(id2, 1, createContent(100));
+        // the evicted file may still be sent by a request
+        assertNull(cache.getCacheFile(id1, 1));
+        assertTrue(f1.exists());
+        assertEquals(100, cache.getSize());
+
+        cache.removeResources(Collections.singleton(id2));
+        assertNull(cache.getCacheFile(id2, 1));
+        assertTrue(f2.exists());
+        // the removed entry is written again, so its file must not be deleted
+        assertEquals(f2, cache.saveCacheFile(id2, 1, createContent(100)));
+
+        Thread.sleep(300);
+        // deletes the files that are due, nothing is cached for the third resource
+        cache.removeResources(Collections.singleton(id3));
+        assertFalse(f1.exists());
+        assertEquals(f2, cache.getCacheFile(id2, 1));
+
+        cache.saveCacheFile(id3, 1, createContent(100));
+        assertNull(cache.getCacheFile(id2, 1));
+        assertTrue(f2.exists());
+        Thread.sleep(300);
+        cache.removeResources(Collections.singleton(id1));
+        assertFalse(f2.exists());
+        assertNotNull(cache.getCacheFile(id3, 1));
+    }
+
+    /**
+     * Tests the eviction of the least recently used entries.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testEviction() throws Exception {
+
+        CmsVfsContentDiskCache cache = createCache(250);
+        CmsUUID id1 = new CmsUUID();
+        CmsUUID id2 = new CmsUUID();
+        CmsUUID id3 = new CmsUUID();
+        cache.saveCacheFile(id1, 1, createContent(100));
+        cache.saveCacheFile(id2, 1, createContent(100));
+        // access the first entry, so the second one is the least recently used
+        assertNotNull(cache.getCacheFile(id1, 1));
+        cache.saveCacheFile(id3, 1, createContent(100));
+        assertEquals(200, cache.getSize());
+        assertNotNull(cache.getCacheFile(id1, 1));
+        assertNull(cache.getCacheFile(id2, 1));
+        assertNotNull(cache.getCacheFile(id3, 1));
+        assertTrue(cache.isCacheable(25));
+        assertFalse(cache.isCacheable(26));
+    }
+
+    /**
+     * Tests that the index is rebuilt from the cache folder.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testIndexRebuild() throws Exception {
+
+        CmsVfsContentDiskCache cache = createCache(0);
+        CmsUUID id = new CmsUUID();
+        File f = cache.saveCacheFile(id, 42, createContent(10));
+        // a partially written file of an earlier run
+        File temp = new File(f.getParentFile(), "incomplete.tmp");
+        CmsVfsDiskCache.saveFile(temp.getAbsolutePath(), new byte[5]);
+
+        cache = createCache(0);
+        assertEquals(10, cache.getSize());
+        assertEquals(f, cache.getCacheFile(id, 42));
+        assertFalse(temp.exists());
+    }
+
+    /**
+     * Tests storing and reading cached contents.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testSaveAndRead() throws Exception {
+
+        CmsVfsContentDiskCache cache = createCache(0);
+        CmsUUID id = new CmsUUID();
+        assertNull(cache.getCacheFile(id, 1));
+        File f = cache.saveCacheFile(id, 1, createContent(1000));
+        assertEquals(f, cache.getCacheFile(id, 1));
+        // a different content date is a different content
+        assertNull(cache.getCacheFile(id, 2));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(10, CmsFileUtil.copyRange(f, out, 500, 10));
+        byte[] range = out.toByteArray();
+        for (int i = 0; i < range.length; i++) {
+            assertEquals((byte)(500 + i), range[i]);
+        }
+        out = new ByteArrayOutputStream();
+        assertEquals(1000, CmsFileUtil.copyRange(f, out, 0, -1));
+        assertEquals(0, CmsFileUtil.copyRange(f, out, 2000, 10));
+
+        cache.removeResources(Collections.singleton(id));
+        assertNull(cache.getCacheFile(id, 1));
+        assertFalse(f.exists());
+        assertEquals(0, cache.getSize());
+    }
+
+    /**
+     * @see junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp() throws Exception {
+
+        m_baseFolder = File.createTempFile("contentcache", "");
+        m_baseFolder.delete();
+        m_baseFolder.mkdirs();
+    }
+
+    /**
+     * @see junit.framework.TestCase#tearDown()
+     */
+    @Override
+    protected void tearDown() throws Exception {
+
+        CmsFileUtil.purgeDirectory(m_baseFolder);
+    }
+
+    /**
+     * Creates a cache in the test folder that deletes the files of removed entries immediately.<p>
+     *
+     * @param maxSize the maximum size of the cache
+     *
+     * @return the cache
+     */
+    private CmsVfsContentDiskCache createCache(long maxSize) {
+
+        CmsVfsContentDiskCache cache = new CmsVfsContentDiskCache(m_baseFolder.getAbsolutePath(), "/cache/", maxSize);
+        // delete the files of removed entries immediately
+        cache.setDeleteDelay(0);
+        return cache;
+    }
+
+    /**
+     * Creates a content stream of the given length.<p>
+     *
+     * @param length the length
+     *
+     * @return the content stream
+     */
+    private ByteArrayInputStream createContent(int length) {
+
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte)i;
+        }
+        return new ByteArrayInputStream(content);
+    }
+}
@@ -29,16 +29,20 @@ package org.opencms.configuration;
 
 import org.opencms.file.CmsResource;
 import org.opencms.i18n.CmsEncoder;
+import org.opencms.main.CmsClusterEventManager;
 import org.opencms.test.OpenCmsTestCase;
 import org.opencms.test.OpenCmsTestProperties;
 import org.opencms.xml.CmsXmlEntityResolver;
 import org.opencms.xml.CmsXmlUtils;
 
 import java.io.FileInputStream;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
+import org.apache.commons.digester.Digester;
+
 import org.dom4j.Document;
 import org.xml.sax.InputSource;
 
@@ -59,6 +63,33 @@ public class TestConfiguration extends OpenCmsTestCase {
         super(arg0, false);
     }
 
+    /**
+     * Tests that the parameters of the event manager reach the configured event manager.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testEventManagerParameters() throws Exception {
+
+        String xml = "<opencms><system><events>"
+            + "<eventmanager class=\"org.opencms.main.CmsClusterEventManager\">"
+            + "<param name=\"node\">node1</param>"
+            + "<param name=\"interval\">500</param>"
+            + "</eventmanager>"
+            + "</events></system></opencms>";
+
+        CmsSystemConfiguration config = new CmsSystemConfiguration();
+        Digester digester = new Digester();
+        digester.setValidating(false);
+        digester.push(config);
+        config.addXmlDigesterRules(digester);
+        digester.parse(new StringReader(xml));
+
+        assertTrue(config.getEventManager() instanceof CmsClusterEventManager);
+        CmsClusterEventManager eventManager = (CmsClusterEventManager)config.getEventManager();
+        assertEquals("node1", eventManager.getConfiguration().getString("node", null));
+        assertEquals(500, eventManager.getConfiguration().getInteger("interval", 0));
+    }
+
     /**
      * Loads the configuration using the configuration manager,
      * if anyting goes wrong an exception is thrown and the test fails.<p>
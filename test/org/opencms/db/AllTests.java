@@ -65,6 +65,7 @@ public final class AllTests {
         suite.addTest(TestSubscriptionManager.suite());
         suite.addTest(TestAliases.suite());
         suite.addTest(TestUrlNameMapping.suite());
+        suite.addTest(new TestSuite(TestCmsSqlBatch.class));
         // $JUnit-END$
         return suite;
     }
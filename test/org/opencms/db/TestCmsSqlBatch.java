@@ -0,0 +1,265 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import org.opencms.db.generic.CmsSqlBatch;
+import org.opencms.db.generic.CmsSqlManager;
+import org.opencms.util.CmsUUID;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the JDBC batches of the SQL manager on an embedded HSQLDB database.<p>
+ */
+public class TestCmsSqlBatch extends TestCase {
+
+    /** Counter for unique database names. */
+    private static int m_dbCount;
+
+    /** The database connection. */
+    private Connection m_connection;
+
+    /** The database context. */
+    private CmsDbContext m_dbc;
+
+    /** An offline project id. */
+    private CmsUUID m_projectId;
+
+    /** The SQL manager. */
+    private CmsSqlManager m_sqlManager;
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsSqlBatch(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests that the queued statements are executed in the order they were first used.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testBatchOrder() throws Exception {
+
+        CmsSqlBatch batch = new CmsSqlBatch(m_sqlManager, m_dbc, m_connection, 100);
+        try {
+            String mappingId = new CmsUUID().toString();
+            String definitionId = new CmsUUID().toString();
+            addCreate(batch, mappingId, definitionId, "a");
+            PreparedStatement update = batch.getPreparedStatement(m_projectId, "C_PROPERTIES_UPDATE");
+            update.setString(1, "b");
+            update.setString(2, mappingId);
+            update.setInt(3, 1);
+            update.setString(4, definitionId);
+            batch.addBatch(update);
+            assertEquals(2, batch.getPendingCount());
+            assertEquals(0, countRows());
+
+            batch.executeBatch();
+            assertEquals(0, batch.getPendingCount());
+            assertEquals("b", readValue(mappingId));
+        } finally {
+            batch.close();
+        }
+    }
+
+    /**
+     * Tests that the queued statements are executed when the batch size is reached.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testBatchSize() throws Exception {
+
+        CmsSqlBatch batch = new CmsSqlBatch(m_sqlManager, m_dbc, m_connection, 10);
+        try {
+            for (int i = 0; i < 25; i++) {
+                addCreate(batch, new CmsUUID().toString(), new CmsUUID().toString(), "v" + i);
+            }
+            assertEquals(20, countRows());
+            assertEquals(5, batch.getPendingCount());
+            batch.executeBatch();
+            assertEquals(25, countRows());
+        } finally {
+            batch.close();
+        }
+    }
+
+    /**
+     * Tests that the failing statement of a batch is available for the error message.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testFailingStatement() throws Exception {
+
+        CmsSqlBatch batch = new CmsSqlBatch(m_sqlManager, m_dbc, m_connection, 100);
+        try {
+            PreparedStatement update = batch.getPreparedStatement(m_projectId, "C_PROPERTIES_UPDATE");
+            update.setString(1, "b");
+            update.setString(2, new CmsUUID().toString());
+            update.setInt(3, 1);
+            update.setString(4, new CmsUUID().toString());
+            batch.addBatch(update);
+            assertSame(update, batch.getCurrentStatement());
+
+            // the property value must not be null
+            addCreate(batch, new CmsUUID().toString(), new CmsUUID().toString(), null);
+            PreparedStatement create = batch.getCurrentStatement();
+            assertNotSame(update, create);
+            try {
+                batch.executeBatch();
+                fail("the batch must fail");
+            } catch (SQLException e) {
+                assertSame(create, batch.getCurrentStatement());
+                assertNotNull(CmsDbSqlException.getErrorQuery(batch.getCurrentStatement()));
+            }
+        } finally {
+            batch.close();
+        }
+        assertNull(batch.getCurrentStatement());
+    }
+
+    /**
+     * @see junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp() throws Exception {
+
+        Class.forName("org.hsqldb.jdbcDriver");
+        m_connection = DriverManager.getConnection("jdbc:hsqldb:mem:sqlbatch" + (m_dbCount++), "SA", "");
+        Statement stmt = m_connection.createStatement();
+        stmt.execute(
+            "CREATE TABLE CMS_OFFLINE_PROPERTIES (PROPERTY_ID VARCHAR(36) NOT NULL, PROPERTYDEF_ID VARCHAR(36) NOT NULL, "
+                + "PROPERTY_MAPPING_ID VARCHAR(36) NOT NULL, PROPERTY_MAPPING_TYPE INTEGER NOT NULL, "
+                + "PROPERTY_VALUE VARCHAR(2048) NOT NULL, PRIMARY KEY(PROPERTY_ID))");
+        stmt.close();
+        m_sqlManager = new CmsSqlManager();
+        m_dbc = new CmsDbContext();
+        m_projectId = new CmsUUID();
+    }
+
+    /**
+     * @see junit.framework.TestCase#tearDown()
+     */
+    @Override
+    protected void tearDown() throws Exception {
+
+        Statement stmt = m_connection.createStatement();
+        stmt.execute("SHUTDOWN");
+        stmt.close();
+        m_connection.close();
+    }
+
+    /**
+     * Queues the creation of a property row.<p>
+     *
+     * @param batch the batch
+     * @param mappingId the mapping id
+     * @param definitionId the property definition id
+     * @param value the property value
+     *
+     * @throws Exception if something goes wrong
+     */
+    private void addCreate(CmsSqlBatch batch, String mappingId, String definitionId, String value) throws Exception {
+
+        PreparedStatement stmt = batch.getPreparedStatement(m_projectId, "C_PROPERTIES_CREATE");
+        setCreateParameters(stmt, mappingId, definitionId, value);
+        batch.addBatch(stmt);
+    }
+
+    /**
+     * Returns the number of property rows.<p>
+     *
+     * @return the number of property rows
+     *
+     * @throws Exception if something goes wrong
+     */
+    private int countRows() throws Exception {
+
+        Statement stmt = m_connection.createStatement();
+        try {
+            ResultSet res = stmt.executeQuery("SELECT COUNT(*) FROM CMS_OFFLINE_PROPERTIES");
+            res.next();
+            return res.getInt(1);
+        } finally {
+            stmt.close();
+        }
+    }
+
+    /**
+     * Reads the value of the property row with the given mapping id.<p>
+     *
+     * @param mappingId the mapping id
+     *
+     * @return the property value
+     *
+     * @throws Exception if something goes wrong
+     */
+    private String readValue(String mappingId) throws Exception {
+
+        PreparedStatement stmt = m_connection.prepareStatement(
+            "SELECT PROPERTY_VALUE FROM CMS_OFFLINE_PROPERTIES WHERE PROPERTY_MAPPING_ID=?");
+        try {
+            stmt.setString(1, mappingId);
+            ResultSet res = stmt.executeQuery();
+            return res.next() ? res.getString(1) : null;
+        } finally {
+            stmt.close();
+        }
+    }
+
+    /**
+     * Sets the parameters of the statement creating a property row.<p>
+     *
+     * @param stmt the statement
+     * @param mappingId the mapping id
+     * @param definitionId the property definition id
+     * @param value the property value
+     *
+     * @throws Exception if something goes wrong
+     */
+    private void setCreateParameters(PreparedStatement stmt, String mappingId, String definitionId, String value)
+    throws Exception {
+
+        stmt.setString(1, new CmsUUID().toString());
+        stmt.setString(2, definitionId);
+        stmt.setString(3, mappingId);
+        stmt.setInt(4, 1);
+        stmt.setString(5, value);
+    }
+}
@@ -28,8 +28,10 @@
 package org.opencms.file;
 
 import org.opencms.file.types.CmsResourceTypePlain;
+import org.opencms.main.CmsEvent;
 import org.opencms.main.CmsException;
 import org.opencms.main.CmsRuntimeException;
+import org.opencms.main.I_CmsEventListener;
 import org.opencms.main.OpenCms;
 import org.opencms.report.CmsShellReport;
 import org.opencms.test.OpenCmsTestCase;
@@ -43,6 +45,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.TreeMap;
 
 import junit.extensions.TestSetup;
 import junit.framework.Test;
@@ -224,6 +227,7 @@ public class TestProperty extends OpenCmsTestCase {
         suite.addTest(new TestProperty("testCaseSensitiveProperties"));
         suite.addTest(new TestProperty("testReadResourcesWithProperty"));
         suite.addTest(new TestProperty("testReadLocalizedProperty"));
+        suite.addTest(new TestProperty("testReadPropertyObjectsForList"));
 
         TestSetup wrapper = new TestSetup(suite) {
 
@@ -696,6 +700,78 @@ public class TestProperty extends OpenCmsTestCase {
 
     }
 
+    /**
+     * Tests that reading the properties of a list of resources returns the same as reading them one by one.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testReadPropertyObjectsForList() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing reading the properties of a list of resources");
+
+        String folder = "/folder1/";
+        String source = "/folder1/page1.html";
+        String sibling = "/folder1/subfolder11/sibling_props.html";
+
+        cms.lockResource(folder);
+        cms.writePropertyObject(folder, new CmsProperty("bulk_folder", "folder structure", "folder resource"));
+        cms.writePropertyObject(folder, new CmsProperty(CmsPropertyDefinition.PROPERTY_TITLE, "Folder title", null));
+        cms.createSibling(source, sibling, null);
+        cms.writePropertyObject(source, new CmsProperty("bulk_shared", null, "shared value"));
+        cms.writePropertyObject(sibling, new CmsProperty("bulk_sibling", "sibling value", null));
+        cms.writePropertyObject(
+            sibling,
+            new CmsProperty(CmsPropertyDefinition.PROPERTY_TITLE, "Sibling title", null));
+
+        List<CmsResource> resources = new ArrayList<CmsResource>();
+        resources.add(cms.readResource(source));
+        resources.add(cms.readResource(sibling));
+        resources.add(cms.readResource(folder));
+        resources.add(cms.readResource("/folder1/subfolder11/"));
+        resources.add(cms.readResource("/folder1/subfolder11/page1.html"));
+        resources.add(cms.readResource("/index.html"));
+        resources.add(cms.readResource("/"));
+
+        for (boolean search : new boolean[] {false, true}) {
+            // read the properties one by one with empty caches
+            OpenCms.fireCmsEvent(new CmsEvent(I_CmsEventListener.EVENT_CLEAR_CACHES, new HashMap<String, Object>()));
+            Map<CmsResource, List<CmsProperty>> single = new HashMap<CmsResource, List<CmsProperty>>();
+            for (CmsResource resource : resources) {
+                single.put(resource, cms.readPropertyObjects(resource, search));
+            }
+
+            // read them in bulk, first without and then with cached property lists
+            for (int i = 0; i < 2; i++) {
+                if (i == 0) {
+                    OpenCms.fireCmsEvent(
+                        new CmsEvent(I_CmsEventListener.EVENT_CLEAR_CACHES, new HashMap<String, Object>()));
+                }
+                Map<CmsResource, List<CmsProperty>> bulk = cms.readPropertyObjects(resources, search);
+                assertEquals(resources.size(), bulk.size());
+                for (CmsResource resource : resources) {
+                    assertEquals(
+                        resource.getRootPath() + ", search=" + search,
+                        getPropertyValues(single.get(resource)),
+                        getPropertyValues(bulk.get(resource)));
+                }
+            }
+        }
+
+        // the siblings share the resource value, but not the structure value
+        Map<CmsResource, List<CmsProperty>> bulk = cms.readPropertyObjects(resources, false);
+        Map<String, String> siblingValues = getPropertyValues(bulk.get(resources.get(1)));
+        assertEquals("null|shared value", siblingValues.get("bulk_shared"));
+        assertEquals("sibling value|null", siblingValues.get("bulk_sibling"));
+        assertNull(getPropertyValues(bulk.get(resources.get(0))).get("bulk_sibling"));
+
+        // searching inherits the folder properties, but the sibling title is not overwritten
+        bulk = cms.readPropertyObjects(resources, true);
+        siblingValues = getPropertyValues(bulk.get(resources.get(1)));
+        assertEquals("folder structure|folder resource", siblingValues.get("bulk_folder"));
+        assertEquals("Sibling title|null", siblingValues.get(CmsPropertyDefinition.PROPERTY_TITLE));
+    }
+
     /**
      * Tests the writePropertyObject method for writing of a property on a folder.<p>
      *
@@ -841,4 +917,20 @@ public class TestProperty extends OpenCmsTestCase {
         CmsProperty property10 = new CmsProperty("Title", "OpenCms", null);
         writeProperty(this, cms, "/folder2/", property10);
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the structure and resource values of the given properties, sorted by property name.<p>
+     *
+     * @param properties the properties
+     *
+     * @return the values of the properties, as "structure value|resource value"
+     */
+    private Map<String, String> getPropertyValues(List<CmsProperty> properties) {
+
+        Map<String, String> result = new TreeMap<String, String>();
+        for (CmsProperty property : properties) {
+            result.put(property.getName(), property.getStructureValue() + "|" + property.getResourceValue());
+        }
+        return result;
+    }
+}
@@ -58,8 +58,10 @@ public final class AllTests {
         TestSuite suite = new TestSuite("Tests for package " + AllTests.class.getPackage().getName());
         OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
         //$JUnit-BEGIN$
+        suite.addTest(new TestSuite(TestCmsFlexCacheKey.class));
         suite.addTest(new TestSuite(TestCmsFlexCacheEntry.class));
         suite.addTest(TestCmsFlexResponse.suite());
+        suite.addTest(TestCmsFlexCache.suite());
         //$JUnit-END$
         return suite;
     }
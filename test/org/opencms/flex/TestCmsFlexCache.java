@@ -0,0 +1,204 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.flex;
+
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProperty;
+import org.opencms.file.CmsPropertyDefinition;
+import org.opencms.main.CmsEvent;
+import org.opencms.main.I_CmsEventListener;
+import org.opencms.main.OpenCms;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the invalidation of the {@link CmsFlexCache}.<p>
+ */
+public class TestCmsFlexCache extends OpenCmsTestCase {
+
+    /** The root path of a page. */
+    private static final String PAGE = "/sites/default/index.html";
+
+    /** The root path of another page. */
+    private static final String OTHER_PAGE = "/sites/default/folder1/page1.html";
+
+    /** The root path of the template. */
+    private static final String TEMPLATE = "/system/modules/template.jsp";
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsFlexCache(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsFlexCache.class.getName());
+
+        suite.addTest(new TestCmsFlexCache("testClearResources"));
+        suite.addTest(new TestCmsFlexCache("testPublishClearsCache"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests that the keys and entries of single resources are removed with the clear resources action.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testClearResources() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing that the clear resources action only clears the given resources from the FlexCache");
+
+        CmsFlexCache cache = createCache();
+        try {
+            addEntry(cache, PAGE, true, "always");
+            addEntry(cache, PAGE, false, "always");
+            addEntry(cache, OTHER_PAGE, true, "always");
+            addEntry(cache, TEMPLATE, true, "uri=(" + PAGE + ");");
+            assertEquals(4, cache.size());
+
+            Map<String, Object> data = new HashMap<String, Object>();
+            data.put("action", new Integer(CmsFlexCache.CLEAR_RESOURCES));
+            data.put(CmsFlexCache.EVENT_DATA_RESOURCES, Collections.singletonList(PAGE));
+            cache.cmsEvent(new CmsEvent(I_CmsEventListener.EVENT_FLEX_CACHE_CLEAR, data));
+
+            Set<String> resources = cache.getCachedResources(cms);
+            assertFalse(resources.contains(CmsFlexCacheKey.getKeyName(PAGE, true)));
+            assertFalse(resources.contains(CmsFlexCacheKey.getKeyName(PAGE, false)));
+            assertTrue(resources.contains(CmsFlexCacheKey.getKeyName(OTHER_PAGE, true)));
+            assertTrue(resources.contains(CmsFlexCacheKey.getKeyName(TEMPLATE, true)));
+            assertEquals(2, cache.size());
+        } finally {
+            OpenCms.removeCmsEventListener(cache);
+        }
+    }
+
+    /**
+     * Tests that a publish clears the whole cache, since any cached output may depend on the published resources.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testPublishClearsCache() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing that a publish clears the whole FlexCache");
+
+        CmsFlexCache cache = createCache();
+        try {
+            addEntry(cache, PAGE, true, "always");
+            addEntry(cache, OTHER_PAGE, true, "always");
+            addEntry(cache, TEMPLATE, true, "uri=(" + OTHER_PAGE + ");");
+            addEntry(cache, TEMPLATE, false, "uri=(" + PAGE + ");");
+            assertEquals(4, cache.size());
+
+            cms.lockResource("/index.html");
+            cms.writePropertyObject(
+                "/index.html",
+                new CmsProperty(CmsPropertyDefinition.PROPERTY_TITLE, "Published title", null));
+            OpenCms.getPublishManager().publishResource(cms, "/index.html");
+            OpenCms.getPublishManager().waitWhileRunning();
+
+            assertEquals(0, cache.size());
+            assertTrue(cache.isEmpty());
+        } finally {
+            OpenCms.removeCmsEventListener(cache);
+        }
+    }
+
+    /**
+     * Adds a completed entry for the given resource and variation to the cache.<p>
+     *
+     * @param cache the cache
+     * @param resource the root path of the resource
+     * @param online <code>true</code> for an online entry
+     * @param variation the variation of the entry
+     */
+    private void addEntry(CmsFlexCache cache, String resource, boolean online, String variation) {
+
+        CmsFlexCacheKey key = new CmsFlexCacheKey(resource, "uri", online);
+        CmsFlexCacheEntry entry = new CmsFlexCacheEntry();
+        entry.add(variation.getBytes());
+        entry.complete();
+        assertTrue(cache.put(key, entry, variation));
+    }
+
+    /**
+     * Creates an enabled FlexCache, which is registered as event listener.<p>
+     *
+     * @return the cache
+     */
+    private CmsFlexCache createCache() {
+
+        CmsFlexCacheConfiguration configuration = new CmsFlexCacheConfiguration();
+        configuration.setCacheEnabled(true);
+        configuration.setCacheOffline(true);
+        configuration.setMaxCacheBytes(1024 * 1024);
+        configuration.setAvgCacheBytes(512 * 1024);
+        configuration.setMaxEntryBytes(64 * 1024);
+        configuration.setMaxKeys(1000);
+        return new CmsFlexCache(configuration);
+    }
+}
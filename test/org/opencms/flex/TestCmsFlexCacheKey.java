@@ -0,0 +1,210 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.flex;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpSession;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the matching of Flex cache keys against request keys.<p>
+ */
+public class TestCmsFlexCacheKey extends TestCase {
+
+    /**
+     * Request key with fixed values for the tests.<p>
+     */
+    static class CmsTestRequestKey extends CmsFlexRequestKey {
+
+        /** The request parameters. */
+        Map<String, String[]> m_params;
+
+        /**
+         * Creates a new test request key.<p>
+         *
+         * @param params the request parameters, may be <code>null</code>
+         */
+        CmsTestRequestKey(Map<String, String[]> params) {
+
+            super("/sites/default/index.html" + CmsFlexCache.CACHE_ONLINESUFFIX);
+            m_params = params;
+        }
+
+        /**
+         * @see org.opencms.flex.CmsFlexRequestKey#getAttributes()
+         */
+        @Override
+        public Map<String, Object> getAttributes() {
+
+            return null;
+        }
+
+        /**
+         * @see org.opencms.flex.CmsFlexRequestKey#getContainerElement()
+         */
+        @Override
+        public String getContainerElement() {
+
+            return "12345_tc_";
+        }
+
+        /**
+         * @see org.opencms.flex.CmsFlexRequestKey#getDevice()
+         */
+        @Override
+        public String getDevice() {
+
+            return "mobile";
+        }
+
+        /**
+         * @see org.opencms.flex.CmsFlexRequestKey#getParams()
+         */
+        @Override
+        public Map<String, String[]> getParams() {
+
+            return m_params;
+        }
+
+        /**
+         * @see org.opencms.flex.CmsFlexRequestKey#getSession()
+         */
+        @Override
+        public HttpSession getSession() {
+
+            return null;
+        }
+
+        /**
+         * @see org.opencms.flex.CmsFlexRequestKey#getSite()
+         */
+        @Override
+        public String getSite() {
+
+            return "/sites/default";
+        }
+
+        /**
+         * @see org.opencms.flex.CmsFlexRequestKey#getUri()
+         */
+        @Override
+        public String getUri() {
+
+            return "/sites/default/index.html";
+        }
+
+        /**
+         * @see org.opencms.flex.CmsFlexRequestKey#getUser()
+         */
+        @Override
+        public String getUser() {
+
+            return "Guest";
+        }
+    }
+
+    /** Typical cache directives. */
+    private static final String[] DIRECTIVES = {
+        "uri;params=(a,b);user",
+        "container-element",
+        "device",
+        "timeout=60000",
+        "uri;site;container-element;device;params"};
+
+    /**
+     * Tests that the compiled match steps of a key give the same result when the key is matched repeatedly.<p>
+     */
+    public void testMatchRepeated() {
+
+        CmsFlexRequestKey requestKey = new CmsTestRequestKey(createParams());
+        for (String directive : DIRECTIVES) {
+            CmsFlexCacheKey key = new CmsFlexCacheKey("/sites/default/index.html", directive, true);
+            String first = key.matchRequestKey(requestKey);
+            assertNotNull(directive, first);
+            for (int i = 0; i < 100; i++) {
+                assertEquals(directive, first, key.matchRequestKey(requestKey));
+            }
+        }
+    }
+
+    /**
+     * Tests the variations generated for typical cache directives.<p>
+     */
+    public void testMatchRequestKey() {
+
+        CmsFlexRequestKey requestKey = new CmsTestRequestKey(createParams());
+        assertEquals(
+            "uri=(/sites/default/index.html);user=(Guest);params=(a=1,b=2);",
+            match("uri;params=(a,b);user", requestKey));
+        assertEquals("params=(b=2);", match("params=(b,x)", requestKey));
+        assertEquals("container-element=(12345_tc_);", match("container-element", requestKey));
+        assertEquals("device=(mobile);", match("device", requestKey));
+        assertEquals("timeout=(60000);", match("timeout=60000", requestKey));
+        assertEquals("always", match("always", requestKey));
+        assertNull(match("never", requestKey));
+        assertNull(match("unknown-directive", requestKey));
+        assertNull(match("no-params;always", requestKey));
+        assertNull(match("uri;no-params=(a)", requestKey));
+        assertEquals("uri=(/sites/default/index.html);", match("uri;no-params=(x)", requestKey));
+        // a session directive without a session does not create a variation
+        assertNull(match("session=(s)", requestKey));
+
+        CmsFlexRequestKey noParams = new CmsTestRequestKey(null);
+        assertEquals("always", match("no-params;always", noParams));
+        assertEquals("params=();", match("params", noParams));
+    }
+
+    /**
+     * Creates the request parameters for the tests.<p>
+     *
+     * @return the request parameters
+     */
+    private Map<String, String[]> createParams() {
+
+        Map<String, String[]> params = new HashMap<String, String[]>();
+        params.put("a", new String[] {"1"});
+        params.put("b", new String[] {"2"});
+        return params;
+    }
+
+    /**
+     * Matches the given cache directives with the request key.<p>
+     *
+     * @param directives the cache directives
+     * @param requestKey the request key
+     *
+     * @return the variation, or <code>null</code> if not cachable
+     */
+    private String match(String directives, CmsFlexRequestKey requestKey) {
+
+        return new CmsFlexCacheKey("/sites/default/index.html", directives, true).matchRequestKey(requestKey);
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.jsp.util;
+
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProject;
+import org.opencms.file.CmsProperty;
+import org.opencms.file.CmsPropertyDefinition;
+import org.opencms.file.CmsResourceFilter;
+import org.opencms.file.types.CmsResourceTypeFolder;
+import org.opencms.file.types.CmsResourceTypePlain;
+import org.opencms.jsp.CmsJspNavBuilder;
+import org.opencms.jsp.CmsJspNavElement;
+import org.opencms.jsp.CmsJspNavigationCache;
+import org.opencms.main.OpenCms;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests that the navigation read from the Online navigation snapshot of the {@link CmsJspNavBuilder}
+ * is the same as the navigation read from the VFS.<p>
+ */
+public class TestCmsJspNavigationSnapshot extends OpenCmsTestCase {
+
+    /** One day in milliseconds. */
+    private static final long DAY = 24L * 60L * 60L * 1000L;
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsJspNavigationSnapshot(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsJspNavigationSnapshot.class.getName());
+
+        suite.addTest(new TestCmsJspNavigationSnapshot("testSnapshotNavigation"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests that the snapshot navigation hides unreleased and expired resources and folders
+     * with unreleased or expired default files, like the navigation read from the VFS.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testSnapshotNavigation() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing that the snapshot navigation equals the navigation read from the VFS");
+
+        long now = System.currentTimeMillis();
+        String base = "/navsnapshot/";
+        cms.createResource(base, CmsResourceTypeFolder.getStaticTypeId());
+        createNavResource(cms, base + "a.txt", 1);
+        createNavResource(cms, base + "b.txt", 2);
+        cms.setDateExpired(base + "b.txt", now - DAY, false);
+        createNavResource(cms, base + "c.txt", 3);
+        cms.setDateReleased(base + "c.txt", now + DAY, false);
+        // folder with an expired default file
+        createNavResource(cms, base + "d/", 4);
+        createNavResource(cms, base + "d/index.html", 1);
+        cms.setDateExpired(base + "d/index.html", now - DAY, false);
+        // folder with an unreleased default file
+        createNavResource(cms, base + "e/", 5);
+        createNavResource(cms, base + "e/index.html", 1);
+        cms.setDateReleased(base + "e/index.html", now + DAY, false);
+        // folder with a valid default file
+        createNavResource(cms, base + "f/", 6);
+        createNavResource(cms, base + "f/index.html", 1);
+        // folder without default file
+        createNavResource(cms, base + "g/", 7);
+        // expired folder
+        createNavResource(cms, base + "h/", 8);
+        cms.setDateExpired(base + "h/", now - DAY, false);
+        OpenCms.getPublishManager().publishProject(cms);
+        OpenCms.getPublishManager().waitWhileRunning();
+
+        // the Admin user does not use the snapshot
+        CmsObject online = OpenCms.initCmsObject(cms);
+        online.getRequestContext().setCurrentProject(cms.readProject(CmsProject.ONLINE_PROJECT_ID));
+        assertFalse(CmsJspNavigationCache.isCacheable(online, CmsResourceFilter.DEFAULT));
+        CmsObject guest = OpenCms.initCmsObject(OpenCms.getDefaultUsers().getUserGuest());
+        guest.getRequestContext().setSiteRoot(cms.getRequestContext().getSiteRoot());
+        assertTrue(CmsJspNavigationCache.isCacheable(guest, CmsResourceFilter.DEFAULT));
+
+        List<String> expected = Arrays.asList(base + "a.txt", base + "f/", base + "g/");
+        assertEquals(expected, getNavigation(online, base));
+        // the first call fills the snapshot, the second call reads from it
+        assertEquals(expected, getNavigation(guest, base));
+        assertEquals(expected, getNavigation(guest, base));
+
+        for (String name : new String[] {"a.txt", "b.txt", "c.txt", "d/", "e/", "f/", "g/", "h/"}) {
+            String sitePath = base + name;
+            CmsJspNavElement vfsElement = new CmsJspNavBuilder(online).getNavigationForResource(sitePath);
+            CmsJspNavElement snapshotElement = new CmsJspNavBuilder(guest).getNavigationForResource(sitePath);
+            assertEquals(sitePath, vfsElement == null, snapshotElement == null);
+            assertEquals(sitePath, expected.contains(sitePath), snapshotElement != null);
+        }
+    }
+
+    /**
+     * Creates a resource with navigation properties.<p>
+     *
+     * Site paths ending with a slash create folders, other paths create text files.<p>
+     *
+     * @param cms the current user context
+     * @param sitePath the site path of the resource
+     * @param navPos the navigation position
+     *
+     * @throws Exception if something goes wrong
+     */
+    private void createNavResource(CmsObject cms, String sitePath, int navPos) throws Exception {
+
+        List<CmsProperty> properties = new ArrayList<CmsProperty>();
+        properties.add(new CmsProperty(CmsPropertyDefinition.PROPERTY_NAVTEXT, sitePath, null));
+        properties.add(new CmsProperty(CmsPropertyDefinition.PROPERTY_NAVPOS, String.valueOf(navPos), null));
+        if (sitePath.endsWith("/")) {
+            cms.createResource(sitePath, CmsResourceTypeFolder.getStaticTypeId(), null, properties);
+        } else {
+            cms.createResource(
+                sitePath,
+                CmsResourceTypePlain.getStaticTypeId(),
+                "Navigation snapshot test".getBytes(),
+                properties);
+        }
+    }
+
+    /**
+     * Returns the site paths of the navigation elements of a folder.<p>
+     *
+     * @param cms the current user context
+     * @param folder the folder
+     *
+     * @return the site paths of the navigation elements
+     */
+    private List<String> getNavigation(CmsObject cms, String folder) {
+
+        List<String> result = new ArrayList<String>();
+        for (CmsJspNavElement element : new CmsJspNavBuilder(cms).getNavigationForFolder(folder)) {
+            result.add(element.getSitePath());
+        }
+        return result;
+    }
+}
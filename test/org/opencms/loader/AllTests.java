@@ -58,7 +58,10 @@ public final class AllTests {
         OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
         //$JUnit-BEGIN$
         suite.addTest(new TestSuite(TestCmsImageScaler.class));
+        suite.addTest(new TestSuite(TestCmsImageScalingExecutor.class));
+        suite.addTest(TestCmsImageVariantGenerator.suite());
         suite.addTest(new TestSuite(TestCmsDefaultFileNameGenerator.class));
+        suite.addTest(new TestSuite(TestCmsDumpLoader.class));
         //$JUnit-END$
         return suite;
     }
@@ -0,0 +1,323 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.loader;
+
+import org.opencms.file.CmsProject;
+import org.opencms.file.CmsResource;
+import org.opencms.test.OpenCmsTestServletRequest;
+import org.opencms.util.CmsDateUtil;
+import org.opencms.util.CmsRequestUtil;
+import org.opencms.util.CmsUUID;
+
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the handling of the conditional and range request headers of the dump loader.<p>
+ */
+public class TestCmsDumpLoader extends TestCase {
+
+    /**
+     * Request that only provides the given headers.<p>
+     */
+    private static class CmsHeaderRequest extends OpenCmsTestServletRequest {
+
+        /** The request headers. */
+        private Map<String, String> m_headers = new HashMap<String, String>();
+
+        /**
+         * @see org.opencms.test.OpenCmsTestServletRequest#getDateHeader(java.lang.String)
+         */
+        @Override
+        public long getDateHeader(String name) {
+
+            String value = m_headers.get(name);
+            if (value == null) {
+                return -1;
+            }
+            try {
+                return CmsDateUtil.parseHeaderDate(value);
+            } catch (ParseException e) {
+                throw new IllegalArgumentException(value);
+            }
+        }
+
+        /**
+         * @see org.opencms.test.OpenCmsTestServletRequest#getHeader(java.lang.String)
+         */
+        @Override
+        public String getHeader(String name) {
+
+            return m_headers.get(name);
+        }
+
+        /**
+         * Sets a request header.<p>
+         *
+         * @param name the header name
+         * @param value the header value
+         *
+         * @return this request
+         */
+        CmsHeaderRequest setHeader(String name, String value) {
+
+            m_headers.put(name, value);
+            return this;
+        }
+    }
+
+    /** The length of the test content. */
+    private static final int LENGTH = 1000;
+
+    /** The last modification date of the test resource, not on a full second. */
+    private static final long MODIFIED = 1300000000123L;
+
+    /** The dump loader. */
+    private CmsDumpLoader m_loader;
+
+    /** The test resource. */
+    private CmsResource m_resource;
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsDumpLoader(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests that the range is only used if the "If-Range" header matches the resource.<p>
+     */
+    public void testIfRange() {
+
+        String range = "bytes=0-99";
+        String eTag = m_loader.getETag(m_resource);
+        assertRange(0, 99, request(range).setHeader(CmsRequestUtil.HEADER_IF_RANGE, eTag));
+        // the entity tag changes with the content
+        assertNull(
+            getRange(request(range).setHeader(CmsRequestUtil.HEADER_IF_RANGE, "\"" + new CmsUUID() + "-1\"")));
+        // only strong entity tags can match
+        assertNull(getRange(request(range).setHeader(CmsRequestUtil.HEADER_IF_RANGE, "W/" + eTag)));
+
+        // HTTP dates have a precision of seconds
+        assertRange(
+            0,
+            99,
+            request(range).setHeader(CmsRequestUtil.HEADER_IF_RANGE, CmsDateUtil.getHeaderDate(MODIFIED)));
+        assertNull(
+            getRange(
+                request(range).setHeader(
+                    CmsRequestUtil.HEADER_IF_RANGE,
+                    CmsDateUtil.getHeaderDate(MODIFIED - 1000))));
+        // neither a date nor an entity tag
+        assertNull(getRange(request(range).setHeader(CmsRequestUtil.HEADER_IF_RANGE, "yesterday")));
+    }
+
+    /**
+     * Tests that multiple ranges and invalid ranges are answered with the complete content.<p>
+     */
+    public void testInvalidRange() {
+
+        assertNull(getRange(new CmsHeaderRequest()));
+        assertNull(getRange(request("bytes=0-1,5-6")));
+        assertNull(getRange(request("bytes=-10,0-1")));
+        assertNull(getRange(request("items=0-1")));
+        assertNull(getRange(request("bytes=5")));
+        assertNull(getRange(request("bytes=abc-")));
+        assertNull(getRange(request("bytes=10-5")));
+    }
+
+    /**
+     * Tests the "If-None-Match" and "If-Modified-Since" headers.<p>
+     */
+    public void testNotModified() {
+
+        String eTag = m_loader.getETag(m_resource);
+        assertFalse(m_loader.isNotModified(new CmsHeaderRequest(), m_resource));
+        assertTrue(
+            m_loader.isNotModified(
+                new CmsHeaderRequest().setHeader(CmsRequestUtil.HEADER_IF_NONE_MATCH, eTag),
+                m_resource));
+        // the weak comparison is used
+        assertTrue(
+            m_loader.isNotModified(
+                new CmsHeaderRequest().setHeader(CmsRequestUtil.HEADER_IF_NONE_MATCH, "W/" + eTag),
+                m_resource));
+        assertTrue(
+            m_loader.isNotModified(
+                new CmsHeaderRequest().setHeader(CmsRequestUtil.HEADER_IF_NONE_MATCH, "\"other\", " + eTag),
+                m_resource));
+        assertTrue(
+            m_loader.isNotModified(
+                new CmsHeaderRequest().setHeader(CmsRequestUtil.HEADER_IF_NONE_MATCH, "*"),
+                m_resource));
+        assertFalse(
+            m_loader.isNotModified(
+                new CmsHeaderRequest().setHeader(CmsRequestUtil.HEADER_IF_NONE_MATCH, "\"other\""),
+                m_resource));
+
+        String modified = CmsDateUtil.getHeaderDate(MODIFIED);
+        assertTrue(
+            m_loader.isNotModified(
+                new CmsHeaderRequest().setHeader(CmsRequestUtil.HEADER_IF_MODIFIED_SINCE, modified),
+                m_resource));
+        assertFalse(
+            m_loader.isNotModified(
+                new CmsHeaderRequest().setHeader(
+                    CmsRequestUtil.HEADER_IF_MODIFIED_SINCE,
+                    CmsDateUtil.getHeaderDate(MODIFIED - 1000)),
+                m_resource));
+        // "If-Modified-Since" is ignored if the request contains "If-None-Match"
+        assertFalse(
+            m_loader.isNotModified(
+                new CmsHeaderRequest().setHeader(CmsRequestUtil.HEADER_IF_MODIFIED_SINCE, modified).setHeader(
+                    CmsRequestUtil.HEADER_IF_NONE_MATCH,
+                    "\"other\""),
+                m_resource));
+    }
+
+    /**
+     * Tests ranges with a first and an optional last byte position.<p>
+     */
+    public void testOpenEndedRange() {
+
+        assertRange(0, 99, request("bytes=0-99"));
+        assertRange(500, 999, request("bytes=500-"));
+        assertRange(999, 999, request("bytes=999-"));
+        // the last byte position is limited to the content length
+        assertRange(900, 999, request("bytes=900-5000"));
+    }
+
+    /**
+     * Tests ranges that can not be satisfied.<p>
+     */
+    public void testOutOfRange() {
+
+        assertUnsatisfiable(request("bytes=1000-"));
+        assertUnsatisfiable(request("bytes=2000-3000"));
+        assertUnsatisfiable(request("bytes=-0"));
+        // an empty content can not satisfy any range
+        assertEquals(0, m_loader.getRange(request("bytes=0-"), m_resource, 0).length);
+    }
+
+    /**
+     * Tests suffix ranges, requesting the last bytes of the content.<p>
+     */
+    public void testSuffixRange() {
+
+        assertRange(900, 999, request("bytes=-100"));
+        assertRange(999, 999, request("bytes=-1"));
+        // the complete content if the suffix is longer than the content
+        assertRange(0, 999, request("bytes=-2000"));
+    }
+
+    /**
+     * @see junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp() {
+
+        m_loader = new CmsDumpLoader();
+        m_resource = new CmsResource(
+            new CmsUUID(),
+            new CmsUUID(),
+            "/sites/default/test.bin",
+            2,
+            false,
+            0,
+            CmsProject.ONLINE_PROJECT_ID,
+            CmsResource.STATE_UNCHANGED,
+            MODIFIED,
+            new CmsUUID(),
+            MODIFIED,
+            new CmsUUID(),
+            CmsResource.DATE_RELEASED_DEFAULT,
+            CmsResource.DATE_EXPIRED_DEFAULT,
+            1,
+            LENGTH,
+            MODIFIED,
+            0);
+    }
+
+    /**
+     * Asserts that the request selects the given range of the test content.<p>
+     *
+     * @param start the expected first byte position
+     * @param end the expected last byte position
+     * @param req the request
+     */
+    private void assertRange(long start, long end, CmsHeaderRequest req) {
+
+        long[] range = getRange(req);
+        assertNotNull(range);
+        assertEquals(Arrays.toString(new long[] {start, end}), Arrays.toString(range));
+    }
+
+    /**
+     * Asserts that the requested range can not be satisfied.<p>
+     *
+     * @param req the request
+     */
+    private void assertUnsatisfiable(CmsHeaderRequest req) {
+
+        long[] range = getRange(req);
+        assertNotNull(range);
+        assertEquals(0, range.length);
+    }
+
+    /**
+     * Returns the range selected by the request for the test content.<p>
+     *
+     * @param req the request
+     *
+     * @return the selected range
+     */
+    private long[] getRange(CmsHeaderRequest req) {
+
+        return m_loader.getRange(req, m_resource, LENGTH);
+    }
+
+    /**
+     * Creates a request with the given "Range" header.<p>
+     *
+     * @param range the value of the "Range" header
+     *
+     * @return the request
+     */
+    private CmsHeaderRequest request(String range) {
+
+        return new CmsHeaderRequest().setHeader(CmsRequestUtil.HEADER_RANGE, range);
+    }
+}
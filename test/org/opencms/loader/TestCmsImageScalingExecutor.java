@@ -0,0 +1,174 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.loader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the image scaling executor.<p>
+ */
+public class TestCmsImageScalingExecutor extends TestCase {
+
+    /**
+     * Tests that queued operations are executed in order of their priority.<p>
+     *
+     * @throws Exception in case the test fails
+     */
+    public void testPriority() throws Exception {
+
+        CmsImageScalingExecutor executor = new CmsImageScalingExecutor(1, 10);
+        try {
+            CountDownLatch blocker = new CountDownLatch(1);
+            Future<byte[]> first = executor.submit("blocker", 0, createBlockingCallable(blocker, null));
+            final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+            List<Future<byte[]>> results = new ArrayList<Future<byte[]>>();
+            int[] priorities = {300, 100, 200};
+            for (final int priority : priorities) {
+                results.add(executor.submit("key" + priority, priority, new Callable<byte[]>() {
+
+                    public byte[] call() {
+
+                        order.add(Integer.valueOf(priority));
+                        return new byte[0];
+                    }
+                }));
+            }
+            blocker.countDown();
+            first.get(10, TimeUnit.SECONDS);
+            for (Future<byte[]> result : results) {
+                result.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(3, order.size());
+            assertEquals(Integer.valueOf(100), order.get(0));
+            assertEquals(Integer.valueOf(200), order.get(1));
+            assertEquals(Integer.valueOf(300), order.get(2));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Tests that operations are rejected if the maximum queue size is reached.<p>
+     *
+     * @throws Exception in case the test fails
+     */
+    public void testSaturation() throws Exception {
+
+        CmsImageScalingExecutor executor = new CmsImageScalingExecutor(1, 1);
+        try {
+            CountDownLatch blocker = new CountDownLatch(1);
+            CountDownLatch started = new CountDownLatch(1);
+            Future<byte[]> running = executor.submit("running", 0, createBlockingCallable(blocker, started));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            Future<byte[]> queued = executor.submit("queued", 0, createBlockingCallable(blocker, null));
+            assertNotNull(queued);
+            assertNull(executor.submit("rejected", 0, createBlockingCallable(blocker, null)));
+            // joining a queued operation is still possible
+            assertSame(queued, executor.submit("queued", 0, createBlockingCallable(blocker, null)));
+            blocker.countDown();
+            running.get(10, TimeUnit.SECONDS);
+            queued.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Tests that concurrent operations for the same key are executed only once.<p>
+     *
+     * @throws Exception in case the test fails
+     */
+    public void testSingleFlight() throws Exception {
+
+        CmsImageScalingExecutor executor = new CmsImageScalingExecutor(2, 10);
+        try {
+            CountDownLatch blocker = new CountDownLatch(1);
+            final AtomicInteger executions = new AtomicInteger();
+            final CountDownLatch started = new CountDownLatch(1);
+            final CountDownLatch release = blocker;
+            Callable<byte[]> callable = new Callable<byte[]>() {
+
+                public byte[] call() throws Exception {
+
+                    executions.incrementAndGet();
+                    started.countDown();
+                    release.await();
+                    return new byte[] {1, 2, 3};
+                }
+            };
+            Future<byte[]> first = executor.submit("image", 100, callable);
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            Future<byte[]> second = executor.submit("image", 100, callable);
+            assertSame(first, second);
+            blocker.countDown();
+            assertEquals(3, first.get(10, TimeUnit.SECONDS).length);
+            assertEquals(3, second.get(10, TimeUnit.SECONDS).length);
+            assertEquals(1, executions.get());
+
+            // once finished, a new operation is started for the same key
+            Future<byte[]> third = executor.submit("image", 100, callable);
+            assertNotSame(first, third);
+            third.get(10, TimeUnit.SECONDS);
+            assertEquals(2, executions.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Creates an operation that waits until the given latch is released.<p>
+     *
+     * @param blocker the latch to wait for
+     * @param started optional latch to count down when the operation has started
+     *
+     * @return the operation
+     */
+    private Callable<byte[]> createBlockingCallable(final CountDownLatch blocker, final CountDownLatch started) {
+
+        return new Callable<byte[]>() {
+
+            public byte[] call() throws Exception {
+
+                if (started != null) {
+                    started.countDown();
+                }
+                blocker.await();
+                return new byte[0];
+            }
+        };
+    }
+}
@@ -0,0 +1,385 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.loader;
+
+import org.opencms.cache.CmsVfsNameBasedDiskCache;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProject;
+import org.opencms.file.CmsResource;
+import org.opencms.file.types.CmsResourceTypeImage;
+import org.opencms.file.types.CmsResourceTypePlain;
+import org.opencms.main.OpenCms;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+import org.opencms.util.CmsFileUtil;
+import org.opencms.util.CmsUUID;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the generation of scaled image variants after publishing.<p>
+ */
+public class TestCmsImageVariantGenerator extends OpenCmsTestCase {
+
+    /**
+     * Variant generator that counts the recorded variants.<p>
+     */
+    private static class CmsCountingVariantGenerator extends CmsImageVariantGenerator {
+
+        /** The number of calls to {@link #addVariant(String, String)}. */
+        AtomicInteger m_added = new AtomicInteger();
+
+        /**
+         * Creates a new counting variant generator.<p>
+         *
+         * @param diskCache the disk cache for the scaled images
+         * @param scalingExecutor the executor for the image scaling operations
+         */
+        CmsCountingVariantGenerator(CmsVfsNameBasedDiskCache diskCache, CmsImageScalingExecutor scalingExecutor) {
+
+            super(
+                diskCache,
+                scalingExecutor,
+                Collections.<String> emptyList(),
+                CmsImageScaler.SCALE_DEFAULT_MAX_SIZE,
+                CmsImageScaler.SCALE_DEFAULT_MAX_BLUR_SIZE);
+        }
+
+        /**
+         * @see org.opencms.loader.CmsImageVariantGenerator#addVariant(java.lang.String, java.lang.String)
+         */
+        @Override
+        public void addVariant(String rootPath, String parameters) {
+
+            m_added.incrementAndGet();
+            super.addVariant(rootPath, parameters);
+        }
+    }
+
+    /** The name of the disk cache folder used by the tests. */
+    private static final String CACHE_FOLDER = "variantcache";
+
+    /** The test image. */
+    private static final String IMAGE = "org/opencms/loader/img_01.jpg";
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsImageVariantGenerator(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsImageVariantGenerator.class.getName());
+
+        suite.addTest(new TestCmsImageVariantGenerator("testAddVariant"));
+        suite.addTest(new TestCmsImageVariantGenerator("testRecordedImagesLimit"));
+        suite.addTest(new TestCmsImageVariantGenerator("testGeneratePublishedVariants"));
+        suite.addTest(new TestCmsImageVariantGenerator("testLoaderRecordsVariantOnce"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests recording the requested variants of an image.<p>
+     *
+     * @throws Exception in case the test fails
+     */
+    public void testAddVariant() throws Exception {
+
+        echo("Testing recording the requested image variants");
+        CmsImageScalingExecutor executor = new CmsImageScalingExecutor(1, 10);
+        CmsImageVariantGenerator generator = createGenerator(executor, Arrays.asList("w:100,h:100", "w:200,h:200"));
+        try {
+            assertEquals(Arrays.asList("w:100,h:100", "w:200,h:200"), generator.getVariants("/a.jpg"));
+
+            generator.addVariant("/a.jpg", "w:50,h:50");
+            generator.addVariant("/a.jpg", "w:50,h:50");
+            // a recorded variant that is also a preset is returned only once
+            generator.addVariant("/a.jpg", "w:100,h:100");
+            assertEquals(Arrays.asList("w:100,h:100", "w:200,h:200", "w:50,h:50"), generator.getVariants("/a.jpg"));
+            // the variants of other images are not changed
+            assertEquals(Arrays.asList("w:100,h:100", "w:200,h:200"), generator.getVariants("/b.jpg"));
+
+            // only a limited number of variants is recorded per image
+            for (int i = 0; i < (CmsImageVariantGenerator.MAX_RECORDED_VARIANTS * 2); i++) {
+                generator.addVariant("/b.jpg", "w:" + (i + 1) + ",h:10");
+            }
+            List<String> variants = generator.getVariants("/b.jpg");
+            assertEquals(2 + CmsImageVariantGenerator.MAX_RECORDED_VARIANTS, variants.size());
+            assertTrue(variants.contains("w:1,h:10"));
+            assertFalse(variants.contains("w:" + (CmsImageVariantGenerator.MAX_RECORDED_VARIANTS + 1) + ",h:10"));
+        } finally {
+            generator.shutdown();
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Tests that the variants of the published images are generated in the disk cache.<p>
+     *
+     * @throws Exception in case the test fails
+     */
+    public void testGeneratePublishedVariants() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the generation of the variants of published images");
+
+        cms.createResource(
+            "/variant1.jpg",
+            CmsResourceTypeImage.getStaticTypeId(),
+            CmsFileUtil.readFile(IMAGE),
+            null);
+        cms.createResource(
+            "/variant1.txt",
+            CmsResourceTypePlain.getStaticTypeId(),
+            "no image".getBytes(),
+            null);
+        cms.createResource(
+            "/variant2.jpg",
+            CmsResourceTypeImage.getStaticTypeId(),
+            CmsFileUtil.readFile(IMAGE),
+            null);
+        OpenCms.getPublishManager().publishProject(cms);
+        OpenCms.getPublishManager().waitWhileRunning();
+
+        cms.lockResource("/variant2.jpg");
+        cms.deleteResource("/variant2.jpg", CmsResource.DELETE_PRESERVE_SIBLINGS);
+        CmsUUID publishHistoryId = OpenCms.getPublishManager().publishResource(cms, "/variant2.jpg");
+        OpenCms.getPublishManager().waitWhileRunning();
+
+        CmsImageScalingExecutor executor = new CmsImageScalingExecutor(1, 10);
+        CmsImageVariantGenerator generator = createGenerator(executor, Arrays.asList("w:80,h:60"));
+        try {
+            // deleted images are skipped
+            generator.generatePublishedVariants(publishHistoryId);
+            assertEquals(0, getCacheFiles().size());
+
+            CmsProject project = cms.getRequestContext().getCurrentProject();
+            cms.getRequestContext().setCurrentProject(cms.readProject(CmsProject.ONLINE_PROJECT_ID));
+            CmsResource image;
+            try {
+                image = cms.readResource("/variant1.jpg");
+            } finally {
+                cms.getRequestContext().setCurrentProject(project);
+            }
+            cms.lockResource("/variant1.jpg");
+            cms.setDateLastModified("/variant1.jpg", System.currentTimeMillis(), false);
+            cms.lockResource("/variant1.txt");
+            cms.setDateLastModified("/variant1.txt", System.currentTimeMillis(), false);
+            generator.addVariant(image.getRootPath(), "w:40,h:30");
+            publishHistoryId = OpenCms.getPublishManager().publishProject(cms);
+            OpenCms.getPublishManager().waitWhileRunning();
+
+            generator.generatePublishedVariants(publishHistoryId);
+            cms.getRequestContext().setCurrentProject(cms.readProject(CmsProject.ONLINE_PROJECT_ID));
+            try {
+                image = cms.readResource("/variant1.jpg");
+            } finally {
+                cms.getRequestContext().setCurrentProject(project);
+            }
+            // the preset and the recorded variant of the image are generated, the text file is skipped
+            for (String parameters : new String[] {"w:80,h:60", "w:40,h:30"}) {
+                CmsImageScaler scaler = new CmsImageScaler(parameters);
+                scaler.setMaxBlurSize(CmsImageScaler.SCALE_DEFAULT_MAX_BLUR_SIZE);
+                String cacheName = createDiskCache().getCacheName(image, scaler.toString());
+                assertTrue(cacheName, new File(cacheName).exists());
+            }
+            assertEquals(2, getCacheFiles().size());
+        } finally {
+            generator.shutdown();
+            executor.shutdown();
+            CmsFileUtil.purgeDirectory(new File(createDiskCache().getRepositoryPath()));
+        }
+    }
+
+    /**
+     * Tests that the image loader records a variant only when it is scaled, not for every request.<p>
+     *
+     * @throws Exception in case the test fails
+     */
+    public void testLoaderRecordsVariantOnce() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing that the image loader records a variant only once");
+
+        CmsResource image = cms.createResource(
+            "/variant3.jpg",
+            CmsResourceTypeImage.getStaticTypeId(),
+            CmsFileUtil.readFile(IMAGE),
+            null);
+        CmsImageLoader loader = (CmsImageLoader)OpenCms.getResourceManager().getLoader(
+            CmsImageLoader.RESOURCE_LOADER_ID_IMAGE_LOADER);
+        CmsCountingVariantGenerator generator = new CmsCountingVariantGenerator(
+            CmsImageLoader.m_vfsDiskCache,
+            CmsImageLoader.m_scalingExecutor);
+        CmsImageVariantGenerator previous = CmsImageLoader.m_variantGenerator;
+        CmsImageLoader.m_variantGenerator = generator;
+        try {
+            for (int i = 0; i < 5; i++) {
+                CmsImageScaler scaler = new CmsImageScaler("w:64,h:48");
+                assertNotNull(loader.getScaledImage(cms, image, scaler));
+            }
+            // the unscaled image is not recorded
+            assertNotNull(loader.getScaledImage(cms, image, new CmsImageScaler()));
+            assertEquals(1, generator.m_added.get());
+            assertTrue(generator.getVariants(image.getRootPath()).contains(new CmsImageScaler("w:64,h:48").toString()));
+        } finally {
+            CmsImageLoader.m_variantGenerator = previous;
+            generator.shutdown();
+        }
+    }
+
+    /**
+     * Tests that the requested variants are only recorded for a limited number of images.<p>
+     *
+     * @throws Exception in case the test fails
+     */
+    public void testRecordedImagesLimit() throws Exception {
+
+        echo("Testing the limit for the number of images with recorded variants");
+        CmsImageScalingExecutor executor = new CmsImageScalingExecutor(1, 10);
+        CmsImageVariantGenerator generator = createGenerator(executor, Collections.<String> emptyList());
+        try {
+            generator.addVariant("/image0.jpg", "w:10,h:10");
+            for (int i = 1; i <= CmsImageVariantGenerator.MAX_RECORDED_IMAGES; i++) {
+                generator.addVariant("/image" + i + ".jpg", "w:10,h:10");
+                if (i == 1) {
+                    // reading the variants marks the image as recently used
+                    assertEquals(1, generator.getVariants("/image0.jpg").size());
+                }
+            }
+            // the least recently used image has been removed
+            assertEquals(1, generator.getVariants("/image0.jpg").size());
+            assertTrue(generator.getVariants("/image1.jpg").isEmpty());
+            assertEquals(
+                1,
+                generator.getVariants("/image" + CmsImageVariantGenerator.MAX_RECORDED_IMAGES + ".jpg").size());
+        } finally {
+            generator.shutdown();
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Creates the disk cache used by the tests.<p>
+     *
+     * @return the disk cache
+     */
+    private CmsVfsNameBasedDiskCache createDiskCache() {
+
+        return new CmsVfsNameBasedDiskCache(OpenCms.getSystemInfo().getWebApplicationRfsPath(), CACHE_FOLDER);
+    }
+
+    /**
+     * Creates a variant generator writing to the test disk cache.<p>
+     *
+     * @param executor the executor for the image scaling operations
+     * @param presets the presets
+     *
+     * @return the variant generator
+     */
+    private CmsImageVariantGenerator createGenerator(CmsImageScalingExecutor executor, List<String> presets) {
+
+        return new CmsImageVariantGenerator(
+            createDiskCache(),
+            executor,
+            presets,
+            CmsImageScaler.SCALE_DEFAULT_MAX_SIZE,
+            CmsImageScaler.SCALE_DEFAULT_MAX_BLUR_SIZE);
+    }
+
+    /**
+     * Returns the files in the test disk cache.<p>
+     *
+     * @return the files in the test disk cache
+     */
+    private List<File> getCacheFiles() {
+
+        List<File> result = new ArrayList<File>();
+        collectFiles(new File(createDiskCache().getRepositoryPath()), result);
+        return result;
+    }
+
+    /**
+     * Collects the files in the given folder and its sub folders.<p>
+     *
+     * @param folder the folder
+     * @param result the list to add the files to
+     */
+    private void collectFiles(File folder, List<File> result) {
+
+        File[] files = folder.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                collectFiles(file, result);
+            } else {
+                result.add(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.lock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the path index of the lock manager.<p>
+ */
+public class TestCmsLockPathIndex extends TestCase {
+
+    /**
+     * Tests the sub-tree lookup.<p>
+     */
+    public void testPathsInSubtree() {
+
+        CmsLockPathIndex index = new CmsLockPathIndex();
+        index.add("/sites/default/a/");
+        index.add("/sites/default/a/b.txt");
+        index.add("/sites/default/a/c/d.txt");
+        index.add("/sites/default/ab/e.txt");
+        index.add("/sites/default/a");
+
+        assertPaths(
+            index.getPathsInSubtree("/sites/default/a/"),
+            "/sites/default/a",
+            "/sites/default/a/",
+            "/sites/default/a/b.txt",
+            "/sites/default/a/c/d.txt");
+        assertPaths(index.getPathsInSubtree("/sites/default/a"), "/sites/default/a");
+        assertPaths(index.getPathsInSubtree("/sites/default/a/c/"), "/sites/default/a/c/d.txt");
+        assertPaths(index.getPathsInSubtree("/sites/default/x/"));
+        assertEquals(5, index.getPathsInSubtree("/").size());
+        assertEquals(5, index.size());
+    }
+
+    /**
+     * Tests removing paths from the index.<p>
+     */
+    public void testRemove() {
+
+        CmsLockPathIndex index = new CmsLockPathIndex();
+        index.add("/sites/default/a/");
+        index.add("/sites/default/a/b.txt");
+        index.remove("/sites/default/a/b.txt");
+        index.remove("/sites/default/a/x.txt");
+        assertPaths(index.getPathsInSubtree("/sites/"), "/sites/default/a/");
+        index.remove("/sites/default/a/");
+        assertPaths(index.getPathsInSubtree("/"));
+        assertEquals(0, index.size());
+        index.add("/sites/default/a/b.txt");
+        index.clear();
+        assertPaths(index.getPathsInSubtree("/"));
+    }
+
+    /**
+     * Compares the paths ignoring their order.<p>
+     *
+     * @param actual the actual paths
+     * @param expected the expected paths
+     */
+    private void assertPaths(List<String> actual, String... expected) {
+
+        List<String> sortedActual = new ArrayList<String>(actual);
+        Collections.sort(sortedActual);
+        List<String> sortedExpected = new ArrayList<String>(Arrays.asList(expected));
+        Collections.sort(sortedExpected);
+        assertEquals(sortedExpected, sortedActual);
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.main;
+
+import org.opencms.db.CmsJdbcEventTransport;
+import org.opencms.db.CmsResourceState;
+import org.opencms.file.CmsProperty;
+import org.opencms.file.CmsResource;
+import org.opencms.util.CmsUUID;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.dbcp.DriverManagerConnectionFactory;
+import org.apache.commons.dbcp.PoolableConnectionFactory;
+import org.apache.commons.dbcp.PoolingDriver;
+import org.apache.commons.pool.impl.GenericObjectPool;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the distribution of events between cluster nodes.<p>
+ */
+public class TestCmsClusterEventManager extends TestCase {
+
+    /**
+     * Listener that records the received events.<p>
+     */
+    static class CmsRecordingListener implements I_CmsEventListener {
+
+        /** The received events. */
+        List<CmsEvent> m_events = Collections.synchronizedList(new ArrayList<CmsEvent>());
+
+        /**
+         * @see org.opencms.main.I_CmsEventListener#cmsEvent(org.opencms.main.CmsEvent)
+         */
+        public void cmsEvent(CmsEvent event) {
+
+            m_events.add(event);
+        }
+    }
+
+    /** Counter for unique database names. */
+    private static int m_dbCount;
+
+    /** The first node. */
+    private CmsClusterEventManager m_nodeA;
+
+    /** The second node. */
+    private CmsClusterEventManager m_nodeB;
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsClusterEventManager(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests that events are sent once per batch and never returned to the sending node.<p>
+     */
+    public void testDistributeEvents() {
+
+        CmsRecordingListener listenerA = new CmsRecordingListener();
+        CmsRecordingListener listenerB = new CmsRecordingListener();
+        m_nodeA.addCmsEventListener(listenerA, new int[] {I_CmsEventListener.EVENT_FLEX_CACHE_CLEAR});
+        m_nodeB.addCmsEventListener(listenerB, new int[] {I_CmsEventListener.EVENT_FLEX_CACHE_CLEAR});
+
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> data = new HashMap<String, Object>();
+            data.put("action", Integer.valueOf(2));
+            m_nodeA.fireEvent(I_CmsEventListener.EVENT_FLEX_CACHE_CLEAR, data);
+        }
+        assertEquals(3, listenerA.m_events.size());
+        assertEquals(3, m_nodeA.getQueueSize());
+
+        m_nodeA.processEvents();
+        m_nodeB.processEvents();
+        m_nodeA.processEvents();
+
+        assertEquals(0, m_nodeA.getQueueSize());
+        assertEquals(3, listenerA.m_events.size());
+        assertEquals(1, listenerB.m_events.size());
+        CmsEvent received = listenerB.m_events.get(0);
+        assertEquals(I_CmsEventListener.EVENT_FLEX_CACHE_CLEAR, received.getType());
+        assertEquals(Integer.valueOf(2), received.getData().get("action"));
+
+        // nothing new must be received again
+        m_nodeB.processEvents();
+        assertEquals(1, listenerB.m_events.size());
+    }
+
+    /**
+     * Tests that the supported event data values are restored on the other nodes.<p>
+     */
+    public void testEventData() {
+
+        CmsResource resource = new CmsResource(
+            new CmsUUID(),
+            new CmsUUID(),
+            "/sites/default/index.html",
+            1,
+            false,
+            0,
+            new CmsUUID(),
+            CmsResourceState.STATE_CHANGED,
+            1000L,
+            new CmsUUID(),
+            2000L,
+            null,
+            CmsResource.DATE_RELEASED_DEFAULT,
+            CmsResource.DATE_EXPIRED_DEFAULT,
+            1,
+            123,
+            3000L,
+            4);
+        Map<String, Object> data = new HashMap<String, Object>();
+        data.put(I_CmsEventListener.KEY_RESOURCE, resource);
+        data.put(I_CmsEventListener.KEY_RESOURCES, Arrays.asList(resource, resource));
+        data.put(I_CmsEventListener.KEY_CHANGE, Integer.valueOf(4));
+        data.put(I_CmsEventListener.KEY_SKIPINDEX, Boolean.TRUE);
+        data.put(I_CmsEventListener.KEY_USER_ID, new CmsUUID().toString());
+        data.put("property", new CmsProperty("Title", "structure", null));
+        data.put("empty", null);
+
+        CmsClusterEvent clusterEvent = CmsClusterEvent.fromEvent(
+            new CmsEvent(I_CmsEventListener.EVENT_RESOURCE_MODIFIED, data),
+            "nodeA");
+        assertEquals(I_CmsEventListener.EVENT_RESOURCE_MODIFIED, clusterEvent.getType());
+        CmsEvent received = new CmsClusterEvent(clusterEvent.getType(), clusterEvent.getData(), "nodeA").toEvent();
+
+        Map<String, Object> receivedData = received.getData();
+        assertEquals(data.keySet(), receivedData.keySet());
+        CmsResource receivedResource = (CmsResource)receivedData.get(I_CmsEventListener.KEY_RESOURCE);
+        assertEquals(resource.getStructureId(), receivedResource.getStructureId());
+        assertEquals(resource.getResourceId(), receivedResource.getResourceId());
+        assertEquals(resource.getRootPath(), receivedResource.getRootPath());
+        assertEquals(resource.getState(), receivedResource.getState());
+        assertEquals(resource.getDateLastModified(), receivedResource.getDateLastModified());
+        assertNull(receivedResource.getUserLastModified());
+        assertEquals(123, receivedResource.getLength());
+        assertEquals(4, receivedResource.getVersion());
+        assertEquals(2, ((List<?>)receivedData.get(I_CmsEventListener.KEY_RESOURCES)).size());
+        assertEquals(Integer.valueOf(4), receivedData.get(I_CmsEventListener.KEY_CHANGE));
+        assertEquals(Boolean.TRUE, receivedData.get(I_CmsEventListener.KEY_SKIPINDEX));
+        assertEquals(data.get(I_CmsEventListener.KEY_USER_ID), receivedData.get(I_CmsEventListener.KEY_USER_ID));
+        CmsProperty property = (CmsProperty)receivedData.get("property");
+        assertEquals("Title", property.getName());
+        assertEquals("structure", property.getStructureValue());
+        assertNull(property.getResourceValue());
+        assertNull(receivedData.get("empty"));
+    }
+
+    /**
+     * Tests that event data in another format is not deserialized, and the caches are cleared instead.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testInvalidEventData() throws Exception {
+
+        HashMap<String, Object> data = new HashMap<String, Object>();
+        data.put("key", "value");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(data);
+        out.close();
+
+        CmsEvent event = new CmsClusterEvent(
+            I_CmsEventListener.EVENT_FLEX_CACHE_CLEAR,
+            bytes.toByteArray(),
+            "nodeA").toEvent();
+        assertEquals(I_CmsEventListener.EVENT_CLEAR_CACHES, event.getType());
+        assertTrue(event.getData().isEmpty());
+    }
+
+    /**
+     * Tests that events fired by listeners while dispatching remote events are not sent back.<p>
+     */
+    public void testNoEventLoop() {
+
+        final CmsClusterEventManager nodeB = m_nodeB;
+        CmsRecordingListener listenerA = new CmsRecordingListener();
+        m_nodeA.addCmsEventListener(listenerA, new int[] {I_CmsEventListener.EVENT_CLEAR_OFFLINE_CACHES});
+        m_nodeB.addCmsEventListener(new I_CmsEventListener() {
+
+            public void cmsEvent(CmsEvent event) {
+
+                nodeB.fireEvent(I_CmsEventListener.EVENT_CLEAR_OFFLINE_CACHES);
+            }
+        }, new int[] {I_CmsEventListener.EVENT_FLEX_PURGE_JSP_REPOSITORY});
+
+        m_nodeA.fireEvent(I_CmsEventListener.EVENT_FLEX_PURGE_JSP_REPOSITORY);
+        m_nodeA.processEvents();
+        m_nodeB.processEvents();
+        assertEquals(0, m_nodeB.getQueueSize());
+        m_nodeB.processEvents();
+        m_nodeA.processEvents();
+        assertTrue(listenerA.m_events.isEmpty());
+    }
+
+    /**
+     * Tests that a published project is distributed as a request to clear the caches.<p>
+     */
+    public void testPublishClearsCaches() {
+
+        CmsRecordingListener listenerB = new CmsRecordingListener();
+        m_nodeB.addCmsEventListener(
+            listenerB,
+            new int[] {I_CmsEventListener.EVENT_PUBLISH_PROJECT, I_CmsEventListener.EVENT_CLEAR_CACHES});
+
+        m_nodeA.fireEvent(I_CmsEventListener.EVENT_PUBLISH_PROJECT);
+        m_nodeA.processEvents();
+        m_nodeB.processEvents();
+
+        assertEquals(1, listenerB.m_events.size());
+        assertEquals(I_CmsEventListener.EVENT_CLEAR_CACHES, listenerB.m_events.get(0).getType());
+    }
+
+    /**
+     * Tests that events with data that can not be sent are distributed as a request to clear the caches.<p>
+     */
+    public void testUnsupportedDataClearsCaches() {
+
+        CmsRecordingListener listenerB = new CmsRecordingListener();
+        m_nodeB.addCmsEventListener(
+            listenerB,
+            new int[] {I_CmsEventListener.EVENT_FLEX_CACHE_CLEAR, I_CmsEventListener.EVENT_CLEAR_CACHES});
+
+        Map<String, Object> data = new HashMap<String, Object>();
+        data.put("action", Integer.valueOf(2));
+        data.put("unsupported", new StringBuffer("value"));
+        m_nodeA.fireEvent(I_CmsEventListener.EVENT_FLEX_CACHE_CLEAR, data);
+        m_nodeA.processEvents();
+        m_nodeB.processEvents();
+
+        assertEquals(1, listenerB.m_events.size());
+        assertEquals(I_CmsEventListener.EVENT_CLEAR_CACHES, listenerB.m_events.get(0).getType());
+        assertTrue(listenerB.m_events.get(0).getData().isEmpty());
+    }
+
+    /**
+     * @see junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp() throws Exception {
+
+        Class.forName("org.hsqldb.jdbcDriver");
+        // both nodes use a pool for the same database, like the OpenCms pools configured in opencms.properties
+        String poolName = "clusterevents" + (m_dbCount++);
+        GenericObjectPool connectionPool = new GenericObjectPool(null);
+        new PoolableConnectionFactory(
+            new DriverManagerConnectionFactory("jdbc:hsqldb:mem:" + poolName, "SA", ""),
+            connectionPool,
+            null,
+            null,
+            false,
+            true);
+        new PoolingDriver().registerPool(poolName, connectionPool);
+        m_nodeA = createNode("nodeA", poolName);
+        m_nodeB = createNode("nodeB", poolName);
+    }
+
+    /**
+     * @see junit.framework.TestCase#tearDown()
+     */
+    @Override
+    protected void tearDown() {
+
+        m_nodeA.shutdown();
+        m_nodeB.shutdown();
+    }
+
+    /**
+     * Creates a cluster node that uses the database with the given URL.<p>
+     *
+     * @param nodeId the node id
+     * @param poolName the name of the connection pool
+     *
+     * @return the cluster event manager of the node
+     *
+     * @throws Exception if something goes wrong
+     */
+    private CmsClusterEventManager createNode(String nodeId, String poolName) throws Exception {
+
+        CmsClusterEventManager node = new CmsClusterEventManager();
+        node.addConfigurationParameter(CmsClusterEventManager.PARAM_INTERVAL, "0");
+        node.addConfigurationParameter(CmsClusterEventManager.PARAM_NODE, nodeId);
+        node.addConfigurationParameter(
+            CmsJdbcEventTransport.PARAM_SQLMANAGER,
+            org.opencms.db.hsqldb.CmsSqlManager.class.getName());
+        node.addConfigurationParameter(CmsJdbcEventTransport.PARAM_POOL, poolName);
+        node.initializeCluster(new CmsJdbcEventTransport());
+        return node;
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.main;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the asynchronous delivery of events to event listeners.<p>
+ */
+public class TestCmsEventListenerQueue extends TestCase {
+
+    /**
+     * Asynchronous listener that records the events and the threads they were delivered on.<p>
+     */
+    static class CmsAsyncListener implements I_CmsAsyncEventListener {
+
+        /** The received events. */
+        List<CmsEvent> m_events = Collections.synchronizedList(new ArrayList<CmsEvent>());
+
+        /** Latch that blocks the listener until it is released. */
+        CountDownLatch m_release = new CountDownLatch(0);
+
+        /** The threads the events were delivered on. */
+        List<Thread> m_threads = Collections.synchronizedList(new ArrayList<Thread>());
+
+        /**
+         * @see org.opencms.main.I_CmsEventListener#cmsEvent(org.opencms.main.CmsEvent)
+         */
+        public void cmsEvent(CmsEvent event) {
+
+            try {
+                m_release.await();
+            } catch (InterruptedException e) {
+                // ignore
+            }
+            m_threads.add(Thread.currentThread());
+            m_events.add(event);
+        }
+    }
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsEventListenerQueue(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests that the event manager delivers events to asynchronous listeners in order on a separate thread.<p>
+     */
+    public void testAsyncDispatch() {
+
+        CmsEventManager manager = new CmsEventManager();
+        CmsAsyncListener asyncListener = new CmsAsyncListener();
+        final List<Thread> syncThreads = new ArrayList<Thread>();
+        manager.addCmsEventListener(asyncListener);
+        manager.addCmsEventListener(new I_CmsEventListener() {
+
+            public void cmsEvent(CmsEvent event) {
+
+                syncThreads.add(Thread.currentThread());
+            }
+        });
+        for (int i = 0; i < 100; i++) {
+            manager.fireEvent(i);
+        }
+        assertEquals(100, syncThreads.size());
+        assertSame(Thread.currentThread(), syncThreads.get(0));
+
+        List<CmsEventListenerQueue> queues = manager.getListenerQueues();
+        assertEquals(1, queues.size());
+        assertSame(asyncListener, queues.get(0).getListener());
+
+        // shutdown waits for the remaining events
+        manager.shutdown();
+        assertEquals(100, asyncListener.m_events.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, asyncListener.m_events.get(i).getType());
+            assertNotSame(Thread.currentThread(), asyncListener.m_threads.get(i));
+        }
+        assertEquals(100, queues.get(0).getEventCount());
+        assertTrue(manager.getListenerQueues().isEmpty());
+    }
+
+    /**
+     * Tests that adding events to a full queue blocks until the listener has caught up.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testBackpressure() throws Exception {
+
+        CmsAsyncListener listener = new CmsAsyncListener();
+        listener.m_release = new CountDownLatch(1);
+        final CmsEventListenerQueue queue = new CmsEventListenerQueue(listener, 2);
+        final CountDownLatch added = new CountDownLatch(1);
+        Thread producer = new Thread() {
+
+            @Override
+            public void run() {
+
+                for (int i = 0; i < 5; i++) {
+                    queue.add(new CmsEvent(i, null));
+                }
+                added.countDown();
+            }
+        };
+        producer.start();
+
+        // one event is taken by the blocked listener, two are queued, the producer waits
+        assertFalse(added.await(500, TimeUnit.MILLISECONDS));
+        assertEquals(2, queue.getQueueSize());
+        assertTrue(queue.getBlockedCount() > 0);
+
+        listener.m_release.countDown();
+        assertTrue(added.await(5, TimeUnit.SECONDS));
+        queue.shutdown();
+        assertEquals(5, listener.m_events.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, listener.m_events.get(i).getType());
+        }
+        assertEquals(5, queue.getEventCount());
+        assertTrue(queue.getMaxLatency() >= 400);
+    }
+
+    /**
+     * Tests that the queues of several listeners of the same class are registered with separate JMX names.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testJmxNamesOfListenersOfSameClass() throws Exception {
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName pattern = new ObjectName(
+            "org.opencms:type=EventListenerQueue,name=" + CmsAsyncListener.class.getName() + ",*");
+        int before = server.queryNames(pattern, null).size();
+
+        CmsEventManager manager = new CmsEventManager();
+        CmsAsyncListener first = new CmsAsyncListener();
+        CmsAsyncListener second = new CmsAsyncListener();
+        manager.addCmsEventListener(first);
+        manager.addCmsEventListener(second);
+        manager.fireEvent(1);
+        assertEquals(2, manager.getListenerQueues().size());
+        assertEquals(before + 2, server.queryNames(pattern, null).size());
+
+        // removing one listener must not remove the statistics of the other one
+        manager.removeCmsEventListener(first);
+        assertEquals(before + 1, server.queryNames(pattern, null).size());
+
+        manager.shutdown();
+        assertEquals(before, server.queryNames(pattern, null).size());
+        assertEquals(1, first.m_events.size());
+        assertEquals(1, second.m_events.size());
+    }
+
+    /**
+     * Tests that errors in the listener do not stop the delivery of later events.<p>
+     */
+    public void testListenerError() {
+
+        final List<CmsEvent> events = new ArrayList<CmsEvent>();
+        CmsEventListenerQueue queue = new CmsEventListenerQueue(new I_CmsAsyncEventListener() {
+
+            public void cmsEvent(CmsEvent event) {
+
+                if (event.getType() == 1) {
+                    throw new RuntimeException("Test exception");
+                }
+                events.add(event);
+            }
+        }, 10);
+        queue.add(new CmsEvent(1, null));
+        queue.add(new CmsEvent(2, null));
+        queue.shutdown();
+        assertEquals(1, events.size());
+        assertEquals(2, events.get(0).getType());
+        assertEquals(1, queue.getErrorCount());
+        assertEquals(2, queue.getEventCount());
+
+        // events added after shutdown are delivered directly
+        queue.add(new CmsEvent(3, null));
+        assertEquals(2, events.size());
+    }
+
+    /**
+     * Tests that no new queues are created after the event manager has been shut down.<p>
+     */
+    public void testNoQueueAfterShutdown() {
+
+        CmsEventManager manager = new CmsEventManager();
+        manager.shutdown();
+        CmsAsyncListener listener = new CmsAsyncListener();
+        manager.addCmsEventListener(listener);
+        manager.fireEvent(1);
+
+        // the event is delivered directly
+        assertTrue(manager.getListenerQueues().isEmpty());
+        assertEquals(1, listener.m_events.size());
+        assertSame(Thread.currentThread(), listener.m_threads.get(0));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.monitor;
+
+import org.opencms.monitor.CmsMemoryMonitor.CacheType;
+
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the cache statistics of the caches created by the default cache provider.<p>
+ */
+public class TestCmsCacheStatistics extends TestCase {
+
+    /**
+     * Tests that evictions are recorded when the size limit of a cache is reached.<p>
+     */
+    public void testEvictions() {
+
+        CmsCacheStatistics statistics = new CmsCacheStatistics(CacheType.RESOURCE.name(), 10);
+        Map<String, String> cache = new CmsMonitoredCacheMap<String, String>(
+            new CmsDefaultCacheProvider().<String, String> createCache(CacheType.RESOURCE, 10, statistics),
+            statistics);
+        for (int i = 0; i < 100; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        assertTrue(cache.size() <= 10);
+        assertEquals(100 - cache.size(), statistics.getEvictionCount());
+
+        cache.clear();
+        // explicit removals are no evictions
+        assertEquals(100 - 10, statistics.getEvictionCount());
+    }
+
+    /**
+     * Tests the hit, miss and load counters.<p>
+     */
+    public void testHitsAndMisses() {
+
+        CmsCacheStatistics statistics = new CmsCacheStatistics(CacheType.PROPERTY.name(), 100);
+        Map<String, String> cache = new CmsMonitoredCacheMap<String, String>(
+            new CmsDefaultCacheProvider().<String, String> createCache(CacheType.PROPERTY, 100, statistics),
+            statistics);
+
+        assertNull(cache.get("a"));
+        cache.put("a", "1");
+        assertEquals("1", cache.get("a"));
+        assertEquals("1", cache.get("a"));
+        // a put without a previous failed lookup is not counted as load
+        cache.put("b", "2");
+
+        assertEquals(2, statistics.getHitCount());
+        assertEquals(1, statistics.getMissCount());
+        assertEquals(66, statistics.getHitRatio());
+        assertEquals(1, statistics.getLoadCount());
+        assertEquals(2, statistics.getSize());
+        assertEquals(100, statistics.getCapacity());
+
+        statistics.reset();
+        assertEquals(0, statistics.getHitCount());
+        assertEquals(0, statistics.getMissCount());
+        assertEquals(0, statistics.getLoadCount());
+    }
+}
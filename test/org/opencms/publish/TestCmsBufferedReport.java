@@ -0,0 +1,128 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.publish;
+
+import org.opencms.i18n.CmsMessageContainer;
+import org.opencms.report.CmsBufferedReport;
+import org.opencms.report.CmsStringBufferReport;
+import org.opencms.report.I_CmsReport;
+import org.opencms.report.Messages;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the buffered report used by the publish worker threads.<p>
+ */
+public class TestCmsBufferedReport extends TestCase {
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsBufferedReport(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests that the output of concurrent threads is written line by line.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testConcurrentOutput() throws Exception {
+
+        final CmsStringBufferReport report = new CmsStringBufferReport(Locale.ENGLISH);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            final String name = "thread" + t;
+            Thread thread = new Thread() {
+
+                @Override
+                public void run() {
+
+                    CmsBufferedReport buffer = new CmsBufferedReport(report);
+                    for (int i = 0; i < 200; i++) {
+                        buffer.print(argument(name));
+                        Thread.yield();
+                        buffer.print(argument("-" + i));
+                        buffer.println();
+                        buffer.flush();
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        String[] lines = report.toString().replace(" ", "").split("\n");
+        assertEquals(800, lines.length);
+        for (String line : lines) {
+            assertTrue(line, line.matches("thread[0-3]-[0-9]+"));
+        }
+    }
+
+    /**
+     * Tests that the output is only written on flush.<p>
+     */
+    public void testFlush() {
+
+        CmsStringBufferReport report = new CmsStringBufferReport(Locale.ENGLISH);
+        CmsBufferedReport buffer = new CmsBufferedReport(report);
+        buffer.print(argument("a"));
+        buffer.println(argument("b"), I_CmsReport.FORMAT_ERROR);
+        assertEquals("", report.toString());
+        assertFalse(buffer.hasError());
+
+        buffer.flush();
+        assertEquals("ab\n", report.toString().replace(" ", ""));
+        assertTrue(buffer.hasError());
+
+        // the buffer is empty after flushing
+        buffer.flush();
+        assertEquals("ab\n", report.toString().replace(" ", ""));
+    }
+
+    /**
+     * Returns a message container for the given text, surrounded by spaces.<p>
+     *
+     * @param text the text
+     *
+     * @return the message container
+     */
+    CmsMessageContainer argument(String text) {
+
+        return Messages.get().container(Messages.RPT_ARGUMENT_1, text);
+    }
+}
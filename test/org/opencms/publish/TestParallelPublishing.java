@@ -0,0 +1,202 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.publish;
+
+import org.opencms.file.CmsFile;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProject;
+import org.opencms.file.CmsResource;
+import org.opencms.file.types.CmsResourceTypePlain;
+import org.opencms.lock.CmsLockFilter;
+import org.opencms.main.OpenCms;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Unit tests for publishing the files of a publish job with several threads.<p>
+ *
+ * The special configuration of this test sets the number of publish threads to 4.<p>
+ */
+public class TestParallelPublishing extends OpenCmsTestCase {
+
+    /** The number of files to publish. */
+    private static final int FILE_COUNT = 20;
+
+    /** The folder for the test files. */
+    private static final String FOLDER = "/parallel/";
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestParallelPublishing(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestParallelPublishing.class.getName());
+
+        suite.addTest(new TestParallelPublishing("testPublishNewFiles"));
+        suite.addTest(new TestParallelPublishing("testPublishChangedAndDeletedFiles"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/", "/../org/opencms/publish");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests publishing changed files, siblings and deleted files with several threads.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testPublishChangedAndDeletedFiles() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing publishing changed and deleted files with several threads");
+
+        cms.lockResource(FOLDER);
+        for (int i = 0; i < FILE_COUNT; i++) {
+            String name = getFileName(i);
+            if ((i % 3) == 0) {
+                cms.deleteResource(name, CmsResource.DELETE_PRESERVE_SIBLINGS);
+            } else {
+                CmsFile file = cms.readFile(name);
+                file.setContents(("changed " + i).getBytes());
+                cms.writeFile(file);
+            }
+        }
+        OpenCms.getPublishManager().publishProject(cms);
+        OpenCms.getPublishManager().waitWhileRunning();
+
+        for (int i = 0; i < FILE_COUNT; i++) {
+            String name = getFileName(i);
+            if ((i % 3) == 0) {
+                assertFalse(cms.existsResource(name));
+            } else {
+                assertState(cms, name, CmsResource.STATE_UNCHANGED);
+                assertOnlineContent(cms, name, "changed " + i);
+            }
+        }
+        // the sibling of the deleted first file keeps the shared content
+        assertOnlineContent(cms, FOLDER + "sibling.txt", "content 0");
+    }
+
+    /**
+     * Tests publishing new files and a sibling with several threads.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testPublishNewFiles() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing publishing new files with several threads");
+
+        assertEquals(4, OpenCms.getPublishManager().getPublishThreads());
+
+        cms.createResource(FOLDER, OpenCms.getResourceManager().getResourceType("folder").getTypeId());
+        for (int i = 0; i < FILE_COUNT; i++) {
+            cms.createResource(
+                getFileName(i),
+                CmsResourceTypePlain.getStaticTypeId(),
+                ("content " + i).getBytes(),
+                null);
+        }
+        cms.createSibling(getFileName(0), FOLDER + "sibling.txt", null);
+        OpenCms.getPublishManager().publishProject(cms);
+        OpenCms.getPublishManager().waitWhileRunning();
+
+        assertState(cms, FOLDER, CmsResource.STATE_UNCHANGED);
+        for (int i = 0; i < FILE_COUNT; i++) {
+            assertState(cms, getFileName(i), CmsResource.STATE_UNCHANGED);
+            assertOnlineContent(cms, getFileName(i), "content " + i);
+        }
+        assertState(cms, FOLDER + "sibling.txt", CmsResource.STATE_UNCHANGED);
+        assertOnlineContent(cms, FOLDER + "sibling.txt", "content 0");
+        assertTrue(cms.getLockedResources(FOLDER, CmsLockFilter.FILTER_ALL).isEmpty());
+    }
+
+    /**
+     * Asserts that the online version of a file has the given content.<p>
+     *
+     * @param cms the current CMS context
+     * @param name the name of the file
+     * @param content the expected content
+     *
+     * @throws Exception if something goes wrong
+     */
+    private void assertOnlineContent(CmsObject cms, String name, String content) throws Exception {
+
+        CmsProject project = cms.getRequestContext().getCurrentProject();
+        try {
+            cms.getRequestContext().setCurrentProject(cms.readProject(CmsProject.ONLINE_PROJECT_ID));
+            assertEquals(content, new String(cms.readFile(name).getContents()));
+        } finally {
+            cms.getRequestContext().setCurrentProject(project);
+        }
+    }
+
+    /**
+     * Returns the name of the test file with the given index.<p>
+     *
+     * @param i the index
+     *
+     * @return the name of the test file
+     */
+    private String getFileName(int i) {
+
+        return FOLDER + "file" + i + ".txt";
+    }
+}
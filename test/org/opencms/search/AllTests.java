@@ -59,8 +59,11 @@ public final class AllTests {
         OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
         //$JUnit-BEGIN$
         suite.addTest(new TestSuite(TestCmsSearchUtils.class));
+        suite.addTest(new TestSuite(TestCmsExtractionResultCache.class));
         suite.addTest(TestCmsSearch.suite());
         suite.addTest(TestCmsSearchOffline.suite());
+        suite.addTest(TestCmsIndexingThreadManager.suite());
+        suite.addTest(TestCmsVfsIndexer.suite());
         suite.addTest(TestCmsSearchFields.suite());
         suite.addTest(TestCmsSearchInDocuments.suite());
         suite.addTest(TestCmsSearchAdvancedFeatures.suite());
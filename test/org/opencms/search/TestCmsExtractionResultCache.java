@@ -0,0 +1,265 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.search;
+
+import org.opencms.db.CmsResourceState;
+import org.opencms.file.CmsResource;
+import org.opencms.search.documents.CmsExtractionResultCache;
+import org.opencms.search.extractors.CmsExtractionResult;
+import org.opencms.search.extractors.I_CmsExtractionResult;
+import org.opencms.util.CmsFileUtil;
+import org.opencms.util.CmsUUID;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the content based text extraction result cache.<p>
+ */
+public class TestCmsExtractionResultCache extends TestCase {
+
+    /** The cache under test. */
+    private CmsExtractionResultCache m_cache;
+
+    /** The RFS folder of the cache under test. */
+    private File m_folder;
+
+    /**
+     * Tests that the cache is shared by all resources with the same content.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testCacheNameByContent() throws Exception {
+
+        byte[] content = "Some document content".getBytes("UTF-8");
+        String name = m_cache.getCacheName(content, null, "pdf");
+        assertEquals(name, m_cache.getCacheName(content.clone(), null, "pdf"));
+        assertFalse(name.equals(m_cache.getCacheName("Other content".getBytes("UTF-8"), null, "pdf")));
+        assertFalse(name.equals(m_cache.getCacheName(content, Locale.GERMAN, "pdf")));
+        assertFalse(name.equals(m_cache.getCacheName(content, null, "msword")));
+
+        assertNull(m_cache.getCacheObject(name));
+        m_cache.saveCacheObject(name, new CmsExtractionResult("Some extracted text"));
+        CmsExtractionResult result = m_cache.getCacheObject(m_cache.getCacheName(content.clone(), null, "pdf"));
+        assertEquals("Some extracted text", result.getContentItems().get(I_CmsExtractionResult.ITEM_RAW));
+    }
+
+    /**
+     * Tests that the cache names for document types that depend on more than the content are only shared by siblings.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testCacheNameByResource() throws Exception {
+
+        CmsUUID resourceId = new CmsUUID();
+        CmsResource resource = createResource(resourceId, 1000L);
+        String name = m_cache.getCacheName(resource, null, "xmlcontent");
+        // a sibling has another structure id, but the same resource id
+        assertEquals(name, m_cache.getCacheName(createResource(resourceId, 1000L), null, "xmlcontent"));
+        assertFalse(name.equals(m_cache.getCacheName(createResource(resourceId, 2000L), null, "xmlcontent")));
+        assertFalse(name.equals(m_cache.getCacheName(createResource(new CmsUUID(), 1000L), null, "xmlcontent")));
+        assertFalse(name.equals(m_cache.getCacheName(resource, Locale.GERMAN, "xmlcontent")));
+
+        m_cache.saveCacheObject(name, new CmsExtractionResult("Some extracted text"));
+        assertEquals("Some extracted text", m_cache.getCacheObject(name).getContent());
+    }
+
+    /**
+     * Tests the removal of entries that have not been used for a while.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testCleanCache() throws Exception {
+
+        String name1 = save("first");
+        String name2 = save("second");
+        String name3 = save("third");
+        // the index of a new cache instance uses the file dates as last access
+        long twoHoursAgo = System.currentTimeMillis() - (2 * 60 * 60 * 1000);
+        assertTrue(new File(name1).setLastModified(twoHoursAgo));
+        assertTrue(new File(name2).setLastModified(twoHoursAgo));
+        CmsExtractionResultCache cache = new CmsExtractionResultCache(m_folder.getParent(), "/" + m_folder.getName());
+        // access the first entry, so it is not expired
+        assertNotNull(cache.getCacheObject(name1));
+        assertEquals(1, cache.cleanCache(1.0f));
+        assertNotNull(cache.getCacheObject(name1));
+        assertNull(cache.getCacheObject(name2));
+        assertNotNull(cache.getCacheObject(name3));
+        assertFalse(new File(name2).exists());
+    }
+
+    /**
+     * Tests that the least recently used entries are removed if the maximum size is exceeded.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testMaxSize() throws Exception {
+
+        String name1 = save("first");
+        long entrySize = m_cache.getSize();
+        m_cache.setMaxSize((entrySize * 5) / 2);
+        String name2 = save("second");
+        // access the first entry, so the second one is the least recently used
+        assertNotNull(m_cache.getCacheObject(name1));
+        String name3 = save("third");
+        assertTrue(m_cache.getSize() <= m_cache.getMaxSize());
+        assertNotNull(m_cache.getCacheObject(name1));
+        assertNull(m_cache.getCacheObject(name2));
+        assertNotNull(m_cache.getCacheObject(name3));
+        assertFalse(new File(name2).exists());
+    }
+
+    /**
+     * Tests that a new cache instance reads the existing entries and removes files of the old format.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testReadExistingEntries() throws Exception {
+
+        String name = save("existing");
+        File oldEntry = new File(m_folder, "0f1e2d3c-0000-0000-0000-000000000000_pdf_123.ext");
+        FileOutputStream out = new FileOutputStream(oldEntry);
+        out.write(new byte[] {1, 2, 3});
+        out.close();
+
+        CmsExtractionResultCache cache = new CmsExtractionResultCache(m_folder.getParent(), "/" + m_folder.getName());
+        assertEquals(new File(name).length(), cache.getSize());
+        assertEquals("existing", cache.getCacheObject(name).getContent());
+        assertFalse(oldEntry.exists());
+    }
+
+    /**
+     * Tests that multilingual extraction results are stored and read without loss.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testRoundTrip() throws Exception {
+
+        StringBuffer longText = new StringBuffer();
+        for (int i = 0; i < 20000; i++) {
+            longText.append("text äöü ");
+        }
+        LinkedHashMap<String, String> en = new LinkedHashMap<String, String>();
+        en.put(I_CmsExtractionResult.ITEM_CONTENT, longText.toString());
+        en.put(I_CmsExtractionResult.ITEM_TITLE, "Title");
+        LinkedHashMap<String, String> de = new LinkedHashMap<String, String>();
+        de.put(I_CmsExtractionResult.ITEM_CONTENT, "Inhalt");
+        Map<Locale, LinkedHashMap<String, String>> items = new HashMap<Locale, LinkedHashMap<String, String>>();
+        items.put(Locale.ENGLISH, en);
+        items.put(Locale.GERMAN, de);
+        Map<String, String> mappings = new HashMap<String, String>();
+        mappings.put("field", "value");
+        CmsExtractionResult result = new CmsExtractionResult(Locale.ENGLISH, items, mappings);
+
+        String name = m_cache.getCacheName(new byte[] {1, 2, 3}, Locale.ENGLISH, "xmlcontent");
+        m_cache.saveCacheObject(name, result);
+        assertTrue(new File(name).length() < longText.length());
+
+        CmsExtractionResult read = m_cache.getCacheObject(name);
+        assertEquals(Locale.ENGLISH, read.getDefaultLocale());
+        assertEquals(result.getLocales(), read.getLocales());
+        assertEquals(en, read.getContentItems());
+        assertEquals(de, read.getContentItems(Locale.GERMAN));
+        assertEquals(mappings, read.getFieldMappings());
+        assertEquals(longText.toString(), read.getContent());
+    }
+
+    /**
+     * @see junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp() throws Exception {
+
+        m_folder = File.createTempFile("extractCache", "");
+        m_folder.delete();
+        m_folder.mkdirs();
+        m_cache = new CmsExtractionResultCache(m_folder.getParent(), "/" + m_folder.getName());
+    }
+
+    /**
+     * @see junit.framework.TestCase#tearDown()
+     */
+    @Override
+    protected void tearDown() {
+
+        CmsFileUtil.purgeDirectory(m_folder);
+    }
+
+    /**
+     * Creates a file resource with the given resource id and content date.<p>
+     *
+     * @param resourceId the resource id
+     * @param dateContent the date of the last content modification
+     *
+     * @return the resource
+     */
+    private CmsResource createResource(CmsUUID resourceId, long dateContent) {
+
+        return new CmsResource(
+            new CmsUUID(),
+            resourceId,
+            "/sites/default/article.html",
+            1,
+            false,
+            0,
+            CmsUUID.getNullUUID(),
+            CmsResourceState.STATE_UNCHANGED,
+            dateContent,
+            CmsUUID.getNullUUID(),
+            dateContent,
+            CmsUUID.getNullUUID(),
+            CmsResource.DATE_RELEASED_DEFAULT,
+            CmsResource.DATE_EXPIRED_DEFAULT,
+            2,
+            100,
+            dateContent,
+            0);
+    }
+
+    /**
+     * Saves a unilingual extraction result for the given text, using the text as content.<p>
+     *
+     * @param text the text
+     *
+     * @return the cache name
+     *
+     * @throws Exception if something goes wrong
+     */
+    private String save(String text) throws Exception {
+
+        String name = m_cache.getCacheName(text.getBytes("UTF-8"), null, "text");
+        m_cache.saveCacheObject(name, new CmsExtractionResult(text));
+        return name;
+    }
+}
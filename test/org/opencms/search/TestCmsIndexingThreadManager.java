@@ -0,0 +1,342 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.search;
+
+import org.opencms.db.CmsPublishedResource;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsResource;
+import org.opencms.file.types.CmsResourceTypeFolder;
+import org.opencms.file.types.CmsResourceTypePlain;
+import org.opencms.main.OpenCms;
+import org.opencms.report.CmsShellReport;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the batched writes and the commits of the {@link CmsIndexingThreadManager}.<p>
+ */
+public class TestCmsIndexingThreadManager extends OpenCmsTestCase {
+
+    /**
+     * Index writer that records the operations instead of writing an index.<p>
+     */
+    private static class CmsRecordingIndexWriter implements I_CmsIndexWriter {
+
+        /** The recorded operations. */
+        List<String> m_operations = new ArrayList<String>();
+
+        /**
+         * @see org.opencms.search.I_CmsIndexWriter#close()
+         */
+        public void close() {
+
+            // nothing to do
+        }
+
+        /**
+         * @see org.opencms.search.I_CmsIndexWriter#commit()
+         */
+        public void commit() {
+
+            m_operations.add("commit");
+        }
+
+        /**
+         * @see org.opencms.search.I_CmsIndexWriter#deleteDocument(org.opencms.db.CmsPublishedResource)
+         */
+        public void deleteDocument(CmsPublishedResource resource) {
+
+            m_operations.add("delete " + resource.getRootPath());
+        }
+
+        /**
+         * @see org.opencms.search.I_CmsIndexWriter#optimize()
+         */
+        public void optimize() {
+
+            // nothing to do
+        }
+
+        /**
+         * @see org.opencms.search.I_CmsIndexWriter#updateDocument(java.lang.String, org.opencms.search.I_CmsSearchDocument)
+         */
+        public void updateDocument(String rootPath, I_CmsSearchDocument document) {
+
+            m_operations.add("update " + rootPath);
+        }
+
+        /**
+         * @see org.opencms.search.I_CmsIndexWriter#updateDocuments(java.util.Map)
+         */
+        public void updateDocuments(Map<String, I_CmsSearchDocument> documents) {
+
+            m_operations.add("update " + documents.keySet());
+        }
+    }
+
+    /** The name of the index used for extracting the documents. */
+    private static final String INDEX_OFFLINE = "Offline project (VFS)";
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsIndexingThreadManager(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsIndexingThreadManager.class.getName());
+
+        suite.addTest(new TestCmsIndexingThreadManager("testBatchKeepsOrderOfDeletes"));
+        suite.addTest(new TestCmsIndexingThreadManager("testBatchSize"));
+        suite.addTest(new TestCmsIndexingThreadManager("testCommitInterval"));
+        suite.addTest(new TestCmsIndexingThreadManager("testCommitAfterModifications"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests that resources without document are deleted in the order the resources were passed in.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testBatchKeepsOrderOfDeletes() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing that the indexing batches keep the order of updates and deletes");
+
+        List<CmsResource> files = createFiles(cms, "/indexbatch1/", 4);
+        // folders are excluded from the index, so they are deleted
+        CmsResource folder = cms.readResource("/indexbatch1/");
+        List<CmsResource> resources = new ArrayList<CmsResource>();
+        resources.add(files.get(0));
+        resources.add(files.get(1));
+        resources.add(folder);
+        resources.add(files.get(2));
+        resources.add(files.get(3));
+
+        CmsRecordingIndexWriter writer = new CmsRecordingIndexWriter();
+        CmsIndexingThreadManager manager = new CmsIndexingThreadManager(0, 1000, 4, 0);
+        index(cms, manager, writer, resources);
+
+        List<String> expected = new ArrayList<String>();
+        expected.add("update [" + files.get(0).getRootPath() + ", " + files.get(1).getRootPath() + "]");
+        expected.add("delete " + folder.getRootPath());
+        expected.add("update [" + files.get(2).getRootPath() + ", " + files.get(3).getRootPath() + "]");
+        assertEquals(expected, writer.m_operations);
+    }
+
+    /**
+     * Tests that a batch is written when the batch size is reached.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testBatchSize() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing that the indexing batches are written when the batch size is reached");
+
+        int count = CmsIndexingThreadManager.DEFAULT_BATCH_SIZE + 5;
+        List<CmsResource> files = createFiles(cms, "/indexbatch2/", count);
+
+        CmsRecordingIndexWriter writer = new CmsRecordingIndexWriter();
+        CmsIndexingThreadManager manager = new CmsIndexingThreadManager(0, 1000, 4, 0);
+        index(cms, manager, writer, files);
+
+        assertEquals(2, writer.m_operations.size());
+        List<String> first = new ArrayList<String>();
+        for (CmsResource file : files.subList(0, CmsIndexingThreadManager.DEFAULT_BATCH_SIZE)) {
+            first.add(file.getRootPath());
+        }
+        List<String> second = new ArrayList<String>();
+        for (CmsResource file : files.subList(CmsIndexingThreadManager.DEFAULT_BATCH_SIZE, count)) {
+            second.add(file.getRootPath());
+        }
+        assertEquals("update " + first, writer.m_operations.get(0));
+        assertEquals("update " + second, writer.m_operations.get(1));
+    }
+
+    /**
+     * Tests that the index is committed after the configured number of modifications.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testCommitAfterModifications() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing that the index is committed after the configured number of modifications");
+
+        List<CmsResource> files = createFiles(cms, "/indexbatch4/", 5);
+
+        CmsRecordingIndexWriter writer = new CmsRecordingIndexWriter();
+        CmsIndexingThreadManager manager = new CmsIndexingThreadManager(0, 2, 2, 0);
+        index(cms, manager, writer, files);
+
+        List<String> expected = new ArrayList<String>();
+        expected.add("update [" + files.get(0).getRootPath() + ", " + files.get(1).getRootPath() + "]");
+        expected.add("commit");
+        expected.add("update [" + files.get(2).getRootPath() + ", " + files.get(3).getRootPath() + "]");
+        expected.add("commit");
+        expected.add("update " + files.get(4).getRootPath());
+        assertEquals(expected, writer.m_operations);
+    }
+
+    /**
+     * Tests that the pending documents are written and committed when the commit interval has passed.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testCommitInterval() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing that the index is committed when the commit interval has passed");
+
+        List<CmsResource> files = createFiles(cms, "/indexbatch3/", 3);
+
+        // without commit interval, nothing is committed before the number of modifications is reached
+        CmsRecordingIndexWriter writer = new CmsRecordingIndexWriter();
+        CmsIndexingThreadManager manager = new CmsIndexingThreadManager(0, 1000, 1, 0);
+        index(cms, manager, writer, files);
+        assertFalse(writer.m_operations.contains("commit"));
+
+        writer = new CmsRecordingIndexWriter();
+        manager = new CmsIndexingThreadManager(0, 1000, 1, 5);
+        CmsVfsIndexer indexer = createIndexer(cms);
+        for (CmsResource file : files) {
+            // make sure the commit interval has passed when the document is written
+            Thread.sleep(20);
+            manager.createIndexingThread(indexer, writer, file);
+        }
+        assertFalse(manager.isRunning());
+
+        List<String> expected = new ArrayList<String>();
+        for (CmsResource file : files) {
+            expected.add("update " + file.getRootPath());
+            expected.add("commit");
+        }
+        assertEquals(expected, writer.m_operations);
+    }
+
+    /**
+     * Creates a folder with the given number of text files.<p>
+     *
+     * @param cms the current user context
+     * @param folder the folder to create
+     * @param count the number of files
+     *
+     * @return the created files
+     *
+     * @throws Exception if something goes wrong
+     */
+    private List<CmsResource> createFiles(CmsObject cms, String folder, int count) throws Exception {
+
+        cms.createResource(folder, CmsResourceTypeFolder.getStaticTypeId());
+        List<CmsResource> result = new ArrayList<CmsResource>();
+        for (int i = 0; i < count; i++) {
+            result.add(
+                cms.createResource(
+                    folder + "file" + i + ".txt",
+                    CmsResourceTypePlain.getStaticTypeId(),
+                    ("Indexing thread manager test content " + i).getBytes(),
+                    null));
+        }
+        return result;
+    }
+
+    /**
+     * Creates a VFS indexer for the offline index.<p>
+     *
+     * @param cms the current user context
+     *
+     * @return the indexer
+     */
+    private CmsVfsIndexer createIndexer(CmsObject cms) {
+
+        CmsSearchIndex index = OpenCms.getSearchManager().getIndex(INDEX_OFFLINE);
+        return (CmsVfsIndexer)new CmsVfsIndexer().newInstance(cms, new CmsShellReport(Locale.ENGLISH), index);
+    }
+
+    /**
+     * Indexes the given resources and waits until all documents are written.<p>
+     *
+     * @param cms the current user context
+     * @param manager the thread manager
+     * @param writer the index writer
+     * @param resources the resources to index
+     *
+     * @throws Exception if something goes wrong
+     */
+    private void index(
+        CmsObject cms,
+        CmsIndexingThreadManager manager,
+        I_CmsIndexWriter writer,
+        List<CmsResource> resources) throws Exception {
+
+        CmsVfsIndexer indexer = createIndexer(cms);
+        for (CmsResource resource : resources) {
+            manager.createIndexingThread(indexer, writer, resource);
+        }
+        assertFalse(manager.isRunning());
+    }
+}
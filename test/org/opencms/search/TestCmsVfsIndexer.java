@@ -0,0 +1,177 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.search;
+
+import org.opencms.db.CmsPublishedResource;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsResource;
+import org.opencms.file.types.CmsResourceTypeFolder;
+import org.opencms.file.types.CmsResourceTypePlain;
+import org.opencms.main.OpenCms;
+import org.opencms.report.CmsShellReport;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the collection of the resources to update by the {@link CmsVfsIndexer}.<p>
+ */
+public class TestCmsVfsIndexer extends OpenCmsTestCase {
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsVfsIndexer(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsVfsIndexer.class.getName());
+
+        suite.addTest(new TestCmsVfsIndexer("testUpdateFolderContents"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests that the files below a changed folder are only updated if the index requires it.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testUpdateFolderContents() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing that the files below a published folder are updated if required by the index");
+
+        cms.createResource("/indexfolder/", CmsResourceTypeFolder.getStaticTypeId());
+        cms.createResource("/indexfolder/sub/", CmsResourceTypeFolder.getStaticTypeId());
+        CmsResource file = cms.createResource(
+            "/indexfolder/file.txt",
+            CmsResourceTypePlain.getStaticTypeId(),
+            "Folder contents test".getBytes(),
+            null);
+        CmsResource subFile = cms.createResource(
+            "/indexfolder/sub/file.txt",
+            CmsResourceTypePlain.getStaticTypeId(),
+            "Folder contents test".getBytes(),
+            null);
+        CmsResource folder = cms.readResource("/indexfolder/");
+        // e.g. the permissions of the folder have been changed
+        List<CmsPublishedResource> published = Collections.singletonList(
+            new CmsPublishedResource(folder, -1, CmsResource.STATE_CHANGED));
+
+        CmsSearchIndexSource source = new CmsSearchIndexSource();
+        source.addResourceName("/sites/default/");
+
+        List<String> expected = new ArrayList<String>();
+        expected.add(folder.getRootPath());
+        assertEquals(expected, getUpdatedPaths(cms, new CmsSearchIndex(), source, published));
+
+        CmsSearchIndex index = new CmsSearchIndex() {
+
+            @Override
+            public boolean isUpdatingFolderContents() {
+
+                return true;
+            }
+        };
+        List<String> paths = getUpdatedPaths(cms, index, source, published);
+        assertEquals(3, paths.size());
+        assertTrue(paths.containsAll(expected));
+        assertTrue(paths.contains(file.getRootPath()));
+        assertTrue(paths.contains(subFile.getRootPath()));
+
+        // new folders are published together with their contents
+        published = Collections.singletonList(new CmsPublishedResource(folder, -1, CmsResource.STATE_NEW));
+        assertEquals(expected, getUpdatedPaths(cms, index, source, published));
+    }
+
+    /**
+     * Returns the root paths of the resources the indexer updates for the given published resources.<p>
+     *
+     * @param cms the current user context
+     * @param index the search index
+     * @param source the index source
+     * @param published the published resources
+     *
+     * @return the root paths of the resources to update
+     *
+     * @throws Exception if something goes wrong
+     */
+    private List<String> getUpdatedPaths(
+        CmsObject cms,
+        CmsSearchIndex index,
+        CmsSearchIndexSource source,
+        List<CmsPublishedResource> published) throws Exception {
+
+        // the indexer reads the resources by their root path
+        CmsObject rootCms = OpenCms.initCmsObject(cms);
+        rootCms.getRequestContext().setSiteRoot("/");
+        I_CmsIndexer indexer = new CmsVfsIndexer().newInstance(rootCms, new CmsShellReport(Locale.ENGLISH), index);
+        List<String> result = new ArrayList<String>();
+        for (CmsPublishedResource resource : indexer.getUpdateData(source, published).getResourcesToUpdate()) {
+            result.add(resource.getRootPath());
+        }
+        return result;
+    }
+}
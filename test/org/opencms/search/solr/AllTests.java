@@ -125,6 +125,7 @@ public final class AllTests {
         suite.addTest(TestSolrFieldConfiguration.suite());
         suite.addTest(TestSolrSearch.suite());
         suite.addTest(TestCmsSolrCollector.suite());
+        suite.addTest(new TestSuite(TestCmsSolrPermissionFilter.class));
         //$JUnit-END$
         return suite;
     }
@@ -0,0 +1,133 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.search.solr;
+
+import org.opencms.search.fields.CmsSearchField;
+import org.opencms.security.CmsAccessControlEntry;
+import org.opencms.security.CmsAccessControlList;
+import org.opencms.security.CmsPermissionSet;
+import org.opencms.util.CmsUUID;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the translation of access control lists into Solr permission fields and filter queries.<p>
+ */
+public class TestCmsSolrPermissionFilter extends TestCase {
+
+    /** The id of the test resource. */
+    private static final CmsUUID RESOURCE = new CmsUUID();
+
+    /**
+     * Tests that the 'all others' entry is indexed like any other principal.<p>
+     */
+    public void testAllOthers() {
+
+        CmsAccessControlList acl = new CmsAccessControlList();
+        acl.add(entry(CmsAccessControlEntry.PRINCIPAL_ALL_OTHERS_ID, CmsPermissionSet.PERMISSION_READ, 0));
+
+        Map<String, List<String>> fields = CmsSolrPermissionFilter.getPermissionFields(acl);
+        assertEquals(
+            Arrays.asList(CmsAccessControlEntry.PRINCIPAL_ALL_OTHERS_ID.toString()),
+            fields.get(CmsSearchField.FIELD_READ_ALLOWED));
+        assertNull(fields.get(CmsSearchField.FIELD_READ_DENIED));
+    }
+
+    /**
+     * Tests the filter query created for a list of principals.<p>
+     */
+    public void testFilterQuery() {
+
+        CmsUUID user = new CmsUUID();
+        CmsUUID group = new CmsUUID();
+        String ids = "(\"" + user + "\" \"" + group + "\")";
+        String query = CmsSolrPermissionFilter.getFilterQuery(Arrays.asList(user, group));
+        assertEquals(
+            "(+read_allowed:"
+                + ids
+                + " -read_denied:"
+                + ids
+                + ") OR (+read_allowed:\""
+                + CmsAccessControlEntry.PRINCIPAL_ALL_OTHERS_ID
+                + "\" -read_principals:"
+                + ids
+                + ") OR (*:* -read_principals:[* TO *])",
+            query);
+    }
+
+    /**
+     * Tests that an empty access control list results in no fields.<p>
+     */
+    public void testNoEntries() {
+
+        assertTrue(CmsSolrPermissionFilter.getPermissionFields(new CmsAccessControlList()).isEmpty());
+    }
+
+    /**
+     * Tests that the allowed, denied and all principals are written to the corresponding fields.<p>
+     */
+    public void testPermissionFields() {
+
+        CmsUUID reader = new CmsUUID();
+        CmsUUID denied = new CmsUUID();
+        CmsUUID writer = new CmsUUID();
+        CmsAccessControlList acl = new CmsAccessControlList();
+        acl.add(entry(reader, CmsPermissionSet.PERMISSION_READ | CmsPermissionSet.PERMISSION_VIEW, 0));
+        acl.add(entry(denied, CmsPermissionSet.PERMISSION_VIEW, CmsPermissionSet.PERMISSION_READ));
+        acl.add(entry(writer, CmsPermissionSet.PERMISSION_WRITE, 0));
+        // a principal that is allowed and denied to read is denied
+        acl.add(entry(writer, 0, CmsPermissionSet.PERMISSION_READ));
+        acl.add(entry(writer, CmsPermissionSet.PERMISSION_READ, 0));
+
+        Map<String, List<String>> fields = CmsSolrPermissionFilter.getPermissionFields(acl);
+        assertEquals(Arrays.asList(reader.toString()), fields.get(CmsSearchField.FIELD_READ_ALLOWED));
+        List<String> deniedIds = fields.get(CmsSearchField.FIELD_READ_DENIED);
+        assertEquals(2, deniedIds.size());
+        assertTrue(deniedIds.contains(denied.toString()));
+        assertTrue(deniedIds.contains(writer.toString()));
+        assertEquals(3, fields.get(CmsSearchField.FIELD_READ_PRINCIPALS).size());
+    }
+
+    /**
+     * Creates an access control entry for the test resource.<p>
+     *
+     * @param principal the principal id
+     * @param allowed the allowed permissions
+     * @param denied the denied permissions
+     *
+     * @return the access control entry
+     */
+    private CmsAccessControlEntry entry(CmsUUID principal, int allowed, int denied) {
+
+        return new CmsAccessControlEntry(RESOURCE, principal, allowed, denied, 0);
+    }
+}
@@ -40,15 +40,20 @@ import org.opencms.report.CmsShellReport;
 import org.opencms.report.I_CmsReport;
 import org.opencms.search.CmsSearchIndex;
 import org.opencms.search.CmsSearchResource;
+import org.opencms.search.I_CmsSearchDocument;
 import org.opencms.search.fields.CmsSearchField;
 import org.opencms.test.OpenCmsTestCase;
 import org.opencms.test.OpenCmsTestProperties;
+import org.opencms.test.OpenCmsThreadedTestCase;
+import org.opencms.test.OpenCmsThreadedTestCaseSuite;
 import org.opencms.util.CmsRequestUtil;
+import org.opencms.util.CmsStringUtil;
 import org.opencms.xml.content.CmsXmlContent;
 import org.opencms.xml.content.CmsXmlContentFactory;
 
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
@@ -72,6 +77,12 @@ import junit.framework.TestSuite;
  */
 public class TestSolrSearch extends OpenCmsTestCase {
 
+    /** The number of concurrent searches performed by {@link #testConcurrentSearch()}. */
+    private static final int CONCURRENT_SEARCHES = 32;
+
+    /** The search roots queried concurrently, mapped to the root paths found by a single search. */
+    private Map<String, List<String>> m_expectedResults;
+
     /**
      * Default JUnit constructor.<p>
      *
@@ -110,6 +121,7 @@ public class TestSolrSearch extends OpenCmsTestCase {
         suite.addTest(new TestSolrSearch("testDocumentBoost"));
         suite.addTest(new TestSolrSearch("testAdvancedFacetting"));
         suite.addTest(new TestSolrSearch("testAdvancedHighlighting"));
+        suite.addTest(new TestSolrSearch("testConcurrentSearch"));
 
         // suite.addTest(new TestSolrSearch("testAdvancedMoreLikeThis"));
         // suite.addTest(new TestSolrSearch("testAdvancedPaging"));
@@ -146,6 +158,34 @@ public class TestSolrSearch extends OpenCmsTestCase {
         return wrapper;
     }
 
+    /**
+     * Concurrent search test method.<p>
+     *
+     * Performs the searches of {@link #testConcurrentSearch()} and compares the results with the ones
+     * found by a single search.<p>
+     *
+     * @param cms the OpenCms user context to use
+     * @param count the count for this test
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void doConcurrentSearch(CmsObject cms, Integer count) throws Exception {
+
+        CmsSolrIndex index = OpenCms.getSearchManager().getIndexSolr(AllTests.SOLR_ONLINE);
+        for (int i = 0; i < 10; i++) {
+            for (Map.Entry<String, List<String>> entry : m_expectedResults.entrySet()) {
+                assertEquals(
+                    "Search " + count + " for " + entry.getKey(),
+                    entry.getValue(),
+                    searchRootPaths(cms, index, entry.getKey()));
+                String rootPath = entry.getValue().get(0);
+                I_CmsSearchDocument doc = index.getDocument(CmsSearchField.FIELD_PATH, rootPath);
+                assertNotNull("Document lookup " + count + " for " + rootPath, doc);
+                assertEquals(rootPath, doc.getPath());
+            }
+        }
+    }
+
     /**
      * @throws Throwable if something goes wrong
      */
@@ -297,6 +337,46 @@ public class TestSolrSearch extends OpenCmsTestCase {
         // TODO: implement
     }
 
+    /**
+     * Tests that concurrent searches and document lookups on the same index return the same results
+     * as a single search.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testConcurrentSearch() throws Exception {
+
+        echo("Testing " + CONCURRENT_SEARCHES + " concurrent searches on the same Solr index");
+        CmsObject cms = getCmsObject();
+        CmsSolrIndex index = OpenCms.getSearchManager().getIndexSolr(AllTests.SOLR_ONLINE);
+
+        m_expectedResults = new LinkedHashMap<String, List<String>>();
+        String[] searchRoots = {"/sites/default/types/", "/sites/default/xmlcontent/", "/sites/default/folder1/"};
+        for (String searchRoot : searchRoots) {
+            List<String> result = searchRootPaths(cms, index, searchRoot);
+            assertFalse("No results for " + searchRoot, result.isEmpty());
+            m_expectedResults.put(searchRoot, result);
+        }
+
+        Object[] parameters = new Object[] {
+            OpenCmsThreadedTestCaseSuite.PARAM_CMSOBJECT,
+            OpenCmsThreadedTestCaseSuite.PARAM_COUNTER};
+        OpenCmsThreadedTestCaseSuite suite = new OpenCmsThreadedTestCaseSuite(
+            CONCURRENT_SEARCHES,
+            this,
+            "doConcurrentSearch",
+            parameters);
+        OpenCmsThreadedTestCase[] threads = suite.run();
+        if (suite.getThrowable() != null) {
+            throw new Exception(suite.getThrowable());
+        }
+        for (int i = 0; i < threads.length; i++) {
+            if (threads[i].getThrowable() != null) {
+                throw new Exception(threads[i].getThrowable());
+            }
+        }
+        echo("Total runtime of concurrent searches: " + CmsStringUtil.formatRuntime(suite.getRuntime()));
+    }
+
     /**
      * @throws Throwable if something goes wrong
      */
@@ -1039,6 +1119,30 @@ public class TestSolrSearch extends OpenCmsTestCase {
         // assertEquals("/sites/default/xmlcontent/article_0004.html", ((CmsSearchResult)results.get(1)).getPath());
     }
 
+    /**
+     * Searches all resources below the given search root and returns their root paths.<p>
+     *
+     * @param cms the OpenCms user context to use
+     * @param index the index to search
+     * @param searchRoot the search root
+     *
+     * @return the root paths of the found resources, sorted by path
+     *
+     * @throws Exception if something goes wrong
+     */
+    private List<String> searchRootPaths(CmsObject cms, CmsSolrIndex index, String searchRoot) throws Exception {
+
+        CmsSolrQuery squery = new CmsSolrQuery();
+        squery.setSearchRoots(searchRoot);
+        squery.setRows(new Integer(CmsSolrIndex.ROWS_MAX));
+        squery.addSortFieldOrders(Collections.singletonMap(CmsSearchField.FIELD_PATH, ORDER.asc));
+        List<String> result = new ArrayList<String>();
+        for (CmsSearchResource resource : index.search(cms, squery)) {
+            result.add(resource.getRootPath());
+        }
+        return result;
+    }
+
     /**
      * Internal helper for test with same name.<p>
      *
@@ -100,6 +100,7 @@ public final class AllTests {
         suite.addTest(org.opencms.jsp.decorator.AllTests.suite());
         suite.addTest(org.opencms.jsp.util.AllTests.suite());
         suite.addTest(org.opencms.loader.AllTests.suite());
+        suite.addTest(org.opencms.lock.AllTests.suite());
         suite.addTest(org.opencms.mail.AllTests.suite());
         suite.addTest(org.opencms.main.AllTests.suite());
         suite.addTest(org.opencms.module.AllTests.suite());
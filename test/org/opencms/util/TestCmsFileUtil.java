@@ -30,6 +30,7 @@ package org.opencms.util;
 import org.opencms.test.OpenCmsTestCase;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
@@ -135,6 +136,36 @@ public class TestCmsFileUtil extends OpenCmsTestCase {
         }
     }
 
+    /**
+     * Tests {@link CmsFileUtil#copyRange(InputStream, java.io.OutputStream, long, long)}
+     * with a stream that returns the data in several chunks.<p>
+     *
+     * @throws IOException in case the test fails
+     */
+    public void testCopyRange() throws IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(10, CmsFileUtil.copyRange(new TestInputStream(), out, 10, 10));
+        byte[] data = out.toByteArray();
+        assertEquals(10, data.length);
+        for (int i = 0; i < 6; ++i) {
+            assertEquals("first chunk data[" + i + "] has correct value", 1, data[i]);
+        }
+        for (int i = 6; i < 10; ++i) {
+            assertEquals("second chunk data[" + i + "] has correct value", 2, data[i]);
+        }
+
+        // copy all remaining bytes
+        out = new ByteArrayOutputStream();
+        assertEquals(20, CmsFileUtil.copyRange(new TestInputStream(), out, 4, -1));
+
+        // the stream ends before the requested range
+        out = new ByteArrayOutputStream();
+        assertEquals(4, CmsFileUtil.copyRange(new TestInputStream(), out, 20, 100));
+        assertEquals(0, CmsFileUtil.copyRange(new TestInputStream(), out, 30, 100));
+        assertEquals(24, CmsFileUtil.skipFully(new TestInputStream(), 30));
+    }
+
     /**
      * Test the behavior of {@link CmsFileUtil#readFully(InputStream)}
      * when the read takes more than one iteration to complete.<p>
@@ -27,7 +27,11 @@
 
 package org.opencms.xml;
 
+import org.opencms.i18n.CmsEncoder;
 import org.opencms.test.OpenCmsTestCase;
+import org.opencms.util.CmsFileUtil;
+
+import java.io.ByteArrayInputStream;
 
 /**
  * @since 6.0.0
@@ -93,4 +97,44 @@ public class TestXmlUtils extends OpenCmsTestCase {
         assertEquals("Title", CmsXmlUtils.simplifyXpath("Title/"));
         assertEquals("Title", CmsXmlUtils.simplifyXpath("/Title/"));
     }
+
+    /**
+     * Test case for the validation of XML documents with cached XML schemas.
+     *
+     * @throws Exception in case the test fails
+     */
+    public void testValidateXmlStructure() throws Exception {
+
+        String systemId = "http://www.opencms.org/test1.xsd";
+        CmsXmlEntityResolver resolver = new CmsXmlEntityResolver(null);
+        String schema = CmsFileUtil.readFile(
+            "org/opencms/xml/content/xmlcontent-definition-1.xsd",
+            CmsEncoder.ENCODING_UTF_8);
+        CmsXmlContentDefinition definition = CmsXmlContentDefinition.unmarshal(schema, systemId, resolver);
+        CmsXmlEntityResolver.cacheSystemId(systemId, definition.getSchema().asXML().getBytes(CmsEncoder.ENCODING_UTF_8));
+
+        byte[] content = CmsFileUtil.readFile("org/opencms/xml/content/xmlcontent-1.xml");
+        long count = CmsXmlUtils.getValidationCount();
+        CmsXmlUtils.validateXmlStructure(content, resolver);
+        assertNotNull(resolver.getCachedValidationSchema(systemId));
+        // the cached schema is used again
+        CmsXmlUtils.validateXmlStructure(content, resolver);
+        assertEquals(count + 2, CmsXmlUtils.getValidationCount());
+
+        byte[] invalidContent = new String(content, CmsEncoder.ENCODING_UTF_8).replace(
+            "<Locale>",
+            "<Unknown />\n<Locale>").getBytes(CmsEncoder.ENCODING_UTF_8);
+        try {
+            CmsXmlUtils.validateXmlStructure(invalidContent, resolver);
+            fail("Invalid XML document not detected with cached schema");
+        } catch (CmsXmlException e) {
+            // expected
+        }
+        try {
+            CmsXmlUtils.validateXmlStructure(new ByteArrayInputStream(invalidContent), resolver);
+            fail("Invalid XML document not detected with validating parser");
+        } catch (CmsXmlException e) {
+            // expected
+        }
+    }
 }
@@ -60,6 +60,7 @@ public final class AllTests {
         //$JUnit-BEGIN$
         suite.addTest(new TestSuite(TestCmsXmlContent.class));
         suite.addTest(new TestSuite(TestCmsXmlContentDefinition.class));
+        suite.addTest(new TestSuite(TestCmsXmlCompactContent.class));
         suite.addTest(TestCmsXmlContentSearchSettings.suite());
         suite.addTest(TestCmsXmlContentWithVfs.suite());
         suite.addTest(TestCmsXmlContentResourceBundlesGerman.suite());
@@ -67,6 +68,7 @@ public final class AllTests {
         suite.addTest(TestCmsXmlContentLinks.suite());
         suite.addTest(TestCmsXmlContent75Features.suite());
         suite.addTest(TestCmsXmlContentChoice.suite());
+        suite.addTest(TestCmsXmlContentCache.suite());
         //$JUnit-END$
         return suite;
     }
@@ -0,0 +1,156 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.xml.content;
+
+import org.opencms.i18n.CmsEncoder;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.util.CmsFileUtil;
+import org.opencms.xml.CmsXmlContentDefinition;
+import org.opencms.xml.CmsXmlEntityResolver;
+import org.opencms.xml.types.I_CmsXmlContentValue;
+
+import java.util.HashSet;
+import java.util.Locale;
+
+/**
+ * Tests for the compact XML content representation.<p>
+ */
+public class TestCmsXmlCompactContent extends OpenCmsTestCase {
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsXmlCompactContent(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests that the compact content contains the same values as the unmarshalled XML content.<p>
+     *
+     * @throws Exception in case the test fails
+     */
+    public void testCompactContent() throws Exception {
+
+        CmsXmlEntityResolver resolver = new CmsXmlEntityResolver(null);
+        cacheContentDefinition("xmlcontent-definition-1.xsd", "http://www.opencms.org/test1.xsd", resolver);
+        checkCompactContent(CmsFileUtil.readFile("org/opencms/xml/content/xmlcontent-1.xml"), resolver);
+
+        // multiple locales and values, white space, entities and unknown elements
+        String content = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<Multitests xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" "
+            + "xsi:noNamespaceSchemaLocation=\"http://www.opencms.org/test1.xsd\">\n"
+            + "  <Multitest language=\"en\">\n"
+            + "    <String>\n      <![CDATA[First]]>\n    </String>\n"
+            + "    <String>Second &amp; <![CDATA[ third ]]></String>\n"
+            + "    <String></String>\n"
+            + "    <Unknown><String>Ignored</String></Unknown>\n"
+            + "    <DateTime> 1 </DateTime>\n"
+            + "  </Multitest>\n"
+            + "  <Multitest language=\"de\">\n"
+            + "    <Locale>de</Locale>\n"
+            + "  </Multitest>\n"
+            + "</Multitests>";
+        checkCompactContent(content.getBytes(CmsEncoder.ENCODING_UTF_8), resolver);
+    }
+
+    /**
+     * Tests reading values from a compact content.<p>
+     *
+     * @throws Exception in case the test fails
+     */
+    public void testReadValues() throws Exception {
+
+        CmsXmlEntityResolver resolver = new CmsXmlEntityResolver(null);
+        cacheContentDefinition("xmlcontent-definition-1.xsd", "http://www.opencms.org/test1.xsd", resolver);
+        byte[] xmlData = CmsFileUtil.readFile("org/opencms/xml/content/xmlcontent-1.xml");
+        CmsXmlCompactContent compactContent = CmsXmlCompactContent.read(xmlData, resolver);
+
+        assertTrue(compactContent.hasLocale(Locale.ENGLISH));
+        assertFalse(compactContent.hasLocale(Locale.GERMAN));
+        assertTrue(compactContent.isExact());
+
+        assertTrue(compactContent.hasValue("String", Locale.ENGLISH, 0));
+        assertFalse(compactContent.hasValue("String", Locale.ENGLISH, 1));
+        assertEquals("Multitest 1", compactContent.getPlainValue("String", Locale.ENGLISH, 0));
+        assertEquals("Multitest 1", compactContent.getPlainValue("String[1]", Locale.ENGLISH, 0));
+        assertNull(compactContent.getPlainValue("String", Locale.GERMAN, 0));
+
+        // HTML values are not plain text values
+        assertTrue(compactContent.hasValue("Html", Locale.ENGLISH, 0));
+        assertNull(compactContent.getPlainValue("Html", Locale.ENGLISH, 0));
+    }
+
+    /**
+     * Unmarshals a content definition and stores it in the entity resolver.<p>
+     *
+     * @param schemaFile the name of the schema file
+     * @param systemId the system id of the schema
+     * @param resolver the entity resolver
+     *
+     * @throws Exception in case something goes wrong
+     */
+    private void cacheContentDefinition(String schemaFile, String systemId, CmsXmlEntityResolver resolver)
+    throws Exception {
+
+        String content = CmsFileUtil.readFile("org/opencms/xml/content/" + schemaFile, CmsEncoder.ENCODING_UTF_8);
+        CmsXmlContentDefinition definition = CmsXmlContentDefinition.unmarshal(content, systemId, resolver);
+        CmsXmlEntityResolver.cacheSystemId(systemId, definition.getSchema().asXML().getBytes(CmsEncoder.ENCODING_UTF_8));
+    }
+
+    /**
+     * Checks that the compact content of the given XML data contains the same values
+     * as the unmarshalled XML content.<p>
+     *
+     * @param xmlData the XML data of the content
+     * @param resolver the entity resolver
+     *
+     * @throws Exception in case the test fails
+     */
+    private void checkCompactContent(byte[] xmlData, CmsXmlEntityResolver resolver) throws Exception {
+
+        CmsXmlContent xmlContent = CmsXmlContentFactory.unmarshal(null, xmlData, CmsEncoder.ENCODING_UTF_8, resolver);
+        CmsXmlCompactContent compactContent = CmsXmlCompactContent.read(xmlData, resolver);
+
+        assertEquals(new HashSet<Locale>(xmlContent.getLocales()), new HashSet<Locale>(compactContent.getLocales()));
+        for (Locale locale : xmlContent.getLocales()) {
+            assertEquals(
+                new HashSet<String>(xmlContent.getNames(locale)),
+                new HashSet<String>(compactContent.getNames(locale)));
+            for (I_CmsXmlContentValue value : xmlContent.getValues(locale)) {
+                assertTrue(compactContent.hasValue(value.getPath(), locale, 0));
+                String plainValue = compactContent.getPlainValue(value.getPath(), locale, 0);
+                if (plainValue != null) {
+                    assertEquals(value.getStringValue(null), plainValue);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.xml.content;
+
+import org.opencms.file.CmsFile;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProject;
+import org.opencms.file.CmsResource;
+import org.opencms.main.OpenCms;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the shared {@link CmsXmlContentCache} of the Online project.<p>
+ */
+public class TestCmsXmlContentCache extends OpenCmsTestCase {
+
+    /** The XML content used for the tests. */
+    private static final String FILENAME = "/xmlcontent/article_0001.html";
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsXmlContentCache(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsXmlContentCache.class.getName());
+
+        suite.addTest(new TestCmsXmlContentCache("testIndependentContents"));
+        suite.addTest(new TestCmsXmlContentCache("testFlushOnPublish"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests that the cache is flushed when publishing.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testFlushOnPublish() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing that the XML content cache is flushed when publishing");
+
+        CmsObject online = getOnlineCmsObject(cms);
+        CmsResource resource = online.readResource(FILENAME);
+        CmsXmlContentFactory.unmarshalShared(online, resource);
+        assertNotNull(CmsXmlContentCache.getInstance().getContent(online, resource));
+
+        cms.lockResource(FILENAME);
+        CmsFile file = cms.readFile(FILENAME);
+        CmsXmlContent content = CmsXmlContentFactory.unmarshal(cms, file);
+        content.getValue("Title", Locale.ENGLISH).setStringValue(cms, "Published title");
+        file.setContents(content.marshal());
+        cms.writeFile(file);
+        cms.unlockResource(FILENAME);
+        // nothing is cached for the Offline project
+        assertNull(CmsXmlContentCache.getInstance().getContent(cms, cms.readResource(FILENAME)));
+
+        OpenCms.getPublishManager().publishResource(cms, FILENAME);
+        OpenCms.getPublishManager().waitWhileRunning();
+
+        assertNull(CmsXmlContentCache.getInstance().getContent(online, resource));
+        CmsXmlContent published = CmsXmlContentFactory.unmarshalShared(online, online.readResource(FILENAME));
+        assertEquals("Published title", published.getStringValue(online, "Title", Locale.ENGLISH));
+    }
+
+    /**
+     * Tests that every lookup returns an independent XML content instance with its own file.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testIndependentContents() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing that the XML content cache returns independent content instances");
+
+        CmsObject online = getOnlineCmsObject(cms);
+        CmsResource resource = online.readResource(FILENAME);
+        // the first lookup reads the content and caches a copy of it
+        CmsXmlContent first = CmsXmlContentFactory.unmarshalShared(online, resource);
+        String title = first.getStringValue(online, "Title", Locale.ENGLISH);
+        byte[] contents = first.getFile().getContents().clone();
+
+        CmsXmlContent second = CmsXmlContentFactory.unmarshalShared(online, resource);
+        CmsXmlContent third = CmsXmlContentFactory.unmarshalShared(online, resource);
+        assertNotSame(first, second);
+        assertNotSame(second, third);
+        assertNotSame(first.getFile(), second.getFile());
+        assertNotSame(second.getFile(), third.getFile());
+        assertNotSame(second.getFile().getContents(), third.getFile().getContents());
+
+        // modifying the returned contents and files must not change the cached data
+        first.getValue("Title", Locale.ENGLISH).setStringValue(online, "First modification");
+        first.getFile().setContents(first.marshal());
+        second.getValue("Title", Locale.ENGLISH).setStringValue(online, "Second modification");
+        second.getFile().setContents(second.marshal());
+        assertEquals(title, third.getStringValue(online, "Title", Locale.ENGLISH));
+
+        CmsXmlContent fourth = CmsXmlContentFactory.unmarshalShared(online, resource);
+        assertEquals(title, fourth.getStringValue(online, "Title", Locale.ENGLISH));
+        assertTrue(Arrays.equals(contents, fourth.getFile().getContents()));
+    }
+
+    /**
+     * Returns a copy of the given user context switched to the Online project.<p>
+     *
+     * @param cms the current user context
+     *
+     * @return the Online user context
+     *
+     * @throws Exception if something goes wrong
+     */
+    private CmsObject getOnlineCmsObject(CmsObject cms) throws Exception {
+
+        CmsObject online = OpenCms.initCmsObject(cms);
+        online.getRequestContext().setCurrentProject(cms.readProject(CmsProject.ONLINE_PROJECT_ID));
+        return online;
+    }
+}